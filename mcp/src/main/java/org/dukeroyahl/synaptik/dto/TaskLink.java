@@ -0,0 +1,3 @@
+package org.dukeroyahl.synaptik.dto;
+
+public record TaskLink(String taskId, String dependencyId) {}
@@ -0,0 +1,5 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.List;
+
+public record TaskLinkResponse(boolean errors, List<TaskLinkResult> results) {}
@@ -0,0 +1,3 @@
+package org.dukeroyahl.synaptik.dto;
+
+public record TaskLinkResult(String action, String taskId, String dependencyId, int status, String error) {}
@@ -7,6 +7,8 @@ import org.dukeroyahl.synaptik.domain.Project;
 import org.dukeroyahl.synaptik.domain.ProjectStatus;
 import org.dukeroyahl.synaptik.domain.TaskStatus;
 import org.dukeroyahl.synaptik.dto.TaskGraphResponse;
+import org.dukeroyahl.synaptik.dto.TaskLinkRequest;
+import org.dukeroyahl.synaptik.dto.TaskLinkResponse;
 import org.dukeroyahl.synaptik.dto.UpdateProject;
 import org.dukeroyahl.synaptik.dto.TaskRequest;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
@@ -76,6 +78,10 @@ public interface SynaptikApiClient {
     @Path("/api/tasks/{id}/link/{dependencyId}")
     Uni<Response> unlinkTasks(@PathParam("id") String taskId, @PathParam("dependencyId") String dependencyId);
     
+    @POST
+    @Path("/api/tasks/links")
+    Uni<TaskLinkResponse> applyLinks(TaskLinkRequest request);
+    
     // ===== RESTORED STATUS-BASED ENDPOINTS =====
     
     @GET
@@ -104,6 +110,12 @@ public interface SynaptikApiClient {
     @Path("/api/tasks/today")
     Uni<List<Task>> getTodayTasks(@QueryParam("tz") String timezone);
     
+    @GET
+    @Path("/api/tasks/top")
+    Uni<List<Task>> getTopTasks(@QueryParam("limit") int limit,
+                                @QueryParam("assignee") String assignee,
+                                @QueryParam("projectId") String projectId);
+    
     @GET
     @Path("/api/tasks/search")
     Uni<List<Task>> searchTasks(@QueryParam("assignee") String assignee,
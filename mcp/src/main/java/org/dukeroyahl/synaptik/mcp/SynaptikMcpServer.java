@@ -13,6 +13,9 @@ import org.dukeroyahl.synaptik.domain.Project;
 import org.dukeroyahl.synaptik.domain.TaskPriority;
 import org.dukeroyahl.synaptik.domain.TaskStatus;
 import org.dukeroyahl.synaptik.dto.TaskGraphResponse;
+import org.dukeroyahl.synaptik.dto.TaskLink;
+import org.dukeroyahl.synaptik.dto.TaskLinkRequest;
+import org.dukeroyahl.synaptik.dto.TaskLinkResult;
 import org.dukeroyahl.synaptik.dto.TaskRequest;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 
@@ -130,43 +133,66 @@ public class SynaptikMcpServer {
             return Uni.createFrom().item("❌ At least one dependency task ID is required");
         }
         
-        // Parse the dependency task IDs
-        String[] dependencyIds = dependsOnTaskIds.trim().split(",");
-        List<Uni<String>> linkOperations = new ArrayList<>();
-        
-        // Create link operations for each dependency
-        for (String depId : dependencyIds) {
+        // Send every dependency in one request so the server checks cycles once
+        List<String> messages = new ArrayList<>();
+        List<TaskLink> links = new ArrayList<>();
+        for (String depId : dependsOnTaskIds.trim().split(",")) {
             String cleanDepId = depId.trim();
-            if (!cleanDepId.isEmpty()) {
-                Uni<String> linkOp = apiClient.linkTasks(taskId.trim(), cleanDepId)
-                        .map(response -> {
-                            if (response.getStatus() == 200) {
-                                return "✅ Linked to " + cleanDepId;
-                            } else {
-                                return "❌ Failed to link to " + cleanDepId;
-                            }
-                        })
-                        .onFailure().recoverWithItem("❌ Error linking to " + cleanDepId);
-                linkOperations.add(linkOp);
+            if (cleanDepId.isEmpty()) {
+                continue;
+            }
+            if (isValidUUID(taskId) && isValidUUID(cleanDepId)) {
+                links.add(new TaskLink(taskId.trim(), cleanDepId));
+            } else {
+                messages.add("❌ Failed to link to " + cleanDepId + ": invalid task ID");
             }
         }
         
-        // Execute all link operations and combine results
-        return Uni.combine().all().unis(linkOperations)
-                .with(results -> {
+        return applyLinks(new TaskLinkRequest(links, List.of()), messages, "✅ Linked to ", "❌ Failed to link to ")
+                .map(results -> {
                     StringBuilder result = new StringBuilder();
                     result.append("🔗 Task linking results:\n\n");
                     result.append("**Task ID:** ").append(taskId).append("\n");
                     result.append("**Link Operations:**\n");
                     
-                    for (Object linkResult : results) {
-                        result.append("  ").append(linkResult.toString()).append("\n");
+                    for (String linkResult : results) {
+                        result.append("  ").append(linkResult).append("\n");
                     }
                     
                     return result.toString();
                 });
     }
 
+    /**
+     * Apply links through POST /api/tasks/links and describe each edge, after any messages
+     * for edges rejected before sending.
+     */
+    private Uni<List<String>> applyLinks(TaskLinkRequest request, List<String> messages,
+                                         String succeeded, String failed) {
+        if (request.link().isEmpty() && request.unlink().isEmpty()) {
+            return Uni.createFrom().item(messages);
+        }
+        return apiClient.applyLinks(request)
+                .map(response -> {
+                    for (TaskLinkResult linkResult : response.results()) {
+                        if (linkResult.status() < 400) {
+                            messages.add(succeeded + linkResult.dependencyId());
+                        } else {
+                            messages.add(failed + linkResult.dependencyId()
+                                    + (linkResult.error() != null ? ": " + linkResult.error() : ""));
+                        }
+                    }
+                    return messages;
+                })
+                .onFailure().recoverWithItem(failure -> {
+                    LOG.warning("Bulk link request failed: " + failure.getMessage());
+                    List<TaskLink> edges = new ArrayList<>(request.unlink());
+                    edges.addAll(request.link());
+                    edges.forEach(edge -> messages.add(failed + edge.dependencyId()));
+                    return messages;
+                });
+    }
+
     @Tool(description = "Update an existing task")
     public Uni<String> updateTask(
             @ToolArg(description = "Task ID") String taskId,
@@ -304,6 +330,31 @@ public class SynaptikMcpServer {
                 .map(tasks -> formatTasksResponse(tasks, "Today's tasks (timezone: " + userTimezone + ")"));
     }
 
+    @Tool(description = "Get the most urgent open tasks")
+    public Uni<String> getTopTasks(
+            @ToolArg(description = "Maximum number of tasks (optional, default: 20)") String limit,
+            @ToolArg(description = "Assignee name (exact match, optional)") String assignee,
+            @ToolArg(description = "Project ID (exact UUID match, optional)") String projectId) {
+        
+        int limitInt = 20;
+        if (limit != null && !limit.trim().isEmpty()) {
+            try {
+                limitInt = Integer.parseInt(limit.trim());
+            } catch (NumberFormatException e) {
+                return Uni.createFrom().item("❌ Invalid limit. Please provide a number.");
+            }
+        }
+        
+        String cleanProjectId = (projectId != null && !projectId.trim().isEmpty()) ? projectId.trim() : null;
+        if (cleanProjectId != null && !isValidUUID(cleanProjectId)) {
+            return Uni.createFrom().item("❌ Invalid project ID format. Please provide a valid UUID.");
+        }
+        String cleanAssignee = (assignee != null && !assignee.trim().isEmpty()) ? assignee.trim() : null;
+        
+        return apiClient.getTopTasks(limitInt, cleanAssignee, cleanProjectId)
+                .map(tasks -> formatTasksResponseWithEmoji(tasks, "Most urgent tasks", "🔥"));
+    }
+
     @Tool(description = "Search tasks with multiple filters")
     public Uni<String> searchTasks(
             @ToolArg(description = "Assignee name (partial match, optional)") String assignee,
@@ -853,65 +904,50 @@ public class SynaptikMcpServer {
                             return Uni.createFrom().item("ℹ️ Task has no dependencies to remove");
                         }
                         
-                        // Create unlink operations for all dependencies
-                        List<Uni<String>> unlinkOperations = new ArrayList<>();
-                        for (Task dep : dependencies) {
-                            Uni<String> unlinkOp = apiClient.unlinkTasks(taskId.trim(), dep.id)
-                                    .map(response -> {
-                                        if (response.getStatus() == 200) {
-                                            return "✅ Unlinked from " + dep.title + " (" + dep.id + ")";
-                                        } else {
-                                            return "❌ Failed to unlink from " + dep.title + " (" + dep.id + ")";
-                                        }
-                                    })
-                                    .onFailure().recoverWithItem("❌ Error unlinking from " + dep.title);
-                            unlinkOperations.add(unlinkOp);
-                        }
-                        
-                        return Uni.combine().all().unis(unlinkOperations)
-                                .with(results -> {
+                        List<TaskLink> unlinks = dependencies.stream()
+                                .map(dep -> new TaskLink(taskId.trim(), dep.id))
+                                .collect(Collectors.toList());
+                        return applyLinks(new TaskLinkRequest(List.of(), unlinks), new ArrayList<>(),
+                                "✅ Unlinked from ", "❌ Failed to unlink from ")
+                                .map(results -> {
                                     StringBuilder result = new StringBuilder();
                                     result.append("🔓 Removed all dependencies:\n\n");
                                     result.append("**Task ID:** ").append(taskId).append("\n");
                                     result.append("**Unlink Operations:**\n");
                                     
-                                    for (Object unlinkResult : results) {
-                                        result.append("  ").append(unlinkResult.toString()).append("\n");
+                                    for (String unlinkResult : results) {
+                                        result.append("  ").append(unlinkResult).append("\n");
                                     }
                                     
                                     return result.toString();
                                 });
                     });
         } else {
-            // Remove specific dependencies
-            String[] dependencyIds = dependencyIdsToRemove.trim().split(",");
-            List<Uni<String>> unlinkOperations = new ArrayList<>();
-            
-            for (String depId : dependencyIds) {
+            // Remove specific dependencies in one request
+            List<String> messages = new ArrayList<>();
+            List<TaskLink> unlinks = new ArrayList<>();
+            for (String depId : dependencyIdsToRemove.trim().split(",")) {
                 String cleanDepId = depId.trim();
-                if (!cleanDepId.isEmpty()) {
-                    Uni<String> unlinkOp = apiClient.unlinkTasks(taskId.trim(), cleanDepId)
-                            .map(response -> {
-                                if (response.getStatus() == 200) {
-                                    return "✅ Unlinked from " + cleanDepId;
-                                } else {
-                                    return "❌ Failed to unlink from " + cleanDepId;
-                                }
-                            })
-                            .onFailure().recoverWithItem("❌ Error unlinking from " + cleanDepId);
-                    unlinkOperations.add(unlinkOp);
+                if (cleanDepId.isEmpty()) {
+                    continue;
+                }
+                if (isValidUUID(taskId) && isValidUUID(cleanDepId)) {
+                    unlinks.add(new TaskLink(taskId.trim(), cleanDepId));
+                } else {
+                    messages.add("❌ Failed to unlink from " + cleanDepId + ": invalid task ID");
                 }
             }
             
-            return Uni.combine().all().unis(unlinkOperations)
-                    .with(results -> {
+            return applyLinks(new TaskLinkRequest(List.of(), unlinks), messages,
+                    "✅ Unlinked from ", "❌ Failed to unlink from ")
+                    .map(results -> {
                         StringBuilder result = new StringBuilder();
                         result.append("🔓 Task unlinking results:\n\n");
                         result.append("**Task ID:** ").append(taskId).append("\n");
                         result.append("**Unlink Operations:**\n");
                         
-                        for (Object unlinkResult : results) {
-                            result.append("  ").append(unlinkResult.toString()).append("\n");
+                        for (String unlinkResult : results) {
+                            result.append("  ").append(unlinkResult).append("\n");
                         }
                         
                         return result.toString();
@@ -27,17 +27,35 @@ db.tasks.createIndex({ "status": 1, "priority": 1 });
 db.tasks.createIndex({ "projectId": 1, "status": 1 });
 db.tasks.createIndex({ "assignee": 1, "status": 1 });
 
-// Search functionality
+// Server-side sorting on /api/tasks/search (sort=dueDate|updatedAt|priority).
+// dueAt, hasDue and priorityRank are derived on write; the application backfills older tasks.
+// Ascending dueDate sorts on hasDue first so tasks without a due date come last.
+db.tasks.createIndex({ "status": 1, "dueAt": 1 });
+db.tasks.createIndex({ "status": 1, "hasDue": -1, "dueAt": 1 });
+db.tasks.createIndex({ "status": 1, "updatedAt": -1 });
+db.tasks.createIndex({ "status": 1, "priorityRank": -1, "urgency": -1 });
+
+// Tag filters (multikey: one index entry per tag)
+db.tasks.createIndex({ "tags": 1 });
+
+// Full-text search (q= on /api/tasks/search). Only one text index is allowed per
+// collection, so replace any older definition with the same name.
+if (db.tasks.getIndexes().some(index => index.name === "task_search_index")) {
+  db.tasks.dropIndex("task_search_index");
+}
 db.tasks.createIndex({ 
   "title": "text", 
   "description": "text",
-  "assignee": "text"
+  "tags": "text",
+  "annotations.description": "text"
 }, {
   name: "task_search_index",
+  default_language: "english",
   weights: {
     "title": 10,
-    "description": 5,
-    "assignee": 3
+    "tags": 5,
+    "description": 3,
+    "annotations.description": 1
   }
 });
 
@@ -83,9 +101,35 @@ db.tasks.createIndex({ "projectId": 1, "status": 1 });
 // For urgency-based sorting
 db.tasks.createIndex({ "urgency": -1 });
 
+// For top-K urgency queries (/api/tasks/top): filter by status, walk urgency descending
+db.tasks.createIndex({ "status": 1, "urgency": -1 });
+
+// Waiting tasks: loaded by the wait scheduler on startup; waitAt is removed when a wait ends
+db.tasks.createIndex(
+  { "waitAt": 1 },
+  {
+    name: "tasks_waitAt_partial",
+    partialFilterExpression: { "waitAt": { $exists: true } }
+  }
+);
+
 // For recent tasks
 db.tasks.createIndex({ "createdAt": -1 });
 
+// Task annotation history: per-task reads newest first, and expiry after the retention
+// period (synaptik.annotations.retention, default 365 days)
+db.task_annotations.createIndex({ "taskId": 1, "timestamp": -1 });
+db.task_annotations.createIndex({ "timestamp": 1 }, { name: "task_annotation_ttl", expireAfterSeconds: 31536000 });
+
+// Task activity log: by task, by project or by time range, newest first; daily summaries
+// are unique per task and day, which compaction's $merge requires
+db.task_activity.createIndex({ "taskId": 1, "timestamp": -1 });
+db.task_activity.createIndex({ "projectId": 1, "timestamp": -1 });
+db.task_activity.createIndex({ "timestamp": -1 });
+db.task_activity_daily.createIndex({ "taskId": 1, "day": 1 }, { name: "task_activity_day_unique", unique: true });
+db.task_activity_daily.createIndex({ "projectId": 1, "day": -1 });
+db.task_activity_daily.createIndex({ "day": -1 });
+
 print("Index creation completed!");
 
 // ===== VERIFY INDEXES =====
@@ -0,0 +1,115 @@
+package org.dukeroyahl.synaptik.benchmark;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latency of a small CRUD request on an event loop while a large import is parsed in the
+ * background, in each synaptik.blocking.mode.
+ *
+ * The event loop is a single thread. A CRUD request is one submitted task that serializes
+ * one task, as a GET /api/tasks/{id} response would. An importer thread keeps parsing a
+ * JSON array of {@code importSize} tasks: with "inline" the parse runs on the event loop,
+ * as importTasksFromFile used to; with "virtual-thread" it runs on a virtual thread and only
+ * hands the result back to the loop. Sample mode reports percentiles: with "inline" the tail
+ * grows with the import size, with "virtual-thread" it stays close to "idle" (no import).
+ *
+ * Run with: gradle jmh -PjmhIncludes=BlockingOffloadBenchmark
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+public class BlockingOffloadBenchmark {
+
+    @Param({"idle", "inline", "virtual-thread"})
+    String mode;
+
+    @Param({"20000"})
+    int importSize;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private ExecutorService eventLoop;
+    private ExecutorService virtualThreads;
+    private Thread importer;
+    private volatile boolean importing;
+
+    private byte[] importFile;
+    private TaskDTO task;
+
+    @Setup(Level.Trial)
+    public void setup() throws Exception {
+        List<Task> tasks = new ArrayList<>(importSize);
+        for (int i = 0; i < importSize; i++) {
+            Task imported = new Task();
+            imported.id = UUID.randomUUID();
+            imported.title = "Imported task " + i;
+            imported.description = "Line " + i + " of a large import file";
+            imported.status = TaskStatus.PENDING;
+            imported.priority = TaskPriority.values()[i % TaskPriority.values().length];
+            imported.tags = List.of("import", "batch-" + (i % 20));
+            imported.dueDate = "2025-12-31T23:59:59Z";
+            tasks.add(imported);
+        }
+        importFile = objectMapper.writeValueAsBytes(tasks);
+
+        task = new TaskDTO();
+        task.id = UUID.randomUUID();
+        task.title = "Deploy";
+        task.status = TaskStatus.ACTIVE;
+        task.priority = TaskPriority.HIGH;
+        task.tags = List.of("ops");
+
+        eventLoop = Executors.newSingleThreadExecutor();
+        virtualThreads = Executors.newVirtualThreadPerTaskExecutor();
+        importing = true;
+        importer = new Thread(this::importLoop, "importer");
+        if (!mode.equals("idle")) {
+            importer.start();
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        importing = false;
+        if (importer.isAlive()) {
+            importer.join();
+        }
+        eventLoop.shutdown();
+        virtualThreads.shutdown();
+    }
+
+    private void importLoop() {
+        TypeReference<List<Task>> type = new TypeReference<>() {};
+        try {
+            while (importing) {
+                if (mode.equals("inline")) {
+                    eventLoop.submit(() -> objectMapper.readValue(importFile, type).size()).get();
+                } else {
+                    List<Task> parsed = virtualThreads.submit(() -> objectMapper.readValue(importFile, type)).get();
+                    eventLoop.submit(parsed::size).get();
+                }
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Benchmark
+    public byte[] crudRequest() throws Exception {
+        return eventLoop.submit(() -> objectMapper.writeValueAsBytes(task)).get();
+    }
+}
@@ -0,0 +1,69 @@
+package org.dukeroyahl.synaptik.benchmark;
+
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares DateTimeHelper.parseIso8601 (fast path with general fallback) against the
+ * previous exception-driven implementation, for each input shape seen in the
+ * overdue/today filters.
+ *
+ * Run with: gradle jmh -PjmhIncludes=DateTimeParsingBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class DateTimeParsingBenchmark {
+
+    @Param({
+        "2025-08-11T14:30:00Z",
+        "2025-08-11T10:30:00-04:00",
+        "2025-08-11T14:30:00.123456789+02:00",
+        "2025-08-11T14:30:00",
+        "2025-08-11"
+    })
+    public String input;
+
+    @Benchmark
+    public void fastPath(Blackhole bh) {
+        bh.consume(DateTimeHelper.parseIso8601(input));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        bh.consume(legacyParseIso8601(input));
+    }
+
+    /**
+     * The implementation DateTimeHelper.parseIso8601 used before the fast path was added.
+     */
+    static ZonedDateTime legacyParseIso8601(String dateString) {
+        if (dateString == null || dateString.trim().isEmpty()) {
+            return null;
+        }
+
+        String normalized = dateString.trim();
+
+        try {
+            return ZonedDateTime.parse(normalized);
+        } catch (DateTimeParseException e1) {
+            try {
+                LocalDateTime localDateTime = LocalDateTime.parse(normalized);
+                return localDateTime.atZone(ZoneId.of("UTC"));
+            } catch (DateTimeParseException e2) {
+                if (normalized.matches("\\d{4}-\\d{2}-\\d{2}")) {
+                    LocalDateTime localDateTime = LocalDateTime.parse(normalized + "T23:59:59");
+                    return localDateTime.atZone(ZoneId.of("UTC"));
+                }
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package org.dukeroyahl.synaptik.benchmark;
+
+import org.bson.types.ObjectId;
+import org.dukeroyahl.synaptik.util.UUIDCodec;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the bit-level ObjectId to UUID conversion in UUIDCodec against the previous
+ * String.format/replaceAll/UUID.fromString implementation.
+ *
+ * Run with: gradle jmh -PjmhIncludes=ObjectIdUUIDBenchmark
+ * Add -prof gc (via jmh { profilers = ['gc'] }) to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class ObjectIdUUIDBenchmark {
+
+    private ObjectId objectId;
+
+    @Setup
+    public void setup() {
+        objectId = new ObjectId("66b8f0c2a1b2c3d4e5f60718");
+    }
+
+    @Benchmark
+    public void bitLevel(Blackhole bh) {
+        bh.consume(UUIDCodec.fromObjectId(objectId));
+    }
+
+    @Benchmark
+    public void legacy(Blackhole bh) {
+        bh.consume(legacyFromObjectId(objectId));
+    }
+
+    private static UUID legacyFromObjectId(ObjectId objectId) {
+        String hex = objectId.toHexString();
+        String paddedHex = String.format("%32s", hex).replace(' ', '0');
+        String formatted = paddedHex.replaceAll(
+            "(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})",
+            "$1-$2-$3-$4-$5"
+        );
+        return UUID.fromString(formatted);
+    }
+}
@@ -0,0 +1,72 @@
+package org.dukeroyahl.synaptik.benchmark;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.helper.TaskSearchQueryBuilder;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Per-request cost of turning /api/tasks/search parameters into a MongoDB query,
+ * for the filter combinations the UI sends most, plus the project UUID check on its own.
+ *
+ * Run with: gradle jmh -PjmhIncludes=TaskSearchQueryBuilderBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+public class TaskSearchQueryBuilderBenchmark {
+
+    private static final String PROJECT_ID = "3f2b8c1e-4d5a-4b6c-9e7f-0a1b2c3d4e5f";
+
+    @Param({"status", "statusTitle", "projectDates", "full"})
+    public String shape;
+
+    // Same level as quarkus.log.category."org.dukeroyahl.synaptik" in application.properties;
+    // the bare log manager in the benchmark JVM would otherwise enable every level
+    private static final Logger APP_LOGGER = Logger.getLogger("org.dukeroyahl.synaptik");
+
+    private final TaskSearchQueryBuilder builder = new TaskSearchQueryBuilder();
+    private TaskSearchCriteria criteria;
+
+    @Setup
+    public void setup() {
+        APP_LOGGER.setLevel(Level.FINE);
+        criteria = switch (shape) {
+            case "status" -> new TaskSearchCriteria(List.of(TaskStatus.PENDING, TaskStatus.ACTIVE),
+                null, null, null, null, null, null);
+            case "statusTitle" -> new TaskSearchCriteria(List.of(TaskStatus.PENDING),
+                "deploy", null, null, null, null, null);
+            case "projectDates" -> new TaskSearchCriteria(null,
+                null, null, PROJECT_ID, "2025-08-01", "2025-08-31", "America/New_York");
+            case "full" -> {
+                TaskSearchCriteria full = new TaskSearchCriteria(List.of(TaskStatus.PENDING, TaskStatus.ACTIVE),
+                    "release", "alice", PROJECT_ID, "2025-08-01", "2025-08-31T18:00:00", "Europe/Berlin");
+                full.tags = List.of("backend,urgent");
+                yield full;
+            }
+            default -> throw new IllegalArgumentException(shape);
+        };
+    }
+
+    @Benchmark
+    public void buildSearchQuery(Blackhole bh) {
+        bh.consume(builder.buildSearchQuery(criteria));
+    }
+
+    @Benchmark
+    public boolean uuidCheck() {
+        return TaskSearchQueryBuilder.isValidUUID(PROJECT_ID);
+    }
+
+    @Benchmark
+    public boolean legacyUuidCheck() {
+        // The regex check isValidUUID used before the character-level version
+        return PROJECT_ID.matches("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+    }
+}
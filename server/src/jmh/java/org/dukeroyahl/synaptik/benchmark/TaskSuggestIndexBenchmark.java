@@ -0,0 +1,64 @@
+package org.dukeroyahl.synaptik.benchmark;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.search.TaskSuggestIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Typeahead latency of TaskSuggestIndex over a synthetic collection of one million tasks.
+ * Sample mode reports the latency distribution (p0.99 is the figure to watch).
+ *
+ * Run with: gradle jmh -PjmhIncludes=TaskSuggestIndexBenchmark
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class TaskSuggestIndexBenchmark {
+
+    private static final String[] VERBS = {
+        "deploy", "review", "write", "fix", "update", "plan", "test", "refactor", "migrate", "document"
+    };
+    private static final String[] NOUNS = {
+        "release", "checklist", "report", "login", "dashboard", "database", "pipeline", "invoice",
+        "onboarding", "roadmap", "budget", "metrics", "backlog", "service", "schema", "workflow"
+    };
+    private static final String[] ASSIGNEES = {
+        "alice", "bob", "carol", "dave", "erin", "frank", "grace", "heidi", "ivan", "judy"
+    };
+    private static final Set<TaskStatus> OPEN = EnumSet.of(TaskStatus.PENDING, TaskStatus.ACTIVE);
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+
+    @Param({"1000000"})
+    public int tasks;
+
+    @Param({"d", "dep", "deploy rel", "invoice 4217", "alice budget"})
+    public String query;
+
+    private TaskSuggestIndex index;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        index = new TaskSuggestIndex();
+        for (int i = 0; i < tasks; i++) {
+            String title = VERBS[random.nextInt(VERBS.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " "
+                + NOUNS[random.nextInt(NOUNS.length)] + " " + random.nextInt(10_000);
+            index.put(UUID.randomUUID(), title, ASSIGNEES[random.nextInt(ASSIGNEES.length)],
+                STATUSES[random.nextInt(STATUSES.length)]);
+        }
+    }
+
+    @Benchmark
+    public void suggest(Blackhole bh) {
+        bh.consume(index.suggest(query, OPEN, 10));
+    }
+}
@@ -0,0 +1,162 @@
+package org.dukeroyahl.synaptik.config;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.Document;
+import org.dukeroyahl.synaptik.domain.Task;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.List;
+
+/**
+ * Ensures the indexes the query paths depend on exist when the application starts.
+ * Mirrors the definitions in mongodb-indexes.js (same keys and names) so both paths
+ * converge on the same index set. Runs asynchronously and never blocks startup.
+ * A text index left over with a different definition must be dropped first; the script
+ * does this, otherwise creation fails with a warning.
+ *
+ * Derived sort keys missing on older tasks are backfilled on every startup, whether or not
+ * indexes are ensured.
+ */
+@ApplicationScoped
+public class MongoIndexInitializer {
+
+    private static final Logger logger = Logger.getLogger(MongoIndexInitializer.class);
+
+    static final String TEXT_INDEX_NAME = "task_search_index";
+
+    @ConfigProperty(name = "synaptik.mongodb.ensure-indexes", defaultValue = "true")
+    boolean ensureIndexes;
+
+    // Runs once, for whoever asks first; failures are logged, so it always completes
+    private final Uni<Void> sortKeys = Uni.createFrom()
+        .deferred(() -> backfillPriorityAndDue().chain(this::backfillWaitAt))
+        .memoize().indefinitely();
+
+    void onStart(@Observes StartupEvent event) {
+        backfillSortKeys().subscribe().with(ignored -> {});
+
+        if (!ensureIndexes) {
+            logger.info("Index creation on startup disabled");
+            return;
+        }
+
+        // One call per index so a conflicting definition does not block the others
+        for (IndexModel index : taskIndexes()) {
+            Task.mongoCollection().createIndex(index.getKeys(), index.getOptions())
+                .subscribe().with(
+                    name -> logger.infof("Ensured task index: %s", name),
+                    failure -> logger.warnf("Could not ensure task index %s: %s", index.getKeys(), failure.getMessage()));
+        }
+    }
+
+    /**
+     * Give tasks written before the derived sort keys existed their priorityRank, dueAt,
+     * hasDue and waitAt. Runs once per process; later calls wait for or reuse that run.
+     */
+    public Uni<Void> backfillSortKeys() {
+        return sortKeys;
+    }
+
+    /**
+     * Compute priorityRank, dueAt and hasDue for tasks written before these fields existed.
+     * A single pipeline update inside MongoDB; documents that already have hasDue are untouched.
+     * Also repairs the null dueAt an earlier backfill wrote for tasks without a due date.
+     */
+    private Uni<Void> backfillPriorityAndDue() {
+        Document priorityRank = new Document("$switch", new Document("branches", List.of(
+                new Document("case", new Document("$eq", List.of("$priority", "HIGH"))).append("then", 3),
+                new Document("case", new Document("$eq", List.of("$priority", "MEDIUM"))).append("then", 2),
+                new Document("case", new Document("$eq", List.of("$priority", "LOW"))).append("then", 1)))
+            .append("default", 0));
+        // Unparseable or missing due dates leave dueAt unset, matching Task.updateSortKeys
+        Document dueAt = new Document("$dateToString", new Document("format", "%Y-%m-%dT%H:%M:%SZ")
+            .append("date", new Document("$dateFromString", new Document("dateString", "$dueDate")
+                .append("onError", null)
+                .append("onNull", null))));
+
+        return Task.mongoCollection().updateMany(
+                Filters.exists("hasDue", false),
+                List.of(
+                    new Document("$set", new Document("priorityRank", new Document("$ifNull", List.of("$priorityRank", priorityRank)))
+                        .append("dueAt", new Document("$ifNull", List.of(dueAt, "$$REMOVE")))),
+                    new Document("$set", new Document("hasDue", new Document("$eq", List.of(new Document("$type", "$dueAt"), "string"))))))
+            .invoke(result -> {
+                if (result.getModifiedCount() > 0) {
+                    logger.infof("Backfilled sort keys on %d tasks", result.getModifiedCount());
+                }
+            })
+            .replaceWithVoid()
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not backfill task sort keys: %s", failure.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * Set waitAt on tasks that have a waitUntil but were written before it existed, with
+     * the same conversion as Task.updateSortKeys. Unparseable dates get none.
+     */
+    private Uni<Void> backfillWaitAt() {
+        Document waitAt = new Document("$dateToString", new Document("format", "%Y-%m-%dT%H:%M:%SZ")
+            .append("date", new Document("$dateFromString", new Document("dateString", "$waitUntil")
+                .append("onError", null)
+                .append("onNull", null))));
+        return Task.mongoCollection().updateMany(
+                new Document("waitUntil", new Document("$type", "string")).append("waitAt", new Document("$exists", false)),
+                List.of(new Document("$set", new Document("waitAt", new Document("$ifNull", List.of(waitAt, "$$REMOVE"))))))
+            .invoke(result -> {
+                if (result.getModifiedCount() > 0) {
+                    logger.infof("Backfilled waitAt on %d tasks", result.getModifiedCount());
+                }
+            })
+            .replaceWithVoid()
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not backfill task waitAt: %s", failure.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * Index definitions for the tasks collection.
+     */
+    static List<IndexModel> taskIndexes() {
+        return List.of(
+            // Top-K urgency queries: equality on status, then walk urgency descending
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("urgency"))),
+            // Server-side sorting on /search (sort=dueDate|updatedAt|priority), equality on status first
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.ascending("dueAt"))),
+            // Ascending sort=dueDate, undated tasks last
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("hasDue"), Indexes.ascending("dueAt"))),
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("updatedAt"))),
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("status"), Indexes.descending("priorityRank"), Indexes.descending("urgency"))),
+            // Tag filters ($all / $in): multikey index, one entry per tag
+            new IndexModel(Indexes.ascending("tags")),
+            // Waiting tasks (TaskWaitScheduler load, waiting=true); only they have waitAt
+            new IndexModel(Indexes.ascending("waitAt"),
+                new IndexOptions().name("tasks_waitAt_partial")
+                    .partialFilterExpression(Filters.exists("waitAt"))),
+            // Full-text search (q=): one text index per collection, weighted by field
+            new IndexModel(
+                Indexes.compoundIndex(
+                    Indexes.text("title"),
+                    Indexes.text("description"),
+                    Indexes.text("tags"),
+                    Indexes.text("annotations.description")),
+                new IndexOptions()
+                    .name(TEXT_INDEX_NAME)
+                    .defaultLanguage("english")
+                    .weights(new Document("title", 10)
+                        .append("tags", 5)
+                        .append("description", 3)
+                        .append("annotations.description", 1)))
+        );
+    }
+}
@@ -1,6 +1,9 @@
 package org.dukeroyahl.synaptik.domain;
 
 import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntityBase;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import com.mongodb.client.result.DeleteResult;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
 import org.bson.codecs.pojo.annotations.BsonId;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import io.smallrye.mutiny.Uni;
@@ -26,9 +29,15 @@ public abstract class BaseEntity extends ReactivePanacheMongoEntityBase {
         this.id = UUID.randomUUID();
     }
     
+    /**
+     * Current time in the stored ISO 8601 UTC format: "2025-08-11T14:30:00Z"
+     */
+    public static String timestamp() {
+        return ZonedDateTime.now(ZoneId.of("UTC")).format(java.time.format.DateTimeFormatter.ISO_INSTANT);
+    }
+    
     public void prePersist() {
-        // Use ISO 8601 format with UTC timezone: "2025-08-11T14:30:00Z"
-        String now = ZonedDateTime.now(ZoneId.of("UTC")).format(java.time.format.DateTimeFormatter.ISO_INSTANT);
+        String now = timestamp();
         if (createdAt == null) {
             createdAt = now;
         }
@@ -39,7 +48,7 @@ public abstract class BaseEntity extends ReactivePanacheMongoEntityBase {
     }
     
     public void preUpdate() {
-        updatedAt = ZonedDateTime.now(ZoneId.of("UTC")).format(java.time.format.DateTimeFormatter.ISO_INSTANT);
+        updatedAt = timestamp();
         if (version != null) {
             version++;
         } else {
@@ -63,6 +72,27 @@ public abstract class BaseEntity extends ReactivePanacheMongoEntityBase {
         } else {
             prePersist();
         }
-        return (Uni<T>) super.persistOrUpdate();
+        Uni<T> result = (Uni<T>) super.persistOrUpdate();
+        return UUIDStorage.isMixed() ? result.call(this::deleteLegacyCopy) : result;
+    }
+    
+    @Override
+    public Uni<Void> delete() {
+        Uni<Void> result = super.delete();
+        return UUIDStorage.isMixed() ? result.call(this::deleteLegacyCopy) : result;
+    }
+    
+    /**
+     * While UUID storage is mixed, the upsert/delete above only matches the document whose
+     * _id uses the configured representation. Remove the copy stored in the other one so
+     * a rewritten document is not duplicated and a deleted one does not reappear.
+     */
+    private Uni<Long> deleteLegacyCopy() {
+        return collection().deleteOne(UUIDStorage.legacyEq("_id", id)).map(DeleteResult::getDeletedCount);
     }
+    
+    /**
+     * @return The entity's own collection, i.e. its Panache {@code mongoCollection()}
+     */
+    protected abstract ReactiveMongoCollection<? extends BaseEntity> collection();
 }
\ No newline at end of file
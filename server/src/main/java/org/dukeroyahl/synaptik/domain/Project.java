@@ -1,6 +1,7 @@
 package org.dukeroyahl.synaptik.domain;
 
 import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
 import jakarta.validation.constraints.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -71,4 +72,9 @@ public class Project extends BaseEntity {
         if (dueDate == null) return Long.MAX_VALUE;
         return java.time.temporal.ChronoUnit.DAYS.between(LocalDateTime.now(), dueDate);
     }
-}
\ No newline at end of file
+
+    @Override
+    protected ReactiveMongoCollection<Project> collection() {
+        return Project.mongoCollection();
+    }
+}
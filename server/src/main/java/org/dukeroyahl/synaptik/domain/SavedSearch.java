@@ -0,0 +1,51 @@
+package org.dukeroyahl.synaptik.domain;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import jakarta.validation.constraints.*;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A named task search stored server-side, e.g. "my active tasks" or "overdue in project X".
+ * Its matching task IDs are kept up to date in memory by SavedSearchService.
+ * All filters are optional and combined with AND.
+ */
+@MongoEntity(collection = "saved_searches")
+public class SavedSearch extends BaseEntity {
+
+    @NotBlank
+    @Size(max = 100)
+    public String name;
+
+    public List<TaskStatus> statuses = new ArrayList<>();
+
+    public List<TaskPriority> priorities = new ArrayList<>();
+
+    // Partial, case-insensitive, as in /api/tasks/search
+    @Size(max = 200)
+    public String title;
+
+    @Size(max = 100)
+    public String assignee;
+
+    // Only tasks without an assignee
+    public Boolean unassigned;
+
+    public UUID projectId;
+
+    public List<String> tags = new ArrayList<>();
+
+    public TaskSearchCriteria.TagMode tagMode = TaskSearchCriteria.TagMode.ALL;
+
+    // Only open tasks whose due date has passed at the time the search is read
+    public Boolean overdue;
+
+    @Override
+    protected ReactiveMongoCollection<SavedSearch> collection() {
+        return SavedSearch.mongoCollection();
+    }
+}
@@ -1,11 +1,15 @@
 package org.dukeroyahl.synaptik.domain;
 
 import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
 import jakarta.validation.constraints.*;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import lombok.ToString;
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
 
 import java.time.ZonedDateTime;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.UUID;
@@ -38,7 +42,10 @@ public class Task extends BaseEntity {
     public String waitUntil;     // ISO 8601 with timezone: "2025-11-30T10:00:00+01:00" or "2025-11-30T10:00:00Z"
     
     public List<String> tags = new ArrayList<>();
+    // Latest annotations only; the full history is in task_annotations
     public List<TaskAnnotation> annotations = new ArrayList<>();
+    // Annotations ever added, including those no longer embedded
+    public Integer annotationCount;
     public List<UUID> depends = new ArrayList<>();
     
     // Store the original user input for reference
@@ -47,6 +54,51 @@ public class Task extends BaseEntity {
     // Store project ID as UUID instead of project name
     public UUID projectId;
     
+    // Derived sort keys, recomputed on every write (see updateSortKeys)
+    @JsonIgnore
+    public Integer priorityRank;  // HIGH=3, MEDIUM=2, LOW=1, NONE=0
+    @JsonIgnore
+    public String dueAt;          // dueDate in UTC, second precision: "2025-12-31T23:59:59Z"; unset without one
+    @JsonIgnore
+    public Boolean hasDue;        // dueAt is set; sorted ahead of dueAt so undated tasks come last
+    @JsonIgnore
+    public String waitAt;         // waitUntil in UTC, same format; removed when the wait ends
+    
+    @Override
+    public void prePersist() {
+        super.prePersist();
+        updateSortKeys();
+    }
+    
+    @Override
+    public void preUpdate() {
+        super.preUpdate();
+        updateSortKeys();
+    }
+    
+    /**
+     * Refresh the fields used for server-side sorting and scheduling. The stored enum name
+     * and the offset-bearing date strings do not sort correctly in MongoDB.
+     */
+    public void updateSortKeys() {
+        priorityRank = priorityRank(priority);
+        dueAt = DateTimeHelper.toUtcKey(dueDate);
+        hasDue = dueAt != null;
+        waitAt = DateTimeHelper.toUtcKey(waitUntil);
+    }
+    
+    public static int priorityRank(TaskPriority priority) {
+        if (priority == null) {
+            return 0;
+        }
+        return switch (priority) {
+            case HIGH -> 3;
+            case MEDIUM -> 2;
+            case LOW -> 1;
+            case NONE -> 0;
+        };
+    }
+    
     public void start() {
         this.status = TaskStatus.ACTIVE;
         addAnnotation("Task started");
@@ -69,11 +121,57 @@ public class Task extends BaseEntity {
         addAnnotation("Task deleted");
     }
     
+    // Annotations kept on the task document, so frequently changed tasks stay small
+    public static final int MAX_EMBEDDED_ANNOTATIONS = 10;
+    
     public void addAnnotation(String description) {
-        annotations.add(new TaskAnnotation(LocalDateTime.now(), description));
+        addAnnotation(new TaskAnnotation(LocalDateTime.now(), description));
+    }
+    
+    /**
+     * Embed an annotation, dropping the oldest beyond {@link #MAX_EMBEDDED_ANNOTATIONS}.
+     * The caller records it in the history collection.
+     */
+    public void addAnnotation(TaskAnnotation annotation) {
+        if (annotations == null) {
+            annotations = new ArrayList<>();
+        }
+        annotationCount = (annotationCount != null ? annotationCount : annotations.size()) + 1;
+        annotations.add(annotation);
+        if (annotations.size() > MAX_EMBEDDED_ANNOTATIONS) {
+            annotations = new ArrayList<>(annotations.subList(annotations.size() - MAX_EMBEDDED_ANNOTATIONS, annotations.size()));
+        }
+    }
+    
+    /**
+     * @return The most recently added annotation, or null if there is none
+     */
+    @JsonIgnore
+    public TaskAnnotation lastAnnotation() {
+        return annotations == null || annotations.isEmpty() ? null : annotations.get(annotations.size() - 1);
     }
     
+    // Urgency added while a task is ACTIVE
+    public static final double ACTIVE_URGENCY = 4.0;
+    
     public double calculateUrgency() {
+        double urgency = baseUrgency();
+        
+        ZonedDateTime created = DateTimeHelper.parseIso8601(createdAt);
+        if (created != null) {
+            ZonedDateTime now = ZonedDateTime.now();
+            long ageInDays = java.time.temporal.ChronoUnit.DAYS.between(created.toLocalDate(), now.toLocalDate());
+            urgency += ageInDays * 0.01;
+        }
+        
+        return Math.min(100.0, Math.max(0.0, urgency));
+    }
+    
+    /**
+     * Urgency from everything but the task's age, unclamped. Atomic updates that do not
+     * know createdAt add the age part in the database.
+     */
+    public double baseUrgency() {
         double urgency = 0.0;
         
         switch (priority) {
@@ -83,11 +181,11 @@ public class Task extends BaseEntity {
             case NONE -> { /* no base urgency */ }
         }
         
-        if (dueDate != null && !dueDate.trim().isEmpty()) {
-            try {
-                ZonedDateTime due = ZonedDateTime.parse(dueDate);
-                ZonedDateTime now = ZonedDateTime.now();
-                long daysUntilDue = java.time.temporal.ChronoUnit.DAYS.between(now.toLocalDate(), due.toLocalDate());
+        // Invalid or missing dates parse to null and skip their part of the calculation
+        ZonedDateTime due = DateTimeHelper.parseIso8601(dueDate);
+        if (due != null) {
+            ZonedDateTime now = ZonedDateTime.now();
+            long daysUntilDue = java.time.temporal.ChronoUnit.DAYS.between(now.toLocalDate(), due.toLocalDate());
             
             if (daysUntilDue < 0) {
                 urgency += 12 + Math.abs(daysUntilDue) * 0.2;
@@ -96,27 +194,18 @@ public class Task extends BaseEntity {
             } else if (daysUntilDue <= 14) {
                 urgency += 5 - (daysUntilDue * 0.3);
             }
-            } catch (Exception e) {
-                // Invalid date format, skip date-based urgency calculation
-            }
-        }
-        
-        if (createdAt != null && !createdAt.trim().isEmpty()) {
-            try {
-                ZonedDateTime created = ZonedDateTime.parse(createdAt);
-                ZonedDateTime now = ZonedDateTime.now();
-                long ageInDays = java.time.temporal.ChronoUnit.DAYS.between(created.toLocalDate(), now.toLocalDate());
-                urgency += ageInDays * 0.01;
-            } catch (Exception e) {
-                // Invalid date format, skip age-based urgency calculation
-            }
         }
         
-        if (status == TaskStatus.ACTIVE) urgency += 4;
+        if (status == TaskStatus.ACTIVE) urgency += ACTIVE_URGENCY;
         
         if (tags != null && tags.contains("urgent")) urgency += 5;
         if (tags != null && tags.contains("important")) urgency += 3;
         
-        return Math.min(100.0, Math.max(0.0, urgency));
+        return urgency;
+    }
+
+    @Override
+    protected ReactiveMongoCollection<Task> collection() {
+        return Task.mongoCollection();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,38 @@
+package org.dukeroyahl.synaptik.domain;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntity;
+import org.bson.Document;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One entry of the task activity log: a task was created, updated or deleted, or all tasks
+ * were removed. Written in batches by TaskActivityService, off the request path.
+ *
+ * Append-only with an ObjectId, like {@link TaskAnnotationEntry}. Entries older than the
+ * compaction age are rolled into {@link TaskActivityDay} summaries and removed.
+ */
+@MongoEntity(collection = "task_activity")
+public class TaskActivity extends ReactivePanacheMongoEntity {
+
+    public static final String CREATED = "created";
+    public static final String UPDATED = "updated";
+    public static final String DELETED = "deleted";
+    public static final String CLEARED = "cleared";
+
+    // Null for CLEARED
+    public UUID taskId;
+    public UUID projectId;
+    public String type;
+    // UTC
+    public LocalDateTime timestamp;
+
+    // Changed fields of an update as {field: {from, to}}; null for other types
+    public Document changes;
+
+    // Set when the status changed, including on create and delete
+    public TaskStatus fromStatus;
+    public TaskStatus toStatus;
+}
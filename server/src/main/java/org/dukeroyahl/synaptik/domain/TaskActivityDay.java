@@ -0,0 +1,31 @@
+package org.dukeroyahl.synaptik.domain;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntity;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Activity of one task on one UTC day, compacted from its {@link TaskActivity} entries.
+ * Unique per taskId and day; entries compacted later for the same day are added to it.
+ */
+@MongoEntity(collection = "task_activity_daily")
+public class TaskActivityDay extends ReactivePanacheMongoEntity {
+
+    public UUID taskId;
+    // Project of the task's last entry that day
+    public UUID projectId;
+    // UTC midnight
+    public LocalDateTime day;
+
+    public long events;
+    public long created;
+    public long updated;
+    public long deleted;
+    public long statusChanges;
+
+    // Names of the fields changed that day
+    public List<String> fields;
+}
@@ -0,0 +1,31 @@
+package org.dukeroyahl.synaptik.domain;
+
+import io.quarkus.mongodb.panache.common.MongoEntity;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheMongoEntity;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * One entry of a task's full annotation history. The task document itself keeps only its
+ * latest annotations (see {@link Task#MAX_EMBEDDED_ANNOTATIONS}).
+ *
+ * Append-only, so it uses an ObjectId, ordered by insertion. Annotations moved out of
+ * existing tasks get one derived from the task and position, so the move can be repeated.
+ * Entries expire after the configured retention through a TTL index on timestamp.
+ */
+@MongoEntity(collection = "task_annotations")
+public class TaskAnnotationEntry extends ReactivePanacheMongoEntity {
+
+    public UUID taskId;
+    public LocalDateTime timestamp;
+    public String description;
+
+    public TaskAnnotationEntry() {}
+
+    public TaskAnnotationEntry(UUID taskId, TaskAnnotation annotation) {
+        this.taskId = taskId;
+        this.timestamp = annotation.timestamp;
+        this.description = annotation.description;
+    }
+}
@@ -0,0 +1,15 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * One entry of the /api/events change feed.
+ *
+ * @param entity "task" or "project"
+ * @param type "created", "updated", "deleted" or "cleared"; for tasks also "due-soon" or "overdue"
+ * @param id ID of the affected entity (null for cleared)
+ * @param data The full entity for created, only the changed fields for updated, dueDate and
+ *             urgency for due-soon and overdue, null otherwise
+ */
+public record ChangeEvent(String entity, String type, UUID id, Map<String, Object> data) {}
@@ -0,0 +1,3 @@
+package org.dukeroyahl.synaptik.dto;
+
+public record FacetCount(String value, long count) {}
@@ -0,0 +1,12 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One page of search results with facet counts over the whole filtered set.
+ * Facets are keyed by field (status, priority, assignee, projectId, tags), each
+ * ordered by count descending.
+ */
+public record FacetedSearchResponse(List<TaskDTO> tasks, long total, int page, int size,
+                                    Map<String, List<FacetCount>> facets) {}
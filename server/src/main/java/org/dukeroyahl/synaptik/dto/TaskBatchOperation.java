@@ -0,0 +1,40 @@
+package org.dukeroyahl.synaptik.dto;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+
+import java.util.UUID;
+
+/**
+ * One operation of a POST /api/tasks/batch request. Which fields are used depends on the
+ * operation: CREATE takes {@code task}, and optionally {@code id} to choose the new task's
+ * ID so later operations in the same batch can refer to it; UPDATE takes {@code id} (or {@code task.id}) and
+ * {@code task}; STATUS takes {@code id} and {@code status}; DELETE takes {@code id};
+ * LINK and UNLINK take {@code id} and {@code dependencyId}.
+ */
+public class TaskBatchOperation {
+
+    public enum Type {
+        CREATE,
+        UPDATE,
+        STATUS,
+        DELETE,
+        LINK,
+        UNLINK
+    }
+
+    @NotNull
+    public Type op;
+
+    public UUID id;
+
+    @Valid
+    public TaskRequest task;
+
+    public TaskStatus status;
+
+    // The task {id} depends on
+    public UUID dependencyId;
+}
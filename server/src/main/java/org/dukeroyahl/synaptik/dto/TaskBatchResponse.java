@@ -0,0 +1,10 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.List;
+
+/**
+ * Result of POST /api/tasks/batch: one entry per operation, in request order.
+ *
+ * @param errors true if at least one operation failed
+ */
+public record TaskBatchResponse(boolean errors, List<TaskBatchResult> results) {}
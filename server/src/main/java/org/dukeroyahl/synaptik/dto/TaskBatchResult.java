@@ -0,0 +1,14 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one batch operation.
+ *
+ * @param index Position of the operation in the request
+ * @param op Operation type
+ * @param id Affected task, including the generated ID for CREATE
+ * @param status HTTP status the single-item endpoint would have answered with
+ * @param error Reason for a 4xx/5xx status, otherwise null
+ */
+public record TaskBatchResult(int index, TaskBatchOperation.Type op, UUID id, int status, String error) {}
@@ -0,0 +1,8 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.UUID;
+
+/**
+ * A dependency edge: task {@code taskId} depends on task {@code dependencyId}.
+ */
+public record TaskLink(UUID taskId, UUID dependencyId) {}
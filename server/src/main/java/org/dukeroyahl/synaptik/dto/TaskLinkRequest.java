@@ -0,0 +1,15 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Body of POST /api/tasks/links: dependency edges to add and to remove in one request.
+ * Removals are applied before additions.
+ */
+public class TaskLinkRequest {
+
+    public List<TaskLink> link = new ArrayList<>();
+
+    public List<TaskLink> unlink = new ArrayList<>();
+}
@@ -0,0 +1,10 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.List;
+
+/**
+ * Result of POST /api/tasks/links: unlink results first, then link results, each in request order.
+ *
+ * @param errors true if at least one edge failed
+ */
+public record TaskLinkResponse(boolean errors, List<TaskLinkResult> results) {}
@@ -0,0 +1,13 @@
+package org.dukeroyahl.synaptik.dto;
+
+import java.util.UUID;
+
+/**
+ * Outcome of one edge of a bulk link request.
+ *
+ * @param action "link" or "unlink"
+ * @param status HTTP status the single-link endpoint would have answered with
+ *               (200, 400 invalid, 404 task or link not found, 409 would create a cycle)
+ * @param error Reason for a 4xx/5xx status, otherwise null
+ */
+public record TaskLinkResult(String action, UUID taskId, UUID dependencyId, int status, String error) {}
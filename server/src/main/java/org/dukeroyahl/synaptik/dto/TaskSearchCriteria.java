@@ -0,0 +1,153 @@
+package org.dukeroyahl.synaptik.dto;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import jakarta.ws.rs.DefaultValue;
+import jakarta.ws.rs.QueryParam;
+
+import java.util.List;
+
+/**
+ * Filters accepted by the task search endpoints. Bound from query parameters with
+ * {@code @BeanParam}, and built directly by internal callers.
+ */
+public class TaskSearchCriteria {
+
+    public enum TagMode {
+        /** Task must carry every requested tag */
+        ALL,
+        /** Task must carry at least one requested tag */
+        ANY;
+
+        /**
+         * Case-insensitive parsing for the tagMode query parameter.
+         */
+        public static TagMode fromString(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid tag mode: '" + value + "'. Valid values are: ALL, ANY", e);
+            }
+        }
+    }
+
+    /**
+     * Server-side sort keys. Each maps to an indexed field; dueDate and priority use the
+     * derived dueAt and priorityRank fields, which sort correctly in MongoDB.
+     */
+    public enum SortField {
+        URGENCY("urgency", SortOrder.DESC),
+        DUE_DATE("dueAt", SortOrder.ASC),
+        UPDATED_AT("updatedAt", SortOrder.DESC),
+        PRIORITY("priorityRank", SortOrder.DESC);
+
+        public final String field;
+        public final SortOrder defaultOrder;
+
+        SortField(String field, SortOrder defaultOrder) {
+            this.field = field;
+            this.defaultOrder = defaultOrder;
+        }
+
+        /**
+         * Accepts the API names (urgency, dueDate, updatedAt, priority) in any case.
+         */
+        public static SortField fromString(String value) {
+            String normalized = value.trim().replace("_", "");
+            for (SortField sortField : values()) {
+                if (sortField.name().replace("_", "").equalsIgnoreCase(normalized)) {
+                    return sortField;
+                }
+            }
+            throw new IllegalArgumentException("Invalid sort: '" + value + "'. Valid values are: urgency, dueDate, updatedAt, priority");
+        }
+    }
+
+    public enum SortOrder {
+        ASC,
+        DESC;
+
+        public static SortOrder fromString(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid order: '" + value + "'. Valid values are: asc, desc", e);
+            }
+        }
+    }
+
+    /** Full-text query over title, description, tags and annotations */
+    @QueryParam("q")
+    public String q;
+
+    @QueryParam("status")
+    public List<TaskStatus> statuses;
+
+    /** Partial title match, case-insensitive */
+    @QueryParam("title")
+    public String title;
+
+    /** Partial assignee match, case-insensitive */
+    @QueryParam("assignee")
+    public String assignee;
+
+    /** Exact project UUID */
+    @QueryParam("projectId")
+    public String projectId;
+
+    /** Due date range start (ISO format) */
+    @QueryParam("dateFrom")
+    public String dateFrom;
+
+    /** Due date range end (ISO format) */
+    @QueryParam("dateTo")
+    public String dateTo;
+
+    @QueryParam("tz")
+    @DefaultValue("UTC")
+    public String timezone = "UTC";
+
+    /** true: only tasks hidden until their waitUntil, false: only visible tasks */
+    @QueryParam("waiting")
+    public Boolean waiting;
+
+    /** Exact tags; repeat the parameter or separate with commas */
+    @QueryParam("tag")
+    public List<String> tags;
+
+    @QueryParam("tagMode")
+    @DefaultValue("ALL")
+    public TagMode tagMode = TagMode.ALL;
+
+    /** Sort key; without it results come in natural order, or by relevance with q */
+    @QueryParam("sort")
+    public SortField sort;
+
+    /** Sort direction (default: ascending for dueDate, descending otherwise) */
+    @QueryParam("order")
+    public SortOrder order;
+
+    /** Maximum number of results (optional) */
+    @QueryParam("limit")
+    public Integer limit;
+
+    public TaskSearchCriteria() {
+    }
+
+    public TaskSearchCriteria(List<TaskStatus> statuses, String title, String assignee, String projectId,
+                              String dateFrom, String dateTo, String timezone) {
+        this.statuses = statuses;
+        this.title = title;
+        this.assignee = assignee;
+        this.projectId = projectId;
+        this.dateFrom = dateFrom;
+        this.dateTo = dateTo;
+        this.timezone = timezone;
+    }
+
+    @Override
+    public String toString() {
+        return "TaskSearchCriteria{q=" + q + ", statuses=" + statuses + ", title=" + title
+            + ", assignee=" + assignee + ", projectId=" + projectId + ", dateFrom=" + dateFrom
+            + ", dateTo=" + dateTo + ", timezone=" + timezone + ", waiting=" + waiting + ", tags=" + tags + ", tagMode=" + tagMode + ", sort=" + sort + ", order=" + order + ", limit=" + limit + "}";
+    }
+}
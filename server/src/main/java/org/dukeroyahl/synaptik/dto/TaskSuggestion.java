@@ -0,0 +1,10 @@
+package org.dukeroyahl.synaptik.dto;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+
+import java.util.UUID;
+
+/**
+ * Typeahead entry returned by /api/tasks/suggest.
+ */
+public record TaskSuggestion(UUID id, String title, String assignee, TaskStatus status) {}
@@ -0,0 +1,53 @@
+package org.dukeroyahl.synaptik.event;
+
+import org.dukeroyahl.synaptik.domain.Task;
+
+import java.util.UUID;
+
+/**
+ * CDI event fired by ChangeStreamService for every write MongoDB reports on the tasks and
+ * projects collections, including writes made by other server instances. In-memory caches
+ * and indexes use it to stay coherent when several instances share one database.
+ *
+ * Writes made by this instance arrive here as well (after the matching
+ * {@link TaskChangedEvent}), so observers must be idempotent. Those that can be recognised
+ * are marked {@code local}.
+ *
+ * @param collection Collection the change happened in
+ * @param kind What happened
+ * @param id ID of the affected document (null for ALL)
+ * @param task Current task state for CHANGED tasks; null for projects, or if the task was
+ *             deleted again before it could be looked up
+ * @param local Whether this instance made the write and already fired its TaskChangedEvent
+ */
+public record CacheInvalidationEvent(Collection collection, Kind kind, UUID id, Task task, boolean local) {
+
+    public enum Collection {
+        TASKS,
+        PROJECTS
+    }
+
+    public enum Kind {
+        /** Document inserted, updated or replaced */
+        CHANGED,
+        DELETED,
+        /** Changes may have been missed (collection dropped, resume point lost); reload everything */
+        ALL
+    }
+
+    public static CacheInvalidationEvent changed(Collection collection, UUID id, Task task) {
+        return new CacheInvalidationEvent(collection, Kind.CHANGED, id, task, false);
+    }
+
+    public static CacheInvalidationEvent deleted(Collection collection, UUID id) {
+        return new CacheInvalidationEvent(collection, Kind.DELETED, id, null, false);
+    }
+
+    public static CacheInvalidationEvent all(Collection collection) {
+        return new CacheInvalidationEvent(collection, Kind.ALL, null, null, false);
+    }
+
+    public CacheInvalidationEvent asLocal() {
+        return new CacheInvalidationEvent(collection, kind, id, task, true);
+    }
+}
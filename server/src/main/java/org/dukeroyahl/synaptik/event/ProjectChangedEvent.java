@@ -0,0 +1,42 @@
+package org.dukeroyahl.synaptik.event;
+
+import org.dukeroyahl.synaptik.domain.Project;
+import org.dukeroyahl.synaptik.dto.UpdateProject;
+
+import java.util.UUID;
+
+/**
+ * CDI event fired by ProjectService after a project write has been persisted.
+ * Soft deletes are updates (status DELETED); DELETED means the document was removed.
+ *
+ * @param type What happened
+ * @param projectId ID of the affected project (null for CLEARED)
+ * @param before Field values before an update (null otherwise)
+ * @param after Project after a create or update (null otherwise)
+ */
+public record ProjectChangedEvent(Type type, UUID projectId, UpdateProject before, Project after) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** All projects were removed */
+        CLEARED
+    }
+
+    public static ProjectChangedEvent created(Project after) {
+        return new ProjectChangedEvent(Type.CREATED, after.id, null, after);
+    }
+
+    public static ProjectChangedEvent updated(UpdateProject before, Project after) {
+        return new ProjectChangedEvent(Type.UPDATED, after.id, before, after);
+    }
+
+    public static ProjectChangedEvent deleted(UUID projectId) {
+        return new ProjectChangedEvent(Type.DELETED, projectId, null, null);
+    }
+
+    public static ProjectChangedEvent cleared() {
+        return new ProjectChangedEvent(Type.CLEARED, null, null, null);
+    }
+}
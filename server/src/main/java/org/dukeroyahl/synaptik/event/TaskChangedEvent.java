@@ -0,0 +1,48 @@
+package org.dukeroyahl.synaptik.event;
+
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+
+import java.util.UUID;
+
+/**
+ * CDI event fired by TaskService after a task write has been persisted.
+ * Carries snapshots of the task before and after the change so observers
+ * (in-memory indexes, caches, notifications) can update incrementally.
+ *
+ * @param type What happened
+ * @param before Task state before the change (null for CREATED and CLEARED)
+ * @param after Task state after the change (null for DELETED and CLEARED)
+ */
+public record TaskChangedEvent(Type type, TaskDTO before, TaskDTO after) {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED,
+        /** All tasks were removed */
+        CLEARED
+    }
+
+    public static TaskChangedEvent created(TaskDTO after) {
+        return new TaskChangedEvent(Type.CREATED, null, after);
+    }
+
+    public static TaskChangedEvent updated(TaskDTO before, TaskDTO after) {
+        return new TaskChangedEvent(Type.UPDATED, before, after);
+    }
+
+    public static TaskChangedEvent deleted(TaskDTO before) {
+        return new TaskChangedEvent(Type.DELETED, before, null);
+    }
+
+    public static TaskChangedEvent cleared() {
+        return new TaskChangedEvent(Type.CLEARED, null, null);
+    }
+
+    /**
+     * @return ID of the affected task, or null for CLEARED
+     */
+    public UUID taskId() {
+        return after != null ? after.id : before != null ? before.id : null;
+    }
+}
@@ -0,0 +1,20 @@
+package org.dukeroyahl.synaptik.event;
+
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+
+/**
+ * CDI event fired by TaskDueScheduler when an open task crosses a due-date threshold.
+ * Fired once per threshold and due date; changing the due date arms both again.
+ *
+ * @param type Threshold crossed
+ * @param task Task at that moment, with its recomputed urgency
+ */
+public record TaskDueEvent(Type type, TaskDTO task) {
+
+    public enum Type {
+        /** Due within synaptik.due.soon-before */
+        DUE_SOON,
+        /** Due date passed */
+        OVERDUE
+    }
+}
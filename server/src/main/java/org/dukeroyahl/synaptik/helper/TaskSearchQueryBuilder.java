@@ -1,6 +1,9 @@
 package org.dukeroyahl.synaptik.helper;
 
 import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.util.TimezoneResolver;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
 import org.bson.Document;
 import org.jboss.logging.Logger;
 import jakarta.enterprise.context.ApplicationScoped;
@@ -9,8 +12,13 @@ import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.LocalDateTime;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -23,6 +31,22 @@ public class TaskSearchQueryBuilder {
     
     private static final Logger logger = Logger.getLogger(TaskSearchQueryBuilder.class);
     
+    private static final ZoneId UTC = ZoneId.of("UTC");
+    
+    /** Fields counted by {@link #buildFacetPipeline} */
+    public static final List<String> FACET_FIELDS = List.of("status", "priority", "assignee", "projectId", "tags");
+    
+    /** Values returned per facet, most frequent first */
+    public static final int MAX_FACET_VALUES = 50;
+    
+    // Relevance ordering for $text queries
+    private static final Document TEXT_SCORE_SORT = new Document("score", new Document("$meta", "textScore"));
+    
+    private static final TaskStatus[] STATUSES = TaskStatus.values();
+    
+    // Immutable status match values per status set (bit per ordinal): a name, or a {$in} list
+    private final Map<Integer, Object> statusValues = new ConcurrentHashMap<>();
+    
     /**
      * Build MongoDB query document based on search filters.
      * 
@@ -37,27 +61,119 @@ public class TaskSearchQueryBuilder {
      */
     public Document buildSearchQuery(List<TaskStatus> statuses, String title, String assignee, 
                                    String projectId, String dateFrom, String dateTo, String timezone) {
+        return buildSearchQuery(statuses, title, assignee, projectId, dateFrom, dateTo, timezone, null);
+    }
+    
+    /**
+     * Build MongoDB query document based on search filters, with optional full-text search.
+     * 
+     * @param text Full-text query over title, description, tags and annotations (optional).
+     *             Uses the tasks text index, so terms are stemmed and the query cannot be
+     *             combined with a second text search.
+     * @see #buildSearchQuery(List, String, String, String, String, String, String)
+     */
+    public Document buildSearchQuery(List<TaskStatus> statuses, String title, String assignee, 
+                                   String projectId, String dateFrom, String dateTo, String timezone,
+                                   String text) {
+        TaskSearchCriteria criteria = new TaskSearchCriteria(statuses, title, assignee, projectId, dateFrom, dateTo, timezone);
+        criteria.q = text;
+        return buildSearchQuery(criteria);
+    }
+    
+    /**
+     * Build MongoDB query document from search criteria.
+     * 
+     * @param criteria Search filters; null or blank fields are ignored
+     * @return MongoDB query document
+     */
+    public Document buildSearchQuery(TaskSearchCriteria criteria) {
+        // Each filter skips itself when its parameter is absent
         Document query = new Document();
+        addTextFilter(query, criteria.q);
+        addStatusFilter(query, criteria.statuses);
+        addTitleFilter(query, criteria.title);
+        addAssigneeFilter(query, criteria.assignee);
+        addProjectFilter(query, criteria.projectId);
+        addTagFilter(query, normalizeTags(criteria.tags), criteria.tagMode);
+        addDateRangeFilter(query, criteria.dateFrom, criteria.dateTo, criteria.timezone);
+        addWaitingFilter(query, criteria.waiting);
         
-        // Add status filter
-        addStatusFilter(query, statuses);
-        
-        // Add title filter
-        addTitleFilter(query, title);
-        
-        // Add assignee filter
-        addAssigneeFilter(query, assignee);
-        
-        // Add project filter
-        addProjectFilter(query, projectId);
-        
-        // Add date range filter
-        addDateRangeFilter(query, dateFrom, dateTo, timezone);
-        
-        logger.debugf("Built MongoDB query: %s", query.toJson());
+        // Per-request query dumps are trace level: the category runs at DEBUG and toJson dominated build cost
+        if (logger.isTraceEnabled()) {
+            logger.tracef("Built MongoDB query: %s", query.toJson());
+        }
         return query;
     }
     
+    /**
+     * Build the sort document for a search.
+     * An explicit sort wins; otherwise full-text queries are ordered by relevance.
+     * Priority ties are broken by urgency in the same direction. Tasks without a due date
+     * have no dueAt, which MongoDB sorts first ascending, so an ascending dueDate sort puts
+     * hasDue ahead of it; descending already puts them last.
+     * 
+     * @return Sort document, or null for natural order
+     */
+    public Document buildSort(TaskSearchCriteria criteria) {
+        if (criteria.sort == null) {
+            return criteria.q != null && !criteria.q.trim().isEmpty() ? TEXT_SCORE_SORT : null;
+        }
+        
+        TaskSearchCriteria.SortOrder order = criteria.order != null ? criteria.order : criteria.sort.defaultOrder;
+        int direction = order == TaskSearchCriteria.SortOrder.ASC ? 1 : -1;
+        Document sort = new Document(criteria.sort.field, direction);
+        if (criteria.sort == TaskSearchCriteria.SortField.PRIORITY) {
+            sort.append("urgency", direction);
+        } else if (criteria.sort == TaskSearchCriteria.SortField.DUE_DATE && direction == 1) {
+            sort = new Document("hasDue", -1).append("dueAt", 1);
+        }
+        return sort;
+    }
+    
+    /**
+     * Build a single aggregation returning one page of matching tasks, the total count
+     * and facet counts for every field in {@link #FACET_FIELDS}, using {@code $facet}.
+     *
+     * @param query Match document from {@link #buildSearchQuery}
+     * @param skip Number of matching tasks to skip
+     * @param limit Page size
+     * @return Aggregation pipeline producing one document with "tasks", "total" and one array per facet
+     */
+    public List<Document> buildFacetPipeline(Document query, int skip, int limit) {
+        return buildFacetPipeline(query, query.containsKey("$text") ? TEXT_SCORE_SORT : null, skip, limit);
+    }
+    
+    /**
+     * Build the facet aggregation with an explicit page sort.
+     * 
+     * @param sort Sort for the page of tasks (optional, see {@link #buildSort})
+     * @see #buildFacetPipeline(Document, int, int)
+     */
+    public List<Document> buildFacetPipeline(Document query, Document sort, int skip, int limit) {
+        List<Document> page = new ArrayList<>();
+        if (sort != null) {
+            page.add(new Document("$sort", sort));
+        }
+        page.add(new Document("$skip", skip));
+        page.add(new Document("$limit", limit));
+
+        Document facets = new Document("tasks", page)
+            .append("total", List.of(new Document("$count", "count")));
+        for (String field : FACET_FIELDS) {
+            List<Document> stages = new ArrayList<>();
+            if (field.equals("tags")) {
+                stages.add(new Document("$unwind", "$tags"));
+            }
+            stages.add(new Document("$group", new Document("_id", "$" + field)
+                .append("count", new Document("$sum", 1))));
+            stages.add(new Document("$sort", new Document("count", -1).append("_id", 1)));
+            stages.add(new Document("$limit", MAX_FACET_VALUES));
+            facets.append(field, stages);
+        }
+
+        return List.of(new Document("$match", query), new Document("$facet", facets));
+    }
+    
     /**
      * Add status filter to the query.
      * Uses $in operator for multiple statuses for optimal performance.
@@ -67,18 +183,41 @@ public class TaskSearchQueryBuilder {
             return; // No filter to add
         }
         
-        if (statuses.size() == 1) {
-            // Single status - direct equality
-            query.append("status", statuses.get(0).name());
-        } else {
-            // Multiple statuses - use $in operator
-            List<String> statusStrings = statuses.stream()
-                .map(TaskStatus::name)
-                .collect(Collectors.toList());
-            query.append("status", new Document("$in", statusStrings));
+        int statusSet = 0;
+        for (TaskStatus status : statuses) {
+            statusSet |= 1 << status.ordinal();
+        }
+        
+        Object value = statusValues.computeIfAbsent(statusSet, TaskSearchQueryBuilder::statusValue);
+        // Single status - direct equality; multiple statuses - $in over a shared immutable list
+        query.append("status", value instanceof String name ? name : new Document("$in", value));
+        
+        logger.tracef("Added status filter: %s", statuses);
+    }
+    
+    private static Object statusValue(int statusSet) {
+        List<String> names = new ArrayList<>();
+        for (TaskStatus status : STATUSES) {
+            if ((statusSet & (1 << status.ordinal())) != 0) {
+                names.add(status.name());
+            }
+        }
+        return names.size() == 1 ? names.get(0) : List.copyOf(names);
+    }
+    
+    /**
+     * Add full-text filter to the query.
+     * Served by the text index, unlike the regex title/assignee filters.
+     */
+    private void addTextFilter(Document query, String text) {
+        if (text == null || text.trim().isEmpty()) {
+            return; // No filter to add
         }
         
-        logger.debugf("Added status filter: %s", statuses);
+        String normalizedText = text.trim();
+        query.append("$text", new Document("$search", normalizedText));
+        
+        logger.tracef("Added text filter: %s", normalizedText);
     }
     
     /**
@@ -94,7 +233,7 @@ public class TaskSearchQueryBuilder {
         query.append("title", new Document("$regex", Pattern.quote(normalizedTitle))
             .append("$options", "i")); // case-insensitive
         
-        logger.debugf("Added title filter: %s", normalizedTitle);
+        logger.tracef("Added title filter: %s", normalizedTitle);
     }
     
     /**
@@ -110,7 +249,7 @@ public class TaskSearchQueryBuilder {
         query.append("assignee", new Document("$regex", Pattern.quote(normalizedAssignee))
             .append("$options", "i")); // case-insensitive
         
-        logger.debugf("Added assignee filter: %s", normalizedAssignee);
+        logger.tracef("Added assignee filter: %s", normalizedAssignee);
     }
     
     /**
@@ -127,8 +266,8 @@ public class TaskSearchQueryBuilder {
         if (isValidUUID(trimmedProjectId)) {
             try {
                 UUID projectUUID = UUID.fromString(trimmedProjectId);
-                query.append("projectId", projectUUID);
-                logger.debugf("Added project filter: %s", projectUUID);
+                query.append("projectId", UUIDStorage.matchValue(projectUUID));
+                logger.tracef("Added project filter: %s", projectUUID);
             } catch (IllegalArgumentException e) {
                 logger.warnf("Invalid project UUID format: %s", trimmedProjectId);
                 // Invalid UUID format, force no results
@@ -141,6 +280,55 @@ public class TaskSearchQueryBuilder {
         }
     }
     
+    /**
+     * Add tag filter to the query.
+     * Exact matches served by the multikey {tags: 1} index: $all for ALL, $in for ANY.
+     */
+    private void addTagFilter(Document query, List<String> normalizedTags, TaskSearchCriteria.TagMode mode) {
+        if (normalizedTags.isEmpty()) {
+            return; // No filter to add
+        }
+        
+        if (normalizedTags.size() == 1) {
+            query.append("tags", normalizedTags.get(0));
+        } else {
+            String operator = mode == TaskSearchCriteria.TagMode.ANY ? "$in" : "$all";
+            query.append("tags", new Document(operator, normalizedTags));
+        }
+        
+        logger.tracef("Added tag filter (%s): %s", mode, normalizedTags);
+    }
+    
+    /**
+     * Add waiting filter to the query.
+     * waitAt is only present until TaskWaitScheduler ends the wait, so no time comparison is needed.
+     */
+    private void addWaitingFilter(Document query, Boolean waiting) {
+        if (waiting == null) {
+            return; // No filter to add
+        }
+        
+        query.append("waitAt", new Document("$exists", waiting));
+        logger.tracef("Added waiting filter: %s", waiting);
+    }
+    
+    /**
+     * Split comma-separated values, trim and drop blanks and duplicates.
+     */
+    public static List<String> normalizeTags(List<String> tags) {
+        if (tags == null || tags.isEmpty()) {
+            return List.of();
+        }
+        
+        return tags.stream()
+            .filter(Objects::nonNull)
+            .flatMap(tag -> Arrays.stream(tag.split(",")))
+            .map(String::trim)
+            .filter(tag -> !tag.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+    }
+    
     /**
      * Add date range filter to the query.
      * Handles timezone-aware date filtering with proper start/end of day boundaries.
@@ -156,7 +344,7 @@ public class TaskSearchQueryBuilder {
         
         if (dateQuery != null && !dateQuery.isEmpty()) {
             query.append("dueDate", dateQuery);
-            logger.debugf("Added date range filter: %s to %s in timezone %s", dateFrom, dateTo, timezone);
+            logger.tracef("Added date range filter: %s to %s in timezone %s", dateFrom, dateTo, timezone);
         }
     }
     
@@ -194,6 +382,20 @@ public class TaskSearchQueryBuilder {
      * @return ZonedDateTime or null if parsing fails
      */
     private ZonedDateTime parseDateForRange(String dateStr, ZoneId zone, boolean startOfDay) {
+        // Go straight to the matching parser; the fallbacks below cost an exception each
+        if (dateStr.length() == 10) {
+            try {
+                TimezoneResolver.DayBounds bounds = TimezoneResolver.dayBounds(zone, LocalDate.parse(dateStr));
+                return startOfDay ? bounds.start() : bounds.end();
+            } catch (Exception ignored) {}
+        } else if (!hasOffset(dateStr)) {
+            try {
+                ZonedDateTime zdt = LocalDateTime.parse(dateStr).atZone(zone);
+                return startOfDay ? zdt.withHour(0).withMinute(0).withSecond(0).withNano(0)
+                                 : zdt.withHour(23).withMinute(59).withSecond(59).withNano(999_000_000);
+            } catch (Exception ignored) {}
+        }
+        
         try {
             // Try ZonedDateTime first (already has timezone info)
             ZonedDateTime zdt = ZonedDateTime.parse(dateStr);
@@ -212,11 +414,8 @@ public class TaskSearchQueryBuilder {
         try {
             // Try LocalDate (apply user's timezone)
             LocalDate ld = LocalDate.parse(dateStr);
-            if (startOfDay) {
-                return ld.atStartOfDay(zone);
-            } else {
-                return ld.atTime(23, 59, 59, 999_000_000).atZone(zone);
-            }
+            TimezoneResolver.DayBounds bounds = TimezoneResolver.dayBounds(zone, ld);
+            return startOfDay ? bounds.start() : bounds.end();
         } catch (Exception ignored) {}
         
         logger.warnf("Unable to parse date: %s", dateStr);
@@ -225,30 +424,48 @@ public class TaskSearchQueryBuilder {
     
     /**
      * Resolve timezone string to ZoneId with fallback to UTC.
+     * Resolution (including invalid input) is cached by {@link TimezoneResolver}.
      */
     private ZoneId resolveZone(String timezone) {
-        if (timezone == null || timezone.trim().isEmpty()) {
-            return ZoneId.of("UTC");
+        return TimezoneResolver.resolveOrDefault(timezone, UTC);
+    }
+    
+    /**
+     * Check for a zone offset or 'Z' after the time part, e.g. "2025-08-11T10:30:00-04:00".
+     */
+    private static boolean hasOffset(String dateStr) {
+        int time = dateStr.indexOf('T');
+        if (time < 0) {
+            return false;
         }
-        
-        try {
-            return ZoneId.of(timezone.trim());
-        } catch (Exception e) {
-            logger.warnf("Invalid timezone: %s, falling back to UTC", timezone);
-            return ZoneId.of("UTC");
+        for (int i = time + 1; i < dateStr.length(); i++) {
+            char c = dateStr.charAt(i);
+            if (c == 'Z' || c == '+' || c == '-' || c == '[') {
+                return true;
+            }
         }
+        return false;
     }
     
     /**
-     * Check if a string is a valid UUID format.
-     * Uses regex pattern matching for performance.
+     * Check if a string is a valid UUID format: 8-4-4-4-12 hex digits with hyphens.
+     * Checks characters directly instead of compiling a regex per call.
      */
-    private boolean isValidUUID(String str) {
+    public static boolean isValidUUID(String str) {
         if (str == null || str.length() != 36) {
             return false;
         }
         
-        // Basic UUID format check: 8-4-4-4-12 characters with hyphens
-        return str.matches("^[0-9a-fA-F]{8}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{4}-[0-9a-fA-F]{12}$");
+        for (int i = 0; i < 36; i++) {
+            char c = str.charAt(i);
+            if (i == 8 || i == 13 || i == 18 || i == 23) {
+                if (c != '-') {
+                    return false;
+                }
+            } else if (!((c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F'))) {
+                return false;
+            }
+        }
+        return true;
     }
 }
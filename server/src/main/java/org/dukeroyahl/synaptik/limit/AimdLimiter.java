@@ -0,0 +1,206 @@
+package org.dukeroyahl.synaptik.limit;
+
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.UniEmitter;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to latency with additive increase, multiplicative decrease
+ * (AIMD): every request that finishes within the latency threshold while the limit is in use
+ * raises the limit by 1/limit (about one per limit's worth of requests); one that is slower
+ * or fails multiplies it by the backoff ratio. So the limit settles just below the
+ * concurrency at which the backend starts slowing down, without being configured for it.
+ *
+ * Requests over the limit wait in a bounded FIFO queue and are handed a permit as others
+ * finish; when the queue is full they are rejected right away.
+ */
+public final class AimdLimiter {
+
+    /**
+     * A granted slot. Released exactly once, when the request has finished.
+     */
+    public final class Permit {
+
+        private final long startNanos = System.nanoTime();
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        /**
+         * @param success Whether the request succeeded; failures count as overload
+         */
+        public void release(boolean success) {
+            if (released.compareAndSet(false, true)) {
+                onRelease(System.nanoTime() - startNanos, success);
+            }
+        }
+    }
+
+    private static final class Waiter {
+
+        private static final int WAITING = 0;
+        private static final int GRANTED = 1;
+        private static final int CANCELLED = 2;
+
+        final AtomicInteger state = new AtomicInteger(WAITING);
+        UniEmitter<? super Permit> emitter;
+    }
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThresholdNanos;
+    private final double backoffRatio;
+    private final int queueSize;
+
+    // Guarded by this
+    private double limit;
+    private int inFlight;
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private long accepted;
+    private long rejected;
+    private long timedOut;
+
+    public AimdLimiter(int initialLimit, int minLimit, int maxLimit, Duration latencyThreshold,
+                       double backoffRatio, int queueSize) {
+        if (minLimit < 1 || maxLimit < minLimit || backoffRatio <= 0 || backoffRatio >= 1 || queueSize < 0) {
+            throw new IllegalArgumentException("Need 1 <= minLimit <= maxLimit, 0 < backoffRatio < 1 and queueSize >= 0");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThresholdNanos = latencyThreshold.toNanos();
+        this.backoffRatio = backoffRatio;
+        this.queueSize = queueSize;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * @return A permit, or null if the limit is reached
+     */
+    public synchronized Permit tryAcquire() {
+        if (inFlight < limit() && waiters.isEmpty()) {
+            inFlight++;
+            accepted++;
+            return new Permit();
+        }
+        return null;
+    }
+
+    /**
+     * Take a permit, waiting up to {@code maxWait} in the queue if the limit is reached.
+     *
+     * @return A permit, or null if the queue is full or the wait ran out
+     */
+    public Uni<Permit> acquire(Duration maxWait) {
+        Permit permit = tryAcquire();
+        if (permit != null) {
+            return Uni.createFrom().item(permit);
+        }
+        Waiter waiter = new Waiter();
+        synchronized (this) {
+            if (waiters.size() >= queueSize) {
+                rejected++;
+                return Uni.createFrom().nullItem();
+            }
+            waiters.add(waiter);
+        }
+        return Uni.createFrom().<Permit>emitter(emitter -> {
+                synchronized (this) {
+                    waiter.emitter = emitter;
+                }
+                // A permit may have been handed over before the emitter was there
+                grantWaiting();
+            })
+            .onCancellation().invoke(() -> cancel(waiter))
+            .ifNoItem().after(maxWait).recoverWithItem(() -> null);
+    }
+
+    private void cancel(Waiter waiter) {
+        synchronized (this) {
+            if (waiter.state.compareAndSet(Waiter.WAITING, Waiter.CANCELLED)) {
+                waiters.remove(waiter);
+                timedOut++;
+                return;
+            }
+            // Granted but not delivered: give the slot back
+            inFlight--;
+            accepted--;
+            timedOut++;
+        }
+        grantWaiting();
+    }
+
+    private void onRelease(long latencyNanos, boolean success) {
+        synchronized (this) {
+            if (!success || latencyNanos > latencyThresholdNanos) {
+                limit = Math.max(minLimit, limit * backoffRatio);
+            } else if (2 * inFlight >= limit) {
+                // Only grow a limit that is actually being used
+                limit = Math.min(maxLimit, limit + 1 / limit);
+            }
+            inFlight--;
+        }
+        grantWaiting();
+    }
+
+    /**
+     * Hand free slots to waiters, oldest first. Emitted outside the lock.
+     */
+    private void grantWaiting() {
+        while (true) {
+            Waiter granted = null;
+            synchronized (this) {
+                Waiter next = waiters.peek();
+                if (next == null || next.emitter == null || inFlight >= limit()) {
+                    return;
+                }
+                waiters.poll();
+                if (next.state.compareAndSet(Waiter.WAITING, Waiter.GRANTED)) {
+                    inFlight++;
+                    accepted++;
+                    granted = next;
+                }
+            }
+            if (granted != null) {
+                granted.emitter.complete(new Permit());
+            }
+        }
+    }
+
+    /**
+     * @return Current limit, rounded down
+     */
+    public synchronized int limit() {
+        return (int) limit;
+    }
+
+    public synchronized int inFlight() {
+        return inFlight;
+    }
+
+    public synchronized int queued() {
+        return waiters.size();
+    }
+
+    /**
+     * @return Requests that got a permit, right away or after waiting
+     */
+    public synchronized long accepted() {
+        return accepted;
+    }
+
+    /**
+     * @return Requests turned away because the queue was full
+     */
+    public synchronized long rejected() {
+        return rejected;
+    }
+
+    /**
+     * @return Requests that gave up waiting in the queue
+     */
+    public synchronized long timedOut() {
+        return timedOut;
+    }
+}
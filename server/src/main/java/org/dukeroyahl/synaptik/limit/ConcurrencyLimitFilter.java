@@ -0,0 +1,83 @@
+package org.dukeroyahl.synaptik.limit;
+
+import io.smallrye.mutiny.Uni;
+import io.vertx.core.Context;
+import io.vertx.core.Vertx;
+import io.vertx.ext.web.RoutingContext;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.container.ResourceInfo;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.jboss.resteasy.reactive.server.ServerRequestFilter;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+
+/**
+ * Admits each REST request through the limiter of its {@link EndpointClass}. A request over
+ * the limit waits for a slot up to the class's max-wait; if the queue is full or the wait
+ * runs out it gets 503 with Retry-After. The slot is released when the response has been
+ * sent or the connection closed, and the request's latency and outcome adjust the limit.
+ */
+public class ConcurrencyLimitFilter {
+
+    @Inject
+    ConcurrencyLimits limits;
+
+    @ServerRequestFilter
+    public Uni<Response> limit(ResourceInfo resourceInfo, RoutingContext routingContext) {
+        EndpointClass endpointClass = endpointClass(resourceInfo.getResourceMethod());
+        AimdLimiter limiter = limits.limiter(endpointClass);
+        if (limiter == null) {
+            return Uni.createFrom().nullItem();
+        }
+
+        AimdLimiter.Permit permit = limiter.tryAcquire();
+        if (permit != null) {
+            admit(permit, routingContext);
+            return Uni.createFrom().nullItem();
+        }
+        // A waiter may be granted on another request's thread; continue on this one
+        Context context = Vertx.currentContext();
+        Uni<AimdLimiter.Permit> waiting = limiter.acquire(limits.maxWait(endpointClass));
+        if (context != null) {
+            waiting = waiting.emitOn(command -> context.runOnContext(ignored -> command.run()));
+        }
+        return waiting.map(granted -> {
+            if (granted == null) {
+                return overloaded(endpointClass);
+            }
+            admit(granted, routingContext);
+            return null;
+        });
+    }
+
+    private static void admit(AimdLimiter.Permit permit, RoutingContext routingContext) {
+        routingContext.addEndHandler(result ->
+            permit.release(result.succeeded() && routingContext.response().getStatusCode() < 500));
+    }
+
+    private Response overloaded(EndpointClass endpointClass) {
+        long retryAfter = Math.max(1, limits.retryAfter().toSeconds());
+        return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, retryAfter)
+            .type(MediaType.APPLICATION_JSON_TYPE)
+            .entity(Map.of("error", "Too many concurrent " + endpointClass.name().toLowerCase() + " requests, retry later"))
+            .build();
+    }
+
+    /**
+     * @return The class from {@link Limited} on the method or its resource class; CRUD without
+     */
+    static EndpointClass endpointClass(Method method) {
+        if (method == null) {
+            return EndpointClass.CRUD;
+        }
+        Limited limited = method.getAnnotation(Limited.class);
+        if (limited == null) {
+            limited = method.getDeclaringClass().getAnnotation(Limited.class);
+        }
+        return limited != null ? limited.value() : EndpointClass.CRUD;
+    }
+}
@@ -0,0 +1,105 @@
+package org.dukeroyahl.synaptik.limit;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * One {@link AimdLimiter} per limited {@link EndpointClass}, configured under
+ * {@code synaptik.limits.crud.*} and {@code synaptik.limits.analytics.*}.
+ */
+@ApplicationScoped
+public class ConcurrencyLimits {
+
+    private static final Logger logger = Logger.getLogger(ConcurrencyLimits.class);
+
+    @ConfigProperty(name = "synaptik.limits.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "synaptik.limits.backoff-ratio", defaultValue = "0.9")
+    double backoffRatio;
+
+    @ConfigProperty(name = "synaptik.limits.retry-after", defaultValue = "1s")
+    Duration retryAfter;
+
+    @ConfigProperty(name = "synaptik.limits.crud.limit", defaultValue = "64")
+    int crudLimit;
+
+    @ConfigProperty(name = "synaptik.limits.crud.min-limit", defaultValue = "8")
+    int crudMinLimit;
+
+    @ConfigProperty(name = "synaptik.limits.crud.max-limit", defaultValue = "512")
+    int crudMaxLimit;
+
+    @ConfigProperty(name = "synaptik.limits.crud.latency-threshold", defaultValue = "1s")
+    Duration crudLatencyThreshold;
+
+    @ConfigProperty(name = "synaptik.limits.crud.queue-size", defaultValue = "256")
+    int crudQueueSize;
+
+    @ConfigProperty(name = "synaptik.limits.crud.max-wait", defaultValue = "2s")
+    Duration crudMaxWait;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.limit", defaultValue = "4")
+    int analyticsLimit;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.min-limit", defaultValue = "1")
+    int analyticsMinLimit;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.max-limit", defaultValue = "16")
+    int analyticsMaxLimit;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.latency-threshold", defaultValue = "10s")
+    Duration analyticsLatencyThreshold;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.queue-size", defaultValue = "8")
+    int analyticsQueueSize;
+
+    @ConfigProperty(name = "synaptik.limits.analytics.max-wait", defaultValue = "5s")
+    Duration analyticsMaxWait;
+
+    private final Map<EndpointClass, AimdLimiter> limiters = new EnumMap<>(EndpointClass.class);
+
+    @PostConstruct
+    void init() {
+        if (!enabled) {
+            logger.info("Concurrency limits disabled");
+            return;
+        }
+        limiters.put(EndpointClass.CRUD, new AimdLimiter(crudLimit, crudMinLimit, crudMaxLimit,
+            crudLatencyThreshold, backoffRatio, crudQueueSize));
+        limiters.put(EndpointClass.ANALYTICS, new AimdLimiter(analyticsLimit, analyticsMinLimit, analyticsMaxLimit,
+            analyticsLatencyThreshold, backoffRatio, analyticsQueueSize));
+    }
+
+    /**
+     * @return The limiter of an endpoint class, or null if it is not limited
+     */
+    public AimdLimiter limiter(EndpointClass endpointClass) {
+        return limiters.get(endpointClass);
+    }
+
+    /**
+     * @return Limiters by endpoint class; empty when limits are disabled
+     */
+    public Map<EndpointClass, AimdLimiter> limiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * @return How long a request of an endpoint class may wait for a slot
+     */
+    public Duration maxWait(EndpointClass endpointClass) {
+        return endpointClass == EndpointClass.ANALYTICS ? analyticsMaxWait : crudMaxWait;
+    }
+
+    public Duration retryAfter() {
+        return retryAfter;
+    }
+}
@@ -0,0 +1,14 @@
+package org.dukeroyahl.synaptik.limit;
+
+/**
+ * Groups of endpoints that share a concurrency limit, so heavy requests cannot take the
+ * slots that ordinary ones need.
+ */
+public enum EndpointClass {
+    /** Reads and writes of single tasks and projects, searches; the default */
+    CRUD,
+    /** Whole-dataset work: dependency graphs, exports, imports, facets */
+    ANALYTICS,
+    /** Not limited, e.g. long-lived event streams */
+    UNLIMITED
+}
@@ -0,0 +1,17 @@
+package org.dukeroyahl.synaptik.limit;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Puts a resource method, or every method of a resource class, in an endpoint class other
+ * than {@link EndpointClass#CRUD}.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Limited {
+
+    EndpointClass value();
+}
@@ -38,7 +38,12 @@ public interface TaskMapper {
     @Mapping(target = "updatedAt", ignore = true) // Set by service
     @Mapping(target = "urgency", ignore = true) // Calculated separately
     @Mapping(target = "annotations", ignore = true) // Not in request
+    @Mapping(target = "annotationCount", ignore = true) // Not in request
     @Mapping(target = "originalInput", ignore = true) // Not in request
+    @Mapping(target = "priorityRank", ignore = true) // Derived on persist
+    @Mapping(target = "dueAt", ignore = true) // Derived on persist
+    @Mapping(target = "hasDue", ignore = true) // Derived on persist
+    @Mapping(target = "waitAt", ignore = true) // Derived on persist
     Task toEntity(TaskRequest taskRequest);
 
     /**
@@ -49,7 +54,12 @@ public interface TaskMapper {
     @Mapping(target = "updatedAt", ignore = true) // Set by service
     @Mapping(target = "urgency", ignore = true) // Calculated separately
     @Mapping(target = "annotations", ignore = true) // Not in request
+    @Mapping(target = "annotationCount", ignore = true) // Not in request
     @Mapping(target = "originalInput", ignore = true) // Not in request
+    @Mapping(target = "priorityRank", ignore = true) // Derived on persist
+    @Mapping(target = "dueAt", ignore = true) // Derived on persist
+    @Mapping(target = "hasDue", ignore = true) // Derived on persist
+    @Mapping(target = "waitAt", ignore = true) // Derived on persist
     Task updateEntityFromRequest(TaskRequest updates, @MappingTarget Task task);
 
 }
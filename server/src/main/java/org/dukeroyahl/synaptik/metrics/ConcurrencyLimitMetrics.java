@@ -0,0 +1,55 @@
+package org.dukeroyahl.synaptik.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Inject;
+import jakarta.inject.Singleton;
+import org.dukeroyahl.synaptik.limit.AimdLimiter;
+import org.dukeroyahl.synaptik.limit.ConcurrencyLimits;
+
+/**
+ * Publishes the state of each endpoint class's {@link AimdLimiter} to Micrometer, tagged
+ * with the class (crud, analytics).
+ */
+@Singleton
+public class ConcurrencyLimitMetrics implements MeterBinder {
+
+    @Inject
+    ConcurrencyLimits limits;
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        limits.limiters().forEach((endpointClass, limiter) -> {
+            String tag = endpointClass.name().toLowerCase();
+            Gauge.builder("synaptik.limiter.limit", limiter, AimdLimiter::limit)
+                .tag("class", tag)
+                .description("Current concurrency limit")
+                .register(registry);
+            Gauge.builder("synaptik.limiter.in.flight", limiter, AimdLimiter::inFlight)
+                .tag("class", tag)
+                .description("Requests holding a slot")
+                .register(registry);
+            Gauge.builder("synaptik.limiter.queued", limiter, AimdLimiter::queued)
+                .tag("class", tag)
+                .description("Requests waiting for a slot")
+                .register(registry);
+            FunctionCounter.builder("synaptik.limiter.requests", limiter, AimdLimiter::accepted)
+                .tag("class", tag)
+                .tag("result", "accepted")
+                .description("Requests by admission result")
+                .register(registry);
+            FunctionCounter.builder("synaptik.limiter.requests", limiter, AimdLimiter::rejected)
+                .tag("class", tag)
+                .tag("result", "rejected")
+                .description("Requests by admission result")
+                .register(registry);
+            FunctionCounter.builder("synaptik.limiter.requests", limiter, AimdLimiter::timedOut)
+                .tag("class", tag)
+                .tag("result", "timed-out")
+                .description("Requests by admission result")
+                .register(registry);
+        });
+    }
+}
@@ -0,0 +1,45 @@
+package org.dukeroyahl.synaptik.metrics;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.inject.Singleton;
+import org.dukeroyahl.synaptik.util.TimezoneResolver;
+
+/**
+ * Publishes {@link TimezoneResolver} counters and cache sizes to Micrometer.
+ * Picked up automatically by the Quarkus Micrometer extension.
+ */
+@Singleton
+public class TimezoneResolverMetrics implements MeterBinder {
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("synaptik.timezone.lookups", TimezoneResolver.class, c -> TimezoneResolver.stats().zoneHits())
+            .tag("result", "hit")
+            .description("Timezone resolutions served from cache")
+            .register(registry);
+        FunctionCounter.builder("synaptik.timezone.lookups", TimezoneResolver.class, c -> TimezoneResolver.stats().zoneMisses())
+            .tag("result", "miss")
+            .description("Timezone resolutions that called ZoneId.of")
+            .register(registry);
+        FunctionCounter.builder("synaptik.timezone.invalid", TimezoneResolver.class, c -> TimezoneResolver.stats().invalidZones())
+            .description("Distinct invalid timezone inputs seen")
+            .register(registry);
+        FunctionCounter.builder("synaptik.timezone.day.bounds", TimezoneResolver.class, c -> TimezoneResolver.stats().dayHits())
+            .tag("result", "hit")
+            .description("Day boundary lookups served from cache")
+            .register(registry);
+        FunctionCounter.builder("synaptik.timezone.day.bounds", TimezoneResolver.class, c -> TimezoneResolver.stats().dayMisses())
+            .tag("result", "miss")
+            .description("Day boundary lookups that were computed")
+            .register(registry);
+        Gauge.builder("synaptik.timezone.cache.size", TimezoneResolver.class, c -> TimezoneResolver.stats().cachedZones())
+            .tag("cache", "zones")
+            .register(registry);
+        Gauge.builder("synaptik.timezone.cache.size", TimezoneResolver.class, c -> TimezoneResolver.stats().cachedDays())
+            .tag("cache", "days")
+            .register(registry);
+    }
+}
@@ -0,0 +1,93 @@
+package org.dukeroyahl.synaptik.resource;
+
+import org.dukeroyahl.synaptik.service.TaskActivityService;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.UUID;
+
+@Path("/api/activity")
+@Tag(name = "Activity", description = "Task activity log for reporting")
+@Produces(MediaType.APPLICATION_JSON)
+public class ActivityResource {
+
+    @Inject
+    TaskActivityService taskActivityService;
+
+    @GET
+    @Operation(summary = "Get task activity",
+               description = "Task changes (created, updated with the changed fields, deleted, cleared), newest first. "
+                   + "Optional filters: taskId, projectId, and a UTC time range from (inclusive) to (exclusive) as ISO 8601 "
+                   + "dates or date-times. At most limit entries (default 100, at most 1000). Entries older than the "
+                   + "compaction age are only available as daily summaries")
+    public Uni<Response> getActivity(@QueryParam("taskId") String taskId,
+                                     @QueryParam("projectId") String projectId,
+                                     @QueryParam("from") String from,
+                                     @QueryParam("to") String to,
+                                     @QueryParam("limit") @DefaultValue("100") int limit) {
+        Query query;
+        try {
+            query = Query.parse(taskId, projectId, from, to);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        return taskActivityService.getActivity(query.taskId, query.projectId, query.from, query.to, limit)
+            .onItem().transform(entries -> Response.ok(entries).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(e ->
+                Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error", e.getMessage())).build());
+    }
+
+    @GET
+    @Path("/daily")
+    @Operation(summary = "Get daily task activity summaries",
+               description = "Per task and UTC day: number of entries by type, status changes and changed fields, "
+                   + "for activity that has been compacted. Same filters as /api/activity; newest day first")
+    public Uni<Response> getDailyActivity(@QueryParam("taskId") String taskId,
+                                          @QueryParam("projectId") String projectId,
+                                          @QueryParam("from") String from,
+                                          @QueryParam("to") String to,
+                                          @QueryParam("limit") @DefaultValue("100") int limit) {
+        Query query;
+        try {
+            query = Query.parse(taskId, projectId, from, to);
+        } catch (IllegalArgumentException e) {
+            return badRequest(e.getMessage());
+        }
+        return taskActivityService.getDailyActivity(query.taskId, query.projectId, query.from, query.to, limit)
+            .onItem().transform(days -> Response.ok(days).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(e ->
+                Response.status(Response.Status.BAD_REQUEST).entity(Map.of("error", e.getMessage())).build());
+    }
+
+    private static Uni<Response> badRequest(String message) {
+        return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+            .entity(Map.of("error", message))
+            .build());
+    }
+
+    private record Query(UUID taskId, UUID projectId, LocalDateTime from, LocalDateTime to) {
+
+        static Query parse(String taskId, String projectId, String from, String to) {
+            return new Query(uuid("taskId", taskId), uuid("projectId", projectId),
+                TaskActivityService.parseTime(from), TaskActivityService.parseTime(to));
+        }
+
+        private static UUID uuid(String name, String value) {
+            if (value == null || value.isBlank()) {
+                return null;
+            }
+            try {
+                return UUID.fromString(value.trim());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Invalid " + name + ": '" + value.trim() + "'");
+            }
+        }
+    }
+}
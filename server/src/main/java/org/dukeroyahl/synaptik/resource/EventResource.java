@@ -0,0 +1,59 @@
+package org.dukeroyahl.synaptik.resource;
+
+import org.dukeroyahl.synaptik.dto.ChangeEvent;
+import org.dukeroyahl.synaptik.limit.EndpointClass;
+import org.dukeroyahl.synaptik.limit.Limited;
+import org.dukeroyahl.synaptik.service.ChangeFeedService;
+import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+
+@Path("/api/events")
+@Tag(name = "Events", description = "Live change feed")
+@Limited(EndpointClass.UNLIMITED)
+public class EventResource {
+
+    @Inject
+    ChangeFeedService changeFeedService;
+
+    @ConfigProperty(name = "synaptik.events.keep-alive", defaultValue = "25s")
+    Duration keepAlive;
+
+    @GET
+    @Produces(MediaType.SERVER_SENT_EVENTS)
+    @Operation(summary = "Subscribe to task and project changes",
+               description = "Server-Sent Events named 'task' or 'project' carrying a JSON delta: the full entity when created, only the changed fields when updated, the ID when deleted, dueDate and urgency when a task becomes due soon or overdue. Optional entity filter (task, project). Comment lines are sent as keep-alives")
+    public Multi<OutboundSseEvent> events(@QueryParam("entity") List<String> entities, @Context Sse sse) {
+        Set<String> wanted;
+        try {
+            wanted = ChangeFeedService.parseEntities(entities);
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
+
+        Multi<OutboundSseEvent> changes = changeFeedService.stream()
+            .filter(change -> wanted.isEmpty() || wanted.contains(change.entity()))
+            .map(change -> sse.newEventBuilder()
+                .name(change.entity())
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(ChangeEvent.class, change)
+                .build());
+        // Keeps idle connections open through proxies
+        Multi<OutboundSseEvent> keepAlives = Multi.createFrom().ticks().every(keepAlive)
+            .onOverflow().drop()
+            .map(tick -> sse.newEventBuilder().comment("keep-alive").build());
+
+        return Multi.createBy().merging().streams(changes, keepAlives);
+    }
+}
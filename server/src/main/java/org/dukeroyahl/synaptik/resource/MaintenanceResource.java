@@ -0,0 +1,47 @@
+package org.dukeroyahl.synaptik.resource;
+
+import org.dukeroyahl.synaptik.service.TaskActivityService;
+import org.dukeroyahl.synaptik.service.UUIDMigrationService;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.Map;
+
+@Path("/api/admin")
+@Tag(name = "Maintenance", description = "Database maintenance operations")
+@Produces(MediaType.APPLICATION_JSON)
+public class MaintenanceResource {
+
+    @Inject
+    UUIDMigrationService uuidMigrationService;
+
+    @Inject
+    TaskActivityService taskActivityService;
+
+    @GET
+    @Path("/uuid-migration")
+    @Operation(summary = "Get UUID storage migration progress")
+    public UUIDMigrationService.Progress getUuidMigration() {
+        return uuidMigrationService.progress();
+    }
+
+    @POST
+    @Path("/uuid-migration")
+    @Operation(summary = "Start rewriting stored UUIDs into the configured representation")
+    public Response startUuidMigration() {
+        return Response.accepted(uuidMigrationService.start()).build();
+    }
+
+    @POST
+    @Path("/activity-compaction")
+    @Operation(summary = "Compact old task activity now",
+               description = "Roll task activity older than synaptik.activity.compact-after into daily summaries; also runs periodically")
+    public Uni<Map<String, Long>> compactActivity() {
+        return taskActivityService.compact().map(count -> Map.of("compacted", count));
+    }
+}
@@ -0,0 +1,112 @@
+package org.dukeroyahl.synaptik.resource;
+
+import org.dukeroyahl.synaptik.domain.SavedSearch;
+import org.dukeroyahl.synaptik.service.SavedSearchService;
+import io.smallrye.mutiny.Uni;
+import jakarta.inject.Inject;
+import jakarta.validation.Valid;
+import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.openapi.annotations.Operation;
+import org.eclipse.microprofile.openapi.annotations.tags.Tag;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+@Path("/api/saved-searches")
+@Tag(name = "Saved Searches", description = "Stored task searches with maintained results")
+@Produces(MediaType.APPLICATION_JSON)
+@Consumes(MediaType.APPLICATION_JSON)
+public class SavedSearchResource {
+
+    @Inject
+    SavedSearchService savedSearchService;
+
+    @GET
+    @Operation(summary = "Get all saved searches")
+    public Uni<List<SavedSearch>> getAllSavedSearches() {
+        return savedSearchService.getAllSavedSearches();
+    }
+
+    @GET
+    @Path("/{id}")
+    @Operation(summary = "Get saved search by ID")
+    public Uni<Response> getSavedSearch(@PathParam("id") String id) {
+        try {
+            UUID uuid = UUID.fromString(id);
+            return savedSearchService.getSavedSearchById(uuid)
+                .onItem().ifNotNull().transform(search -> Response.ok(search).build())
+                .onItem().ifNull().continueWith(Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(invalidUuid());
+        }
+    }
+
+    @GET
+    @Path("/{id}/tasks")
+    @Operation(summary = "Get the tasks matching a saved search",
+               description = "Served from a result set maintained as tasks change, most urgent first")
+    public Uni<Response> getSavedSearchTasks(@PathParam("id") String id) {
+        try {
+            UUID uuid = UUID.fromString(id);
+            return savedSearchService.getSavedSearchTasks(uuid)
+                .onItem().ifNotNull().transform(tasks -> Response.ok(tasks).build())
+                .onItem().ifNull().continueWith(Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(invalidUuid());
+        }
+    }
+
+    @POST
+    @Operation(summary = "Create a saved search")
+    public Uni<Response> createSavedSearch(@Valid SavedSearch search) {
+        return savedSearchService.createSavedSearch(search)
+            .onItem().transform(created -> Response.status(Response.Status.CREATED).entity(created).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(SavedSearchResource::badRequest);
+    }
+
+    @PUT
+    @Path("/{id}")
+    @Operation(summary = "Update a saved search")
+    public Uni<Response> updateSavedSearch(@PathParam("id") String id, @Valid SavedSearch search) {
+        UUID uuid;
+        try {
+            uuid = UUID.fromString(id);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(invalidUuid());
+        }
+        return savedSearchService.updateSavedSearch(uuid, search)
+            .onItem().ifNotNull().transform(updated -> Response.ok(updated).build())
+            .onItem().ifNull().continueWith(() -> Response.status(Response.Status.NOT_FOUND).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(SavedSearchResource::badRequest);
+    }
+
+    @DELETE
+    @Path("/{id}")
+    @Operation(summary = "Delete a saved search")
+    public Uni<Response> deleteSavedSearch(@PathParam("id") String id) {
+        try {
+            UUID uuid = UUID.fromString(id);
+            return savedSearchService.deleteSavedSearch(uuid)
+                .onItem().transform(deleted -> deleted
+                    ? Response.noContent().build()
+                    : Response.status(Response.Status.NOT_FOUND).build());
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().item(invalidUuid());
+        }
+    }
+
+    private static Response invalidUuid() {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity("{\"error\": \"Invalid UUID format\"}")
+            .build();
+    }
+
+    private static Response badRequest(Throwable failure) {
+        return Response.status(Response.Status.BAD_REQUEST)
+            .entity(Map.of("error", failure.getMessage()))
+            .build();
+    }
+}
@@ -2,17 +2,34 @@ package org.dukeroyahl.synaptik.resource;
 
 import org.dukeroyahl.synaptik.domain.TaskStatus;
 import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.FacetCount;
+import org.dukeroyahl.synaptik.dto.FacetedSearchResponse;
+import org.dukeroyahl.synaptik.dto.TaskBatchOperation;
 import org.dukeroyahl.synaptik.dto.TaskDTO;
 import org.dukeroyahl.synaptik.dto.TaskGraphResponse;
+import org.dukeroyahl.synaptik.dto.TaskLinkRequest;
 import org.dukeroyahl.synaptik.dto.TaskRequest;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.dto.TaskSuggestion;
+import org.dukeroyahl.synaptik.limit.EndpointClass;
+import org.dukeroyahl.synaptik.limit.Limited;
 import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.service.BlockingExecutor;
+import org.dukeroyahl.synaptik.service.TaskAnnotationService;
+import org.dukeroyahl.synaptik.service.TaskBatchService;
 import org.dukeroyahl.synaptik.service.TaskService;
 import org.dukeroyahl.synaptik.service.TaskGraphService;
+import org.dukeroyahl.synaptik.service.TaskSuggestService;
+import org.dukeroyahl.synaptik.service.TaskTagService;
+import org.dukeroyahl.synaptik.service.VersionConflictException;
 
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.validation.Valid;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.openapi.annotations.Operation;
@@ -24,8 +41,12 @@ import com.fasterxml.jackson.core.type.TypeReference;
 
 import java.io.IOException;
 import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @Path("/api/tasks")
@@ -37,15 +58,30 @@ public class TaskResource {
     @Inject
     TaskService taskService;
     
+    @Inject
+    TaskBatchService taskBatchService;
+
+    @Inject
+    TaskAnnotationService taskAnnotationService;
+
     @Inject
     TaskGraphService taskGraphService;
     
+    @Inject
+    TaskSuggestService taskSuggestService;
+    
+    @Inject
+    TaskTagService taskTagService;
+    
     @Inject
     ObjectMapper objectMapper;
     
     @Inject
     TaskMapper taskMapper;
 
+    @Inject
+    BlockingExecutor blockingExecutor;
+
     @GET
     @Operation(summary = "Get all tasks", description = "Retrieve all tasks with their project details")
     public Uni<List<TaskDTO>> getAllTasks() {
@@ -54,14 +90,14 @@ public class TaskResource {
 
     @GET
     @Path("/{id}")
-    @Operation(summary = "Get task by ID", description = "Retrieve a specific task by its ID")
+    @Operation(summary = "Get task by ID", description = "Retrieve a specific task by its ID. The ETag header carries its version, for If-Match on update")
     public Uni<Response> getTaskById(@PathParam("id") String id) {
         try {
             UUID taskId = UUID.fromString(id);
             return taskService.getTaskById(taskId)
                 .onItem().transform(task -> {
                     if (task != null) {
-                        return Response.ok(task).build();
+                        return Response.ok(task).tag(versionTag(task.version)).build();
                     } else {
                         return Response.status(Response.Status.NOT_FOUND).build();
                     }
@@ -82,24 +118,74 @@ public class TaskResource {
             );
     }
 
+    @POST
+    @Path("/batch")
+    @Operation(summary = "Apply several task operations at once",
+               description = "Create, update, status, delete, link and unlink operations are applied in order and written "
+                   + "with one bulk write. Returns one result per operation with the status the single-task endpoint "
+                   + "would have returned; failed operations do not affect the others.")
+    public Uni<Response> applyBatch(@Valid List<@Valid TaskBatchOperation> operations) {
+        return taskBatchService.applyBatch(operations)
+            .onItem().transform(result -> Response.ok(result).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(failure ->
+                Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", failure.getMessage()))
+                    .build());
+    }
+
     @PUT
     @Path("/{id}")
-    @Operation(summary = "Update a task", description = "Update an existing task with new details")
-    public Uni<Response> updateTask(@PathParam("id") String id, @Valid TaskRequest taskRequest) {
+    @Operation(summary = "Update a task",
+               description = "Update an existing task with new details. With If-Match set to the ETag from a read, "
+                   + "the update only applies if the task has not changed since; otherwise it returns 409 with the current version")
+    public Uni<Response> updateTask(@PathParam("id") String id, @HeaderParam(HttpHeaders.IF_MATCH) String ifMatch,
+                                    @Valid TaskRequest taskRequest) {
+        UUID taskId;
+        Long expectedVersion;
         try {
-            UUID taskId = UUID.fromString(id);
-            taskRequest.id = taskId; // Set the ID from path parameter
-            return taskService.updateTask(taskRequest)
-                .onItem().transform(updatedTask -> {
-                    if (updatedTask != null) {
-                        return Response.ok(updatedTask).build();
-                    } else {
-                        return Response.status(Response.Status.NOT_FOUND).build();
-                    }
-                });
+            taskId = UUID.fromString(id);
+            expectedVersion = parseIfMatch(ifMatch);
         } catch (IllegalArgumentException e) {
             return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST).build());
         }
+        taskRequest.id = taskId; // Set the ID from path parameter
+        return taskService.updateTask(taskRequest, expectedVersion)
+            .onItem().transform(updatedTask -> {
+                if (updatedTask != null) {
+                    return Response.ok(updatedTask).tag(versionTag(updatedTask.version)).build();
+                } else {
+                    return Response.status(Response.Status.NOT_FOUND).build();
+                }
+            })
+            .onFailure(VersionConflictException.class).recoverWithItem(failure -> {
+                Long currentVersion = ((VersionConflictException) failure).getCurrentVersion();
+                Map<String, Object> body = new HashMap<>();
+                body.put("error", failure.getMessage());
+                body.put("currentVersion", currentVersion);
+                return Response.status(Response.Status.CONFLICT).tag(versionTag(currentVersion)).entity(body).build();
+            });
+    }
+
+    private static EntityTag versionTag(Long version) {
+        return version != null ? new EntityTag(String.valueOf(version)) : null;
+    }
+
+    /**
+     * @return The version named by an If-Match header, or null for none or "*"
+     * @throws IllegalArgumentException if the header is not a single version tag
+     */
+    private static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() > 1 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            tag = tag.substring(1, tag.length() - 1);
+        }
+        return Long.valueOf(tag);
     }
 
     @DELETE
@@ -147,17 +233,60 @@ public class TaskResource {
     @GET
     @Path("/search")
     @Operation(summary = "Search tasks with multiple filters", 
-               description = "Search tasks by status list, title (partial), assignee (partial), project UUID (exact), date range with timezone support")
-    public Uni<List<TaskDTO>> searchTasks(
-            @QueryParam("status") List<TaskStatus> statuses,
-            @QueryParam("title") String title,
-            @QueryParam("assignee") String assignee,
-            @QueryParam("projectId") String projectId,
-            @QueryParam("dateFrom") String dateFrom,
-            @QueryParam("dateTo") String dateTo,
-            @QueryParam("tz") @DefaultValue("UTC") String timezone) {
+               description = "Search tasks by full-text query (q, ranked by relevance), status list, title (partial), assignee (partial), project UUID (exact), tags (tag, with tagMode ALL or ANY), date range with timezone support. Sorted in the database by sort (urgency, dueDate, updatedAt, priority) and order (asc, desc), optionally capped by limit")
+    public Uni<List<TaskDTO>> searchTasks(@BeanParam TaskSearchCriteria criteria) {
+        return taskService.searchTasks(criteria);
+    }
+
+    @HEAD
+    @Path("/search")
+    @Operation(summary = "Check whether any task matches",
+               description = "Same filters as /search. Returns 200 if at least one task matches, 404 otherwise, without a body")
+    public Uni<Response> anyTaskMatches(@BeanParam TaskSearchCriteria criteria) {
+        return taskService.anyTaskMatches(criteria)
+            .onItem().transform(found -> found
+                ? Response.ok().build()
+                : Response.status(Response.Status.NOT_FOUND).build());
+    }
+
+    @GET
+    @Path("/count")
+    @Operation(summary = "Count matching tasks",
+               description = "Same filters as /search, returning only the number of matching tasks. Counted in MongoDB without loading tasks")
+    public Uni<Long> countTasks(@BeanParam TaskSearchCriteria criteria) {
+        return taskService.countTasks(criteria);
+    }
+
+    @GET
+    @Path("/search/facets")
+    @Limited(EndpointClass.ANALYTICS)
+    @Operation(summary = "Search tasks with facet counts",
+               description = "Same filters and sort as /search, returning one page of tasks plus counts by status, priority, assignee, project and tag over all matches, computed in a single aggregation")
+    public Uni<FacetedSearchResponse> searchTasksWithFacets(
+            @BeanParam TaskSearchCriteria criteria,
+            @QueryParam("page") @DefaultValue("0") int page,
+            @QueryParam("size") @DefaultValue("50") int size) {
         
-        return taskService.searchTasks(statuses, title, assignee, projectId, dateFrom, dateTo, timezone);
+        return taskService.searchTasksWithFacets(criteria, page, size);
+    }
+
+    @GET
+    @Path("/tags")
+    @Operation(summary = "Get tag counts",
+               description = "Number of tasks carrying each tag, most used first. Served from a maintained counter")
+    public List<FacetCount> getTagCounts() {
+        return taskTagService.getTagCounts();
+    }
+
+    @GET
+    @Path("/suggest")
+    @Operation(summary = "Typeahead suggestions",
+               description = "Suggest tasks whose title or assignee words start with the query words. Served from an in-memory index")
+    public Uni<List<TaskSuggestion>> suggestTasks(
+            @QueryParam("q") String q,
+            @QueryParam("status") List<TaskStatus> statuses,
+            @QueryParam("limit") @DefaultValue("10") int limit) {
+        return Uni.createFrom().item(() -> taskSuggestService.suggest(q, statuses, limit));
     }
 
     @GET
@@ -180,6 +309,25 @@ public class TaskResource {
         return taskService.getDueTodayTasks(timezone);
     }
 
+    @GET
+    @Path("/top")
+    @Operation(summary = "Get most urgent open tasks",
+               description = "Stream the highest-urgency PENDING and ACTIVE tasks, limited server-side. Optional exact assignee and project UUID filters")
+    public Multi<TaskDTO> getTopUrgentTasks(
+            @QueryParam("limit") @DefaultValue("20") int limit,
+            @QueryParam("assignee") String assignee,
+            @QueryParam("projectId") String projectId) {
+        UUID projectUUID = null;
+        if (projectId != null && !projectId.trim().isEmpty()) {
+            try {
+                projectUUID = UUID.fromString(projectId.trim());
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Invalid project ID format");
+            }
+        }
+        return taskService.getTopUrgentTasks(limit, assignee, projectUUID);
+    }
+
     @GET
     @Path("/pending")
     @Operation(summary = "Get pending tasks", 
@@ -197,15 +345,20 @@ public class TaskResource {
 
     @GET
     @Path("/export")
+    @Limited(EndpointClass.ANALYTICS)
     @Produces(MediaType.APPLICATION_JSON)
     @Operation(summary = "Export all tasks", 
                description = "Export all tasks as JSON with complete data retention")
-    public Uni<List<TaskDTO>> exportTasks() {
-        return taskService.getAllTasks();
+    public Uni<Response> exportTasks() {
+        // Serialized here rather than by the REST layer, so a large export does not occupy the event loop
+        return taskService.getAllTasks()
+            .onItem().transformToUni(tasks -> blockingExecutor.run(() -> objectMapper.writeValueAsBytes(tasks)))
+            .onItem().transform(json -> Response.ok(json, MediaType.APPLICATION_JSON_TYPE).build());
     }
 
     @GET
     @Path("/export/csv")
+    @Limited(EndpointClass.ANALYTICS)
     @Produces("text/csv")
     @Operation(summary = "Export all tasks as CSV", 
                description = "Export all tasks as CSV file for spreadsheet applications")
@@ -221,6 +374,7 @@ public class TaskResource {
 
     @POST
     @Path("/import")
+    @Limited(EndpointClass.ANALYTICS)
     @Consumes(MediaType.MULTIPART_FORM_DATA)
     @Operation(summary = "Import tasks from file", 
                description = "Import tasks from uploaded JSON file containing Task entities array")
@@ -233,7 +387,7 @@ public class TaskResource {
             );
         }
 
-        return Uni.createFrom().item(() -> {
+        return blockingExecutor.run(() -> {
             try {
                 // Read file content
                 byte[] fileContent = Files.readAllBytes(file.uploadedFile());
@@ -269,6 +423,7 @@ public class TaskResource {
 
     @GET
     @Path("/graph")
+    @Limited(EndpointClass.ANALYTICS)
     @Operation(summary = "Get task dependency graph", description = "Retrieve task dependency graph with optional status filtering")
     public Uni<TaskGraphResponse> getTaskGraph(@QueryParam("statuses") String statuses) {
         // Parse statuses string to List<TaskStatus>
@@ -289,6 +444,7 @@ public class TaskResource {
 
     @GET
     @Path("/{id}/neighbors")
+    @Limited(EndpointClass.ANALYTICS)
     @Operation(summary = "Get task neighbors", description = "Get task dependencies and dependents")
     public Uni<Response> getTaskNeighbors(
             @PathParam("id") String taskId,
@@ -348,6 +504,20 @@ public class TaskResource {
         }
     }
 
+    @POST
+    @Path("/links")
+    @Operation(summary = "Link and unlink several tasks at once",
+               description = "Removes the 'unlink' edges, then adds the 'link' edges (taskId depends on dependencyId). "
+                   + "Returns one result per edge; edges that would create a circular dependency get status 409.")
+    public Uni<Response> applyLinks(TaskLinkRequest request) {
+        return taskBatchService.applyLinks(request)
+            .onItem().transform(result -> Response.ok(result).build())
+            .onFailure(IllegalArgumentException.class).recoverWithItem(failure ->
+                Response.status(Response.Status.BAD_REQUEST)
+                    .entity(Map.of("error", failure.getMessage()))
+                    .build());
+    }
+
     @DELETE
     @Path("/{id}/link/{dependencyId}")
     @Operation(summary = "Unlink tasks", 
@@ -383,6 +553,28 @@ public class TaskResource {
         }
     }
 
+    @GET
+    @Path("/{id}/annotations")
+    @Operation(summary = "Get task annotation history",
+               description = "Get the annotations of a task, newest first, including those no longer kept on the task. "
+                   + "Page with before (the timestamp of the last annotation received) and limit (default 50, at most 500)")
+    public Uni<Response> getTaskAnnotations(@PathParam("id") String id,
+                                            @QueryParam("before") String before,
+                                            @QueryParam("limit") @DefaultValue("50") int limit) {
+        UUID taskId;
+        LocalDateTime beforeTime;
+        try {
+            taskId = UUID.fromString(id);
+            beforeTime = before != null && !before.isBlank() ? LocalDateTime.parse(before.trim()) : null;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return Uni.createFrom().item(Response.status(Response.Status.BAD_REQUEST)
+                .entity(Map.of("error", "Invalid task ID or before timestamp"))
+                .build());
+        }
+        return taskAnnotationService.getHistory(taskId, beforeTime, limit)
+            .onItem().transform(annotations -> Response.ok(annotations).build());
+    }
+
     @GET
     @Path("/{id}/dependencies")
     @Operation(summary = "Get task dependencies", 
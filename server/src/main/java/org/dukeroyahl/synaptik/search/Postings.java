@@ -0,0 +1,198 @@
+package org.dukeroyahl.synaptik.search;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Set of non-negative int ordinals, as in Roaring bitmaps: split by their high 16 bits into
+ * containers, each a sorted char[] while it holds up to {@value #ARRAY_MAX} ordinals and a
+ * 65536-bit bitmap above that. Adding or removing touches one container, so it shifts at
+ * most {@value #ARRAY_MAX} entries however long the list is; membership is a binary search
+ * or a bit test. Not thread-safe.
+ */
+final class Postings {
+
+    static final int ARRAY_MAX = 4096;
+
+    // Indexed by ordinal >>> 16; ordinals are dense, so there are few
+    private Container[] containers = new Container[1];
+    private int size;
+
+    /**
+     * @return Whether the ordinal was not there yet
+     */
+    boolean add(int ordinal) {
+        int high = ordinal >>> 16;
+        if (high >= containers.length) {
+            containers = Arrays.copyOf(containers, Math.max(high + 1, containers.length * 2));
+        }
+        Container container = containers[high];
+        if (container == null) {
+            container = new ArrayContainer();
+            containers[high] = container;
+        }
+        if (!container.add((char) ordinal)) {
+            return false;
+        }
+        if (container instanceof ArrayContainer array && array.cardinality > ARRAY_MAX) {
+            containers[high] = array.toBitmap();
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * @return Whether the ordinal was there
+     */
+    boolean remove(int ordinal) {
+        int high = ordinal >>> 16;
+        Container container = high < containers.length ? containers[high] : null;
+        if (container == null || !container.remove((char) ordinal)) {
+            return false;
+        }
+        if (container.cardinality == 0) {
+            containers[high] = null;
+        } else if (container instanceof BitmapContainer bitmap && bitmap.cardinality <= ARRAY_MAX / 2) {
+            // Well below the switch-over, so add/remove at the edge does not convert back and forth
+            containers[high] = bitmap.toArray();
+        }
+        size--;
+        return true;
+    }
+
+    boolean contains(int ordinal) {
+        int high = ordinal >>> 16;
+        Container container = high < containers.length ? containers[high] : null;
+        return container != null && container.contains((char) ordinal);
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass every ordinal to the action, in ascending order.
+     */
+    void forEach(IntConsumer action) {
+        for (int high = 0; high < containers.length; high++) {
+            if (containers[high] != null) {
+                containers[high].forEach(high << 16, action);
+            }
+        }
+    }
+
+    private abstract static class Container {
+        int cardinality;
+
+        abstract boolean add(char low);
+
+        abstract boolean remove(char low);
+
+        abstract boolean contains(char low);
+
+        abstract void forEach(int base, IntConsumer action);
+    }
+
+    private static final class ArrayContainer extends Container {
+        char[] values = new char[4];
+
+        @Override
+        boolean add(char low) {
+            // Fresh ordinals are always the largest, so this is usually an append
+            int index = cardinality == 0 || values[cardinality - 1] < low
+                ? -cardinality - 1
+                : Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, values.length + (values.length >> 1) + 1);
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, cardinality - insertAt);
+            values[insertAt] = low;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int i = 0; i < cardinality; i++) {
+                action.accept(base | values[i]);
+            }
+        }
+
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            for (int i = 0; i < cardinality; i++) {
+                bitmap.add(values[i]);
+            }
+            return bitmap;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+        final long[] words = new long[1024];
+
+        @Override
+        boolean add(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) != 0) {
+                return false;
+            }
+            words[low >>> 6] |= bit;
+            cardinality++;
+            return true;
+        }
+
+        @Override
+        boolean remove(char low) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return false;
+            }
+            words[low >>> 6] &= ~bit;
+            cardinality--;
+            return true;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        void forEach(int base, IntConsumer action) {
+            for (int w = 0; w < words.length; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    action.accept(base | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        ArrayContainer toArray() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[cardinality];
+            forEach(0, low -> array.values[array.cardinality++] = (char) low);
+            return array;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.dukeroyahl.synaptik.search;
+
+import org.dukeroyahl.synaptik.domain.SavedSearch;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
+
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The IDs of the tasks matching one {@link SavedSearch}, kept current incrementally.
+ *
+ * The set is seeded from MongoDB once and then updated from each task change by evaluating
+ * the search against the changed task, like a continuous query. Filters mirror the ones
+ * TaskSearchQueryBuilder sends to MongoDB. For overdue searches the set holds every open
+ * task with a due date, and the due-date cutoff is applied when the set is read.
+ *
+ * Thread-safe: changes and reads may run concurrently with the initial load.
+ */
+public class SavedSearchResults {
+
+    // Members without a parseable due date never become overdue
+    private static final long NO_DUE_DATE = Long.MAX_VALUE;
+
+    private final SavedSearch search;
+    private final String title;
+    private final String assignee;
+
+    // Task ID -> due date in epoch millis
+    private final Map<UUID, Long> members = new ConcurrentHashMap<>();
+
+    // Tasks changed while the initial load runs; the loaded copy may be stale for these
+    private final Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading = true;
+
+    public SavedSearchResults(SavedSearch search) {
+        this.search = search;
+        this.title = normalize(search.title);
+        this.assignee = normalize(search.assignee);
+    }
+
+    public SavedSearch search() {
+        return search;
+    }
+
+    /**
+     * @return true once the initial load has completed
+     */
+    public boolean isLoaded() {
+        return !loading;
+    }
+
+    /**
+     * Add a task found by the initial load, unless a change already decided its membership.
+     */
+    public void addLoaded(UUID taskId, String dueDate) {
+        if (!changedDuringLoad.contains(taskId)) {
+            members.put(taskId, dueMillis(dueDate));
+        }
+    }
+
+    public void loadCompleted() {
+        loading = false;
+        changedDuringLoad.clear();
+    }
+
+    /**
+     * Re-evaluate one task after it was created, updated or deleted.
+     *
+     * @param taskId ID of the changed task
+     * @param after Task state after the change, or null if it was deleted
+     */
+    public void apply(UUID taskId, TaskDTO after) {
+        if (loading) {
+            changedDuringLoad.add(taskId);
+        }
+        if (after != null && matches(after)) {
+            members.put(taskId, dueMillis(after.dueDate));
+        } else {
+            members.remove(taskId);
+        }
+    }
+
+    public void clear() {
+        members.clear();
+    }
+
+    /**
+     * @param now Reference time for the overdue cutoff
+     * @return IDs of the matching tasks
+     */
+    public List<UUID> taskIds(Instant now) {
+        if (!Boolean.TRUE.equals(search.overdue)) {
+            return new ArrayList<>(members.keySet());
+        }
+        long cutoff = now.toEpochMilli();
+        List<UUID> ids = new ArrayList<>();
+        members.forEach((id, due) -> {
+            if (due < cutoff) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    public int size() {
+        return members.size();
+    }
+
+    /**
+     * Evaluate every filter except the overdue cutoff against a task.
+     */
+    public boolean matches(TaskDTO task) {
+        if (!search.statuses.isEmpty() && !search.statuses.contains(task.status)) {
+            return false;
+        }
+        if (!search.priorities.isEmpty() && !search.priorities.contains(task.priority)) {
+            return false;
+        }
+        if (title != null && !containsIgnoreCase(task.title, title)) {
+            return false;
+        }
+        if (assignee != null && !containsIgnoreCase(task.assignee, assignee)) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(search.unassigned) && task.assignee != null && !task.assignee.isEmpty()) {
+            return false;
+        }
+        if (search.projectId != null && !search.projectId.equals(task.projectId)) {
+            return false;
+        }
+        if (!search.tags.isEmpty() && !matchesTags(task.tags)) {
+            return false;
+        }
+        if (Boolean.TRUE.equals(search.overdue)) {
+            return task.dueDate != null && task.status != TaskStatus.COMPLETED;
+        }
+        return true;
+    }
+
+    private boolean matchesTags(List<String> taskTags) {
+        if (taskTags == null) {
+            return false;
+        }
+        if (search.tagMode == TaskSearchCriteria.TagMode.ANY) {
+            return search.tags.stream().anyMatch(taskTags::contains);
+        }
+        return taskTags.containsAll(search.tags);
+    }
+
+    private static boolean containsIgnoreCase(String value, String part) {
+        return value != null && value.toLowerCase(Locale.ROOT).contains(part);
+    }
+
+    private static String normalize(String value) {
+        return value == null || value.isBlank() ? null : value.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static long dueMillis(String dueDate) {
+        ZonedDateTime due = DateTimeHelper.parseIso8601(dueDate);
+        return due != null ? due.toInstant().toEpochMilli() : NO_DUE_DATE;
+    }
+}
@@ -0,0 +1,354 @@
+package org.dukeroyahl.synaptik.search;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskSuggestion;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory prefix index over task titles and assignees for typeahead.
+ *
+ * Every word of a title or assignee is indexed under its edge n-grams (prefixes of
+ * length 1 to {@value #MAX_PREFIX_LENGTH}). Each task gets a dense int ordinal, and each
+ * n-gram maps to a {@link Postings} set of ordinals, so a lookup is one hash probe per
+ * query word plus an intersection that walks the shortest set and probes the others.
+ * Query words longer than the indexed prefix are verified against the stored text.
+ *
+ * Every match is ranked, keeping only the best {@code limit} in a bounded heap. A put that
+ * leaves title and assignee unchanged does not touch the postings. Thread-safe; reads share
+ * a lock and writes are exclusive.
+ */
+public final class TaskSuggestIndex {
+
+    public static final int MAX_PREFIX_LENGTH = 10;
+
+    // Title starts with the query (2) and has all its words (1)
+    private static final int MAX_SCORE = 3;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<String, Postings> postings = new HashMap<>();
+    private final Map<UUID, Integer> ordinals = new HashMap<>();
+
+    // Per-ordinal document data; a null id marks a free slot
+    private UUID[] ids = new UUID[INITIAL_CAPACITY];
+    private String[] titles = new String[INITIAL_CAPACITY];
+    private String[] assignees = new String[INITIAL_CAPACITY];
+    // Lower-cased title, and lower-cased title plus assignee, used for matching
+    private String[] titleText = new String[INITIAL_CAPACITY];
+    private String[] searchText = new String[INITIAL_CAPACITY];
+    private TaskStatus[] statuses = new TaskStatus[INITIAL_CAPACITY];
+
+    private int highWater;
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+
+    /**
+     * Add or replace a task.
+     */
+    public void put(UUID id, String title, String assignee, TaskStatus status) {
+        lock.writeLock().lock();
+        try {
+            Integer existing = ordinals.get(id);
+            int ordinal;
+            if (existing != null) {
+                ordinal = existing;
+                if (Objects.equals(titles[ordinal], title) && Objects.equals(assignees[ordinal], assignee)) {
+                    // e.g. a status change: same words, nothing to reindex
+                    statuses[ordinal] = status;
+                    return;
+                }
+                unindex(ordinal);
+            } else {
+                ordinal = allocate();
+                ordinals.put(id, ordinal);
+            }
+
+            ids[ordinal] = id;
+            titles[ordinal] = title;
+            assignees[ordinal] = assignee;
+            statuses[ordinal] = status;
+            titleText[ordinal] = normalize(title);
+            searchText[ordinal] = titleText[ordinal] + " " + normalize(assignee);
+            for (String key : prefixes(searchText[ordinal])) {
+                postings.computeIfAbsent(key, k -> new Postings()).add(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove a task. Unknown IDs are ignored.
+     */
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            Integer ordinal = ordinals.remove(id);
+            if (ordinal == null) {
+                return;
+            }
+            unindex(ordinal);
+            ids[ordinal] = null;
+            titles[ordinal] = null;
+            assignees[ordinal] = null;
+            titleText[ordinal] = null;
+            searchText[ordinal] = null;
+            statuses[ordinal] = null;
+            if (freeCount == freeOrdinals.length) {
+                freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+            }
+            freeOrdinals[freeCount++] = ordinal;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Remove all tasks.
+     */
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            ordinals.clear();
+            Arrays.fill(ids, null);
+            Arrays.fill(titles, null);
+            Arrays.fill(assignees, null);
+            Arrays.fill(titleText, null);
+            Arrays.fill(searchText, null);
+            Arrays.fill(statuses, null);
+            highWater = 0;
+            freeCount = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * @return Number of indexed tasks
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Find tasks whose title or assignee has a word starting with every word of the query.
+     * Tasks whose title starts with the whole query rank first, then tasks matching on
+     * title words, then assignee-only matches; ties go to the shorter title.
+     *
+     * @param query Text typed so far
+     * @param allowed Statuses to include
+     * @param limit Maximum number of suggestions
+     * @return Suggestions, best first
+     */
+    public List<TaskSuggestion> suggest(String query, Set<TaskStatus> allowed, int limit) {
+        List<String> words = words(normalize(query));
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String phrase = String.join(" ", words);
+
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = postingLists(words);
+            if (lists.isEmpty()) {
+                return List.of();
+            }
+            // Walk the shortest list and probe the others
+            Postings driver = lists.get(0);
+
+            Comparator<Scored> ranking = Comparator.<Scored>comparingInt(s -> s.score)
+                .thenComparing(Comparator.<Scored>comparingInt(s -> s.titleLength).reversed())
+                .thenComparing(Comparator.<Scored>comparingInt(s -> s.ordinal).reversed());
+            // Min-heap of the best `limit` matches seen so far
+            PriorityQueue<Scored> best = new PriorityQueue<>(limit + 1, ranking);
+            driver.forEach(ordinal -> {
+                if (!allowed.contains(statuses[ordinal]) || !containedInAll(lists, ordinal)) {
+                    return;
+                }
+                // Ordinals arrive in ascending order, so a later one never wins a full tie;
+                // once the heap is full, only a higher score or a shorter title gets in
+                Scored worst = best.size() == limit ? best.peek() : null;
+                int titleLength = titleText[ordinal].length();
+                if ((worst != null && worst.score == MAX_SCORE && titleLength >= worst.titleLength)
+                        || !verify(searchText[ordinal], words)) {
+                    return;
+                }
+                int score = score(titleText[ordinal], words, phrase);
+                if (worst != null && (score < worst.score || (score == worst.score && titleLength >= worst.titleLength))) {
+                    return;
+                }
+                best.add(new Scored(ordinal, score, titleLength));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+
+            List<TaskSuggestion> result = new ArrayList<>(best.size());
+            while (!best.isEmpty()) {
+                int ordinal = best.poll().ordinal;
+                result.add(new TaskSuggestion(ids[ordinal], titles[ordinal], assignees[ordinal], statuses[ordinal]));
+            }
+            Collections.reverse(result);
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record Scored(int ordinal, int score, int titleLength) {}
+
+    private static int score(String title, List<String> words, String phrase) {
+        int score = 0;
+        if (title.startsWith(phrase)) {
+            score += 2;
+        }
+        boolean allInTitle = true;
+        for (String word : words) {
+            if (!hasWordStartingWith(title, word)) {
+                allInTitle = false;
+                break;
+            }
+        }
+        if (allInTitle) {
+            score += 1;
+        }
+        return score;
+    }
+
+    /**
+     * Posting lists for every query word, shortest first; empty if any word has no match.
+     */
+    private List<Postings> postingLists(List<String> words) {
+        List<Postings> lists = new ArrayList<>(words.size());
+        for (String word : words) {
+            Postings list = postings.get(word.length() > MAX_PREFIX_LENGTH ? word.substring(0, MAX_PREFIX_LENGTH) : word);
+            if (list == null) {
+                return List.of();
+            }
+            lists.add(list);
+        }
+        lists.sort(Comparator.comparingInt(Postings::size));
+        return lists;
+    }
+
+    /**
+     * Check whether every list after the first contains the ordinal.
+     */
+    private static boolean containedInAll(List<Postings> lists, int ordinal) {
+        for (int j = 1; j < lists.size(); j++) {
+            if (!lists.get(j).contains(ordinal)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean verify(String text, List<String> words) {
+        for (String word : words) {
+            if (word.length() > MAX_PREFIX_LENGTH && !hasWordStartingWith(text, word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean hasWordStartingWith(String text, String word) {
+        int from = 0;
+        while (true) {
+            int index = text.indexOf(word, from);
+            if (index < 0) {
+                return false;
+            }
+            if (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1))) {
+                return true;
+            }
+            from = index + 1;
+        }
+    }
+
+    private void unindex(int ordinal) {
+        for (String key : prefixes(searchText[ordinal])) {
+            Postings list = postings.get(key);
+            if (list != null) {
+                list.remove(ordinal);
+                if (list.size() == 0) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+    private int allocate() {
+        if (freeCount > 0) {
+            return freeOrdinals[--freeCount];
+        }
+        if (highWater == ids.length) {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            titles = Arrays.copyOf(titles, capacity);
+            assignees = Arrays.copyOf(assignees, capacity);
+            titleText = Arrays.copyOf(titleText, capacity);
+            searchText = Arrays.copyOf(searchText, capacity);
+            statuses = Arrays.copyOf(statuses, capacity);
+        }
+        return highWater++;
+    }
+
+    static String normalize(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Split normalized text into words on any non letter/digit character.
+     */
+    static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                words.add(text.substring(start, i));
+                start = -1;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Distinct edge n-grams of every word in the text.
+     */
+    static Set<String> prefixes(String text) {
+        Set<String> keys = new LinkedHashSet<>();
+        for (String word : words(text)) {
+            int max = Math.min(word.length(), MAX_PREFIX_LENGTH);
+            for (int length = 1; length <= max; length++) {
+                keys.add(word.substring(0, length));
+            }
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,85 @@
+package org.dukeroyahl.synaptik.service;
+
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Runs CPU-heavy or blocking work (file reads, parsing and serializing imports and exports,
+ * building dependency graphs) off the Vert.x event loop, so a large import or export does
+ * not hold up the requests sharing that loop.
+ *
+ * The mode is set with {@code synaptik.blocking.mode}:
+ * <ul>
+ *   <li>virtual-thread: a new virtual thread per piece of work (default)</li>
+ *   <li>worker-pool: the Quarkus worker pool</li>
+ *   <li>inline: on the calling thread, as before; for comparison</li>
+ * </ul>
+ */
+@ApplicationScoped
+public class BlockingExecutor {
+
+    private static final Logger logger = Logger.getLogger(BlockingExecutor.class);
+
+    public enum Mode {
+        VIRTUAL_THREAD,
+        WORKER_POOL,
+        INLINE
+    }
+
+    @ConfigProperty(name = "synaptik.blocking.mode", defaultValue = "virtual-thread")
+    Mode mode;
+
+    private ExecutorService virtualThreads;
+
+    void onStart(@Observes StartupEvent event) {
+        logger.infof("Blocking work runs in mode %s", mode);
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (virtualThreads != null) {
+            virtualThreads.shutdown();
+        }
+    }
+
+    /**
+     * Run {@code work} in the configured mode when the returned Uni is subscribed to.
+     * Downstream stages continue on the thread that ran it.
+     */
+    public <T> Uni<T> run(Callable<T> work) {
+        Uni<T> uni = Uni.createFrom().item(() -> {
+            try {
+                return work.call();
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new IllegalStateException(e.getMessage(), e);
+            }
+        });
+        return switch (mode) {
+            case VIRTUAL_THREAD -> uni.runSubscriptionOn(virtualThreads());
+            case WORKER_POOL -> uni.runSubscriptionOn(Infrastructure.getDefaultWorkerPool());
+            case INLINE -> uni;
+        };
+    }
+
+    public Mode mode() {
+        return mode;
+    }
+
+    private synchronized ExecutorService virtualThreads() {
+        if (virtualThreads == null) {
+            virtualThreads = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("synaptik-blocking-", 0).factory());
+        }
+        return virtualThreads;
+    }
+}
@@ -0,0 +1,192 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.dto.ChangeEvent;
+import org.dukeroyahl.synaptik.event.ProjectChangedEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.event.TaskDueEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.operators.multi.processors.BroadcastProcessor;
+import io.smallrye.mutiny.operators.multi.processors.SerializedProcessor;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Turns task and project change events into compact deltas and broadcasts them to
+ * /api/events subscribers.
+ *
+ * Creates carry the full entity, updates only the fields that changed, deletes only the ID.
+ * Nothing is computed while nobody is subscribed, and never on the thread that made the
+ * change: observers only queue the before and after states, and the delta is computed once
+ * per entry when it is first emitted to a subscriber. A subscriber that falls more than
+ * {@code synaptik.events.buffer-size} events behind is disconnected; clients reload
+ * their lists when they reconnect.
+ */
+@ApplicationScoped
+public class ChangeFeedService {
+
+    private static final Logger logger = Logger.getLogger(ChangeFeedService.class);
+
+    public static final String TASK = "task";
+    public static final String PROJECT = "project";
+
+    // Identity fields, never part of an update delta
+    private static final Set<String> UNCHANGEABLE = Set.of("id", "createdAt");
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "synaptik.events.buffer-size", defaultValue = "256")
+    int bufferSize;
+
+    // Where entries are turned into change events, off the writing threads
+    Executor executor = Infrastructure.getDefaultWorkerPool();
+
+    // Writes fire events from many threads; subscribers need them one at a time
+    private final SerializedProcessor<Entry, Entry> events = BroadcastProcessor.<Entry>create().serialized();
+    private final AtomicInteger subscribers = new AtomicInteger();
+
+    /**
+     * A feed entry whose data is computed on first use, once for all subscribers.
+     */
+    private static final class Entry {
+
+        private final String entity;
+        private final String type;
+        private final UUID id;
+        private Supplier<Map<String, Object>> data;
+        private ChangeEvent event;
+
+        Entry(String entity, String type, UUID id, Supplier<Map<String, Object>> data) {
+            this.entity = entity;
+            this.type = type;
+            this.id = id;
+            this.data = data;
+        }
+
+        synchronized ChangeEvent event() {
+            if (event == null) {
+                event = new ChangeEvent(entity, type, id, data != null ? data.get() : null);
+                // Let go of the before and after states
+                data = null;
+            }
+            return event;
+        }
+    }
+
+    /**
+     * @return Live change events from now on; fails if the subscriber falls too far behind
+     */
+    public Multi<ChangeEvent> stream() {
+        return Multi.createFrom().publisher(events)
+            .onSubscription().invoke(subscription -> subscribers.incrementAndGet())
+            .onTermination().invoke(() -> subscribers.decrementAndGet())
+            .emitOn(executor)
+            .onOverflow().buffer(bufferSize)
+            .map(Entry::event);
+    }
+
+    public int subscriberCount() {
+        return subscribers.get();
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        publish(switch (event.type()) {
+            case CREATED -> new Entry(TASK, "created", event.taskId(), () -> toMap(event.after()));
+            case UPDATED -> new Entry(TASK, "updated", event.taskId(), () -> diff(event.before(), event.after()));
+            case DELETED -> new Entry(TASK, "deleted", event.taskId(), null);
+            case CLEARED -> new Entry(TASK, "cleared", null, null);
+        });
+    }
+
+    void onTaskDue(@Observes TaskDueEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("dueDate", event.task().dueDate);
+        data.put("urgency", event.task().urgency);
+        publish(new Entry(TASK, switch (event.type()) {
+            case DUE_SOON -> "due-soon";
+            case OVERDUE -> "overdue";
+        }, event.task().id, () -> data));
+    }
+
+    void onProjectChanged(@Observes ProjectChangedEvent event) {
+        if (subscribers.get() == 0) {
+            return;
+        }
+        publish(switch (event.type()) {
+            case CREATED -> new Entry(PROJECT, "created", event.projectId(), () -> toMap(event.after()));
+            case UPDATED -> new Entry(PROJECT, "updated", event.projectId(), () -> diff(event.before(), event.after()));
+            case DELETED -> new Entry(PROJECT, "deleted", event.projectId(), null);
+            case CLEARED -> new Entry(PROJECT, "cleared", null, null);
+        });
+    }
+
+    private void publish(Entry entry) {
+        logger.debugf("Publishing %s %s %s", entry.entity, entry.type, entry.id);
+        events.onNext(entry);
+    }
+
+    private Map<String, Object> toMap(Object entity) {
+        return objectMapper.convertValue(entity, objectMapper.getTypeFactory()
+            .constructMapType(LinkedHashMap.class, String.class, Object.class));
+    }
+
+    /**
+     * Fields of {@code after} whose JSON value differs from {@code before}; fields that
+     * disappeared are reported as null.
+     */
+    Map<String, Object> diff(Object before, Object after) {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        JsonDiff.diff(objectMapper, before, after, UNCHANGEABLE)
+            .forEach((field, change) -> changes.put(field, change.to()));
+        return changes;
+    }
+
+    /**
+     * Parse the entity filter of a subscription, e.g. "task,project".
+     *
+     * @return Entity names, empty for all
+     * @throws IllegalArgumentException for unknown names
+     */
+    public static Set<String> parseEntities(List<String> values) {
+        if (values == null || values.isEmpty()) {
+            return Set.of();
+        }
+        Set<String> entities = new HashSet<>();
+        for (String value : values) {
+            for (String part : value.split(",")) {
+                String entity = part.trim().toLowerCase(Locale.ROOT);
+                if (entity.isEmpty()) {
+                    continue;
+                }
+                if (!entity.equals(TASK) && !entity.equals(PROJECT)) {
+                    throw new IllegalArgumentException("Invalid entity: '" + part.trim() + "'. Valid values are: task, project");
+                }
+                entities.add(entity);
+            }
+        }
+        return entities;
+    }
+}
@@ -0,0 +1,137 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Project;
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.FullDocument;
+import io.quarkus.mongodb.ChangeStreamOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.Priority;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.BsonDateTime;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
+import java.util.Optional;
+
+/**
+ * Keeps in-memory caches coherent across server instances sharing one MongoDB.
+ *
+ * Watches the tasks and projects collections and fires a {@link CacheInvalidationEvent}
+ * per change, marked local when it reports a task write of this instance (see
+ * {@link LocalTaskWrites}). Resume tokens are stored per instance in {@code change_stream_tokens}.
+ * Change streams need a replica set (a single-node one is enough), so this is off unless
+ * {@code synaptik.change-streams.enabled} is set.
+ */
+@ApplicationScoped
+public class ChangeStreamService {
+
+    private static final Logger logger = Logger.getLogger(ChangeStreamService.class);
+
+    static final String TOKEN_COLLECTION = "change_stream_tokens";
+
+    @ConfigProperty(name = "synaptik.change-streams.enabled", defaultValue = "false")
+    boolean enabled;
+
+    // Defaults to the host name, which is stable per pod or container
+    @ConfigProperty(name = "synaptik.change-streams.instance-id")
+    Optional<String> instanceId;
+
+    @ConfigProperty(name = "synaptik.change-streams.token-save-interval", defaultValue = "5s")
+    Duration tokenSaveInterval;
+
+    @ConfigProperty(name = "synaptik.change-streams.retry-backoff", defaultValue = "1s")
+    Duration retryBackoff;
+
+    @Inject
+    Event<CacheInvalidationEvent> invalidations;
+
+    @Inject
+    LocalTaskWrites localWrites;
+
+    private ChangeStreamWatcher<Task> taskWatcher;
+    private ChangeStreamWatcher<Document> projectWatcher;
+
+    // Before the cache loaders, so the streams start no later than their snapshots
+    void onStart(@Observes @Priority(1) StartupEvent event) {
+        if (!enabled) {
+            logger.debug("Change stream cache invalidation disabled");
+            return;
+        }
+
+        String instance = instanceId.filter(id -> !id.isBlank()).orElseGet(ChangeStreamService::hostName);
+        ChangeStreamWatcher.TokenStore tokens = new MongoTokenStore();
+
+        taskWatcher = new ChangeStreamWatcher<>(instance + ":tasks", CacheInvalidationEvent.Collection.TASKS,
+            resumeAfter -> Task.<Task>mongoCollection().watch(Task.class, options(resumeAfter)),
+            tokens, task -> task, change -> invalidations.fire(localWrites.mark(change)), tokenSaveInterval, retryBackoff);
+        projectWatcher = new ChangeStreamWatcher<>(instance + ":projects", CacheInvalidationEvent.Collection.PROJECTS,
+            resumeAfter -> Project.mongoCollection().watch(Document.class, options(resumeAfter)),
+            tokens, document -> null, invalidations::fire, tokenSaveInterval, retryBackoff);
+
+        taskWatcher.start();
+        projectWatcher.start();
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (taskWatcher != null) {
+            taskWatcher.stop();
+        }
+        if (projectWatcher != null) {
+            projectWatcher.stop();
+        }
+    }
+
+    private static ChangeStreamOptions options(BsonDocument resumeAfter) {
+        ChangeStreamOptions options = new ChangeStreamOptions().fullDocument(FullDocument.UPDATE_LOOKUP);
+        return resumeAfter != null ? options.resumeAfter(resumeAfter) : options;
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "localhost";
+        }
+    }
+
+    /**
+     * Tokens as {_id: "instance:collection", token, updatedAt} documents.
+     */
+    private static class MongoTokenStore implements ChangeStreamWatcher.TokenStore {
+
+        private final ReactiveMongoCollection<BsonDocument> collection =
+            Task.mongoDatabase().getCollection(TOKEN_COLLECTION, BsonDocument.class);
+
+        @Override
+        public Uni<BsonDocument> load(String key) {
+            return collection.find(new BsonDocument("_id", new BsonString(key)))
+                .toUni()
+                .map(stored -> stored != null && stored.isDocument("token") ? stored.getDocument("token") : null);
+        }
+
+        @Override
+        public Uni<Void> save(String key, BsonDocument token) {
+            BsonDocument stored = new BsonDocument("_id", new BsonString(key))
+                .append("token", token)
+                .append("updatedAt", new BsonDateTime(System.currentTimeMillis()));
+            return collection.replaceOne(new BsonDocument("_id", new BsonString(key)), stored,
+                    new ReplaceOptions().upsert(true))
+                .replaceWithVoid();
+        }
+    }
+}
@@ -0,0 +1,199 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.util.UUIDCodec;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Follows the change stream of one collection and turns each change into a
+ * {@link CacheInvalidationEvent}.
+ *
+ * The resume token of the last handled change is saved at most once per save interval,
+ * and always on {@link #stop()}. A (re)started watcher resumes after the saved token, so
+ * no change is skipped across reconnects and restarts; changes may be delivered twice.
+ * If the token has already left the oplog, the watcher starts from the current position
+ * and publishes an ALL invalidation instead.
+ *
+ * @param <T> Document class the change stream decodes full documents into
+ */
+final class ChangeStreamWatcher<T> {
+
+    private static final Logger logger = Logger.getLogger(ChangeStreamWatcher.class);
+
+    // ChangeStreamHistoryLost, ChangeStreamFatalError
+    private static final int HISTORY_LOST = 286;
+    private static final int FATAL_ERROR = 280;
+
+    /**
+     * Opens a change stream, e.g. ReactiveMongoCollection#watch with resumeAfter set.
+     */
+    interface Source<T> {
+        /**
+         * @param resumeAfter Token of the last handled change, or null to start now
+         */
+        Multi<ChangeStreamDocument<T>> watch(BsonDocument resumeAfter);
+    }
+
+    interface TokenStore {
+        /**
+         * @return The saved token, or null item if there is none
+         */
+        Uni<BsonDocument> load(String key);
+
+        Uni<Void> save(String key, BsonDocument token);
+    }
+
+    private final String key;
+    private final CacheInvalidationEvent.Collection collection;
+    private final Source<T> source;
+    private final TokenStore tokens;
+    private final Function<T, Task> taskOf;
+    private final Consumer<CacheInvalidationEvent> publish;
+    private final long saveIntervalNanos;
+    private final Duration retryBackoff;
+
+    private volatile BsonDocument resumeToken;
+    private volatile BsonDocument savedToken;
+    private long lastSave = System.nanoTime();
+    private volatile Cancellable subscription;
+
+    /**
+     * @param key Token store key, unique per instance and collection
+     * @param taskOf Extracts the task from a full document (returns null for other collections)
+     */
+    ChangeStreamWatcher(String key, CacheInvalidationEvent.Collection collection, Source<T> source,
+                        TokenStore tokens, Function<T, Task> taskOf, Consumer<CacheInvalidationEvent> publish,
+                        Duration saveInterval, Duration retryBackoff) {
+        this.key = key;
+        this.collection = collection;
+        this.source = source;
+        this.tokens = tokens;
+        this.taskOf = taskOf;
+        this.publish = publish;
+        this.saveIntervalNanos = saveInterval.toNanos();
+        this.retryBackoff = retryBackoff;
+    }
+
+    void start() {
+        subscription = tokens.load(key)
+            .onFailure().invoke(failure -> logger.warnf("Could not load %s resume token, starting from now: %s",
+                key, failure.getMessage()))
+            .onFailure().recoverWithNull()
+            .onItem().transformToMulti(token -> {
+                resumeToken = token;
+                savedToken = token;
+                logger.infof("Watching %s changes %s", key, token != null ? "from saved token" : "from now");
+                return Multi.createFrom().deferred(this::open)
+                    .onFailure().invoke(failure -> logger.warnf("%s change stream failed, reconnecting: %s",
+                        key, failure.getMessage()))
+                    .onFailure().retry().withBackOff(retryBackoff, retryBackoff.multipliedBy(60)).indefinitely();
+            })
+            .subscribe().with(
+                ignored -> { },
+                failure -> logger.errorf("%s change stream stopped: %s", key, failure.getMessage()));
+    }
+
+    /**
+     * Stop watching and save the position reached.
+     */
+    void stop() {
+        Cancellable current = subscription;
+        if (current != null) {
+            current.cancel();
+        }
+        BsonDocument token = resumeToken;
+        if (token != null && token != savedToken) {
+            try {
+                tokens.save(key, token).await().atMost(Duration.ofSeconds(5));
+            } catch (RuntimeException e) {
+                logger.warnf("Could not save %s resume token: %s", key, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * One change stream from the current resume token. Completion is turned into a failure
+     * so the retry opens the next stream.
+     */
+    private Multi<ChangeStreamDocument<T>> open() {
+        return source.watch(resumeToken)
+            .onFailure(ChangeStreamWatcher::isHistoryLost).recoverWithMulti(failure -> {
+                logger.warnf("%s resume token is no longer in the oplog, reloading caches: %s", key, failure.getMessage());
+                resumeToken = null;
+                fire(CacheInvalidationEvent.all(collection));
+                return source.watch(null);
+            })
+            .onItem().call(this::handle)
+            .onCompletion().failWith(() -> new IllegalStateException("Change stream closed"));
+    }
+
+    private Uni<Void> handle(ChangeStreamDocument<T> change) {
+        CacheInvalidationEvent event = toEvent(change);
+        if (event != null) {
+            fire(event);
+        }
+
+        // An invalidate token cannot be resumed after; the next stream starts from now
+        resumeToken = event != null && event.kind() == CacheInvalidationEvent.Kind.ALL ? null : change.getResumeToken();
+
+        long now = System.nanoTime();
+        BsonDocument token = resumeToken;
+        if (token == null || now - lastSave < saveIntervalNanos) {
+            return Uni.createFrom().voidItem();
+        }
+        lastSave = now;
+        return tokens.save(key, token)
+            .invoke(() -> savedToken = token)
+            .onFailure().invoke(failure -> logger.warnf("Could not save %s resume token: %s", key, failure.getMessage()))
+            .onFailure().recoverWithNull();
+    }
+
+    private void fire(CacheInvalidationEvent event) {
+        try {
+            publish.accept(event);
+        } catch (RuntimeException e) {
+            // A failing observer must not stall the stream on the same change forever
+            logger.warnf(e, "Cache invalidation for %s %s failed", event.collection(), event.id());
+        }
+    }
+
+    /**
+     * @return The invalidation for a change, or null if caches are not affected
+     */
+    CacheInvalidationEvent toEvent(ChangeStreamDocument<T> change) {
+        return switch (change.getOperationType()) {
+            case INSERT, UPDATE, REPLACE -> {
+                T document = change.getFullDocument();
+                yield CacheInvalidationEvent.changed(collection, documentId(change),
+                    document != null ? taskOf.apply(document) : null);
+            }
+            case DELETE -> CacheInvalidationEvent.deleted(collection, documentId(change));
+            case DROP, RENAME, DROP_DATABASE, INVALIDATE -> CacheInvalidationEvent.all(collection);
+            default -> null;
+        };
+    }
+
+    private static UUID documentId(ChangeStreamDocument<?> change) {
+        BsonValue id = change.getDocumentKey() != null ? change.getDocumentKey().get("_id") : null;
+        return id != null ? UUIDCodec.fromBson(id) : null;
+    }
+
+    static boolean isHistoryLost(Throwable failure) {
+        return failure instanceof MongoCommandException command
+            && (command.getErrorCode() == HISTORY_LOST || command.getErrorCode() == FATAL_ERROR);
+    }
+}
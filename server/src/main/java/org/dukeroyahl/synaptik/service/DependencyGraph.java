@@ -0,0 +1,102 @@
+package org.dukeroyahl.synaptik.service;
+
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Read-only view of task dependencies (task -> tasks it depends on) for cycle checks.
+ * Iterative, so deep chains cannot overflow the stack.
+ */
+final class DependencyGraph {
+
+    private final Function<UUID, List<UUID>> dependsOf;
+
+    /**
+     * @param dependsOf Dependencies of a task; null or empty if it has none or is unknown
+     */
+    DependencyGraph(Function<UUID, List<UUID>> dependsOf) {
+        this.dependsOf = dependsOf;
+    }
+
+    /**
+     * @return true if {@code target} is reachable from {@code from}, or is {@code from}
+     */
+    boolean reaches(UUID from, UUID target) {
+        Set<UUID> visited = new HashSet<>();
+        Deque<UUID> pending = new ArrayDeque<>();
+        pending.push(from);
+        while (!pending.isEmpty()) {
+            UUID id = pending.pop();
+            if (id.equals(target)) {
+                return true;
+            }
+            if (visited.add(id)) {
+                List<UUID> depends = dependsOf.apply(id);
+                if (depends != null) {
+                    depends.forEach(pending::push);
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One depth-first pass over everything reachable from {@code starts}.
+     *
+     * @return true if that part of the graph contains a cycle
+     */
+    boolean hasCycleFrom(Collection<UUID> starts) {
+        // Absent: unvisited, FALSE: on the current path, TRUE: fully explored
+        Map<UUID, Boolean> state = new HashMap<>();
+        Deque<UUID> path = new ArrayDeque<>();
+        Deque<Cursor> cursors = new ArrayDeque<>();
+
+        for (UUID start : starts) {
+            if (state.containsKey(start)) {
+                continue;
+            }
+            state.put(start, Boolean.FALSE);
+            path.push(start);
+            cursors.push(new Cursor(dependsOf.apply(start)));
+
+            while (!path.isEmpty()) {
+                UUID next = cursors.peek().next();
+                if (next == null) {
+                    state.put(path.pop(), Boolean.TRUE);
+                    cursors.pop();
+                    continue;
+                }
+                Boolean seen = state.get(next);
+                if (seen == null) {
+                    state.put(next, Boolean.FALSE);
+                    path.push(next);
+                    cursors.push(new Cursor(dependsOf.apply(next)));
+                } else if (!seen) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private static final class Cursor {
+        private final List<UUID> depends;
+        private int position;
+
+        Cursor(List<UUID> depends) {
+            this.depends = depends != null ? depends : List.of();
+        }
+
+        UUID next() {
+            return position < depends.size() ? depends.get(position++) : null;
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.event.TaskDueEvent;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+
+/**
+ * Upcoming due-date thresholds of open tasks, earliest first: "due soon" at a fixed lead
+ * before the due date, and "overdue" at it.
+ *
+ * A priority queue keyed on the crossing time, so taking the next ones costs O(log n) each
+ * and nothing is scanned. Rescheduling or cancelling a task leaves its old thresholds in the
+ * queue; they are skipped when they come up. A task stays tracked after going overdue, so
+ * its crossings are not repeated, until {@link #evict(long)} drops it. Not thread-safe.
+ */
+final class DueThresholds {
+
+    record Threshold(UUID taskId, long due, TaskDueEvent.Type type, long at) {}
+
+    // Catch up on every crossing already passed, for a due date that was just set
+    static final long CATCH_UP_ALL = Long.MIN_VALUE;
+
+    private long soonBeforeMillis;
+    private final PriorityQueue<Threshold> queue = new PriorityQueue<>(Comparator.comparingLong(Threshold::at));
+    // Due date each task's queued thresholds belong to
+    private final Map<UUID, Long> dues = new HashMap<>();
+
+    DueThresholds(long soonBeforeMillis) {
+        this.soonBeforeMillis = soonBeforeMillis;
+    }
+
+    /**
+     * Arm the thresholds of a task's due date. Nothing changes if it is already scheduled
+     * for that due date, so thresholds that have been crossed stay crossed.
+     *
+     * @param catchUpFrom Thresholds behind {@code nowMillis} but at or after this are crossed
+     *                    right away, earlier ones are skipped: {@link #CATCH_UP_ALL} when a
+     *                    due date was just set, the start of the catch-up window on a reload.
+     *                    A task overdue since before it is not tracked.
+     */
+    void schedule(UUID taskId, long due, long nowMillis, long catchUpFrom) {
+        Long current = dues.get(taskId);
+        if (current != null && current == due) {
+            return;
+        }
+        if (due <= nowMillis && due < catchUpFrom) {
+            dues.remove(taskId);
+            return;
+        }
+        dues.put(taskId, due);
+        long soonAt = due - soonBeforeMillis;
+        if (soonAt > nowMillis) {
+            queue.add(new Threshold(taskId, due, TaskDueEvent.Type.DUE_SOON, soonAt));
+        } else if (due > nowMillis && soonAt >= catchUpFrom) {
+            queue.add(new Threshold(taskId, due, TaskDueEvent.Type.DUE_SOON, nowMillis));
+        }
+        queue.add(new Threshold(taskId, due, TaskDueEvent.Type.OVERDUE, Math.max(due, nowMillis)));
+    }
+
+    void cancel(UUID taskId) {
+        dues.remove(taskId);
+    }
+
+    /**
+     * Stop tracking tasks that went overdue before {@code beforeMillis}; all their
+     * thresholds have been crossed.
+     *
+     * @return Number of tasks dropped
+     */
+    int evict(long beforeMillis) {
+        int before = dues.size();
+        dues.values().removeIf(due -> due < beforeMillis);
+        return before - dues.size();
+    }
+
+    void clear() {
+        dues.clear();
+        queue.clear();
+    }
+
+    /**
+     * Clear everything and use a new due-soon lead from now on.
+     */
+    void reset(long soonBeforeMillis) {
+        clear();
+        this.soonBeforeMillis = soonBeforeMillis;
+    }
+
+    /**
+     * @return Number of tasks with a due date being tracked
+     */
+    int size() {
+        return dues.size();
+    }
+
+    /**
+     * Take the thresholds crossed by {@code nowMillis}, earliest first.
+     *
+     * @param max At most this many; the rest stay queued for the next call
+     */
+    List<Threshold> poll(long nowMillis, int max) {
+        List<Threshold> crossed = new ArrayList<>();
+        while (crossed.size() < max && !queue.isEmpty() && queue.peek().at() <= nowMillis) {
+            Threshold threshold = queue.poll();
+            Long due = dues.get(threshold.taskId());
+            if (due != null && due == threshold.due()) {
+                crossed.add(threshold);
+            }
+        }
+        return crossed;
+    }
+
+    /**
+     * Drop stale entries, e.g. after many tasks were rescheduled or cancelled.
+     */
+    void compact() {
+        queue.removeIf(threshold -> {
+            Long due = dues.get(threshold.taskId());
+            return due == null || due != threshold.due();
+        });
+    }
+
+    int queued() {
+        return queue.size();
+    }
+}
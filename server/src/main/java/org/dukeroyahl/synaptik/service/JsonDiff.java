@@ -0,0 +1,61 @@
+package org.dukeroyahl.synaptik.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field-level difference between two versions of an entity, compared as JSON. Used by the
+ * change feed for update deltas and by the activity log for its from/to entries.
+ */
+final class JsonDiff {
+
+    /**
+     * One changed field; a missing or null value is null.
+     */
+    record Change(Object from, Object to) {}
+
+    private JsonDiff() {
+    }
+
+    /**
+     * Top-level fields whose JSON value differs, those of {@code after} first, then those
+     * only {@code before} has. A missing field counts as null.
+     *
+     * @param ignored Fields never reported
+     * @return Changes by field name, in that order
+     */
+    static Map<String, Change> diff(ObjectMapper objectMapper, Object before, Object after, Set<String> ignored) {
+        ObjectNode beforeJson = objectMapper.valueToTree(before);
+        ObjectNode afterJson = objectMapper.valueToTree(after);
+        Map<String, Change> changes = new LinkedHashMap<>();
+
+        for (Map.Entry<String, JsonNode> field : afterJson.properties()) {
+            add(changes, objectMapper, field.getKey(), beforeJson.get(field.getKey()), field.getValue(), ignored);
+        }
+        for (Map.Entry<String, JsonNode> field : beforeJson.properties()) {
+            if (!afterJson.has(field.getKey())) {
+                add(changes, objectMapper, field.getKey(), field.getValue(), null, ignored);
+            }
+        }
+        return changes;
+    }
+
+    private static void add(Map<String, Change> changes, ObjectMapper objectMapper, String field,
+                            JsonNode from, JsonNode to, Set<String> ignored) {
+        JsonNode fromValue = from != null ? from : NullNode.getInstance();
+        JsonNode toValue = to != null ? to : NullNode.getInstance();
+        if (!ignored.contains(field) && !fromValue.equals(toValue)) {
+            changes.put(field, new Change(value(objectMapper, fromValue), value(objectMapper, toValue)));
+        }
+    }
+
+    private static Object value(ObjectMapper objectMapper, JsonNode node) {
+        return node.isNull() ? null : objectMapper.convertValue(node, Object.class);
+    }
+}
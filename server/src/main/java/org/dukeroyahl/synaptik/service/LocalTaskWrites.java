@@ -0,0 +1,82 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Recognises the task changes a change stream reports back for writes this instance made.
+ *
+ * Every local write fires a {@link TaskChangedEvent} before MongoDB reports it, so the task
+ * and the version it was written with are remembered until the matching change comes in.
+ * Only the latest {@link #CAPACITY} writes are remembered; a change that arrives later, or
+ * a write that fired no event, is taken as remote.
+ */
+@ApplicationScoped
+public class LocalTaskWrites {
+
+    static final int CAPACITY = 10_000;
+
+    // Version a deleted task is remembered with
+    private static final long DELETED = -1L;
+
+    // Guarded by itself; task ID -> version written, oldest first
+    private final Map<UUID, Long> pending = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, Long> eldest) {
+            return size() > CAPACITY;
+        }
+    };
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> remember(event.after().id, event.after().version);
+            case DELETED -> remember(event.before().id, DELETED);
+            case CLEARED -> {
+                // No IDs to remember; the deletes are taken as remote
+            }
+        }
+    }
+
+    private void remember(UUID id, Long version) {
+        if (id == null || version == null) {
+            return;
+        }
+        synchronized (pending) {
+            // Re-inserted at the end, so the latest write of a busy task is kept longest
+            pending.remove(id);
+            pending.put(id, version);
+        }
+    }
+
+    /**
+     * @return The event, marked local if it reports the latest write this instance made
+     */
+    CacheInvalidationEvent mark(CacheInvalidationEvent event) {
+        if (event.collection() != CacheInvalidationEvent.Collection.TASKS || event.id() == null) {
+            return event;
+        }
+        Long expected = switch (event.kind()) {
+            case CHANGED -> event.task() != null ? event.task().version : null;
+            case DELETED -> DELETED;
+            case ALL -> null;
+        };
+        if (expected == null) {
+            return event;
+        }
+        synchronized (pending) {
+            if (!Objects.equals(pending.get(event.id()), expected)) {
+                return event;
+            }
+            pending.remove(event.id());
+        }
+        return event.asLocal();
+    }
+}
@@ -3,10 +3,14 @@ package org.dukeroyahl.synaptik.service;
 import org.dukeroyahl.synaptik.domain.Project;
 import org.dukeroyahl.synaptik.domain.ProjectStatus;
 import org.dukeroyahl.synaptik.dto.UpdateProject;
+import org.dukeroyahl.synaptik.event.ProjectChangedEvent;
 import org.dukeroyahl.synaptik.mapper.ProjectMapper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
 import io.smallrye.mutiny.Uni;
+import org.bson.Document;
 import org.jboss.logging.Logger;
 
 import java.util.List;
@@ -21,12 +25,15 @@ public class ProjectService {
     @Inject
     ProjectMapper projectMapper;
     
+    @Inject
+    Event<ProjectChangedEvent> projectEvents;
+    
     public Uni<List<Project>> getAllProjects() {
         return Project.listAll();
     }
     
     public Uni<Project> getProjectById(UUID id) {
-        return Project.find("_id", id).firstResult();
+        return Project.find(UUIDStorage.eq("_id", id)).firstResult();
     }
     
     public Uni<Project> getProjectByName(String name) {
@@ -36,7 +43,8 @@ public class ProjectService {
     public Uni<Project> createProject(Project project) {
         project.prePersist();
         logger.infof("Creating new project: %s", project.name);
-        return project.persist().map(persistedEntity -> (Project) persistedEntity);
+        return project.persist().map(persistedEntity -> (Project) persistedEntity)
+            .invoke(created -> projectEvents.fire(ProjectChangedEvent.created(created)));
     }
     
     public Uni<Project> findOrCreateProject(String projectName) {
@@ -58,66 +66,75 @@ public class ProjectService {
     }
     
     public Uni<Project> updateProject(UUID id, UpdateProject updates) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
+                UpdateProject before = projectMapper.fromProject(project);
                 projectMapper.updateProjectFromRecord(updates, project);
                 project.prePersist();
                 logger.infof("Updating project: %s", project.name);
-                return project.persistOrUpdate();
+                return persistUpdate(project, before);
             });
     }
     
     public Uni<Boolean> hardDeleteProject(UUID id) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
                 logger.infof("Hard deleting project: %s", project.name);
-                return project.delete().map(v -> true);
+                return project.delete()
+                    .invoke(() -> projectEvents.fire(ProjectChangedEvent.deleted(id)))
+                    .map(v -> true);
             })
             .onItem().ifNull().continueWith(false);
     }
     
     public Uni<Void> deleteAllProjects() {
         logger.info("Deleting all projects");
-        return Project.deleteAll().replaceWithVoid();
+        return Project.deleteAll()
+            .invoke(() -> projectEvents.fire(ProjectChangedEvent.cleared()))
+            .replaceWithVoid();
     }
     
     public Uni<Project> startProject(UUID id) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
+                UpdateProject before = projectMapper.fromProject(project);
                 project.start();
                 project.prePersist();
                 logger.infof("Starting project: %s", project.name);
-                return project.persistOrUpdate();
+                return persistUpdate(project, before);
             });
     }
     
     public Uni<Project> completeProject(UUID id) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
+                UpdateProject before = projectMapper.fromProject(project);
                 project.complete();
                 project.prePersist();
                 logger.infof("Completing project: %s", project.name);
-                return project.persistOrUpdate();
+                return persistUpdate(project, before);
             });
     }
     
     public Uni<Project> deleteProject(UUID id) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
+                UpdateProject before = projectMapper.fromProject(project);
                 project.markAsDeleted();
                 project.prePersist();
                 logger.infof("Marking project as deleted: %s", project.name);
-                return project.persistOrUpdate();
+                return persistUpdate(project, before);
             });
     }
     
     public Uni<Project> updateProjectProgress(UUID id, double progress) {
-        return Project.<Project>find("_id", id).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", id)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
+                UpdateProject before = projectMapper.fromProject(project);
                 project.updateProgress(progress);
                 project.prePersist();
                 logger.infof("Updating project progress: %s - %.1f%%", project.name, progress);
-                return project.persistOrUpdate();
+                return persistUpdate(project, before);
             });
     }
     
@@ -144,30 +161,39 @@ public class ProjectService {
     }
     
     public Uni<Project> updateProjectStatusBasedOnTasks(UUID projectId) {
-        return Project.<Project>find("_id", projectId).firstResult()
+        return Project.<Project>find(UUIDStorage.eq("_id", projectId)).firstResult()
             .onItem().ifNotNull().transformToUni(project -> {
-                // Get all tasks for this project
-                return org.dukeroyahl.synaptik.domain.Task.<org.dukeroyahl.synaptik.domain.Task>find("projectId", projectId).list()
-                    .onItem().transformToUni(tasks -> {
-                        if (tasks.isEmpty()) {
+                UpdateProject before = projectMapper.fromProject(project);
+                // Count this project's tasks by status in MongoDB instead of loading them
+                List<Document> pipeline = List.of(
+                    new Document("$match", UUIDStorage.eq("projectId", projectId)),
+                    new Document("$group", new Document("_id", "$status").append("count", new Document("$sum", 1))));
+                return org.dukeroyahl.synaptik.domain.Task.mongoCollection().aggregate(pipeline, Document.class).collect().asList()
+                    .onItem().transformToUni(buckets -> {
+                        long totalTasks = 0;
+                        long completedTasks = 0;
+                        long activeTasks = 0;
+                        for (Document bucket : buckets) {
+                            long count = bucket.get("count", Number.class).longValue();
+                            totalTasks += count;
+                            if (org.dukeroyahl.synaptik.domain.TaskStatus.COMPLETED.name().equals(bucket.get("_id"))) {
+                                completedTasks = count;
+                            } else if (org.dukeroyahl.synaptik.domain.TaskStatus.ACTIVE.name().equals(bucket.get("_id"))) {
+                                activeTasks = count;
+                            }
+                        }
+                        
+                        if (totalTasks == 0) {
                             // No tasks, keep project in PENDING
                             if (project.status == ProjectStatus.STARTED) {
                                 project.status = ProjectStatus.PENDING;
                                 project.prePersist();
                                 logger.infof("Project %s moved back to PENDING (no tasks)", project.name);
-                                return project.persistOrUpdate();
+                                return persistUpdate(project, before);
                             }
                             return Uni.createFrom().item(project);
                         }
                         
-                        long totalTasks = tasks.size();
-                        long completedTasks = tasks.stream()
-                            .mapToLong(t -> t.status == org.dukeroyahl.synaptik.domain.TaskStatus.COMPLETED ? 1 : 0)
-                            .sum();
-                        long activeTasks = tasks.stream()
-                            .mapToLong(t -> t.status == org.dukeroyahl.synaptik.domain.TaskStatus.ACTIVE ? 1 : 0)
-                            .sum();
-                        
                         // Calculate progress
                         double newProgress = (double) completedTasks / totalTasks * 100.0;
                         project.progress = newProgress;
@@ -195,9 +221,19 @@ public class ProjectService {
                         // If some tasks are completed but none are active, keep current status
                         
                         project.prePersist();
-                        return project.persistOrUpdate();
+                        return persistUpdate(project, before);
                     });
             })
             .onItem().ifNull().switchTo(Uni.createFrom().nullItem());
     }
+    
+    /**
+     * Persist a changed project and publish the change.
+     * 
+     * @param before Field values captured before the project was modified
+     */
+    private Uni<Project> persistUpdate(Project project, UpdateProject before) {
+        return project.<Project>persistOrUpdate()
+            .invoke(updated -> projectEvents.fire(ProjectChangedEvent.updated(before, updated)));
+    }
 }
@@ -0,0 +1,255 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.SavedSearch;
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.helper.TaskSearchQueryBuilder;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.search.SavedSearchResults;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.jboss.logging.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stores saved searches and keeps the matching task IDs of each one in memory.
+ *
+ * Each search is run against MongoDB once (on startup or when it is saved), fetching only
+ * IDs and due dates. After that {@link TaskChangedEvent}s (and {@link CacheInvalidationEvent}s
+ * for writes made by other instances) update the sets, so reading a saved search is a lookup
+ * by _id plus project enrichment instead of a filtered scan.
+ */
+@ApplicationScoped
+public class SavedSearchService {
+
+    private static final Logger logger = Logger.getLogger(SavedSearchService.class);
+
+    // The initial load only needs what membership and the overdue cutoff depend on
+    private static final FindOptions ID_AND_DUE_DATE = new FindOptions()
+        .projection(new Document("_id", 1).append("dueDate", 1));
+
+    @Inject
+    TaskSearchQueryBuilder queryBuilder;
+
+    @Inject
+    TaskService taskService;
+
+    @Inject
+    TaskMapper taskMapper;
+
+    private final Map<UUID, SavedSearchResults> results = new ConcurrentHashMap<>();
+
+    void onStart(@Observes StartupEvent event) {
+        trackAll();
+    }
+
+    private void trackAll() {
+        SavedSearch.<SavedSearch>streamAll()
+            .subscribe().with(
+                search -> {
+                    try {
+                        normalize(search);
+                        track(search);
+                    } catch (IllegalArgumentException e) {
+                        logger.warnf("Skipping saved search '%s': %s", search.name, e.getMessage());
+                    }
+                },
+                failure -> logger.warnf("Could not load saved searches: %s", failure.getMessage()));
+    }
+
+    public Uni<List<SavedSearch>> getAllSavedSearches() {
+        return SavedSearch.listAll();
+    }
+
+    public Uni<SavedSearch> getSavedSearchById(UUID id) {
+        return SavedSearch.<SavedSearch>find(UUIDStorage.eq("_id", id)).firstResult();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the filters contradict each other
+     */
+    public Uni<SavedSearch> createSavedSearch(SavedSearch search) {
+        try {
+            normalize(search);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+        search.id = UUID.randomUUID();
+        return search.<SavedSearch>persist()
+            .invoke(this::track);
+    }
+
+    /**
+     * Replace the filters of a saved search and rebuild its result set.
+     *
+     * @return The updated search, or null if it does not exist
+     * @throws IllegalArgumentException if the filters contradict each other
+     */
+    public Uni<SavedSearch> updateSavedSearch(UUID id, SavedSearch changes) {
+        try {
+            normalize(changes);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+        return getSavedSearchById(id)
+            .onItem().ifNotNull().transformToUni(search -> {
+                search.name = changes.name;
+                search.statuses = changes.statuses;
+                search.priorities = changes.priorities;
+                search.title = changes.title;
+                search.assignee = changes.assignee;
+                search.unassigned = changes.unassigned;
+                search.projectId = changes.projectId;
+                search.tags = changes.tags;
+                search.tagMode = changes.tagMode;
+                search.overdue = changes.overdue;
+                return search.<SavedSearch>persistOrUpdate();
+            })
+            .invoke(search -> {
+                if (search != null) {
+                    track(search);
+                }
+            });
+    }
+
+    public Uni<Boolean> deleteSavedSearch(UUID id) {
+        return SavedSearch.delete(UUIDStorage.eq("_id", id))
+            .map(deleted -> {
+                results.remove(id);
+                return deleted > 0;
+            });
+    }
+
+    /**
+     * Get the tasks currently matching a saved search, most urgent first.
+     *
+     * @return Matching tasks, or null if the search does not exist
+     */
+    public Uni<List<TaskDTO>> getSavedSearchTasks(UUID id) {
+        SavedSearchResults current = results.get(id);
+        if (current == null) {
+            return Uni.createFrom().nullItem();
+        }
+        if (current.isLoaded()) {
+            return taskService.getTasksByIds(current.taskIds(Instant.now()));
+        }
+
+        // Set still loading: answer this read from MongoDB
+        SavedSearchResults snapshot = new SavedSearchResults(current.search());
+        return Task.<Task>mongoCollection().find(buildQuery(current.search()), ID_AND_DUE_DATE)
+            .invoke(task -> snapshot.addLoaded(task.id, task.dueDate))
+            .collect().last()
+            .onItem().transformToUni(ignored -> taskService.getTasksByIds(snapshot.taskIds(Instant.now())));
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (event.type() == TaskChangedEvent.Type.CLEARED) {
+            results.values().forEach(SavedSearchResults::clear);
+            return;
+        }
+        UUID taskId = event.taskId();
+        for (SavedSearchResults searchResults : results.values()) {
+            searchResults.apply(taskId, event.after());
+        }
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (event.collection() != CacheInvalidationEvent.Collection.TASKS) {
+            return;
+        }
+        switch (event.kind()) {
+            case CHANGED, DELETED -> {
+                TaskDTO after = event.task() != null ? taskMapper.toDTO(event.task()) : null;
+                for (SavedSearchResults searchResults : results.values()) {
+                    searchResults.apply(event.id(), after);
+                }
+            }
+            case ALL -> trackAll();
+        }
+    }
+
+    /**
+     * Start maintaining the result set of a search, replacing any previous one.
+     * If the load fails the set stays unloaded and reads keep querying MongoDB.
+     */
+    private void track(SavedSearch search) {
+        SavedSearchResults searchResults = new SavedSearchResults(search);
+        results.put(search.id, searchResults);
+
+        Task.<Task>mongoCollection().find(buildQuery(search), ID_AND_DUE_DATE)
+            .subscribe().with(
+                task -> searchResults.addLoaded(task.id, task.dueDate),
+                failure -> logger.warnf("Could not load saved search '%s': %s", search.name, failure.getMessage()),
+                () -> {
+                    searchResults.loadCompleted();
+                    logger.debugf("Loaded saved search '%s': %d tasks", search.name, searchResults.size());
+                });
+    }
+
+    /**
+     * MongoDB query equivalent to {@link SavedSearchResults#matches}.
+     */
+    Document buildQuery(SavedSearch search) {
+        boolean overdue = Boolean.TRUE.equals(search.overdue);
+        List<TaskStatus> statuses = overdue
+            ? search.statuses.stream().filter(status -> status != TaskStatus.COMPLETED).toList()
+            : search.statuses;
+
+        TaskSearchCriteria criteria = new TaskSearchCriteria(statuses, search.title, search.assignee,
+            search.projectId != null ? search.projectId.toString() : null, null, null, null);
+        criteria.tags = search.tags;
+        criteria.tagMode = search.tagMode;
+        Document query = queryBuilder.buildSearchQuery(criteria);
+
+        if (!search.priorities.isEmpty()) {
+            query.append("priority", new Document("$in", search.priorities.stream().map(TaskPriority::name).toList()));
+        }
+        if (Boolean.TRUE.equals(search.unassigned)) {
+            query.append("assignee", new Document("$in", Arrays.asList(null, "")));
+        }
+        if (overdue) {
+            query.append("dueDate", new Document("$ne", null));
+            if (statuses.isEmpty()) {
+                query.append("status", new Document("$ne", TaskStatus.COMPLETED.name()));
+            }
+        }
+        return query;
+    }
+
+    private static void normalize(SavedSearch search) {
+        search.name = search.name != null ? search.name.trim() : null;
+        search.statuses = search.statuses != null ? new ArrayList<>(search.statuses) : new ArrayList<>();
+        search.priorities = search.priorities != null ? new ArrayList<>(search.priorities) : new ArrayList<>();
+        search.tags = new ArrayList<>(TaskSearchQueryBuilder.normalizeTags(search.tags));
+        if (search.tagMode == null) {
+            search.tagMode = TaskSearchCriteria.TagMode.ALL;
+        }
+
+        if (Boolean.TRUE.equals(search.unassigned) && search.assignee != null && !search.assignee.isBlank()) {
+            throw new IllegalArgumentException("A saved search cannot filter by assignee and unassigned at once");
+        }
+        if (Boolean.TRUE.equals(search.overdue) && !search.statuses.isEmpty()
+                && search.statuses.stream().allMatch(status -> status == TaskStatus.COMPLETED)) {
+            throw new IllegalArgumentException("Completed tasks are never overdue");
+        }
+    }
+}
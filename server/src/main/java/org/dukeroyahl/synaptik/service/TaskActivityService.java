@@ -0,0 +1,523 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.TaskActivity;
+import org.dukeroyahl.synaptik.domain.TaskActivityDay;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Append-only log of task changes in task_activity, for reporting by task, project and
+ * time range.
+ *
+ * Change events go onto a bounded in-memory queue as they are, stamped with the time of
+ * the change; the writing thread does nothing else. In the background they become entries
+ * (a field diff, as in the change feed) and are written: one insertMany per
+ * {@code synaptik.activity.batch-size} events, or per flush interval, whichever comes
+ * first. A full batch is handed to a worker thread, not written by the thread that filled it. When the queue is full, new events are dropped and counted, so a slow database
+ * never holds up task writes. Queued events are written on shutdown; a crash loses at most
+ * one flush interval.
+ *
+ * Entries older than {@code synaptik.activity.compact-after} are rolled into one
+ * task_activity_daily summary per task and UTC day, inside MongoDB. Each compaction batch
+ * picks its entries by ID, merges exactly those and then deletes exactly those, so an
+ * entry written late is never deleted without being summarised. An interrupted run may
+ * count entries twice but never loses them.
+ */
+@ApplicationScoped
+public class TaskActivityService {
+
+    private static final Logger logger = Logger.getLogger(TaskActivityService.class);
+
+    public static final int MAX_LIMIT = 1000;
+
+    // Entries merged and deleted per compaction round trip
+    static final int COMPACTION_BATCH = 10_000;
+
+    private static final FindOptions ID_ONLY = new FindOptions()
+        .projection(new Document("_id", 1))
+        .limit(COMPACTION_BATCH);
+
+    // Identity, bookkeeping and fields derived from others; not worth an entry of their own
+    private static final Set<String> UNTRACKED = Set.of("id", "createdAt", "updatedAt", "version", "urgency", "projectName");
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "synaptik.activity.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "synaptik.activity.queue-size", defaultValue = "10000")
+    int queueSize;
+
+    @ConfigProperty(name = "synaptik.activity.batch-size", defaultValue = "500")
+    int batchSize;
+
+    @ConfigProperty(name = "synaptik.activity.flush-interval", defaultValue = "1s")
+    Duration flushInterval;
+
+    @ConfigProperty(name = "synaptik.activity.compact-after", defaultValue = "30d")
+    Duration compactAfter;
+
+    @ConfigProperty(name = "synaptik.activity.compaction-interval", defaultValue = "1h")
+    Duration compactionInterval;
+
+    @ConfigProperty(name = "synaptik.mongodb.ensure-indexes", defaultValue = "true")
+    boolean ensureIndexes;
+
+    // Where a full batch is diffed and written, off the writing threads
+    Executor executor = Infrastructure.getDefaultWorkerPool();
+
+    /**
+     * A change as observed, turned into an entry when it is written.
+     */
+    record Pending(TaskChangedEvent event, LocalDateTime timestamp) {}
+
+    private final Queue<Pending> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicBoolean flushing = new AtomicBoolean();
+    private final List<Cancellable> timers = new ArrayList<>();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            logger.info("Task activity log disabled");
+            return;
+        }
+        if (ensureIndexes) {
+            ensureIndexes(TaskActivity.mongoCollection(), activityIndexes());
+            ensureIndexes(TaskActivityDay.mongoCollection(), dailyIndexes());
+        }
+
+        // Ticks that arrive while the previous run is still going are dropped
+        timers.add(Multi.createFrom().ticks().every(flushInterval)
+            .onOverflow().drop()
+            .onItem().transformToUniAndConcatenate(tick -> flush())
+            .subscribe().with(ignored -> {}));
+        if (compactAfter.isPositive()) {
+            timers.add(Multi.createFrom().ticks().startingAfter(compactionInterval).every(compactionInterval)
+                .onOverflow().drop()
+                .onItem().transformToUniAndConcatenate(tick -> compact()
+                    .onFailure().recoverWithItem(failure -> {
+                        logger.warnf("Could not compact task activity: %s", failure.getMessage());
+                        return 0L;
+                    }))
+                .subscribe().with(count -> {
+                    if (count > 0) {
+                        logger.infof("Compacted %d task activity entries into daily summaries", count);
+                    }
+                }));
+        }
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        timers.forEach(Cancellable::cancel);
+        if (queued.get() > 0) {
+            try {
+                writeQueued().await().atMost(Duration.ofSeconds(5));
+            } catch (RuntimeException e) {
+                logger.warnf("Could not write %d queued task activity entries: %s", queued.get(), e.getMessage());
+            }
+        }
+    }
+
+    private static void ensureIndexes(ReactiveMongoCollection<?> collection, List<IndexModel> indexes) {
+        String name = collection.getNamespace().getCollectionName();
+        for (IndexModel index : indexes) {
+            collection.createIndex(index.getKeys(), index.getOptions())
+                .subscribe().with(
+                    created -> logger.infof("Ensured %s index: %s", name, created),
+                    failure -> logger.warnf("Could not ensure %s index %s: %s",
+                        name, index.getKeys(), failure.getMessage()));
+        }
+    }
+
+    /**
+     * Index definitions for the task_activity collection.
+     */
+    static List<IndexModel> activityIndexes() {
+        return List.of(
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("taskId"), Indexes.descending("timestamp"))),
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("projectId"), Indexes.descending("timestamp"))),
+            // Time-range queries without a task or project, and compaction
+            new IndexModel(Indexes.descending("timestamp")));
+    }
+
+    /**
+     * Index definitions for the task_activity_daily collection. Compaction merges on
+     * taskId and day, which requires the unique index.
+     */
+    static List<IndexModel> dailyIndexes() {
+        return List.of(
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("taskId"), Indexes.ascending("day")),
+                new IndexOptions().name("task_activity_day_unique").unique(true)),
+            new IndexModel(Indexes.compoundIndex(Indexes.ascending("projectId"), Indexes.descending("day"))),
+            new IndexModel(Indexes.descending("day")));
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (enqueue(event, LocalDateTime.now(ZoneOffset.UTC)) && queued.get() >= batchSize && !flushing.get()) {
+            Uni.createFrom().deferred(this::flush)
+                .runSubscriptionOn(executor)
+                .subscribe().with(ignored -> {});
+        }
+    }
+
+    /**
+     * @return The entry for an event, or null for an update that changed no tracked field
+     */
+    TaskActivity toActivity(TaskChangedEvent event, LocalDateTime timestamp) {
+        TaskActivity activity = new TaskActivity();
+        activity.taskId = event.taskId();
+        activity.timestamp = timestamp;
+        switch (event.type()) {
+            case CREATED -> {
+                activity.type = TaskActivity.CREATED;
+                activity.projectId = event.after().projectId;
+                activity.toStatus = event.after().status;
+            }
+            case UPDATED -> {
+                Document changes = diff(event.before(), event.after());
+                if (changes.isEmpty()) {
+                    return null;
+                }
+                activity.type = TaskActivity.UPDATED;
+                activity.projectId = event.after().projectId;
+                activity.changes = changes;
+                if (event.before().status != event.after().status) {
+                    activity.fromStatus = event.before().status;
+                    activity.toStatus = event.after().status;
+                }
+            }
+            case DELETED -> {
+                activity.type = TaskActivity.DELETED;
+                activity.projectId = event.before().projectId;
+                activity.fromStatus = event.before().status;
+            }
+            case CLEARED -> activity.type = TaskActivity.CLEARED;
+        }
+        return activity;
+    }
+
+    /**
+     * Tracked fields whose JSON value differs, as {field: {from, to}}; missing values are null.
+     */
+    Document diff(TaskDTO before, TaskDTO after) {
+        Document changes = new Document();
+        JsonDiff.diff(objectMapper, before, after, UNTRACKED).forEach((field, change) ->
+            changes.append(field, new Document("from", change.from()).append("to", change.to())));
+        return changes;
+    }
+
+    /**
+     * @return false if the queue is full and the event was dropped
+     */
+    boolean enqueue(TaskChangedEvent event, LocalDateTime timestamp) {
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        queue.add(new Pending(event, timestamp));
+        return true;
+    }
+
+    /**
+     * Take up to {@code max} events off the queue, oldest first.
+     */
+    List<Pending> drain(int max) {
+        List<Pending> batch = new ArrayList<>();
+        Pending next;
+        while (batch.size() < max && (next = queue.poll()) != null) {
+            queued.decrementAndGet();
+            batch.add(next);
+        }
+        return batch;
+    }
+
+    /**
+     * @return The entries for the events, without updates that changed no tracked field
+     */
+    List<TaskActivity> toActivities(List<Pending> batch) {
+        List<TaskActivity> activities = new ArrayList<>(batch.size());
+        for (Pending pending : batch) {
+            TaskActivity activity = toActivity(pending.event(), pending.timestamp());
+            if (activity != null) {
+                activities.add(activity);
+            }
+        }
+        return activities;
+    }
+
+    int queued() {
+        return queued.get();
+    }
+
+    /**
+     * Write the queued events, one insertMany per batch. Does nothing while another flush
+     * is running; it or the next tick picks up the new entries.
+     */
+    Uni<Void> flush() {
+        if (!flushing.compareAndSet(false, true)) {
+            return Uni.createFrom().voidItem();
+        }
+        long lost = dropped.getAndSet(0);
+        if (lost > 0) {
+            logger.warnf("Task activity queue full, dropped %d entries", lost);
+        }
+        return writeQueued().eventually(() -> flushing.set(false));
+    }
+
+    private Uni<Void> writeQueued() {
+        List<Pending> pending = drain(batchSize);
+        if (pending.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<TaskActivity> batch = toActivities(pending);
+        if (batch.isEmpty()) {
+            return writeQueued();
+        }
+        return TaskActivity.persist(batch)
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not write %d task activity entries: %s", batch.size(), failure.getMessage());
+                return null;
+            })
+            .chain(this::writeQueued);
+    }
+
+    /**
+     * @param from Inclusive, null for no lower bound
+     * @param to Exclusive, null for no upper bound
+     * @return Up to {@code limit} entries, newest first
+     * @throws IllegalArgumentException if from is not before to
+     */
+    public Uni<List<TaskActivity>> getActivity(UUID taskId, UUID projectId, LocalDateTime from, LocalDateTime to, int limit) {
+        Document query;
+        try {
+            query = filter("timestamp", taskId, projectId, from, to);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+        return TaskActivity.<TaskActivity>find(query, new Document("timestamp", -1).append("_id", -1))
+            .range(0, boundedLimit(limit) - 1)
+            .list();
+    }
+
+    /**
+     * Daily summaries of compacted activity. A day is included if it overlaps the range.
+     *
+     * @return Up to {@code limit} summaries, newest day first
+     * @throws IllegalArgumentException if from is not before to
+     */
+    public Uni<List<TaskActivityDay>> getDailyActivity(UUID taskId, UUID projectId, LocalDateTime from, LocalDateTime to, int limit) {
+        Document query;
+        try {
+            query = filter("day", taskId, projectId, from != null ? from.truncatedTo(ChronoUnit.DAYS) : null, to);
+        } catch (IllegalArgumentException e) {
+            return Uni.createFrom().failure(e);
+        }
+        return TaskActivityDay.<TaskActivityDay>find(query, new Document("day", -1).append("_id", -1))
+            .range(0, boundedLimit(limit) - 1)
+            .list();
+    }
+
+    static Document filter(String timeField, UUID taskId, UUID projectId, LocalDateTime from, LocalDateTime to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        Document query = new Document();
+        if (taskId != null) {
+            query.append("taskId", UUIDStorage.matchValue(taskId));
+        }
+        if (projectId != null) {
+            query.append("projectId", UUIDStorage.matchValue(projectId));
+        }
+        Document range = new Document();
+        if (from != null) {
+            range.append("$gte", from);
+        }
+        if (to != null) {
+            range.append("$lt", to);
+        }
+        if (!range.isEmpty()) {
+            query.append(timeField, range);
+        }
+        return query;
+    }
+
+    private static int boundedLimit(int limit) {
+        return Math.max(1, Math.min(limit, MAX_LIMIT));
+    }
+
+    /**
+     * Parse a time range bound: an ISO 8601 date-time with offset, a date-time without one
+     * (taken as UTC), or a date (its start, UTC).
+     *
+     * @return UTC time, or null if the value is null or blank
+     * @throws IllegalArgumentException if the value is none of these
+     */
+    public static LocalDateTime parseTime(String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        String text = value.trim();
+        try {
+            return OffsetDateTime.parse(text).withOffsetSameInstant(ZoneOffset.UTC).toLocalDateTime();
+        } catch (DateTimeParseException ignored) {
+            // Not an offset date-time
+        }
+        try {
+            return LocalDateTime.parse(text);
+        } catch (DateTimeParseException ignored) {
+            // Not a local date-time
+        }
+        try {
+            return LocalDate.parse(text).atStartOfDay();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time: '" + text + "'. Use an ISO 8601 date or date-time");
+        }
+    }
+
+    /**
+     * Compact the entries of days that ended at least {@code synaptik.activity.compact-after}
+     * ago; with 0, all days before today.
+     *
+     * @return Number of entries compacted
+     */
+    public Uni<Long> compact() {
+        Duration age = compactAfter.isNegative() ? Duration.ZERO : compactAfter;
+        return compact(LocalDateTime.now(ZoneOffset.UTC).minus(age).truncatedTo(ChronoUnit.DAYS));
+    }
+
+    /**
+     * Add the entries before {@code cutoff} to the daily summaries, then delete them, up to
+     * {@link #COMPACTION_BATCH} at a time. Both steps run inside MongoDB on the IDs read at
+     * the start of the batch, so entries flushed meanwhile wait for the next run. Entries
+     * without a task (CLEARED) are kept.
+     *
+     * @param cutoff UTC midnight, so every compacted day is complete
+     * @return Number of entries compacted
+     */
+    Uni<Long> compact(LocalDateTime cutoff) {
+        Document old = new Document("timestamp", new Document("$lt", cutoff))
+            .append("taskId", new Document("$ne", null));
+        return compactBatch(old, 0L);
+    }
+
+    private Uni<Long> compactBatch(Document old, long compacted) {
+        return TaskActivity.<TaskActivity>mongoCollection().find(old, ID_ONLY)
+            .map(activity -> activity.id)
+            .collect().asList()
+            .chain(ids -> {
+                if (ids.isEmpty()) {
+                    return Uni.createFrom().item(compacted);
+                }
+                Document batch = new Document("_id", new Document("$in", ids));
+                return TaskActivity.<TaskActivity>mongoCollection().aggregate(compaction(batch)).collect().last()
+                    .chain(() -> TaskActivity.delete(batch))
+                    .chain(deleted -> ids.size() < COMPACTION_BATCH
+                        ? Uni.createFrom().item(compacted + deleted)
+                        : compactBatch(old, compacted + deleted));
+            });
+    }
+
+    static List<Document> compaction(Document match) {
+        Document group = new Document("_id", new Document("taskId", "$taskId")
+                .append("day", new Document("$dateTrunc", new Document("date", "$timestamp").append("unit", "day"))))
+            .append("projectId", new Document("$last", "$projectId"))
+            .append("events", new Document("$sum", 1))
+            .append("created", countOf(TaskActivity.CREATED))
+            .append("updated", countOf(TaskActivity.UPDATED))
+            .append("deleted", countOf(TaskActivity.DELETED))
+            .append("statusChanges", new Document("$sum", new Document("$cond", List.of(
+                new Document("$or", List.of(
+                    new Document("$gt", Arrays.asList("$fromStatus", null)),
+                    new Document("$gt", Arrays.asList("$toStatus", null)))), 1, 0))))
+            .append("fields", new Document("$push", new Document("$map", new Document()
+                .append("input", new Document("$objectToArray", new Document("$ifNull", List.of("$changes", new Document()))))
+                .append("in", "$$this.k"))));
+
+        Document summary = new Document("_id", 0)
+            .append("taskId", "$_id.taskId")
+            .append("day", "$_id.day")
+            .append("projectId", 1)
+            .append("events", 1)
+            .append("created", 1)
+            .append("updated", 1)
+            .append("deleted", 1)
+            .append("statusChanges", 1)
+            .append("fields", new Document("$reduce", new Document("input", "$fields")
+                .append("initialValue", List.of())
+                .append("in", new Document("$setUnion", List.of("$$value", "$$this")))));
+
+        // A day already summarised (entries that arrived late) gets the new counts added
+        Document addToExisting = new Document("$set", new Document()
+            .append("projectId", "$$new.projectId")
+            .append("events", sum("events"))
+            .append("created", sum("created"))
+            .append("updated", sum("updated"))
+            .append("deleted", sum("deleted"))
+            .append("statusChanges", sum("statusChanges"))
+            .append("fields", new Document("$setUnion", List.of(
+                new Document("$ifNull", List.of("$fields", List.of())), "$$new.fields"))));
+
+        return List.of(
+            new Document("$match", match),
+            new Document("$sort", new Document("timestamp", 1)),
+            new Document("$group", group),
+            new Document("$project", summary),
+            new Document("$merge", new Document("into", "task_activity_daily")
+                .append("on", List.of("taskId", "day"))
+                .append("whenMatched", List.of(addToExisting))
+                .append("whenNotMatched", "insert")));
+    }
+
+    private static Document countOf(String type) {
+        return new Document("$sum", new Document("$cond", List.of(new Document("$eq", List.of("$type", type)), 1, 0)));
+    }
+
+    private static Document sum(String field) {
+        return new Document("$add", List.of(new Document("$ifNull", List.of("$" + field, 0)), "$$new." + field));
+    }
+}
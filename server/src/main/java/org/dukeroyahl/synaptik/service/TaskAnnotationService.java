@@ -0,0 +1,250 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskAnnotation;
+import org.dukeroyahl.synaptik.domain.TaskAnnotationEntry;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full annotation history of tasks, kept in task_annotations so that task documents only
+ * carry their latest annotations.
+ *
+ * Writers embed the annotation with Task.addAnnotation (or the equivalent atomic update)
+ * and then record it here. A failed history write is logged and does not fail the change.
+ */
+@ApplicationScoped
+public class TaskAnnotationService {
+
+    private static final Logger logger = Logger.getLogger(TaskAnnotationService.class);
+
+    public static final int MAX_HISTORY_LIMIT = 500;
+
+    // Tasks whose annotations are moved per round trip
+    static final int MOVE_BATCH = 500;
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final Document PENDING_MOVE = new Document("annotationCount", new Document("$exists", false))
+        .append("annotations.0", new Document("$exists", true));
+
+    @ConfigProperty(name = "synaptik.annotations.retention", defaultValue = "365d")
+    Duration retention;
+
+    @ConfigProperty(name = "synaptik.mongodb.ensure-indexes", defaultValue = "true")
+    boolean ensureIndexes;
+
+    void onStart(@Observes StartupEvent event) {
+        if (ensureIndexes) {
+            for (IndexModel index : indexes(retention)) {
+                TaskAnnotationEntry.mongoCollection().createIndex(index.getKeys(), index.getOptions())
+                    .subscribe().with(
+                        name -> logger.infof("Ensured task annotation index: %s", name),
+                        failure -> logger.warnf("Could not ensure task annotation index %s: %s",
+                            index.getKeys(), failure.getMessage()));
+            }
+        }
+        moveEmbeddedAnnotations()
+            .subscribe().with(
+                count -> {
+                    if (count > 0) {
+                        logger.infof("Moved annotation history of %d tasks to task_annotations", count);
+                    }
+                },
+                failure -> logger.warnf("Could not move task annotations: %s", failure.getMessage()));
+    }
+
+    /**
+     * Index definitions for the task_annotations collection.
+     *
+     * @param retention Age after which entries expire; zero or negative keeps them forever
+     */
+    static List<IndexModel> indexes(Duration retention) {
+        IndexModel byTask = new IndexModel(Indexes.compoundIndex(Indexes.ascending("taskId"), Indexes.descending("timestamp")));
+        if (retention.isZero() || retention.isNegative()) {
+            return List.of(byTask);
+        }
+        return List.of(byTask, new IndexModel(Indexes.ascending("timestamp"),
+            new IndexOptions().name("task_annotation_ttl").expireAfter(retention.toSeconds(), TimeUnit.SECONDS)));
+    }
+
+    public Uni<Void> record(UUID taskId, TaskAnnotation annotation) {
+        if (annotation == null) {
+            return Uni.createFrom().voidItem();
+        }
+        return new TaskAnnotationEntry(taskId, annotation).persist()
+            .replaceWithVoid()
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not record annotation of task %s: %s", taskId, failure.getMessage());
+                return null;
+            });
+    }
+
+    public Uni<Void> record(List<TaskAnnotationEntry> entries) {
+        if (entries.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return TaskAnnotationEntry.persist(entries)
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not record %d task annotations: %s", entries.size(), failure.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * @param before Only entries older than this (exclusive), for paging; null for the latest
+     * @return Up to {@code limit} entries, newest first
+     */
+    public Uni<List<TaskAnnotation>> getHistory(UUID taskId, LocalDateTime before, int limit) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_HISTORY_LIMIT));
+        Document query = UUIDStorage.eq("taskId", taskId);
+        if (before != null) {
+            query.append("timestamp", new Document("$lt", before));
+        }
+        return TaskAnnotationEntry.<TaskAnnotationEntry>find(query, new Document("timestamp", -1).append("_id", -1))
+            .range(0, boundedLimit - 1)
+            .list()
+            .map(entries -> entries.stream()
+                .map(entry -> new TaskAnnotation(entry.timestamp, entry.description))
+                .toList());
+    }
+
+    public Uni<Long> deleteHistory(UUID taskId) {
+        return TaskAnnotationEntry.delete(UUIDStorage.eq("taskId", taskId));
+    }
+
+    /**
+     * Delete the history of several tasks, e.g. those a batch deleted.
+     */
+    public Uni<Long> deleteHistory(Collection<UUID> taskIds) {
+        if (taskIds.isEmpty()) {
+            return Uni.createFrom().item(0L);
+        }
+        return TaskAnnotationEntry.delete(UUIDStorage.in("taskId", taskIds));
+    }
+
+    public Uni<Long> deleteAllHistory() {
+        return TaskAnnotationEntry.deleteAll();
+    }
+
+    /**
+     * Copy the annotations of tasks written before the history collection existed into it,
+     * then trim them on the task, {@link #MOVE_BATCH} tasks at a time. Tasks that have an
+     * annotationCount are already done.
+     *
+     * Each moved annotation gets an ID derived from its task and position, and inserting
+     * one that is already there is skipped, so a run interrupted between the copy and the
+     * trim can be repeated without duplicating history.
+     *
+     * @return Number of tasks trimmed
+     */
+    Uni<Long> moveEmbeddedAnnotations() {
+        return moveBatch(0L);
+    }
+
+    private Uni<Long> moveBatch(long moved) {
+        return Task.<Task>find(PENDING_MOVE).range(0, MOVE_BATCH - 1).list()
+            .chain(tasks -> {
+                if (tasks.isEmpty()) {
+                    return Uni.createFrom().item(moved);
+                }
+                return copy(movedEntries(tasks))
+                    .chain(() -> Task.<Task>mongoCollection().bulkWrite(trims(tasks), new BulkWriteOptions().ordered(false)))
+                    .chain(result -> tasks.size() < MOVE_BATCH || result.getModifiedCount() == 0
+                        ? Uni.createFrom().item(moved + result.getModifiedCount())
+                        : moveBatch(moved + result.getModifiedCount()));
+            });
+    }
+
+    /**
+     * Insert the entries, keeping any that a previous run already inserted.
+     */
+    private Uni<Void> copy(List<TaskAnnotationEntry> entries) {
+        if (entries.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<WriteModel<TaskAnnotationEntry>> inserts = entries.stream()
+            .<WriteModel<TaskAnnotationEntry>>map(InsertOneModel::new)
+            .toList();
+        return TaskAnnotationEntry.<TaskAnnotationEntry>mongoCollection().bulkWrite(inserts, new BulkWriteOptions().ordered(false))
+            .onFailure(failure -> failure instanceof MongoBulkWriteException bulkFailure
+                && bulkFailure.getWriteErrors().stream().allMatch(error -> error.getCode() == DUPLICATE_KEY))
+            .recoverWithNull()
+            .replaceWithVoid();
+    }
+
+    /**
+     * @return History entries for the embedded annotations of the tasks, with their move IDs
+     */
+    static List<TaskAnnotationEntry> movedEntries(List<Task> tasks) {
+        List<TaskAnnotationEntry> entries = new ArrayList<>();
+        for (Task task : tasks) {
+            if (task.annotations == null) {
+                continue;
+            }
+            for (int i = 0; i < task.annotations.size(); i++) {
+                TaskAnnotation annotation = task.annotations.get(i);
+                TaskAnnotationEntry entry = new TaskAnnotationEntry(task.id, annotation);
+                entry.id = movedId(task.id, i, annotation.timestamp);
+                entries.add(entry);
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * The same ObjectId every time for the annotation at {@code index} of a task: the
+     * annotation's time in the leading seconds, so IDs still sort with the timestamp, and
+     * a hash of task and index in the rest.
+     */
+    static ObjectId movedId(UUID taskId, int index, LocalDateTime timestamp) {
+        byte[] hash;
+        try {
+            hash = MessageDigest.getInstance("MD5").digest((taskId + "/" + index).getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        int seconds = timestamp != null ? (int) timestamp.toEpochSecond(ZoneOffset.UTC) : 0;
+        return new ObjectId(ByteBuffer.allocate(12).putInt(seconds).put(hash, 0, 8).array());
+    }
+
+    private static List<WriteModel<Task>> trims(List<Task> tasks) {
+        List<Bson> trim = List.of(new Document("$set", new Document()
+            .append("annotationCount", new Document("$size", "$annotations"))
+            .append("annotations", new Document("$slice", List.of("$annotations", -Task.MAX_EMBEDDED_ANNOTATIONS)))));
+        return tasks.stream()
+            .<WriteModel<Task>>map(task -> new UpdateOneModel<>(
+                UUIDStorage.eq("_id", task.id).append("annotationCount", new Document("$exists", false)), trim))
+            .toList();
+    }
+}
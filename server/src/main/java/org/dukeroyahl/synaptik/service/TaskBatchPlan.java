@@ -0,0 +1,430 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskAnnotationEntry;
+import org.dukeroyahl.synaptik.dto.TaskBatchOperation;
+import org.dukeroyahl.synaptik.dto.TaskBatchResponse;
+import org.dukeroyahl.synaptik.dto.TaskBatchResult;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Applies the operations of a task batch to in-memory copies of the affected tasks and
+ * turns the outcome into one write per task.
+ *
+ * Operations run in request order and see the effect of earlier ones, e.g. a task created
+ * with a client-chosen ID can be linked by a later operation. Each operation gets the status its
+ * single-item endpoint would have returned; failed operations change nothing. A task
+ * touched by several operations is written once, with its final state.
+ *
+ * Not thread-safe; one plan serves one request.
+ */
+final class TaskBatchPlan {
+
+    private final List<TaskBatchOperation> operations;
+    private final TaskMapper taskMapper;
+    private final TaskBatchResult[] results;
+
+    // Current state of every task the batch has seen, including ones it created
+    private final Map<UUID, Task> tasks = new HashMap<>();
+    // State before the batch, recorded when an existing task is first changed
+    private final Map<UUID, TaskDTO> before = new HashMap<>();
+    // Changed tasks in first-change order, with the operations that changed them
+    private final Map<UUID, List<Integer>> changed = new LinkedHashMap<>();
+    private final Set<UUID> created = new HashSet<>();
+    private final Set<UUID> deleted = new HashSet<>();
+    // Tasks whose write failed or lost to a concurrent change
+    private final Set<UUID> writeFailed = new HashSet<>();
+    // Annotations added by the batch, for the history collection
+    private final List<TaskAnnotationEntry> annotations = new ArrayList<>();
+
+    // Dependencies of tasks outside the batch, loaded for cycle checks
+    private Map<UUID, List<UUID>> dependencyGraph = Map.of();
+
+    private final List<UUID> modelTasks = new ArrayList<>();
+    private final TaskUpdates update = new TaskUpdates();
+
+    TaskBatchPlan(List<TaskBatchOperation> operations, TaskMapper taskMapper) {
+        this.operations = operations;
+        this.taskMapper = taskMapper;
+        this.results = new TaskBatchResult[operations.size()];
+    }
+
+    /**
+     * @return IDs of the existing tasks the operations refer to
+     */
+    Set<UUID> referencedIds() {
+        Set<UUID> ids = new HashSet<>();
+        for (TaskBatchOperation operation : operations) {
+            UUID id = targetId(operation);
+            if (id != null) {
+                ids.add(id);
+            }
+            if (operation.dependencyId != null) {
+                ids.add(operation.dependencyId);
+            }
+        }
+        return ids;
+    }
+
+    boolean hasLinks() {
+        return operations.stream().anyMatch(operation -> operation.op == TaskBatchOperation.Type.LINK);
+    }
+
+    /**
+     * @return Tasks whose transitive dependencies a cycle check may have to follow
+     */
+    Set<UUID> dependencyRoots(Map<UUID, Task> loaded) {
+        Set<UUID> roots = new HashSet<>();
+        loaded.values().stream()
+            .filter(task -> task.depends != null)
+            .forEach(task -> roots.addAll(task.depends));
+        for (TaskBatchOperation operation : operations) {
+            if (operation.dependencyId != null) {
+                roots.add(operation.dependencyId);
+            }
+            if (operation.task != null && operation.task.depends != null) {
+                roots.addAll(operation.task.depends);
+            }
+        }
+        return roots;
+    }
+
+    /**
+     * Run all operations.
+     *
+     * @param loaded Existing tasks by ID, as returned for {@link #referencedIds()}
+     * @param dependencies Task ID to depends list for tasks beyond {@code loaded}
+     */
+    void apply(Map<UUID, Task> loaded, Map<UUID, List<UUID>> dependencies) {
+        tasks.putAll(loaded);
+        dependencyGraph = dependencies;
+        for (int i = 0; i < operations.size(); i++) {
+            results[i] = apply(i, operations.get(i));
+        }
+    }
+
+    private TaskBatchResult apply(int index, TaskBatchOperation operation) {
+        TaskBatchOperation.Type op = operation.op;
+        UUID id = targetId(operation);
+
+        if (op == TaskBatchOperation.Type.CREATE) {
+            if (operation.task == null) {
+                return result(index, op, null, 400, "task is required");
+            }
+            if (id != null && tasks.containsKey(id)) {
+                return result(index, op, id, 409, "Task already exists");
+            }
+            TaskService.normalizeDates(operation.task);
+            Task task = taskMapper.toEntity(operation.task);
+            if (id != null) {
+                task.id = id;
+            }
+            task.urgency = task.calculateUrgency();
+            tasks.put(task.id, task);
+            created.add(task.id);
+            markChanged(task.id, index);
+            return result(index, op, task.id, 201, null);
+        }
+
+        if (id == null) {
+            return result(index, op, null, 400, "id is required");
+        }
+        Task task = current(id);
+        if (task == null) {
+            return result(index, op, id, 404, "Task not found");
+        }
+
+        switch (op) {
+            case UPDATE -> {
+                if (operation.task == null) {
+                    return result(index, op, id, 400, "task is required");
+                }
+                TaskService.normalizeDates(operation.task);
+                operation.task.id = id;
+                recordBefore(task);
+                taskMapper.updateEntityFromRequest(operation.task, task);
+                task.urgency = task.calculateUrgency();
+            }
+            case STATUS -> {
+                if (operation.status == null) {
+                    return result(index, op, id, 400, "status is required");
+                }
+                recordBefore(task);
+                if (task.status != operation.status) {
+                    task.addAnnotation("Status changed from " + task.status + " to " + operation.status);
+                    annotations.add(new TaskAnnotationEntry(id, task.lastAnnotation()));
+                    task.status = operation.status;
+                }
+                task.urgency = task.calculateUrgency();
+            }
+            case DELETE -> {
+                recordBefore(task);
+                deleted.add(id);
+                markChanged(id, index);
+                return result(index, op, id, 204, null);
+            }
+            case LINK -> {
+                if (operation.dependencyId == null) {
+                    return result(index, op, id, 400, "dependencyId is required");
+                }
+                if (id.equals(operation.dependencyId)) {
+                    return result(index, op, id, 400, "Task cannot depend on itself");
+                }
+                if (current(operation.dependencyId) == null) {
+                    return result(index, op, id, 404, "Dependency task not found");
+                }
+                if (task.depends != null && task.depends.contains(operation.dependencyId)) {
+                    return result(index, op, id, 200, null);
+                }
+                if (dependsOn(operation.dependencyId, id)) {
+                    return result(index, op, id, 409, "Creating this link would cause a circular dependency");
+                }
+                recordBefore(task);
+                if (task.depends == null) {
+                    task.depends = new ArrayList<>();
+                }
+                task.depends.add(operation.dependencyId);
+            }
+            case UNLINK -> {
+                if (operation.dependencyId == null) {
+                    return result(index, op, id, 400, "dependencyId is required");
+                }
+                if (task.depends == null || !task.depends.contains(operation.dependencyId)) {
+                    return result(index, op, id, 404, "Link not found");
+                }
+                recordBefore(task);
+                task.depends.remove(operation.dependencyId);
+            }
+            default -> throw new IllegalStateException("Unhandled operation " + op);
+        }
+        markChanged(id, index);
+        return result(index, op, id, 200, null);
+    }
+
+    /**
+     * @return true if {@code from} reaches {@code target} by following depends links,
+     *         taking links added or removed earlier in the batch into account
+     */
+    boolean dependsOn(UUID from, UUID target) {
+        return new DependencyGraph(this::dependsOf).reaches(from, target);
+    }
+
+    private List<UUID> dependsOf(UUID id) {
+        if (deleted.contains(id)) {
+            return null;
+        }
+        Task task = tasks.get(id);
+        return task != null ? task.depends : dependencyGraph.get(id);
+    }
+
+    /**
+     * One write per changed task, or none for tasks created and deleted within the batch.
+     * Updates and deletes of existing tasks match the version they were loaded with, so a
+     * task changed or deleted concurrently is left alone; {@link #checkConflicts(List)}
+     * finds those afterwards. Use {@link #modelTask(int)} to map a write error back to its task.
+     */
+    List<WriteModel<Task>> writeModels() {
+        List<WriteModel<Task>> models = new ArrayList<>();
+        modelTasks.clear();
+        for (UUID id : changed.keySet()) {
+            Task task = tasks.get(id);
+            if (deleted.contains(id)) {
+                if (!created.contains(id)) {
+                    models.add(new DeleteOneModel<>(loadedVersion(id)));
+                    modelTasks.add(id);
+                }
+            } else if (created.contains(id)) {
+                task.prePersist();
+                models.add(new InsertOneModel<>(task));
+                modelTasks.add(id);
+            } else {
+                models.add(new UpdateOneModel<>(loadedVersion(id), update.overwrite(task)));
+                update.applyOverwrite(task);
+                modelTasks.add(id);
+            }
+        }
+        return models;
+    }
+
+    /**
+     * @return Number of writes that match on a loaded version
+     */
+    int versionedWrites() {
+        return (int) changed.keySet().stream().filter(id -> !created.contains(id)).count();
+    }
+
+    /**
+     * @return Existing tasks the batch updated or deleted and whose writes did not fail
+     */
+    Set<UUID> versionedIds() {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (UUID id : changed.keySet()) {
+            if (!created.contains(id) && !writeFailed.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Find the versioned writes that matched nothing, from the current _id, version and
+     * updatedAt of {@link #versionedIds()}: an update whose task does not carry this batch's
+     * version and stamp, or a delete whose task is still there, lost to a concurrent change
+     * (409). A task already deleted by someone else is reported as not found (404).
+     */
+    void checkConflicts(List<Task> current) {
+        Map<UUID, Task> byId = new HashMap<>();
+        current.forEach(task -> byId.put(task.id, task));
+        for (UUID id : versionedIds()) {
+            Task stored = byId.get(id);
+            if (deleted.contains(id)) {
+                if (stored != null) {
+                    fail(id, 409, "Task was changed concurrently");
+                }
+            } else if (stored == null) {
+                fail(id, 404, "Task not found");
+            } else if (!Objects.equals(stored.version, tasks.get(id).version)
+                    || !update.updatedAt().equals(stored.updatedAt)) {
+                fail(id, 409, "Task was changed concurrently");
+            }
+        }
+    }
+
+    UUID modelTask(int modelIndex) {
+        return modelTasks.get(modelIndex);
+    }
+
+    /**
+     * Fail every operation that changed a task whose write failed.
+     */
+    void writeFailed(UUID id, String message) {
+        fail(id, 500, message);
+    }
+
+    private void fail(UUID id, int status, String message) {
+        if (!writeFailed.add(id)) {
+            return;
+        }
+        for (int index : changed.getOrDefault(id, List.of())) {
+            TaskBatchResult result = results[index];
+            results[index] = new TaskBatchResult(index, result.op(), result.id(), status, message);
+        }
+    }
+
+    /**
+     * @return Change events for the tasks that were written
+     */
+    List<TaskChangedEvent> events() {
+        List<TaskChangedEvent> events = new ArrayList<>();
+        for (UUID id : changed.keySet()) {
+            if (writeFailed.contains(id) || (created.contains(id) && deleted.contains(id))) {
+                continue;
+            }
+            if (deleted.contains(id)) {
+                events.add(TaskChangedEvent.deleted(before.get(id)));
+            } else if (created.contains(id)) {
+                events.add(TaskChangedEvent.created(taskMapper.toDTO(tasks.get(id))));
+            } else {
+                events.add(TaskChangedEvent.updated(before.get(id), taskMapper.toDTO(tasks.get(id))));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * @return Existing tasks the batch deleted, whose annotation history goes with them
+     */
+    Set<UUID> deletedIds() {
+        Set<UUID> ids = new LinkedHashSet<>();
+        for (UUID id : deleted) {
+            if (!created.contains(id) && !writeFailed.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * @return History entries for the annotations added to tasks that were written
+     */
+    List<TaskAnnotationEntry> annotationEntries() {
+        return annotations.stream()
+            .filter(entry -> !writeFailed.contains(entry.taskId) && !deleted.contains(entry.taskId))
+            .toList();
+    }
+
+    /**
+     * @return Projects a written task belonged to before or after the batch
+     */
+    Set<UUID> affectedProjects() {
+        Set<UUID> projects = new LinkedHashSet<>();
+        for (UUID id : changed.keySet()) {
+            if (writeFailed.contains(id)) {
+                continue;
+            }
+            TaskDTO previous = before.get(id);
+            if (previous != null && previous.projectId != null) {
+                projects.add(previous.projectId);
+            }
+            Task task = tasks.get(id);
+            if (!deleted.contains(id) && task.projectId != null) {
+                projects.add(task.projectId);
+            }
+        }
+        return projects;
+    }
+
+    TaskBatchResponse response() {
+        List<TaskBatchResult> list = List.of(results);
+        return new TaskBatchResponse(list.stream().anyMatch(result -> result.status() >= 400), list);
+    }
+
+    private Document loadedVersion(UUID id) {
+        return UUIDStorage.eq("_id", id).append("version", before.get(id).version);
+    }
+
+    private Task current(UUID id) {
+        return deleted.contains(id) ? null : tasks.get(id);
+    }
+
+    private void recordBefore(Task task) {
+        if (!created.contains(task.id) && !before.containsKey(task.id)) {
+            before.put(task.id, taskMapper.toDTO(task));
+        }
+    }
+
+    private void markChanged(UUID id, int index) {
+        changed.computeIfAbsent(id, key -> new ArrayList<>()).add(index);
+    }
+
+    private static UUID targetId(TaskBatchOperation operation) {
+        if (operation.id != null) {
+            return operation.id;
+        }
+        return operation.task != null ? operation.task.id : null;
+    }
+
+    private static TaskBatchResult result(int index, TaskBatchOperation.Type op, UUID id, int status, String error) {
+        return new TaskBatchResult(index, op, id, status, error);
+    }
+}
@@ -0,0 +1,224 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.TaskBatchOperation;
+import org.dukeroyahl.synaptik.dto.TaskBatchResponse;
+import org.dukeroyahl.synaptik.dto.TaskLinkRequest;
+import org.dukeroyahl.synaptik.dto.TaskLinkResponse;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.mongodb.FindOptions;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.jboss.logging.Logger;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Applies POST /api/tasks/batch and POST /api/tasks/links requests.
+ *
+ * A batch costs a fixed number of round trips regardless of its size: one lookup for the
+ * tasks it refers to, one per dependency level for cycle checks (only if it links tasks),
+ * one unordered bulkWrite, one insert of the annotations it added, and one status
+ * recomputation per affected project. Updates and deletes match the version the task was
+ * loaded with; only if some of them matched nothing is one more lookup made, to report
+ * those operations as conflicts (409).
+ */
+@ApplicationScoped
+public class TaskBatchService {
+
+    private static final Logger logger = Logger.getLogger(TaskBatchService.class);
+
+    public static final int MAX_OPERATIONS = 500;
+
+    // What a conflict check needs to recognise the batch's own writes
+    private static final FindOptions VERSION_ONLY = new FindOptions()
+        .projection(new Document("_id", 1).append("version", 1).append("updatedAt", 1));
+
+    @Inject
+    ProjectService projectService;
+
+    @Inject
+    TaskGraphService taskGraphService;
+
+    @Inject
+    TaskMapper taskMapper;
+
+    @Inject
+    TaskAnnotationService taskAnnotationService;
+
+    @Inject
+    Event<TaskChangedEvent> taskEvents;
+
+    /**
+     * @return One result per operation, in request order
+     * @throws IllegalArgumentException if the batch is empty or too large
+     */
+    public Uni<TaskBatchResponse> applyBatch(List<TaskBatchOperation> operations) {
+        if (operations == null || operations.isEmpty()) {
+            return Uni.createFrom().failure(new IllegalArgumentException("Batch contains no operations"));
+        }
+        if (operations.size() > MAX_OPERATIONS) {
+            return Uni.createFrom().failure(new IllegalArgumentException(
+                "Batch contains " + operations.size() + " operations, at most " + MAX_OPERATIONS + " are allowed"));
+        }
+
+        TaskBatchPlan plan = new TaskBatchPlan(operations, taskMapper);
+        return resolveProjects(operations)
+            .chain(() -> loadTasks(plan.referencedIds()))
+            .chain(loaded -> (plan.hasLinks()
+                    ? taskGraphService.loadDependencies(plan.dependencyRoots(loaded))
+                    : Uni.createFrom().item(Map.<UUID, List<UUID>>of()))
+                .invoke(dependencies -> plan.apply(loaded, dependencies)))
+            .chain(() -> write(plan.writeModels(), plan::modelTask, plan::writeFailed))
+            .chain(result -> checkConflicts(plan, result))
+            .call(() -> taskAnnotationService.record(plan.annotationEntries()))
+            .call(() -> taskAnnotationService.deleteHistory(plan.deletedIds()))
+            .invoke(() -> plan.events().forEach(taskEvents::fire))
+            .chain(() -> Multi.createFrom().iterable(plan.affectedProjects())
+                .onItem().transformToUniAndConcatenate(projectService::updateProjectStatusBasedOnTasks)
+                .collect().last())
+            .map(ignored -> {
+                TaskBatchResponse response = plan.response();
+                logger.infof("Applied task batch: %d operations%s", operations.size(),
+                    response.errors() ? " with errors" : "");
+                return response;
+            });
+    }
+
+    /**
+     * Add and remove dependency edges: one $in lookup for all named tasks, one cycle check
+     * for all additions, and one $addToSet and/or $pull per task in a single bulkWrite.
+     *
+     * @return One result per edge, unlinks first
+     * @throws IllegalArgumentException if the request has no edges or too many
+     */
+    public Uni<TaskLinkResponse> applyLinks(TaskLinkRequest request) {
+        TaskLinkPlan plan = new TaskLinkPlan(request != null ? request.link : null,
+            request != null ? request.unlink : null, taskMapper);
+        if (plan.size() == 0) {
+            return Uni.createFrom().failure(new IllegalArgumentException("Request contains no links"));
+        }
+        if (plan.size() > MAX_OPERATIONS) {
+            return Uni.createFrom().failure(new IllegalArgumentException(
+                "Request contains " + plan.size() + " links, at most " + MAX_OPERATIONS + " are allowed"));
+        }
+
+        return loadTasks(plan.referencedIds())
+            .chain(loaded -> (plan.hasLinks()
+                    ? taskGraphService.loadDependencies(plan.dependencyRoots(loaded))
+                    : Uni.createFrom().item(Map.<UUID, List<UUID>>of()))
+                .invoke(dependencies -> plan.apply(loaded, dependencies)))
+            .chain(() -> write(plan.writeModels(), plan::modelTask, plan::writeFailed))
+            .invoke(() -> plan.events().forEach(taskEvents::fire))
+            .map(ignored -> plan.response());
+    }
+
+    /**
+     * Set projectId on create and update requests that name a project, creating each
+     * missing project once.
+     */
+    private Uni<Void> resolveProjects(List<TaskBatchOperation> operations) {
+        List<TaskBatchOperation> named = operations.stream()
+            .filter(operation -> operation.task != null && operation.task.projectId == null
+                && operation.task.projectName != null && !operation.task.projectName.isBlank())
+            .toList();
+        if (named.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+
+        Map<String, UUID> projectIds = new HashMap<>();
+        return Multi.createFrom().iterable(named)
+            .onItem().transformToUniAndConcatenate(operation -> {
+                String name = operation.task.projectName.trim();
+                UUID known = projectIds.get(name);
+                if (known != null) {
+                    operation.task.projectId = known;
+                    return Uni.createFrom().voidItem();
+                }
+                return projectService.findOrCreateProject(name)
+                    .invoke(project -> {
+                        projectIds.put(name, project.id);
+                        operation.task.projectId = project.id;
+                    })
+                    .replaceWithVoid();
+            })
+            .collect().last()
+            .replaceWithVoid();
+    }
+
+    private Uni<Map<UUID, Task>> loadTasks(Set<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Uni.createFrom().item(new HashMap<>());
+        }
+        return Task.<Task>find(UUIDStorage.in("_id", ids)).list()
+            .map(tasks -> {
+                Map<UUID, Task> byId = new HashMap<>();
+                tasks.forEach(task -> byId.put(task.id, task));
+                return byId;
+            });
+    }
+
+    /**
+     * If fewer versioned writes matched than were sent, read back the versions of the
+     * updated and deleted tasks to find out which ones lost to a concurrent change.
+     */
+    private Uni<Void> checkConflicts(TaskBatchPlan plan, BulkWriteResult result) {
+        int versioned = plan.versionedWrites();
+        if (versioned == 0 || (result != null && result.getMatchedCount() + result.getDeletedCount() == versioned)) {
+            return Uni.createFrom().voidItem();
+        }
+        Set<UUID> ids = plan.versionedIds();
+        if (ids.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return Task.<Task>mongoCollection().find(UUIDStorage.in("_id", ids), VERSION_ONLY)
+            .collect().asList()
+            .invoke(plan::checkConflicts)
+            .replaceWithVoid();
+    }
+
+    /**
+     * @param modelTask Task written by the model at an index
+     * @param failed Called once per failed model with its task and the error
+     * @return What was written, or null if the whole write failed
+     */
+    private Uni<BulkWriteResult> write(List<WriteModel<Task>> models, IntFunction<UUID> modelTask, BiConsumer<UUID, String> failed) {
+        if (models.isEmpty()) {
+            return Uni.createFrom().nullItem();
+        }
+
+        // Order does not matter between tasks, and one failure must not stop the rest
+        return Task.<Task>mongoCollection().bulkWrite(models, new BulkWriteOptions().ordered(false))
+            .onFailure().recoverWithItem(failure -> {
+                if (failure instanceof MongoBulkWriteException bulkFailure) {
+                    for (BulkWriteError error : bulkFailure.getWriteErrors()) {
+                        failed.accept(modelTask.apply(error.getIndex()), error.getMessage());
+                    }
+                    return bulkFailure.getWriteResult();
+                }
+                logger.warnf("Task bulk write failed: %s", failure.getMessage());
+                for (int i = 0; i < models.size(); i++) {
+                    failed.accept(modelTask.apply(i), failure.getMessage());
+                }
+                return null;
+            });
+    }
+}
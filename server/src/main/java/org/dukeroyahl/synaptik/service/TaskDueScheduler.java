@@ -0,0 +1,324 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.event.TaskDueEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Fires {@link TaskDueEvent}s when open (PENDING or ACTIVE) tasks become due soon and when
+ * they become overdue, and stores their recomputed urgency at that moment.
+ *
+ * Thresholds are kept in {@link DueThresholds}, loaded on startup from one range query
+ * on the {status, dueAt} index and then maintained from change events. The load covers
+ * tasks due from {@code synaptik.due.catch-up-window} ago to {@code synaptik.due.horizon}
+ * ahead, and is repeated every half horizon so later due dates come into range. Thresholds
+ * crossed within the catch-up window while the server was down fire once after a restart;
+ * they may already have fired before it. Older ones are skipped, and tasks overdue for
+ * longer than the window are no longer tracked.
+ *
+ * Each tick handles at most {@code synaptik.due.max-per-tick} crossings; a backlog (many
+ * tasks due at the same minute) is worked off over the following ticks.
+ */
+@ApplicationScoped
+public class TaskDueScheduler {
+
+    private static final Logger logger = Logger.getLogger(TaskDueScheduler.class);
+
+    private static final List<TaskStatus> OPEN = List.of(TaskStatus.PENDING, TaskStatus.ACTIVE);
+
+    // The load only needs the scheduling key
+    private static final FindOptions ID_AND_DUE_AT = new FindOptions()
+        .projection(new Document("_id", 1).append("dueAt", 1));
+
+    // Urgency differences below this are rounding, not worth a write
+    private static final double URGENCY_EPSILON = 1e-6;
+
+    @Inject
+    TaskMapper taskMapper;
+
+    @Inject
+    Event<TaskChangedEvent> taskEvents;
+
+    @Inject
+    Event<TaskDueEvent> dueEvents;
+
+    @ConfigProperty(name = "synaptik.due.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "synaptik.due.soon-before", defaultValue = "24h")
+    Duration soonBefore;
+
+    @ConfigProperty(name = "synaptik.due.tick", defaultValue = "1s")
+    Duration tick;
+
+    @ConfigProperty(name = "synaptik.due.max-per-tick", defaultValue = "100")
+    int maxPerTick;
+
+    @ConfigProperty(name = "synaptik.due.catch-up-window", defaultValue = "1h")
+    Duration catchUpWindow;
+
+    @ConfigProperty(name = "synaptik.due.horizon", defaultValue = "7d")
+    Duration horizon;
+
+    // Guarded by itself; given the configured due-soon lead by init
+    private final DueThresholds thresholds = new DueThresholds(Duration.ofDays(1).toMillis());
+    private final List<Cancellable> timers = new ArrayList<>();
+
+    private volatile boolean loading;
+    // Tasks changed during a load, whose snapshot may be older
+    private final Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            logger.info("Task due scheduler disabled");
+            return;
+        }
+        init();
+        load();
+        // Ticks that arrive while crossings are still being handled are dropped
+        timers.add(Multi.createFrom().ticks().every(tick)
+            .onOverflow().drop()
+            .onItem().transformToUniAndConcatenate(ignored -> fireCrossed(System.currentTimeMillis()))
+            .subscribe().with(ignored -> {}));
+        Duration reloadInterval = horizon.dividedBy(2);
+        timers.add(Multi.createFrom().ticks().startingAfter(reloadInterval).every(reloadInterval)
+            .onOverflow().drop()
+            .subscribe().with(ignored -> {
+                if (!loading) {
+                    load();
+                }
+            }));
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        timers.forEach(Cancellable::cancel);
+    }
+
+    void init() {
+        synchronized (thresholds) {
+            thresholds.reset(soonBefore.toMillis());
+        }
+        // A task must be loaded before its due-soon threshold, whichever reload picks it up
+        if (horizon.compareTo(soonBefore.multipliedBy(2)) < 0) {
+            horizon = soonBefore.multipliedBy(2);
+        }
+    }
+
+    /**
+     * Track the open tasks due within the catch-up window or the horizon. Thresholds crossed
+     * within the window fire right away; tasks already tracked for the same due date keep
+     * their state, so a repeated load fires nothing twice.
+     */
+    void load() {
+        loading = true;
+        changedDuringLoad.clear();
+        long now = System.currentTimeMillis();
+        long catchUpFrom = now - catchUpWindow.toMillis();
+        synchronized (thresholds) {
+            thresholds.evict(catchUpFrom);
+        }
+
+        Task.<Task>mongoCollection().find(loadQuery(now, catchUpFrom), ID_AND_DUE_AT)
+            .subscribe().with(
+                task -> {
+                    if (!changedDuringLoad.contains(task.id)) {
+                        schedule(task.id, DateTimeHelper.utcKeyMillis(task.dueAt), catchUpFrom);
+                    }
+                },
+                failure -> {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    logger.warnf("Could not load task due dates: %s", failure.getMessage());
+                },
+                () -> {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    logger.infof("Loaded task due dates: %d open tasks", trackedCount());
+                });
+    }
+
+    /**
+     * Open tasks due from {@code catchUpFrom} to the horizon, on the {status, dueAt} index.
+     */
+    Document loadQuery(long now, long catchUpFrom) {
+        return new Document("status", new Document("$in", OPEN.stream().map(Enum::name).toList()))
+            .append("dueAt", new Document("$gte", utcKey(catchUpFrom))
+                .append("$lte", utcKey(now + horizon.toMillis())));
+    }
+
+    private static String utcKey(long millis) {
+        return Instant.ofEpochMilli(millis).truncatedTo(ChronoUnit.SECONDS).toString();
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (loading && event.taskId() != null) {
+            changedDuringLoad.add(event.taskId());
+        }
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                TaskDTO task = event.after();
+                if (event.before() != null && OPEN.contains(event.before().status) && OPEN.contains(task.status)
+                        && Objects.equals(event.before().dueDate, task.dueDate)) {
+                    // Same due date: keeps the thresholds, or stays untracked once long overdue
+                    return;
+                }
+                schedule(task.id, OPEN.contains(task.status) ? dueMillis(task) : null, DueThresholds.CATCH_UP_ALL);
+            }
+            case DELETED -> schedule(event.before().id, null, DueThresholds.CATCH_UP_ALL);
+            case CLEARED -> {
+                synchronized (thresholds) {
+                    thresholds.clear();
+                }
+            }
+        }
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (!enabled || event.collection() != CacheInvalidationEvent.Collection.TASKS) {
+            return;
+        }
+        if (loading && event.id() != null) {
+            changedDuringLoad.add(event.id());
+        }
+        switch (event.kind()) {
+            case CHANGED -> {
+                Task task = event.task();
+                // No before state: only catch up on crossings within the window
+                if (task != null) {
+                    schedule(task.id, OPEN.contains(task.status) ? DateTimeHelper.utcKeyMillis(task.dueAt) : null,
+                        System.currentTimeMillis() - catchUpWindow.toMillis());
+                }
+            }
+            case DELETED -> schedule(event.id(), null, DueThresholds.CATCH_UP_ALL);
+            case ALL -> load();
+        }
+    }
+
+    /**
+     * @param due Epoch millis, or null to stop tracking the task
+     * @param catchUpFrom See {@link DueThresholds#schedule}
+     */
+    private void schedule(UUID id, Long due, long catchUpFrom) {
+        synchronized (thresholds) {
+            if (due != null) {
+                thresholds.schedule(id, due, System.currentTimeMillis(), catchUpFrom);
+            } else {
+                thresholds.cancel(id);
+            }
+        }
+    }
+
+    int trackedCount() {
+        synchronized (thresholds) {
+            return thresholds.size();
+        }
+    }
+
+    /**
+     * Handle up to max-per-tick thresholds crossed by {@code nowMillis}, one after another.
+     */
+    Uni<Void> fireCrossed(long nowMillis) {
+        List<DueThresholds.Threshold> crossed;
+        synchronized (thresholds) {
+            crossed = thresholds.poll(nowMillis, maxPerTick);
+            // Rescheduled and cancelled tasks leave entries behind
+            if (thresholds.queued() > 2 * thresholds.size() + 1000) {
+                thresholds.compact();
+            }
+        }
+        if (crossed.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return Multi.createFrom().iterable(crossed)
+            .onItem().transformToUniAndConcatenate(this::fire)
+            .collect().last()
+            .replaceWithVoid();
+    }
+
+    /**
+     * Refresh the task's stored urgency, then fire the due event with the task as stored.
+     * Skipped if the task was closed, deleted or given another due date in the meantime.
+     */
+    private Uni<Void> fire(DueThresholds.Threshold threshold) {
+        return Task.<Task>find(UUIDStorage.eq("_id", threshold.taskId())).firstResult()
+            .chain(task -> {
+                if (task == null || !OPEN.contains(task.status)
+                        || !Long.valueOf(threshold.due()).equals(DateTimeHelper.utcKeyMillis(task.dueAt))) {
+                    return Uni.createFrom().nullItem();
+                }
+                return refreshUrgency(task);
+            })
+            .invoke(task -> {
+                if (task != null) {
+                    logger.debugf("Task %s: %s", task.id, threshold.type());
+                    dueEvents.fire(new TaskDueEvent(threshold.type(), taskMapper.toDTO(task)));
+                }
+            })
+            .replaceWithVoid()
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not handle %s of task %s: %s", threshold.type(), threshold.taskId(), failure.getMessage());
+                return null;
+            });
+    }
+
+    /**
+     * @return The task with its current urgency stored, as written or as it was
+     */
+    private Uni<Task> refreshUrgency(Task task) {
+        double urgency = task.calculateUrgency();
+        if (task.urgency != null && Math.abs(task.urgency - urgency) < URGENCY_EPSILON) {
+            return Uni.createFrom().item(task);
+        }
+        TaskUpdates update = new TaskUpdates();
+        // A concurrent update recomputes urgency itself; leave that one alone
+        Document unchanged = UUIDStorage.eq("_id", task.id).append("version", task.version);
+        return Task.<Task>mongoCollection()
+            .findOneAndUpdate(unchanged, update.urgency(urgency), TaskUpdates.RETURN_BEFORE)
+            .map(before -> {
+                if (before == null) {
+                    return task;
+                }
+                TaskDTO beforeDTO = taskMapper.toDTO(before);
+                update.applyUrgency(before, urgency);
+                taskEvents.fire(TaskChangedEvent.updated(beforeDTO, taskMapper.toDTO(before)));
+                return before;
+            });
+    }
+
+    private static Long dueMillis(TaskDTO task) {
+        return DateTimeHelper.utcKeyMillis(DateTimeHelper.toUtcKey(task.dueDate));
+    }
+}
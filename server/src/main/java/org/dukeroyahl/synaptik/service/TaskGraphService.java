@@ -5,9 +5,12 @@ import org.dukeroyahl.synaptik.domain.TaskStatus;
 import org.dukeroyahl.synaptik.dto.TaskGraphResponse;
 import org.dukeroyahl.synaptik.dto.TaskGraphNode;
 import org.dukeroyahl.synaptik.dto.TaskGraphEdge;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+import io.quarkus.mongodb.FindOptions;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
 import io.smallrye.mutiny.Uni;
+import org.bson.Document;
 import org.jboss.logging.Logger;
 
 import java.util.*;
@@ -22,12 +25,18 @@ import java.util.stream.Collectors;
  */
 @ApplicationScoped
 public class TaskGraphService {
+
+    private static final FindOptions DEPENDS_ONLY = new FindOptions()
+        .projection(new Document("_id", 1).append("depends", 1));
     
     @Inject
     Logger logger;
     
     @Inject
     TaskService taskService;
+
+    @Inject
+    BlockingExecutor blockingExecutor;
     
     /**
      * Build a complete task graph for tasks with specified statuses.
@@ -39,7 +48,7 @@ public class TaskGraphService {
         logger.infof("Building task graph for statuses: %s", statuses);
         
         return taskService.getRawTasksByStatuses(statuses)
-            .onItem().transform(tasks -> {
+            .onItem().transformToUni(tasks -> blockingExecutor.run(() -> {
                 List<TaskGraphNode> nodes = new ArrayList<>();
                 List<TaskGraphEdge> edges = new ArrayList<>();
                 Set<String> processedIds = new HashSet<>();
@@ -69,7 +78,7 @@ public class TaskGraphService {
                     nodes.size(), edges.size(), hasCycles);
                 
                 return new TaskGraphResponse(null, nodes, edges, hasCycles);
-            });
+            }));
     }
     
     /**
@@ -86,7 +95,7 @@ public class TaskGraphService {
         return taskService.getRawTaskById(taskId)
             .onItem().ifNotNull().transformToUni(centerTask -> {
                 return taskService.getAllRawTasks()
-                    .onItem().transform(allTasks -> {
+                    .onItem().transformToUni(allTasks -> blockingExecutor.run(() -> {
                         List<TaskGraphNode> nodes = new ArrayList<>();
                         List<TaskGraphEdge> edges = new ArrayList<>();
                         Set<String> processedIds = new HashSet<>();
@@ -110,7 +119,7 @@ public class TaskGraphService {
                             nodes.size(), edges.size(), hasCycles);
                         
                         return new TaskGraphResponse(centerTaskId, nodes, edges, hasCycles);
-                    });
+                    }));
             })
             .onItem().ifNull().continueWith(() -> {
                 logger.warnf("Task %s not found for neighbors graph", taskId);
@@ -196,6 +205,39 @@ public class TaskGraphService {
         }
     }
     
+    /**
+     * Load the depends lists of the given tasks and of everything they transitively depend
+     * on, breadth-first with one query per dependency level.
+     *
+     * @param roots Tasks to start from
+     * @return Task ID -> IDs it depends on; tasks that do not exist map to an empty list
+     */
+    public Uni<Map<UUID, List<UUID>>> loadDependencies(Set<UUID> roots) {
+        return loadDependencies(roots, new HashMap<>());
+    }
+
+    private Uni<Map<UUID, List<UUID>>> loadDependencies(Set<UUID> frontier, Map<UUID, List<UUID>> graph) {
+        Set<UUID> pending = new HashSet<>(frontier);
+        pending.removeAll(graph.keySet());
+        if (pending.isEmpty()) {
+            return Uni.createFrom().item(graph);
+        }
+
+        return Task.<Task>mongoCollection().find(UUIDStorage.in("_id", pending), DEPENDS_ONLY)
+            .collect().asList()
+            .chain(found -> {
+                pending.forEach(id -> graph.put(id, List.of()));
+                Set<UUID> next = new HashSet<>();
+                for (Task task : found) {
+                    if (task.depends != null) {
+                        graph.put(task.id, task.depends);
+                        next.addAll(task.depends);
+                    }
+                }
+                return loadDependencies(next, graph);
+            });
+    }
+
     /**
      * Detect cycles in the task graph using DFS.
      * 
@@ -0,0 +1,304 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.dto.TaskLink;
+import org.dukeroyahl.synaptik.dto.TaskLinkResponse;
+import org.dukeroyahl.synaptik.dto.TaskLinkResult;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonArray;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Validates a set of dependency edges to add and remove, and turns the accepted ones into
+ * one $addToSet and/or one $pull per task.
+ *
+ * Removals are applied first. Additions are then checked for cycles together, in one pass
+ * over the affected part of the graph; only if that pass finds a cycle are the additions
+ * re-checked one by one to report which of them would close it.
+ *
+ * Not thread-safe; one plan serves one request.
+ */
+final class TaskLinkPlan {
+
+    static final String LINK = "link";
+    static final String UNLINK = "unlink";
+
+    private final List<TaskLink> links;
+    private final List<TaskLink> unlinks;
+    private final TaskMapper taskMapper;
+    private final TaskLinkResult[] linkResults;
+    private final TaskLinkResult[] unlinkResults;
+
+    private final Map<UUID, Task> tasks = new HashMap<>();
+    private Map<UUID, List<UUID>> dependencyGraph = Map.of();
+    private final Map<UUID, TaskDTO> before = new HashMap<>();
+
+    // Accepted edges per task, with the request positions they came from
+    private final Map<UUID, Map<UUID, Integer>> added = new LinkedHashMap<>();
+    private final Map<UUID, Map<UUID, Integer>> removed = new LinkedHashMap<>();
+    private final Set<UUID> writeFailed = new HashSet<>();
+    private final List<UUID> modelTasks = new ArrayList<>();
+
+    TaskLinkPlan(List<TaskLink> links, List<TaskLink> unlinks, TaskMapper taskMapper) {
+        this.links = links != null ? links : List.of();
+        this.unlinks = unlinks != null ? unlinks : List.of();
+        this.taskMapper = taskMapper;
+        this.linkResults = new TaskLinkResult[this.links.size()];
+        this.unlinkResults = new TaskLinkResult[this.unlinks.size()];
+    }
+
+    int size() {
+        return links.size() + unlinks.size();
+    }
+
+    /**
+     * @return IDs of every task named by an edge
+     */
+    Set<UUID> referencedIds() {
+        Set<UUID> ids = new HashSet<>();
+        for (List<TaskLink> edges : List.of(links, unlinks)) {
+            for (TaskLink edge : edges) {
+                if (edge != null && edge.taskId() != null) {
+                    ids.add(edge.taskId());
+                }
+                if (edge != null && edge.dependencyId() != null) {
+                    ids.add(edge.dependencyId());
+                }
+            }
+        }
+        return ids;
+    }
+
+    boolean hasLinks() {
+        return !links.isEmpty();
+    }
+
+    /**
+     * @return Tasks whose transitive dependencies the cycle check may have to follow
+     */
+    Set<UUID> dependencyRoots(Map<UUID, Task> loaded) {
+        Set<UUID> roots = new HashSet<>();
+        loaded.values().stream()
+            .filter(task -> task.depends != null)
+            .forEach(task -> roots.addAll(task.depends));
+        return roots;
+    }
+
+    /**
+     * Decide every edge.
+     *
+     * @param loaded Existing tasks by ID, as returned for {@link #referencedIds()}
+     * @param dependencies Task ID to depends list for tasks beyond {@code loaded}
+     */
+    void apply(Map<UUID, Task> loaded, Map<UUID, List<UUID>> dependencies) {
+        tasks.putAll(loaded);
+        dependencyGraph = dependencies;
+
+        for (int i = 0; i < unlinks.size(); i++) {
+            unlinkResults[i] = unlink(i, unlinks.get(i));
+        }
+
+        List<Integer> candidates = new ArrayList<>();
+        for (int i = 0; i < links.size(); i++) {
+            TaskLink edge = links.get(i);
+            linkResults[i] = validateLink(edge);
+            if (linkResults[i] == null) {
+                tasks.get(edge.taskId()).depends.add(edge.dependencyId());
+                candidates.add(i);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        DependencyGraph graph = new DependencyGraph(this::dependsOf);
+        Set<UUID> sources = new LinkedHashSet<>();
+        candidates.forEach(i -> sources.add(links.get(i).taskId()));
+        if (graph.hasCycleFrom(sources)) {
+            // Start over without the new edges and keep each one that does not close a cycle
+            candidates.forEach(i -> tasks.get(links.get(i).taskId()).depends.remove(links.get(i).dependencyId()));
+            List<Integer> accepted = new ArrayList<>();
+            for (int i : candidates) {
+                TaskLink edge = links.get(i);
+                if (graph.reaches(edge.dependencyId(), edge.taskId())) {
+                    linkResults[i] = result(LINK, edge, 409, "Creating this link would cause a circular dependency");
+                } else {
+                    tasks.get(edge.taskId()).depends.add(edge.dependencyId());
+                    accepted.add(i);
+                }
+            }
+            candidates = accepted;
+        }
+
+        for (int i : candidates) {
+            TaskLink edge = links.get(i);
+            linkResults[i] = result(LINK, edge, 200, null);
+            Map<UUID, Integer> removedFromTask = removed.get(edge.taskId());
+            if (removedFromTask != null && removedFromTask.remove(edge.dependencyId()) != null) {
+                // Unlinked and linked again: nothing to write
+                continue;
+            }
+            added.computeIfAbsent(edge.taskId(), id -> new LinkedHashMap<>()).put(edge.dependencyId(), i);
+        }
+    }
+
+    private TaskLinkResult unlink(int index, TaskLink edge) {
+        if (edge == null || edge.taskId() == null || edge.dependencyId() == null) {
+            return result(UNLINK, edge, 400, "taskId and dependencyId are required");
+        }
+        Task task = tasks.get(edge.taskId());
+        if (task == null) {
+            return result(UNLINK, edge, 404, "Task not found");
+        }
+        if (task.depends == null || !task.depends.contains(edge.dependencyId())) {
+            return result(UNLINK, edge, 404, "Link not found");
+        }
+        recordBefore(task);
+        task.depends.remove(edge.dependencyId());
+        removed.computeIfAbsent(task.id, id -> new LinkedHashMap<>()).put(edge.dependencyId(), index);
+        return result(UNLINK, edge, 200, null);
+    }
+
+    /**
+     * @return The failure result, or null if the edge is a new, valid link
+     */
+    private TaskLinkResult validateLink(TaskLink edge) {
+        if (edge == null || edge.taskId() == null || edge.dependencyId() == null) {
+            return result(LINK, edge, 400, "taskId and dependencyId are required");
+        }
+        if (edge.taskId().equals(edge.dependencyId())) {
+            return result(LINK, edge, 400, "Task cannot depend on itself");
+        }
+        Task task = tasks.get(edge.taskId());
+        if (task == null || !tasks.containsKey(edge.dependencyId())) {
+            return result(LINK, edge, 404, "One or both tasks not found");
+        }
+        if (task.depends != null && task.depends.contains(edge.dependencyId())) {
+            // Already linked, possibly by an earlier edge of this request
+            return result(LINK, edge, 200, null);
+        }
+        recordBefore(task);
+        if (task.depends == null) {
+            task.depends = new ArrayList<>();
+        }
+        return null;
+    }
+
+    private List<UUID> dependsOf(UUID id) {
+        Task task = tasks.get(id);
+        return task != null ? task.depends : dependencyGraph.get(id);
+    }
+
+    /**
+     * One $addToSet and/or one $pull per changed task, each also bumping updatedAt and version.
+     * Use {@link #modelTask(int)} to map a write error back to its task.
+     */
+    List<WriteModel<Task>> writeModels() {
+        List<WriteModel<Task>> models = new ArrayList<>();
+        modelTasks.clear();
+        for (UUID id : changedTasks()) {
+            Task task = tasks.get(id);
+            task.preUpdate();
+            Document stamp = new Document("$set", new Document("updatedAt", task.updatedAt))
+                .append("$inc", new Document("version", 1));
+
+            Map<UUID, Integer> additions = added.getOrDefault(id, Map.of());
+            Map<UUID, Integer> removals = removed.getOrDefault(id, Map.of());
+            if (!additions.isEmpty()) {
+                BsonArray values = new BsonArray();
+                additions.keySet().forEach(dependencyId -> values.add(UUIDStorage.toBson(dependencyId)));
+                Document update = new Document("$addToSet", new Document("depends", new Document("$each", values)));
+                update.putAll(stamp);
+                models.add(new UpdateOneModel<>(UUIDStorage.eq("_id", id), update));
+                modelTasks.add(id);
+            }
+            if (!removals.isEmpty()) {
+                // Matches either UUID representation while storage is mixed
+                Document update = new Document("$pull", new Document("depends",
+                    new Document("$in", UUIDStorage.inValues(removals.keySet()))));
+                if (additions.isEmpty()) {
+                    update.putAll(stamp);
+                }
+                models.add(new UpdateOneModel<>(UUIDStorage.eq("_id", id), update));
+                modelTasks.add(id);
+            }
+        }
+        return models;
+    }
+
+    UUID modelTask(int modelIndex) {
+        return modelTasks.get(modelIndex);
+    }
+
+    /**
+     * Fail every accepted edge of a task whose write failed.
+     */
+    void writeFailed(UUID id, String message) {
+        if (!writeFailed.add(id)) {
+            return;
+        }
+        added.getOrDefault(id, Map.of()).values()
+            .forEach(i -> linkResults[i] = result(LINK, links.get(i), 500, message));
+        removed.getOrDefault(id, Map.of()).values()
+            .forEach(i -> unlinkResults[i] = result(UNLINK, unlinks.get(i), 500, message));
+    }
+
+    /**
+     * @return Change events for the tasks that were written
+     */
+    List<TaskChangedEvent> events() {
+        List<TaskChangedEvent> events = new ArrayList<>();
+        for (UUID id : changedTasks()) {
+            if (!writeFailed.contains(id)) {
+                events.add(TaskChangedEvent.updated(before.get(id), taskMapper.toDTO(tasks.get(id))));
+            }
+        }
+        return events;
+    }
+
+    TaskLinkResponse response() {
+        List<TaskLinkResult> results = new ArrayList<>(List.of(unlinkResults));
+        results.addAll(List.of(linkResults));
+        return new TaskLinkResponse(results.stream().anyMatch(result -> result.status() >= 400), results);
+    }
+
+    private Set<UUID> changedTasks() {
+        Set<UUID> ids = new LinkedHashSet<>();
+        removed.forEach((id, edges) -> {
+            if (!edges.isEmpty()) {
+                ids.add(id);
+            }
+        });
+        added.forEach((id, edges) -> {
+            if (!edges.isEmpty()) {
+                ids.add(id);
+            }
+        });
+        return ids;
+    }
+
+    private void recordBefore(Task task) {
+        before.computeIfAbsent(task.id, id -> taskMapper.toDTO(task));
+    }
+
+    private static TaskLinkResult result(String action, TaskLink edge, int status, String error) {
+        return new TaskLinkResult(action, edge != null ? edge.taskId() : null,
+            edge != null ? edge.dependencyId() : null, status, error);
+    }
+}
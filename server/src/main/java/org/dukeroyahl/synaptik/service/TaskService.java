@@ -2,19 +2,36 @@ package org.dukeroyahl.synaptik.service;
 
 import org.dukeroyahl.synaptik.domain.Task;
 import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.FacetCount;
+import org.dukeroyahl.synaptik.dto.FacetedSearchResponse;
 import org.dukeroyahl.synaptik.dto.TaskDTO;
 import org.dukeroyahl.synaptik.domain.Project;
 import org.dukeroyahl.synaptik.dto.TaskRequest;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
 import org.dukeroyahl.synaptik.helper.TaskSearchQueryBuilder;
 import org.dukeroyahl.synaptik.mapper.TaskMapper;
 import org.dukeroyahl.synaptik.util.DateTimeHelper;
+import org.dukeroyahl.synaptik.util.TimezoneResolver;
+import org.dukeroyahl.synaptik.util.UUIDCodec;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
 
 import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
 import jakarta.inject.Inject;
+import com.mongodb.client.model.CountOptions;
 import io.quarkus.logging.Log;
+import io.quarkus.mongodb.panache.reactive.ReactivePanacheQuery;
+import io.smallrye.mutiny.Multi;
 import io.smallrye.mutiny.Uni;
 import org.jboss.logging.Logger;
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonValue;
 import org.bson.Document;
+import org.bson.codecs.Codec;
+import org.bson.codecs.DecoderContext;
 
 import java.time.*;
 import java.util.*;
@@ -23,6 +40,15 @@ import java.util.stream.Collectors;
 @ApplicationScoped
 public class TaskService {
 
+    public static final int MAX_TOP_LIMIT = 200;
+
+    // Number of streamed tasks enriched with project names per lookup
+    private static final int TOP_ENRICH_BATCH_SIZE = 50;
+
+    public static final int MAX_SEARCH_LIMIT = 1000;
+
+    public static final int MAX_FACET_PAGE_SIZE = 200;
+
     @Inject
     Logger logger;
 
@@ -32,9 +58,18 @@ public class TaskService {
     @Inject
     TaskMapper taskMapper;
 
+    @Inject
+    TaskAnnotationService taskAnnotationService;
+
     @Inject
     TaskSearchQueryBuilder queryBuilder;
 
+    @Inject
+    BlockingExecutor blockingExecutor;
+
+    @Inject
+    Event<TaskChangedEvent> taskEvents;
+
     public Uni<List<TaskDTO>> getAllTasks() {
         return Task.<Task>listAll()
                 .onItem().transformToUni(this::enrichTaskListWithProjects);
@@ -87,6 +122,7 @@ public class TaskService {
         // Use reactive persist operation
         return task.persist()
             .onItem().transform(persistedTask -> (Task) persistedTask)
+            .invoke(persistedTask -> taskEvents.fire(TaskChangedEvent.created(taskMapper.toDTO(persistedTask))))
             .onFailure().recoverWithItem(throwable -> {
                 Log.warnf("Failed to import task %s: %s", task.title, throwable.getMessage());
                 return null; // Return null for failed imports
@@ -109,7 +145,7 @@ public class TaskService {
     }
 
     public Uni<TaskDTO> getTaskById(UUID id) {
-        return Task.<Task>find("_id", id).firstResult()
+        return Task.<Task>find(UUIDStorage.eq("_id", id)).firstResult()
                 .onItem().ifNotNull().transform(taskMapper::toDTO)
                 .onItem().ifNotNull().transformToUni(task -> {
                     if (task.projectId != null) {
@@ -125,31 +161,38 @@ public class TaskService {
     }
 
     public Uni<Task> getRawTaskById(UUID id) {
-        return Task.<Task>find("_id", id).firstResult();
+        return Task.<Task>find(UUIDStorage.eq("_id", id)).firstResult();
     }
 
     public Uni<TaskDTO> createTask(TaskRequest taskRequest) {
         return enrichTaskRequestWithProject(taskRequest)
                 .flatMap(tr -> {
-                    // Normalize dates to ISO 8601 format
-                    if (tr.dueDate != null) {
-                        tr.dueDate = DateTimeHelper.normalizeToIso8601(tr.dueDate, "UTC");
-                    }
-                    if (tr.waitUntil != null) {
-                        tr.waitUntil = DateTimeHelper.normalizeToIso8601(tr.waitUntil, "UTC");
-                    }
-                    
+                    normalizeDates(tr);
+
                     Task task = taskMapper.toEntity(tr);
                     task.urgency = task.calculateUrgency();
                     return task.persist()
                             .map(persistedTask -> {
                                 TaskDTO taskDTO = taskMapper.toDTO((Task) persistedTask);
+                                taskEvents.fire(TaskChangedEvent.created(taskMapper.toDTO((Task) persistedTask)));
                                 taskDTO.projectName = tr.projectName; // Use the project name from enriched request
                                 return taskDTO;
                             });
                 });
     }
 
+    /**
+     * Normalize the due and wait dates of a request to ISO 8601 UTC.
+     */
+    static void normalizeDates(TaskRequest taskRequest) {
+        if (taskRequest.dueDate != null) {
+            taskRequest.dueDate = DateTimeHelper.normalizeToIso8601(taskRequest.dueDate, "UTC");
+        }
+        if (taskRequest.waitUntil != null) {
+            taskRequest.waitUntil = DateTimeHelper.normalizeToIso8601(taskRequest.waitUntil, "UTC");
+        }
+    }
+
     private Uni<List<TaskDTO>> enrichTaskListWithProjects(List<Task> tasks) {
         if (tasks == null || tasks.isEmpty()) {
             return Uni.createFrom().item(List.of());
@@ -169,7 +212,7 @@ public class TaskService {
         }
 
         // Fetch all projects in one query and create a map
-        return Project.<Project>find("_id in ?1", projectIds).list()
+        return Project.<Project>find(UUIDStorage.in("_id", projectIds)).list()
                 .onItem().transform(projects -> {
                     Map<UUID, String> projectNameMap = projects.stream()
                             .collect(Collectors.toMap(p -> p.id, p -> p.name));
@@ -203,29 +246,44 @@ public class TaskService {
     }
 
     public Uni<TaskDTO> updateTask(TaskRequest updates) {
+        return updateTask(updates, null);
+    }
+
+    /**
+     * Update a task only if it is still at {@code expectedVersion}, so that concurrent
+     * writers cannot silently overwrite each other.
+     *
+     * @param expectedVersion Version the client read, or null to update unconditionally
+     * @return The updated task, or null if it does not exist
+     * @throws VersionConflictException (as failure) if the task is at another version
+     */
+    public Uni<TaskDTO> updateTask(TaskRequest updates, Long expectedVersion) {
         return enrichTaskRequestWithProject(updates)
                 .flatMap(tr -> {
-                    // Normalize dates to ISO 8601 format
-                    if (tr.dueDate != null) {
-                        tr.dueDate = DateTimeHelper.normalizeToIso8601(tr.dueDate, "UTC");
-                    }
-                    if (tr.waitUntil != null) {
-                        tr.waitUntil = DateTimeHelper.normalizeToIso8601(tr.waitUntil, "UTC");
+                    normalizeDates(tr);
+
+                    Document filter = UUIDStorage.eq("_id", tr.id);
+                    if (expectedVersion != null) {
+                        filter.append("version", expectedVersion);
                     }
-                    
-                    return Task.find("_id", tr.id)
-                        .firstResult()
+                    TaskUpdates update = new TaskUpdates();
+                    return Task.<Task>mongoCollection()
+                        .findOneAndUpdate(filter,
+                            update.replace(taskMapper.updateEntityFromRequest(updates, new Task())),
+                            TaskUpdates.RETURN_BEFORE)
+                        .onItem().ifNull().switchTo(() -> expectedVersion == null
+                            ? Uni.createFrom().nullItem()
+                            : versionConflict(tr.id, expectedVersion))
                         .onItem().ifNotNull().transform(t -> {
-                            return taskMapper.updateEntityFromRequest(updates, (Task) t);
+                            TaskDTO before = taskMapper.toDTO(t);
+                            Task updated = taskMapper.updateEntityFromRequest(updates, t);
+                            update.applyReplace(updated);
+                            taskEvents.fire(TaskChangedEvent.updated(before, taskMapper.toDTO(updated)));
+                            return updated;
                         })
                         .onItem().ifNotNull().transform(t -> {
-                            t.urgency = t.calculateUrgency();
-                            return t;
-                        })
-                        .onItem().ifNotNull().transformToUni(t -> t.persistOrUpdate())
-                        .onItem().ifNotNull().transform(t -> {
-                            logger.infof("Updating task: %s", ((Task)t).title);
-                            return taskMapper.toDTO((Task)t);
+                            logger.infof("Updating task: %s", t.title);
+                            return taskMapper.toDTO(t);
                         })
                         .onItem().ifNotNull().transform(t -> {
                             t.projectName = tr.projectName;
@@ -234,12 +292,24 @@ public class TaskService {
                 });
     }
 
+    /**
+     * @return A VersionConflictException failure if the task exists, otherwise null
+     */
+    private Uni<Task> versionConflict(UUID id, Long expectedVersion) {
+        return Task.<Task>find(UUIDStorage.eq("_id", id)).firstResult()
+                .onItem().ifNotNull().transformToUni(task ->
+                    Uni.createFrom().failure(new VersionConflictException(expectedVersion, task.version)));
+    }
+
     public Uni<Boolean> deleteTask(UUID id) {
-        return Task.<Task>find("_id", id).firstResult()
+        return Task.<Task>find(UUIDStorage.eq("_id", id)).firstResult()
                 .onItem().ifNotNull().transformToUni(task -> {
                     UUID projectId = task.projectId; // Store project ID before deletion
                     logger.infof("Deleting task: %s", task.title);
+                    TaskDTO before = taskMapper.toDTO(task);
                     return task.delete()
+                            .call(() -> taskAnnotationService.deleteHistory(task.id))
+                            .invoke(() -> taskEvents.fire(TaskChangedEvent.deleted(before)))
                             .onItem().transformToUni(v -> {
                                 // Update project status after task deletion
                                 if (projectId != null) {
@@ -255,32 +325,31 @@ public class TaskService {
 
     public Uni<Void> deleteAllTasks() {
         logger.info("Deleting all tasks");
-        return Task.deleteAll().replaceWithVoid();
+        return Task.deleteAll()
+            .call(() -> taskAnnotationService.deleteAllHistory())
+            .invoke(() -> taskEvents.fire(TaskChangedEvent.cleared()))
+            .replaceWithVoid();
     }
 
     public Uni<Boolean> updateTaskStatus(UUID id, TaskStatus newStatus) {
         Log.infof("Settings Status of Task %s to %s", id , newStatus);
-        return Task.<Task>find("_id", id).firstResult()
+        TaskUpdates update = new TaskUpdates();
+        return Task.<Task>mongoCollection()
+                .findOneAndUpdate(UUIDStorage.eq("_id", id), update.status(newStatus), TaskUpdates.RETURN_BEFORE)
+                .onItem().ifNotNull().call(task -> {
+                    TaskDTO before = taskMapper.toDTO(task);
+                    update.applyStatus(task, newStatus);
+                    taskEvents.fire(TaskChangedEvent.updated(before, taskMapper.toDTO(task)));
+                    return taskAnnotationService.record(task.id, task.lastAnnotation());
+                })
                 .onItem().ifNotNull().transformToUni(task -> {
-                    TaskStatus oldStatus = task.status;
-                    task.status = newStatus;
-                    
-                    // Add status change annotation
-                    task.addAnnotation("Status changed from " + oldStatus + " to " + newStatus);
-                    
-                    task.urgency = task.calculateUrgency();
-
-                    return task.persistOrUpdate()
-                            .onItem().transformToUni(persistedEntity -> {
-                                Task updatedTask = (Task) persistedEntity;
-                                // Auto-update project status if task belongs to a project
-                                if (updatedTask.projectId != null) {
-                                    return projectService.updateProjectStatusBasedOnTasks(updatedTask.projectId)
-                                            .onItem().transform(project -> true);
-                                } else {
-                                    return Uni.createFrom().item(true);
-                                }
-                            });
+                    // Auto-update project status if task belongs to a project
+                    if (task.projectId != null) {
+                        return projectService.updateProjectStatusBasedOnTasks(task.projectId)
+                                .onItem().transform(project -> true);
+                    } else {
+                        return Uni.createFrom().item(true);
+                    }
                 })
                 .onItem().ifNull().continueWith(false);
     }
@@ -308,7 +377,7 @@ public class TaskService {
     public Uni<List<TaskDTO>> getOverdueTasks(String timezone) {
         logger.infof("Getting overdue tasks for timezone: %s", timezone);
         
-        String currentTime = DateTimeHelper.nowInTimezone(timezone);
+        ZonedDateTime currentTime = ZonedDateTime.now(DateTimeHelper.parseTimezone(timezone));
         
         // Get all tasks with due dates and filter server-side
         Document query = new Document("dueDate", new Document("$ne", null))
@@ -339,8 +408,9 @@ public class TaskService {
     public Uni<List<TaskDTO>> getDueTodayTasks(String timezone) {
         logger.infof("Getting tasks due today for timezone: %s", timezone);
         
-        ZonedDateTime startOfToday = DateTimeHelper.startOfDayInTimezone(timezone);
-        ZonedDateTime endOfToday = DateTimeHelper.endOfDayInTimezone(timezone);
+        TimezoneResolver.DayBounds today = TimezoneResolver.today(DateTimeHelper.parseTimezone(timezone));
+        ZonedDateTime startOfToday = today.start();
+        ZonedDateTime endOfToday = today.end();
         
         // Get all tasks with due dates and filter server-side
         Document query = new Document("dueDate", new Document("$ne", null))
@@ -363,22 +433,167 @@ public class TaskService {
 
     public Uni<List<TaskDTO>> searchTasks(List<TaskStatus> statuses, String title, String assignee,
                                        String projectId, String dateFrom, String dateTo, String timezone) {
-        logger.infof("Searching tasks with database-level filters - statuses: %s, title: %s, assignee: %s, projectId: %s, dateFrom: %s, dateTo: %s, timezone: %s",
-                statuses, title, assignee, projectId, dateFrom, dateTo, timezone);
+        return searchTasks(statuses, title, assignee, projectId, dateFrom, dateTo, timezone, null);
+    }
+
+    public Uni<List<TaskDTO>> searchTasks(List<TaskStatus> statuses, String title, String assignee,
+                                       String projectId, String dateFrom, String dateTo, String timezone,
+                                       String text) {
+        TaskSearchCriteria criteria = new TaskSearchCriteria(statuses, title, assignee, projectId, dateFrom, dateTo, timezone);
+        criteria.q = text;
+        return searchTasks(criteria);
+    }
+
+    /**
+     * Search tasks with database-level filters.
+     * When a full-text query is given, results are ranked by text relevance (best match first).
+     */
+    public Uni<List<TaskDTO>> searchTasks(TaskSearchCriteria criteria) {
+        logger.infof("Searching tasks with database-level filters - %s", criteria);
 
         // Use helper class to build MongoDB query
-        Document query = queryBuilder.buildSearchQuery(statuses, title, assignee, projectId, dateFrom, dateTo, timezone);
+        Document query = queryBuilder.buildSearchQuery(criteria);
+
+        // Sorting and limiting happen in MongoDB, on the {status, <sort key>} indexes
+        Document sort = queryBuilder.buildSort(criteria);
+        ReactivePanacheQuery<Task> results = sort != null
+            ? Task.<Task>find(query, sort)
+            : Task.<Task>find(query);
+        if (criteria.limit != null) {
+            results = results.range(0, Math.max(1, Math.min(criteria.limit, MAX_SEARCH_LIMIT)) - 1);
+        }
+        return results.list()
+            .onItem().transformToUni(this::enrichTaskListWithProjects);
+    }
 
-        // Execute database query with filters applied at DB level and enrich with projects
-        return Task.<Task>find(query).list()
+    /**
+     * Get tasks by ID with project names, most urgent first. Unknown IDs are skipped.
+     */
+    public Uni<List<TaskDTO>> getTasksByIds(Collection<UUID> ids) {
+        if (ids.isEmpty()) {
+            return Uni.createFrom().item(List.of());
+        }
+        return Task.<Task>find(UUIDStorage.in("_id", ids), new Document("urgency", -1)).list()
             .onItem().transformToUni(this::enrichTaskListWithProjects);
     }
 
+    /**
+     * Count tasks matching the search filters with {@code countDocuments}; no task is loaded.
+     * Sort and limit are ignored.
+     */
+    public Uni<Long> countTasks(TaskSearchCriteria criteria) {
+        logger.debugf("Counting tasks - %s", criteria);
+        return Task.mongoCollection().countDocuments(queryBuilder.buildSearchQuery(criteria));
+    }
+
+    /**
+     * Check whether any task matches the search filters. The count stops at the first match.
+     */
+    public Uni<Boolean> anyTaskMatches(TaskSearchCriteria criteria) {
+        logger.debugf("Checking for matching tasks - %s", criteria);
+        return Task.mongoCollection()
+            .countDocuments(queryBuilder.buildSearchQuery(criteria), new CountOptions().limit(1))
+            .map(count -> count > 0);
+    }
+
+    /**
+     * Search tasks and count facets (status, priority, assignee, projectId, tags) over all
+     * matching tasks. The page, total and every facet come from one {@code $facet}
+     * aggregation, i.e. a single round trip to MongoDB.
+     *
+     * @param page Zero-based page number
+     * @param size Page size (clamped to 1..{@value #MAX_FACET_PAGE_SIZE})
+     */
+    public Uni<FacetedSearchResponse> searchTasksWithFacets(TaskSearchCriteria criteria, int page, int size) {
+        int boundedSize = Math.max(1, Math.min(size, MAX_FACET_PAGE_SIZE));
+        int boundedPage = Math.max(0, page);
+        logger.infof("Faceted task search - %s, page: %d, size: %d", criteria, boundedPage, boundedSize);
+
+        Document query = queryBuilder.buildSearchQuery(criteria);
+        List<Document> pipeline = queryBuilder.buildFacetPipeline(query, queryBuilder.buildSort(criteria),
+                boundedPage * boundedSize, boundedSize);
+
+        Codec<Task> taskCodec = Task.mongoCollection().getCodecRegistry().get(Task.class);
+        return Task.mongoCollection().aggregate(pipeline, BsonDocument.class)
+            .collect().first()
+            .onItem().transformToUni(result -> {
+                List<Task> tasks = new ArrayList<>();
+                long total = 0;
+                Map<String, List<FacetCount>> facets = new LinkedHashMap<>();
+                if (result != null) {
+                    for (BsonValue value : result.getArray("tasks")) {
+                        tasks.add(taskCodec.decode(new BsonDocumentReader(value.asDocument()), DecoderContext.builder().build()));
+                    }
+                    BsonArray totals = result.getArray("total");
+                    total = totals.isEmpty() ? 0 : totals.get(0).asDocument().getNumber("count").longValue();
+                    for (String field : TaskSearchQueryBuilder.FACET_FIELDS) {
+                        facets.put(field, toFacetCounts(result.getArray(field)));
+                    }
+                }
+                long matched = total;
+                return enrichTaskListWithProjects(tasks)
+                    .map(dtos -> new FacetedSearchResponse(dtos, matched, boundedPage, boundedSize, facets));
+            });
+    }
+
+    private static List<FacetCount> toFacetCounts(BsonArray buckets) {
+        List<FacetCount> counts = new ArrayList<>(buckets.size());
+        for (BsonValue bucket : buckets) {
+            BsonDocument document = bucket.asDocument();
+            BsonValue key = document.get("_id");
+            if (key == null || key.isNull()) {
+                continue; // Unassigned, no project, etc.
+            }
+            String value;
+            if (key.isString()) {
+                value = key.asString().getValue();
+            } else if (key.isBinary()) {
+                // projectId may still be a legacy (subtype 3) binary during a UUID migration
+                value = UUIDCodec.fromBson(key).toString();
+            } else {
+                value = key.toString();
+            }
+            counts.add(new FacetCount(value, document.getNumber("count").longValue()));
+        }
+        return counts;
+    }
+
+    /**
+     * Stream the most urgent open (PENDING or ACTIVE) tasks, highest urgency first.
+     * Sorting and limiting happen in MongoDB on the {status: 1, urgency: -1} index,
+     * so the cost is bounded by {@code limit} rather than the collection size.
+     *
+     * @param limit Maximum number of tasks to return (clamped to 1..{@value #MAX_TOP_LIMIT})
+     * @param assignee Exact assignee to filter by (optional)
+     * @param projectId Project UUID to filter by (optional)
+     * @return Tasks ordered by urgency descending
+     */
+    public Multi<TaskDTO> getTopUrgentTasks(int limit, String assignee, UUID projectId) {
+        int boundedLimit = Math.max(1, Math.min(limit, MAX_TOP_LIMIT));
+        logger.infof("Getting top %d urgent tasks - assignee: %s, projectId: %s", boundedLimit, assignee, projectId);
+
+        Document query = new Document("status", new Document("$in",
+                List.of(TaskStatus.PENDING.name(), TaskStatus.ACTIVE.name())));
+        if (assignee != null && !assignee.trim().isEmpty()) {
+            query.append("assignee", assignee.trim());
+        }
+        if (projectId != null) {
+            query.append("projectId", UUIDStorage.matchValue(projectId));
+        }
+
+        return Task.<Task>find(query, new Document("urgency", -1))
+            .range(0, boundedLimit - 1)
+            .stream()
+            .group().intoLists().of(TOP_ENRICH_BATCH_SIZE)
+            .onItem().transformToUniAndConcatenate(this::enrichTaskListWithProjects)
+            .onItem().disjoint();
+    }
+
     public Uni<String> exportTasksAsCsv() {
         Log.info("Exporting all tasks as CSV");
         
         return getAllTasks()
-            .onItem().transform(this::convertTasksToCsv);
+            .onItem().transformToUni(tasks -> blockingExecutor.run(() -> convertTasksToCsv(tasks)));
     }
     
     private String convertTasksToCsv(List<TaskDTO> tasks) {
@@ -446,36 +661,34 @@ public class TaskService {
             throw new IllegalArgumentException("Task cannot depend on itself");
         }
         
-        return Task.<Task>find("_id", taskId).firstResult()
-            .onItem().transformToUni(task -> {
-                if (task == null) {
+        // Check if dependency task exists
+        return Task.count(UUIDStorage.eq("_id", dependencyId))
+            .onItem().transformToUni(dependencyCount -> {
+                if (dependencyCount == 0) {
                     return Uni.createFrom().item(false);
                 }
                 
-                // Check if dependency task exists
-                return Task.<Task>find("_id", dependencyId).firstResult()
-                    .onItem().transformToUni(depTask -> {
-                        if (depTask == null) {
-                            return Uni.createFrom().item(false);
-                        }
-                        
-                        // Check if link already exists
-                        if (task.depends.contains(dependencyId)) {
-                            Log.infof("Link already exists between tasks %s and %s", taskId, dependencyId);
-                            return Uni.createFrom().item(true);
+                // Check for circular dependencies
+                return checkCircularDependency(dependencyId, taskId)
+                    .onItem().transformToUni(hasCircular -> {
+                        if (hasCircular) {
+                            throw new IllegalArgumentException("Creating this link would cause a circular dependency");
                         }
                         
-                        // Check for circular dependencies
-                        return checkCircularDependency(dependencyId, taskId)
-                            .onItem().transformToUni(hasCircular -> {
-                                if (hasCircular) {
-                                    throw new IllegalArgumentException("Creating this link would cause a circular dependency");
+                        // Add the dependency unless it is already there
+                        TaskUpdates update = new TaskUpdates();
+                        return Task.<Task>mongoCollection()
+                            .findOneAndUpdate(TaskUpdates.withoutDependency(taskId, dependencyId),
+                                update.addDependency(dependencyId), TaskUpdates.RETURN_BEFORE)
+                            .onItem().transformToUni(task -> {
+                                if (task == null) {
+                                    // Either the task is missing or the link already exists
+                                    return Task.count(UUIDStorage.eq("_id", taskId)).map(count -> count > 0);
                                 }
-                                
-                                // Add the dependency
-                                task.depends.add(dependencyId);
-                                return task.persistOrUpdate()
-                                    .onItem().transform(persistedTask -> true);
+                                TaskDTO before = taskMapper.toDTO(task);
+                                update.applyAddDependency(task, dependencyId);
+                                taskEvents.fire(TaskChangedEvent.updated(before, taskMapper.toDTO(task)));
+                                return Uni.createFrom().item(true);
                             });
                     });
             });
@@ -484,28 +697,27 @@ public class TaskService {
     public Uni<Boolean> unlinkTasks(UUID taskId, UUID dependencyId) {
         Log.infof("Unlinking task %s from dependency %s", taskId, dependencyId);
         
-        return Task.<Task>find("_id", taskId).firstResult()
-            .onItem().transformToUni(task -> {
+        // Only matches if the link exists
+        TaskUpdates update = new TaskUpdates();
+        return Task.<Task>mongoCollection()
+            .findOneAndUpdate(TaskUpdates.withDependency(taskId, dependencyId),
+                update.removeDependency(dependencyId), TaskUpdates.RETURN_BEFORE)
+            .onItem().transform(task -> {
                 if (task == null) {
-                    return Uni.createFrom().item(false);
-                }
-                
-                // Remove the dependency if it exists
-                boolean removed = task.depends.remove(dependencyId);
-                if (!removed) {
                     Log.infof("No link found between tasks %s and %s", taskId, dependencyId);
-                    return Uni.createFrom().item(false);
+                    return false;
                 }
-                
-                return task.persistOrUpdate()
-                    .onItem().transform(persistedTask -> true);
+                TaskDTO before = taskMapper.toDTO(task);
+                update.applyRemoveDependency(task, dependencyId);
+                taskEvents.fire(TaskChangedEvent.updated(before, taskMapper.toDTO(task)));
+                return true;
             });
     }
     
     public Uni<List<TaskDTO>> getTaskDependencies(UUID taskId) {
         Log.infof("Getting dependencies for task %s", taskId);
         
-        return Task.<Task>find("_id", taskId).firstResult()
+        return Task.<Task>find(UUIDStorage.eq("_id", taskId)).firstResult()
             .onItem().transformToUni(task -> {
                 if (task == null) {
                     return Uni.createFrom().nullItem();
@@ -516,7 +728,7 @@ public class TaskService {
                 }
                 
                 // Find all dependency tasks
-                return Task.<Task>find("_id in ?1", task.depends).list()
+                return Task.<Task>find(UUIDStorage.in("_id", task.depends)).list()
                     .onItem().transformToUni(this::enrichTaskListWithProjects);
             });
     }
@@ -525,7 +737,7 @@ public class TaskService {
         Log.infof("Getting dependents for task %s", taskId);
         
         // Find all tasks that have this task in their depends list
-        return Task.<Task>find("depends", taskId).list()
+        return Task.<Task>find(UUIDStorage.eq("depends", taskId)).list()
             .onItem().transformToUni(this::enrichTaskListWithProjects);
     }
     
@@ -546,7 +758,7 @@ public class TaskService {
         
         visited.add(currentTaskId);
         
-        return Task.<Task>find("_id", currentTaskId).firstResult()
+        return Task.<Task>find(UUIDStorage.eq("_id", currentTaskId)).firstResult()
             .onItem().transformToUni(task -> {
                 if (task == null || task.depends.isEmpty()) {
                     return Uni.createFrom().item(false);
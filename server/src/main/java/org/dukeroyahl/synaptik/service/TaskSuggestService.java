@@ -0,0 +1,164 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.dto.TaskSuggestion;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.search.TaskSuggestIndex;
+
+import io.quarkus.runtime.StartupEvent;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves typeahead suggestions from an in-memory {@link TaskSuggestIndex}.
+ * The index is loaded from MongoDB in the background on startup and then kept current
+ * from {@link TaskChangedEvent}s, and from {@link CacheInvalidationEvent}s for writes made by
+ * other instances, so suggestions never hit the database.
+ */
+@ApplicationScoped
+public class TaskSuggestService {
+
+    private static final Logger logger = Logger.getLogger(TaskSuggestService.class);
+
+    public static final int MAX_LIMIT = 50;
+
+    private static final Set<TaskStatus> DEFAULT_STATUSES = EnumSet.complementOf(EnumSet.of(TaskStatus.DELETED));
+
+    @ConfigProperty(name = "synaptik.suggest.enabled", defaultValue = "true")
+    boolean enabled;
+
+    private final TaskSuggestIndex index = new TaskSuggestIndex();
+
+    // Tasks written while the initial load runs; the loaded copy may be stale for these
+    private final Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+    private volatile boolean loading;
+    private volatile boolean ready;
+    // Guarded by this; a reload was asked for while a load was running
+    private boolean reloadPending;
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            logger.info("Task suggest index disabled");
+            return;
+        }
+        load();
+    }
+
+    private synchronized void load() {
+        loading = true;
+        long started = System.nanoTime();
+        Task.<Task>streamAll()
+            .subscribe().with(
+                task -> {
+                    if (!changedDuringLoad.contains(task.id)) {
+                        index.put(task.id, task.title, task.assignee, task.status);
+                    }
+                },
+                failure -> {
+                    logger.warnf("Could not load task suggest index: %s", failure.getMessage());
+                    loaded();
+                },
+                () -> {
+                    ready = true;
+                    logger.infof("Loaded task suggest index: %d tasks in %d ms",
+                        index.size(), (System.nanoTime() - started) / 1_000_000);
+                    loaded();
+                });
+    }
+
+    private synchronized void loaded() {
+        loading = false;
+        changedDuringLoad.clear();
+        if (reloadPending) {
+            reloadPending = false;
+            reload();
+        }
+    }
+
+    /**
+     * Rebuild the index from scratch. One load runs at a time: any number of reloads asked
+     * for meanwhile become one more, after it.
+     */
+    synchronized void reload() {
+        if (loading) {
+            reloadPending = true;
+            return;
+        }
+        index.clear();
+        load();
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (loading && event.taskId() != null) {
+            changedDuringLoad.add(event.taskId());
+        }
+
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                TaskDTO task = event.after();
+                index.put(task.id, task.title, task.assignee, task.status);
+            }
+            case DELETED -> index.remove(event.before().id);
+            case CLEARED -> index.clear();
+        }
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (!enabled || event.collection() != CacheInvalidationEvent.Collection.TASKS) {
+            return;
+        }
+        if (loading && event.id() != null) {
+            changedDuringLoad.add(event.id());
+        }
+
+        switch (event.kind()) {
+            case CHANGED -> {
+                Task task = event.task();
+                if (task != null) {
+                    index.put(task.id, task.title, task.assignee, task.status);
+                }
+            }
+            case DELETED -> index.remove(event.id());
+            case ALL -> reload();
+        }
+    }
+
+    /**
+     * Suggest tasks whose title or assignee has words starting with the query words.
+     *
+     * @param query Text typed so far
+     * @param statuses Statuses to include (optional, default: all except DELETED)
+     * @param limit Maximum number of suggestions (clamped to 1..{@value #MAX_LIMIT})
+     * @return Suggestions, best first
+     */
+    public List<TaskSuggestion> suggest(String query, List<TaskStatus> statuses, int limit) {
+        if (!ready) {
+            logger.debug("Task suggest index not fully loaded yet");
+        }
+        Set<TaskStatus> allowed = statuses == null || statuses.isEmpty()
+            ? DEFAULT_STATUSES
+            : EnumSet.copyOf(statuses);
+        return index.suggest(query, allowed, Math.max(1, Math.min(limit, MAX_LIMIT)));
+    }
+
+    /**
+     * @return true once the initial load from MongoDB has completed
+     */
+    public boolean isReady() {
+        return ready;
+    }
+}
@@ -0,0 +1,146 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.FacetCount;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.Document;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains the number of tasks carrying each tag.
+ *
+ * Counts are computed with one aggregation on startup and then adjusted from
+ * {@link TaskChangedEvent}s, so /api/tasks/tags never scans the collection. A tag
+ * counts once per task even if it is repeated in the task's tag list.
+ *
+ * A {@link CacheInvalidationEvent} carries no tags from before the change, so writes of
+ * other instances seen through the change stream trigger a recount instead, at most one per
+ * {@link #RECOUNT_DELAY}. This instance's own writes are already counted and are skipped.
+ */
+@ApplicationScoped
+public class TaskTagService {
+
+    private static final Logger logger = Logger.getLogger(TaskTagService.class);
+
+    static final Duration RECOUNT_DELAY = Duration.ofSeconds(2);
+
+    private final Map<String, Long> counts = new ConcurrentHashMap<>();
+    private final AtomicBoolean recountScheduled = new AtomicBoolean();
+
+    private volatile boolean loading;
+    // Set when a write lands during a load, whose snapshot may or may not include it
+    private volatile boolean changedDuringLoad;
+
+    void onStart(@Observes StartupEvent event) {
+        load();
+    }
+
+    /**
+     * Recompute all counts from MongoDB in the background.
+     */
+    public void load() {
+        loading = true;
+        changedDuringLoad = false;
+
+        List<Document> pipeline = List.of(
+            new Document("$project", new Document("tags", new Document("$setUnion",
+                List.of(new Document("$ifNull", List.of("$tags", List.of())), List.of())))),
+            new Document("$unwind", "$tags"),
+            new Document("$group", new Document("_id", "$tags").append("count", new Document("$sum", 1))));
+
+        Task.mongoCollection().aggregate(pipeline, Document.class)
+            .collect().asList()
+            .subscribe().with(
+                buckets -> {
+                    counts.clear();
+                    for (Document bucket : buckets) {
+                        if (bucket.get("_id") instanceof String tag) {
+                            counts.put(tag, bucket.get("count", Number.class).longValue());
+                        }
+                    }
+                    loading = false;
+                    logger.infof("Loaded tag counts: %d distinct tags", counts.size());
+                    if (changedDuringLoad) {
+                        load();
+                    }
+                },
+                failure -> {
+                    loading = false;
+                    logger.warnf("Could not load tag counts: %s", failure.getMessage());
+                });
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (loading) {
+            changedDuringLoad = true;
+        }
+
+        if (event.type() == TaskChangedEvent.Type.CLEARED) {
+            counts.clear();
+            return;
+        }
+
+        Set<String> before = tagsOf(event.before());
+        Set<String> after = tagsOf(event.after());
+        for (String tag : before) {
+            if (!after.contains(tag)) {
+                // Drop the entry when the last task loses the tag
+                counts.computeIfPresent(tag, (t, count) -> count > 1 ? count - 1 : null);
+            }
+        }
+        for (String tag : after) {
+            if (!before.contains(tag)) {
+                counts.merge(tag, 1L, Long::sum);
+            }
+        }
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (event.collection() != CacheInvalidationEvent.Collection.TASKS || event.local()
+                || !recountScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        // Coalesce a burst of changes into one aggregation
+        Uni.createFrom().voidItem()
+            .onItem().delayIt().by(RECOUNT_DELAY)
+            .subscribe().with(ignored -> {
+                recountScheduled.set(false);
+                load();
+            });
+    }
+
+    /**
+     * @return Tags with the number of tasks carrying them, most used first
+     */
+    public List<FacetCount> getTagCounts() {
+        return counts.entrySet().stream()
+            .map(entry -> new FacetCount(entry.getKey(), entry.getValue()))
+            .sorted(Comparator.comparingLong(FacetCount::count).reversed().thenComparing(FacetCount::value))
+            .toList();
+    }
+
+    private static Set<String> tagsOf(TaskDTO task) {
+        if (task == null || task.tags == null) {
+            return Set.of();
+        }
+        Set<String> tags = new HashSet<>(task.tags);
+        tags.remove(null);
+        return tags;
+    }
+}
@@ -0,0 +1,300 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskAnnotation;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import org.bson.BsonArray;
+import org.bson.conversions.Bson;
+import org.bson.Document;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Single-document atomic task updates for findOneAndUpdate, replacing read-modify-write
+ * with persistOrUpdate: one round trip, only the changed fields are written, and
+ * concurrent changes to other fields are kept.
+ *
+ * The updates are run with {@link #RETURN_BEFORE}; each apply method makes the same change
+ * to that returned copy, so change events get both sides without a second read.
+ */
+final class TaskUpdates {
+
+    static final FindOneAndUpdateOptions RETURN_BEFORE =
+        new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE);
+
+    // Unsets a field in a pipeline $set, as persistOrUpdate leaves null fields out
+    private static final String REMOVE = "$$REMOVE";
+
+    private final String updatedAt = Task.timestamp();
+
+    // Mongo dates have millisecond precision
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+
+    /**
+     * Set the status, recompute urgency from the stored fields and record the change.
+     * A pipeline, because the annotation names the status being replaced and urgency
+     * depends on the rest of the task. The annotation also belongs in the history
+     * collection; take it from the applied task.
+     */
+    List<Bson> status(TaskStatus status) {
+        Document annotation = new Document("timestamp", new Document("$literal", now))
+            .append("description", new Document("$concat", List.of(
+                "Status changed from ", new Document("$ifNull", List.of("$status", "null")),
+                " to ", literal(String.valueOf(status)))));
+
+        Document annotations = new Document("$ifNull", List.of("$annotations", List.of()));
+
+        return List.of(new Document("$set", stamp(new Document()
+            // Same as Task.addAnnotation: keep the latest few, count all
+            .append("annotations", new Document("$slice", List.of(
+                new Document("$concatArrays", List.of(annotations, List.of(annotation))),
+                -Task.MAX_EMBEDDED_ANNOTATIONS)))
+            .append("annotationCount", new Document("$add", List.of(
+                new Document("$ifNull", List.of("$annotationCount", new Document("$size", annotations))), 1)))
+            .append("urgency", withAge(storedBaseUrgency(status)))
+            .append("status", status != null ? literal(status.name()) : REMOVE), true)));
+    }
+
+    void applyStatus(Task task, TaskStatus status) {
+        task.addAnnotation(new TaskAnnotation(now, "Status changed from " + task.status + " to " + status));
+        task.status = status;
+        task.urgency = task.calculateUrgency();
+        apply(task);
+    }
+
+    /**
+     * Replace the request-editable fields with those of {@code patch} (a task the update
+     * request was mapped onto) and recompute the derived ones. A pipeline, because urgency
+     * depends on the stored createdAt.
+     */
+    List<Bson> replace(Task patch) {
+        Document set = editable(patch)
+            .append("urgency", withAge(patch.baseUrgency()));
+        return List.of(new Document("$set", stamp(set, true)));
+    }
+
+    /**
+     * Apply after the request has been mapped onto the returned task.
+     */
+    void applyReplace(Task task) {
+        task.urgency = task.calculateUrgency();
+        task.updateSortKeys();
+        apply(task);
+    }
+
+    /**
+     * Write every field a batch may have changed from {@code task}, its final in-memory
+     * state. Use with a filter on the version it was loaded with, so a concurrent change
+     * makes the write match nothing instead of being overwritten.
+     */
+    List<Bson> overwrite(Task task) {
+        List<Document> annotations = task.annotations == null ? null : task.annotations.stream()
+            .map(annotation -> new Document("timestamp", annotation.timestamp).append("description", annotation.description))
+            .toList();
+        Document set = editable(task)
+            .append("urgency", literalOrRemove(task.urgency))
+            .append("annotations", literalOrRemove(annotations))
+            .append("annotationCount", literalOrRemove(task.annotationCount));
+        return List.of(new Document("$set", stamp(set, true)));
+    }
+
+    void applyOverwrite(Task task) {
+        apply(task);
+    }
+
+    /**
+     * @return The updatedAt every write of this instance sets, to recognise them afterwards
+     */
+    String updatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * Pipeline $set of the request-editable fields and the sort keys derived from them.
+     */
+    private static Document editable(Task task) {
+        task.updateSortKeys();
+        return new Document()
+            .append("title", literalOrRemove(task.title))
+            .append("description", literalOrRemove(task.description))
+            .append("status", literalOrRemove(task.status != null ? task.status.name() : null))
+            .append("priority", literalOrRemove(task.priority != null ? task.priority.name() : null))
+            .append("assignee", literalOrRemove(task.assignee))
+            .append("dueDate", literalOrRemove(task.dueDate))
+            .append("waitUntil", literalOrRemove(task.waitUntil))
+            .append("tags", literalOrRemove(task.tags))
+            .append("depends", task.depends != null ? literal(toBson(task.depends)) : REMOVE)
+            .append("projectId", task.projectId != null ? literal(UUIDStorage.toBson(task.projectId)) : REMOVE)
+            .append("priorityRank", literalOrRemove(task.priorityRank))
+            .append("dueAt", literalOrRemove(task.dueAt))
+            .append("hasDue", literalOrRemove(task.hasDue))
+            .append("waitAt", literalOrRemove(task.waitAt));
+    }
+
+    /**
+     * Add a dependency. Use with {@link #withoutDependency(UUID, UUID)} so an existing link
+     * matches nothing instead of bumping the version.
+     */
+    Bson addDependency(UUID dependencyId) {
+        return stamp(new Document("$addToSet", new Document("depends", UUIDStorage.toBson(dependencyId))), false);
+    }
+
+    void applyAddDependency(Task task, UUID dependencyId) {
+        if (task.depends == null) {
+            task.depends = new ArrayList<>();
+        }
+        task.depends.add(dependencyId);
+        apply(task);
+    }
+
+    /**
+     * Remove a dependency in either UUID representation. Use with
+     * {@link #withDependency(UUID, UUID)} so a missing link matches nothing.
+     */
+    Bson removeDependency(UUID dependencyId) {
+        return stamp(new Document("$pull", new Document("depends",
+            new Document("$in", UUIDStorage.inValues(List.of(dependencyId))))), false);
+    }
+
+    void applyRemoveDependency(Task task, UUID dependencyId) {
+        task.depends.remove(dependencyId);
+        apply(task);
+    }
+
+    /**
+     * Store an urgency the caller recomputed from the whole task. Use with a filter on the
+     * version it was computed from.
+     */
+    Bson urgency(double urgency) {
+        Document update = stamp(new Document(), false);
+        update.get("$set", Document.class).append("urgency", urgency);
+        return update;
+    }
+
+    void applyUrgency(Task task, double urgency) {
+        task.urgency = urgency;
+        apply(task);
+    }
+
+    /**
+     * End a task's wait. Use with a filter on the expected waitAt, so a wait that was
+     * changed in the meantime is left alone.
+     */
+    Bson endWait() {
+        return stamp(new Document("$unset", new Document("waitUntil", "").append("waitAt", "")), false);
+    }
+
+    void applyEndWait(Task task) {
+        task.waitUntil = null;
+        task.waitAt = null;
+        apply(task);
+    }
+
+    static Bson withDependency(UUID id, UUID dependencyId) {
+        return UUIDStorage.eq("_id", id)
+            .append("depends", new Document("$in", UUIDStorage.inValues(List.of(dependencyId))));
+    }
+
+    static Bson withoutDependency(UUID id, UUID dependencyId) {
+        return UUIDStorage.eq("_id", id)
+            .append("depends", new Document("$nin", UUIDStorage.inValues(List.of(dependencyId))));
+    }
+
+    /**
+     * Add the updatedAt and version bump every write makes, as pipeline fields or as
+     * $set/$inc operators.
+     */
+    private Document stamp(Document update, boolean pipeline) {
+        if (pipeline) {
+            return update.append("updatedAt", literal(updatedAt))
+                .append("version", new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L)));
+        }
+        return update.append("$set", new Document("updatedAt", updatedAt))
+            .append("$inc", new Document("version", 1L));
+    }
+
+    private void apply(Task task) {
+        task.updatedAt = updatedAt;
+        task.version = (task.version != null ? task.version : 0L) + 1;
+    }
+
+    /**
+     * calculateUrgency() from a base urgency, with the age part computed from the stored
+     * createdAt. Days are counted in UTC.
+     */
+    private static Document withAge(Object baseUrgency) {
+        Document ageInDays = new Document("$ifNull", List.of(daysBetween(toDate("$createdAt"), "$$NOW"), 0));
+        return new Document("$min", List.of(100.0, new Document("$max", List.of(0.0, new Document("$add", List.of(
+            baseUrgency, new Document("$multiply", List.of(0.01, ageInDays))))))));
+    }
+
+    /**
+     * Task.baseUrgency() of the stored task with {@code status}, taking the due date
+     * from the normalised dueAt.
+     */
+    private static Document storedBaseUrgency(TaskStatus status) {
+        Document priority = new Document("$switch", new Document("branches", List.of(
+                branch(new Document("$eq", List.of("$priority", TaskPriority.HIGH.name())), 6.0),
+                branch(new Document("$eq", List.of("$priority", TaskPriority.MEDIUM.name())), 3.9),
+                branch(new Document("$eq", List.of("$priority", TaskPriority.LOW.name())), 1.8)))
+            .append("default", 0.0));
+
+        // Null without a due date, and null sorts below every number
+        Document due = new Document("$let", new Document("vars",
+                new Document("days", daysBetween("$$NOW", toDate("$dueAt"))))
+            .append("in", new Document("$switch", new Document("branches", List.of(
+                    branch(new Document("$eq", Arrays.asList("$$days", null)), 0.0),
+                    branch(new Document("$lt", List.of("$$days", 0)), new Document("$add", List.of(
+                        12, new Document("$multiply", List.of(new Document("$abs", "$$days"), 0.2))))),
+                    branch(new Document("$lte", List.of("$$days", 7)), new Document("$subtract", List.of(
+                        12, new Document("$multiply", List.of("$$days", 1.4))))),
+                    branch(new Document("$lte", List.of("$$days", 14)), new Document("$subtract", List.of(
+                        5, new Document("$multiply", List.of("$$days", 0.3)))))))
+                .append("default", 0.0))));
+
+        Document tags = new Document("$ifNull", List.of("$tags", List.of()));
+        return new Document("$add", List.of(priority, due,
+            status == TaskStatus.ACTIVE ? Task.ACTIVE_URGENCY : 0.0,
+            new Document("$cond", List.of(new Document("$in", List.of("urgent", tags)), 5, 0)),
+            new Document("$cond", List.of(new Document("$in", List.of("important", tags)), 3, 0))));
+    }
+
+    private static Document branch(Document when, Object then) {
+        return new Document("case", when).append("then", then);
+    }
+
+    // Null if either date is null
+    private static Document daysBetween(Object start, Object end) {
+        return new Document("$dateDiff", new Document("startDate", start).append("endDate", end).append("unit", "day"));
+    }
+
+    private static Document toDate(String field) {
+        return new Document("$convert", new Document("input", field)
+            .append("to", "date").append("onError", null).append("onNull", null));
+    }
+
+    private static BsonArray toBson(List<UUID> ids) {
+        BsonArray values = new BsonArray();
+        ids.forEach(id -> values.add(UUIDStorage.toBson(id)));
+        return values;
+    }
+
+    // User values in a pipeline must not be read as field paths or expressions
+    private static Document literal(Object value) {
+        return new Document("$literal", value);
+    }
+
+    private static Object literalOrRemove(Object value) {
+        return value != null ? literal(value) : REMOVE;
+    }
+}
@@ -0,0 +1,247 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.config.MongoIndexInitializer;
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapper;
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.subscription.Cancellable;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Event;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.bson.Document;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Ends task waits. A task whose waitUntil lies ahead is waiting: hidden from searches
+ * with waiting=false. When the time comes, waitUntil and its UTC key waitAt are removed
+ * in one conditional update and an UPDATED change event is fired, so the task shows up
+ * again everywhere without anyone polling the collection.
+ *
+ * Waiting tasks are kept in a {@link TimingWheel}, loaded on startup with one query on
+ * the indexed waitAt and then maintained from change events. The update matches the
+ * waitAt that was scheduled, so a wait changed in the meantime (or ended by another
+ * instance) is left alone.
+ */
+@ApplicationScoped
+public class TaskWaitScheduler {
+
+    private static final Logger logger = Logger.getLogger(TaskWaitScheduler.class);
+
+    // Level 0 covers 64 ticks, level 1 about an hour and level 2 about three days at 1s
+    static final int SLOTS = 64;
+
+    // The load only needs the scheduling key
+    private static final FindOptions ID_AND_WAIT_AT = new FindOptions()
+        .projection(new Document("_id", 1).append("waitAt", 1));
+
+    @Inject
+    TaskMapper taskMapper;
+
+    @Inject
+    Event<TaskChangedEvent> taskEvents;
+
+    @Inject
+    MongoIndexInitializer indexInitializer;
+
+    @ConfigProperty(name = "synaptik.wait.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "synaptik.wait.tick", defaultValue = "1s")
+    Duration tick;
+
+    // Guarded by itself; re-timed with the configured tick by init
+    private final TimingWheel<UUID> wheel = new TimingWheel<>(1_000, SLOTS, 0);
+    private Cancellable ticker;
+
+    private volatile boolean loading;
+    // Tasks whose wait changed during a load, whose snapshot may be older
+    private final Set<UUID> changedDuringLoad = ConcurrentHashMap.newKeySet();
+
+    void onStart(@Observes StartupEvent event) {
+        if (!enabled) {
+            logger.info("Task wait scheduler disabled");
+            return;
+        }
+        init(System.currentTimeMillis());
+        load();
+        // Ticks that arrive while expired waits are still being ended are dropped
+        ticker = Multi.createFrom().ticks().every(tick)
+            .onOverflow().drop()
+            .onItem().transformToUniAndConcatenate(ignored -> endDueWaits(System.currentTimeMillis()))
+            .subscribe().with(ignored -> {});
+    }
+
+    void onStop(@Observes ShutdownEvent event) {
+        if (ticker != null) {
+            ticker.cancel();
+        }
+    }
+
+    void init(long nowMillis) {
+        synchronized (wheel) {
+            wheel.reset(tick.toMillis(), nowMillis);
+        }
+    }
+
+    /**
+     * Schedule every waiting task, once tasks written before waitAt existed have one
+     * (see {@link MongoIndexInitializer#backfillSortKeys}).
+     */
+    void load() {
+        loading = true;
+        changedDuringLoad.clear();
+        synchronized (wheel) {
+            wheel.clear();
+        }
+
+        indexInitializer.backfillSortKeys()
+            .onItem().transformToMulti(ignored -> Task.<Task>mongoCollection()
+                .find(new Document("waitAt", new Document("$exists", true)), ID_AND_WAIT_AT))
+            .subscribe().with(
+                task -> {
+                    if (!changedDuringLoad.contains(task.id)) {
+                        schedule(task.id, DateTimeHelper.utcKeyMillis(task.waitAt));
+                    }
+                },
+                failure -> {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    logger.warnf("Could not load task waits: %s", failure.getMessage());
+                },
+                () -> {
+                    loading = false;
+                    changedDuringLoad.clear();
+                    logger.infof("Loaded task waits: %d waiting tasks", waitingCount());
+                });
+    }
+
+    void onTaskChanged(@Observes TaskChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (loading && event.taskId() != null) {
+            changedDuringLoad.add(event.taskId());
+        }
+        switch (event.type()) {
+            case CREATED, UPDATED -> schedule(event.after().id, deadline(event.after()));
+            case DELETED -> schedule(event.before().id, null);
+            case CLEARED -> {
+                synchronized (wheel) {
+                    wheel.clear();
+                }
+            }
+        }
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (!enabled || event.collection() != CacheInvalidationEvent.Collection.TASKS) {
+            return;
+        }
+        if (loading && event.id() != null) {
+            changedDuringLoad.add(event.id());
+        }
+        switch (event.kind()) {
+            case CHANGED -> {
+                if (event.task() != null) {
+                    schedule(event.id(), DateTimeHelper.utcKeyMillis(event.task().waitAt));
+                }
+            }
+            case DELETED -> schedule(event.id(), null);
+            case ALL -> load();
+        }
+    }
+
+    /**
+     * @param deadline Epoch millis, or null to cancel
+     */
+    private void schedule(UUID id, Long deadline) {
+        synchronized (wheel) {
+            if (deadline != null) {
+                wheel.schedule(id, deadline);
+            } else {
+                wheel.cancel(id);
+            }
+        }
+    }
+
+    int waitingCount() {
+        synchronized (wheel) {
+            return wheel.size();
+        }
+    }
+
+    /**
+     * End the waits that expired by {@code nowMillis}, one conditional update each.
+     */
+    Uni<Void> endDueWaits(long nowMillis) {
+        Map<UUID, Long> expired;
+        synchronized (wheel) {
+            expired = wheel.advance(nowMillis);
+        }
+        if (expired.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        return Multi.createFrom().iterable(expired.entrySet())
+            .onItem().transformToUniAndConcatenate(entry -> endWait(entry.getKey(), entry.getValue()))
+            .collect().last()
+            .replaceWithVoid();
+    }
+
+    private Uni<Void> endWait(UUID id, long deadline) {
+        TaskUpdates update = new TaskUpdates();
+        Document scheduled = UUIDStorage.eq("_id", id).append("waitAt", waitAt(deadline));
+        return Task.<Task>mongoCollection()
+            .findOneAndUpdate(scheduled, update.endWait(), TaskUpdates.RETURN_BEFORE)
+            .onItem().ifNotNull().invoke(task -> {
+                TaskDTO before = taskMapper.toDTO(task);
+                update.applyEndWait(task);
+                taskEvents.fire(TaskChangedEvent.updated(before, taskMapper.toDTO(task)));
+                logger.debugf("Wait of task %s ended", id);
+            })
+            .replaceWithVoid()
+            .onFailure().recoverWithItem(failure -> {
+                logger.warnf("Could not end wait of task %s, retrying: %s", id, failure.getMessage());
+                synchronized (wheel) {
+                    // Unless an event has rescheduled it since; due again on the next tick
+                    if (wheel.deadline(id) == null) {
+                        wheel.schedule(id, deadline);
+                    }
+                }
+                return null;
+            });
+    }
+
+    /**
+     * @return Deadline of a task's waitUntil in epoch millis, at the second precision of
+     *         waitAt; null without a valid waitUntil
+     */
+    static Long deadline(TaskDTO task) {
+        return DateTimeHelper.utcKeyMillis(DateTimeHelper.toUtcKey(task.waitUntil));
+    }
+
+    /**
+     * @return The stored waitAt of a deadline, as written by Task.updateSortKeys
+     */
+    static String waitAt(long deadline) {
+        return Instant.ofEpochMilli(deadline).toString();
+    }
+}
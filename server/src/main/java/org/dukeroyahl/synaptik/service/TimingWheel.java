@@ -0,0 +1,184 @@
+package org.dukeroyahl.synaptik.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hierarchical timing wheel: schedules keys for a deadline in O(1) and finds the expired
+ * ones by advancing the clock one tick at a time, touching only the slots that come due.
+ *
+ * Level 0 has one slot per tick; each level above has slots as wide as the whole level
+ * below. A key lands in the lowest level whose range covers its deadline and moves down a
+ * level ("cascades") when its slot comes up, so it is looked at once per level, however
+ * far away its deadline is. Keys expire at the first tick boundary at or after their
+ * deadline, so never early and at most one tick late.
+ *
+ * Rescheduling or cancelling a key leaves its old entry in place; entries are checked
+ * against the current deadline when their slot comes up. Not thread-safe.
+ *
+ * @param <K> Key, e.g. a task ID; compared with equals
+ */
+final class TimingWheel<K> {
+
+    private record Entry<K>(K key, long deadline) {}
+
+    // Enough for deadlines centuries ahead with any practical tick and slot count
+    private static final int MAX_LEVELS = 8;
+
+    private long tickMillis;
+    private final int slots;
+    // Ticks covered by one slot of each level
+    private final long[] spans = new long[MAX_LEVELS];
+    private final List<ArrayDeque<Entry<K>>[]> levels = new ArrayList<>();
+    private final Map<K, Long> deadlines = new HashMap<>();
+    // Entries whose deadline was already reached when they were scheduled
+    private final ArrayDeque<Entry<K>> due = new ArrayDeque<>();
+
+    // Start of the current tick, a multiple of tickMillis
+    private long currentTick;
+
+    /**
+     * @param startMillis Current time
+     */
+    TimingWheel(long tickMillis, int slots, long startMillis) {
+        if (slots < 2) {
+            throw new IllegalArgumentException("slots must be at least 2");
+        }
+        this.slots = slots;
+        reset(tickMillis, startMillis);
+        spans[0] = 1;
+        for (int level = 1; level < MAX_LEVELS; level++) {
+            spans[level] = spans[level - 1] > Long.MAX_VALUE / slots ? Long.MAX_VALUE : spans[level - 1] * slots;
+        }
+    }
+
+    /**
+     * Schedule {@code key} for {@code deadlineMillis}, replacing its previous deadline.
+     */
+    void schedule(K key, long deadlineMillis) {
+        deadlines.put(key, deadlineMillis);
+        place(new Entry<>(key, deadlineMillis));
+    }
+
+    void cancel(K key) {
+        deadlines.remove(key);
+    }
+
+    void clear() {
+        deadlines.clear();
+        levels.clear();
+        due.clear();
+    }
+
+    /**
+     * Clear the wheel and restart its clock at {@code startMillis} with a new tick.
+     */
+    void reset(long tickMillis, long startMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tickMillis must be positive");
+        }
+        clear();
+        this.tickMillis = tickMillis;
+        this.currentTick = Math.floorDiv(startMillis, tickMillis);
+    }
+
+    /**
+     * @return Deadline of a scheduled key, or null if it is not scheduled
+     */
+    Long deadline(K key) {
+        return deadlines.get(key);
+    }
+
+    int size() {
+        return deadlines.size();
+    }
+
+    /**
+     * Move the clock forward to {@code nowMillis}, cascading and expiring slots on the way.
+     *
+     * @return Keys whose deadline has been reached, with their deadlines, tick by tick;
+     *         they are no longer scheduled
+     */
+    Map<K, Long> advance(long nowMillis) {
+        Map<K, Long> expired = new LinkedHashMap<>();
+        drain(due, expired);
+
+        long targetTick = Math.floorDiv(nowMillis, tickMillis);
+        if (deadlines.isEmpty()) {
+            // Only stale entries left; nothing to step through
+            levels.clear();
+            currentTick = Math.max(currentTick, targetTick);
+            return expired;
+        }
+        while (currentTick < targetTick) {
+            currentTick++;
+            // Higher levels first, so what they release can still cascade further this tick
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                long span = spans[level];
+                if (currentTick % span == 0) {
+                    ArrayDeque<Entry<K>> slot = levels.get(level)[(int) ((currentTick / span) % slots)];
+                    // Copied first: on the top level an entry can land in the same slot again
+                    List<Entry<K>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    for (Entry<K> entry : cascading) {
+                        if (isCurrent(entry)) {
+                            place(entry);
+                        }
+                    }
+                }
+            }
+            if (!levels.isEmpty()) {
+                drain(levels.get(0)[(int) (currentTick % slots)], expired);
+            }
+            drain(due, expired);
+        }
+        return expired;
+    }
+
+    private void drain(ArrayDeque<Entry<K>> entries, Map<K, Long> expired) {
+        for (Entry<K> entry; (entry = entries.poll()) != null; ) {
+            if (isCurrent(entry)) {
+                deadlines.remove(entry.key());
+                expired.put(entry.key(), entry.deadline());
+            }
+        }
+    }
+
+    private boolean isCurrent(Entry<K> entry) {
+        Long deadline = deadlines.get(entry.key());
+        return deadline != null && deadline == entry.deadline();
+    }
+
+    private void place(Entry<K> entry) {
+        // First tick boundary at or after the deadline
+        long tick = Math.floorDiv(entry.deadline() + tickMillis - 1, tickMillis);
+        if (tick <= currentTick) {
+            due.add(entry);
+            return;
+        }
+        for (int level = 0; level < MAX_LEVELS; level++) {
+            long span = spans[level];
+            // Slots ahead of the current one at this level; a full turn or more needs the next level
+            if (tick / span - currentTick / span < slots || level == MAX_LEVELS - 1) {
+                slotsOf(level)[(int) ((tick / span) % slots)].add(entry);
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private ArrayDeque<Entry<K>>[] slotsOf(int level) {
+        while (levels.size() <= level) {
+            ArrayDeque<Entry<K>>[] wheel = new ArrayDeque[slots];
+            for (int i = 0; i < slots; i++) {
+                wheel[i] = new ArrayDeque<>();
+            }
+            levels.add(wheel);
+        }
+        return levels.get(level);
+    }
+}
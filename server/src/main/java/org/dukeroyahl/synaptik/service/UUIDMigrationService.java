@@ -0,0 +1,551 @@
+package org.dukeroyahl.synaptik.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.CountOptions;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import io.quarkus.mongodb.FindOptions;
+import io.quarkus.mongodb.reactive.ReactiveMongoCollection;
+import io.quarkus.runtime.StartupEvent;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
+import org.bson.BsonDocument;
+import org.bson.BsonNull;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.dukeroyahl.synaptik.domain.Project;
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.util.UUIDCodec;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.logging.Logger;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Rewrites stored UUIDs (_id, projectId, depends) into the representation selected by
+ * {@link UUIDStorage}, in batches and without taking the application offline.
+ *
+ * On startup it checks whether any document still uses another representation and tells
+ * {@link UUIDStorage} whether lookups must match both forms. The migration itself is
+ * started through the admin API, or on startup when
+ * {@code synaptik.mongodb.uuid-migration.auto-start} is set.
+ *
+ * Documents are read in _id order, one BSON type of _id at a time, so a batch of documents
+ * that cannot be converted is stepped over rather than read again. The application keeps
+ * writing meanwhile, so every write matches the version and updatedAt that were read; a
+ * document changed in between is skipped and picked up by another pass over the
+ * collection, up to {@value #MAX_PASSES} passes.
+ */
+@ApplicationScoped
+public class UUIDMigrationService {
+
+    private static final Logger logger = Logger.getLogger(UUIDMigrationService.class);
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private static final FindOptions ID_ONLY = new FindOptions().projection(new Document("_id", 1));
+
+    // Range queries on _id only match values of the same BSON type, so each is paged on its own
+    private static final List<String> ID_TYPES = List.of("string", "objectId", "binData");
+
+    // Passes over a collection while documents keep changing under the migration
+    static final int MAX_PASSES = 3;
+
+    @ConfigProperty(name = "synaptik.mongodb.uuid-migration.auto-start", defaultValue = "false")
+    boolean autoStart;
+
+    @ConfigProperty(name = "synaptik.mongodb.uuid-migration.batch-size", defaultValue = "500")
+    int batchSize;
+
+    public enum State {
+        IDLE,
+        RUNNING,
+        COMPLETED,
+        FAILED
+    }
+
+    /**
+     * Progress of one collection.
+     */
+    public record CollectionProgress(long remaining, long migrated, long failed) {}
+
+    /**
+     * Snapshot of the migration state returned by the admin API.
+     */
+    public record Progress(State state, String representation, boolean mixed,
+                           Map<String, CollectionProgress> collections,
+                           Instant startedAt, Instant finishedAt, String error) {}
+
+    private static final class Counters {
+        final AtomicLong remaining = new AtomicLong();
+        final AtomicLong migrated = new AtomicLong();
+        // Per pass: documents that cannot be written, and those changed since they were read
+        final AtomicLong failed = new AtomicLong();
+        final AtomicLong changed = new AtomicLong();
+
+        CollectionProgress snapshot() {
+            return new CollectionProgress(remaining.get(), migrated.get(), failed.get() + changed.get());
+        }
+    }
+
+    /**
+     * A document whose _id changes representation: inserted under the new _id, then the
+     * old one deleted.
+     *
+     * @param from Filter on the old document as it was read
+     * @param to Filter on the inserted copy
+     */
+    record Move(BsonDocument from, BsonDocument to) {}
+
+    /**
+     * Writes converting one batch of documents. Every write matches the _id, version and
+     * updatedAt that were read, so a document changed in the meantime is left alone.
+     *
+     * @param writes Replaces of documents keeping their _id, and inserts of moved ones
+     * @param moves Move per insert index
+     * @param unconvertible _id of each document holding a value that is not a UUID
+     */
+    record Batch(List<WriteModel<BsonDocument>> writes, Map<Integer, Move> moves,
+                 List<BsonValue> unconvertible) {
+
+        int replaces() {
+            return writes.size() - moves.size();
+        }
+    }
+
+    private volatile State state = State.IDLE;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String error;
+    private final Map<String, Counters> counters = new LinkedHashMap<>();
+
+    void onStart(@Observes StartupEvent event) {
+        checkConsistency()
+            .subscribe().with(
+                legacy -> {
+                    if (legacy && autoStart) {
+                        start();
+                    }
+                },
+                failure -> logger.warnf("Could not check UUID representation: %s", failure.getMessage()));
+    }
+
+    /**
+     * Check both collections for UUIDs stored in a representation other than the configured one
+     * and update {@link UUIDStorage#setMixed(boolean)} accordingly. Legacy ObjectIds need
+     * migrating but do not make lookups mixed, since no UUID lookup can match them.
+     *
+     * @return true if legacy representations were found
+     */
+    public Uni<Boolean> checkConsistency() {
+        return anyMatch(legacyFilter(UUIDStorage.mode()))
+            .chain(legacy -> refreshMixed()
+                .invoke(mixed -> logger.infof("UUID representation: %s, legacy documents present: %s, mixed: %s",
+                    UUIDStorage.mode(), legacy, mixed))
+                .replaceWith(legacy));
+    }
+
+    /**
+     * Set {@link UUIDStorage#setMixed(boolean)} from whether any UUID is still stored in the
+     * other representation.
+     */
+    private Uni<Boolean> refreshMixed() {
+        return anyMatch(mixedFilter(UUIDStorage.mode()))
+            .invoke(UUIDStorage::setMixed);
+    }
+
+    private static Uni<Boolean> anyMatch(Document filter) {
+        CountOptions firstOnly = new CountOptions().limit(1);
+        return Task.mongoCollection().countDocuments(filter, firstOnly)
+            .chain(tasks -> Project.mongoCollection().countDocuments(filter, firstOnly)
+                .map(projects -> tasks + projects > 0));
+    }
+
+    /**
+     * Start the migration in the background. Does nothing if it is already running.
+     *
+     * @return Progress at the time of the call
+     */
+    public synchronized Progress start() {
+        if (state == State.RUNNING) {
+            return progress();
+        }
+
+        state = State.RUNNING;
+        startedAt = Instant.now();
+        finishedAt = null;
+        error = null;
+        counters.clear();
+        counters.put("tasks", new Counters());
+        counters.put("projects", new Counters());
+        // Lookups must match both representations while documents are being rewritten
+        UUIDStorage.setMixed(true);
+        logger.infof("Starting UUID migration to %s representation (batch size %d)", UUIDStorage.mode(), batchSize);
+
+        migrate(Task.mongoCollection().withDocumentClass(BsonDocument.class), counters.get("tasks"))
+            .chain(() -> migrate(Project.mongoCollection().withDocumentClass(BsonDocument.class), counters.get("projects")))
+            // Documents left behind may only hold legacy ObjectIds, which do not need both forms
+            .chain(this::refreshMixed)
+            .subscribe().with(ignored -> finish(), this::fail);
+
+        return progress();
+    }
+
+    /**
+     * @return Current migration progress
+     */
+    public synchronized Progress progress() {
+        Map<String, CollectionProgress> collections = new LinkedHashMap<>();
+        counters.forEach((name, c) -> collections.put(name, c.snapshot()));
+        return new Progress(state, UUIDStorage.mode().name().toLowerCase(), UUIDStorage.isMixed(),
+            collections, startedAt, finishedAt, error);
+    }
+
+    private synchronized void finish() {
+        long failed = counters.values().stream().mapToLong(c -> c.failed.get()).sum();
+        finishedAt = Instant.now();
+        if (failed == 0) {
+            state = State.COMPLETED;
+            logger.infof("UUID migration completed: %s", progress().collections());
+        } else {
+            state = State.FAILED;
+            error = failed + " documents could not be converted";
+            logger.warnf("UUID migration finished with errors: %s", progress().collections());
+        }
+    }
+
+    private synchronized void fail(Throwable failure) {
+        state = State.FAILED;
+        finishedAt = Instant.now();
+        error = failure.getMessage();
+        logger.errorf(failure, "UUID migration failed");
+    }
+
+    /**
+     * Migrate a collection, going over it again while documents were skipped because they
+     * changed after being read.
+     */
+    private Uni<Void> migrate(ReactiveMongoCollection<BsonDocument> collection, Counters progress) {
+        AtomicInteger passes = new AtomicInteger();
+        return Multi.createBy().repeating()
+            .uni(() -> migratePass(collection, progress))
+            .whilst(changed -> {
+                if (changed == 0 || passes.incrementAndGet() >= MAX_PASSES) {
+                    return false;
+                }
+                logger.infof("UUID migration: %d documents changed while being migrated, going over them again", changed);
+                return true;
+            })
+            .collect().last()
+            .replaceWithVoid();
+    }
+
+    /**
+     * @return Documents skipped because they changed after being read
+     */
+    private Uni<Long> migratePass(ReactiveMongoCollection<BsonDocument> collection, Counters progress) {
+        progress.failed.set(0);
+        progress.changed.set(0);
+        Document legacy = legacyFilter(UUIDStorage.mode());
+        Uni<Void> pass = collection.countDocuments(legacy)
+            .invoke(progress.remaining::set)
+            .replaceWithVoid();
+        for (String idType : ID_TYPES) {
+            pass = pass.chain(() -> migrateIdType(collection, legacy, idType, progress));
+        }
+        return pass.map(ignored -> progress.changed.get());
+    }
+
+    /**
+     * Convert the legacy documents whose _id is of one BSON type, in _id order.
+     */
+    private Uni<Void> migrateIdType(ReactiveMongoCollection<BsonDocument> collection, Document legacy,
+                                    String idType, Counters progress) {
+        // Last _id read; converted documents no longer match, skipped ones are stepped over
+        AtomicReference<BsonValue> lastId = new AtomicReference<>();
+        return Multi.createBy().repeating()
+            .uni(() -> {
+                Document id = new Document("$type", idType);
+                if (lastId.get() != null) {
+                    id.append("$gt", lastId.get());
+                }
+                Document filter = new Document("$and", List.of(legacy, new Document("_id", id)));
+                return collection.find(filter, new FindOptions().sort(new Document("_id", 1)).limit(batchSize))
+                    .collect().asList()
+                    .call(documents -> {
+                        if (documents.isEmpty()) {
+                            return Uni.createFrom().voidItem();
+                        }
+                        lastId.set(documents.get(documents.size() - 1).get("_id"));
+                        return migrateBatch(collection, documents, progress);
+                    })
+                    .map(List::size);
+            })
+            .whilst(read -> read == batchSize)
+            .collect().last()
+            .replaceWithVoid();
+    }
+
+    /**
+     * Convert one batch of documents: replaces and inserts first, then the deletes of the
+     * documents whose copy under the new _id is in place.
+     */
+    private Uni<Void> migrateBatch(ReactiveMongoCollection<BsonDocument> collection, List<BsonDocument> documents,
+                                   Counters progress) {
+        Batch batch = plan(documents, UUIDStorage.mode());
+        for (BsonValue id : batch.unconvertible()) {
+            logger.warnf("UUID migration skipped document %s: not every UUID field holds a UUID", id);
+        }
+        progress.failed.addAndGet(batch.unconvertible().size());
+        if (batch.writes().isEmpty()) {
+            progress.remaining.updateAndGet(r -> Math.max(0, r - documents.size()));
+            return Uni.createFrom().voidItem();
+        }
+
+        return collection.bulkWrite(batch.writes(), new BulkWriteOptions().ordered(false))
+            .map(result -> written(batch, result, List.of(), progress))
+            .onFailure(MongoBulkWriteException.class).recoverWithItem(failure -> {
+                MongoBulkWriteException bulkFailure = (MongoBulkWriteException) failure;
+                return written(batch, bulkFailure.getWriteResult(), bulkFailure.getWriteErrors(), progress);
+            })
+            .chain(inserted -> deleteMoved(collection, inserted, progress))
+            .invoke(() -> {
+                progress.remaining.updateAndGet(r -> Math.max(0, r - documents.size()));
+                logger.infof("UUID migration: %d migrated, %d remaining, %d failed, %d changed meanwhile",
+                    progress.migrated.get(), progress.remaining.get(), progress.failed.get(), progress.changed.get());
+            });
+    }
+
+    /**
+     * Count the replaces and sort out the inserts of a bulk write.
+     *
+     * A duplicate key on insert means the document is already stored under its new _id,
+     * rewritten by the application (see BaseEntity#persistOrUpdate) or by an earlier run,
+     * so the old copy can go as for a successful insert. Any other error is a failure and
+     * leaves the old document in place.
+     *
+     * @return Moves whose old document is to be deleted
+     */
+    private static List<Move> written(Batch batch, BulkWriteResult result, List<BulkWriteError> errors,
+                                      Counters progress) {
+        Set<Integer> failedInserts = new HashSet<>();
+        int failedReplaces = 0;
+        for (BulkWriteError writeError : errors) {
+            boolean insert = batch.moves().containsKey(writeError.getIndex());
+            if (insert && writeError.getCode() == DUPLICATE_KEY) {
+                continue;
+            }
+            logger.warnf("UUID migration write failed: %s", writeError.getMessage());
+            progress.failed.incrementAndGet();
+            if (insert) {
+                failedInserts.add(writeError.getIndex());
+            } else {
+                failedReplaces++;
+            }
+        }
+        // A replace that matched nothing found the document changed (or deleted) since the read
+        progress.migrated.addAndGet(result.getModifiedCount());
+        progress.changed.addAndGet(Math.max(0, batch.replaces() - failedReplaces - result.getMatchedCount()));
+
+        List<Move> inserted = new ArrayList<>();
+        batch.moves().forEach((index, move) -> {
+            if (!failedInserts.contains(index)) {
+                inserted.add(move);
+            }
+        });
+        return inserted;
+    }
+
+    /**
+     * Delete the old documents of the moves, each only as it was read. One that changed in
+     * the meantime is kept, and the copy inserted from the older read is removed again, so
+     * the next pass moves it with its changes.
+     */
+    private Uni<Void> deleteMoved(ReactiveMongoCollection<BsonDocument> collection, List<Move> moves,
+                                  Counters progress) {
+        if (moves.isEmpty()) {
+            return Uni.createFrom().voidItem();
+        }
+        List<WriteModel<BsonDocument>> deletes = new ArrayList<>();
+        for (Move move : moves) {
+            deletes.add(new DeleteOneModel<>(move.from()));
+        }
+        return collection.bulkWrite(deletes, new BulkWriteOptions().ordered(false))
+            .chain(result -> {
+                progress.migrated.addAndGet(result.getDeletedCount());
+                if (result.getDeletedCount() == moves.size()) {
+                    return Uni.createFrom().voidItem();
+                }
+                return undoChangedMoves(collection, moves, progress);
+            });
+    }
+
+    private Uni<Void> undoChangedMoves(ReactiveMongoCollection<BsonDocument> collection, List<Move> moves,
+                                       Counters progress) {
+        Map<BsonValue, Move> byOldId = new LinkedHashMap<>();
+        for (Move move : moves) {
+            byOldId.put(move.from().get("_id"), move);
+        }
+        return collection.find(new BsonDocument("_id", new BsonDocument("$in", new BsonArray(new ArrayList<>(byOldId.keySet())))),
+                ID_ONLY)
+            .map(survivor -> byOldId.get(survivor.get("_id")))
+            .collect().asList()
+            .chain(changed -> {
+                progress.changed.addAndGet(changed.size());
+                List<WriteModel<BsonDocument>> undos = new ArrayList<>();
+                for (Move move : changed) {
+                    // Only the copy as inserted; one the application has written since stays
+                    undos.add(new DeleteOneModel<>(move.to()));
+                }
+                return undos.isEmpty()
+                    ? Uni.createFrom().voidItem()
+                    : collection.bulkWrite(undos, new BulkWriteOptions().ordered(false)).replaceWithVoid();
+            });
+    }
+
+    /**
+     * Writes converting the documents into the given representation: a replace when the _id
+     * keeps its value, otherwise an insert under the new _id (the old one is deleted once
+     * the insert is in place). Each write is guarded on the version and updatedAt read.
+     */
+    static Batch plan(List<BsonDocument> documents, UUIDStorage.Mode mode) {
+        List<WriteModel<BsonDocument>> writes = new ArrayList<>();
+        Map<Integer, Move> moves = new LinkedHashMap<>();
+        List<BsonValue> unconvertible = new ArrayList<>();
+        for (BsonDocument document : documents) {
+            BsonValue oldId = document.get("_id");
+            BsonDocument converted = convert(document, mode);
+            if (converted == null) {
+                unconvertible.add(oldId);
+                continue;
+            }
+            BsonValue newId = converted.get("_id");
+            if (newId.equals(oldId)) {
+                writes.add(new ReplaceOneModel<>(asRead(oldId, document), converted));
+            } else {
+                moves.put(writes.size(), new Move(asRead(oldId, document), asRead(newId, document)));
+                writes.add(new InsertOneModel<>(converted));
+            }
+        }
+        return new Batch(writes, moves, unconvertible);
+    }
+
+    /**
+     * @return Filter matching the document under {@code id} only with the version and
+     *         updatedAt it was read with; a missing field matches null
+     */
+    static BsonDocument asRead(BsonValue id, BsonDocument read) {
+        return new BsonDocument("_id", id)
+            .append("version", read.get("version", BsonNull.VALUE))
+            .append("updatedAt", read.get("updatedAt", BsonNull.VALUE));
+    }
+
+    /**
+     * Filter matching documents with any UUID field in a representation other than {@code mode}.
+     */
+    static Document legacyFilter(UUIDStorage.Mode mode) {
+        return typeFilter(mode == UUIDStorage.Mode.BINARY
+            ? List.of("string", "objectId")
+            : List.of("binData", "objectId"));
+    }
+
+    /**
+     * Filter matching documents with any UUID field stored in the other UUID representation,
+     * which lookups in {@code mode} must then match as well.
+     */
+    static Document mixedFilter(UUIDStorage.Mode mode) {
+        return typeFilter(List.of(mode == UUIDStorage.Mode.BINARY ? "string" : "binData"));
+    }
+
+    private static Document typeFilter(List<String> types) {
+        Document type = new Document("$type", types);
+        return new Document("$or", List.of(
+            new Document("_id", type),
+            new Document("projectId", type),
+            new Document("depends", type)));
+    }
+
+    /**
+     * Rewrite the UUID fields of a document into the given representation.
+     *
+     * @return The converted copy, or null if a field holds a value that is not a UUID
+     */
+    static BsonDocument convert(BsonDocument document, UUIDStorage.Mode mode) {
+        BsonDocument converted = document.clone();
+        for (String field : List.of("_id", "projectId")) {
+            BsonValue value = document.get(field);
+            if (value != null && !value.isNull()) {
+                BsonValue rewritten = rewrite(value, mode);
+                if (rewritten == null) {
+                    return null;
+                }
+                converted.put(field, rewritten);
+            }
+        }
+
+        BsonValue depends = document.get("depends");
+        if (depends != null && depends.isArray()) {
+            BsonArray rewritten = new BsonArray();
+            for (BsonValue value : depends.asArray()) {
+                BsonValue uuid = rewrite(value, mode);
+                if (uuid == null) {
+                    return null;
+                }
+                rewritten.add(uuid);
+            }
+            converted.put("depends", rewritten);
+        }
+        return converted;
+    }
+
+    private static BsonValue rewrite(BsonValue value, UUIDStorage.Mode mode) {
+        UUID uuid = toUuid(value);
+        return uuid == null ? null : UUIDStorage.toBson(uuid, mode);
+    }
+
+    private static UUID toUuid(BsonValue value) {
+        switch (value.getBsonType()) {
+            case STRING:
+                try {
+                    return UUID.fromString(value.asString().getValue());
+                } catch (IllegalArgumentException e) {
+                    return null;
+                }
+            case BINARY:
+                BsonBinary binary = value.asBinary();
+                if (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+                    return binary.asUuid();
+                }
+                if (binary.getType() == BsonBinarySubType.UUID_LEGACY.getValue()) {
+                    return binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+                }
+                return null;
+            case OBJECT_ID:
+                return UUIDCodec.fromObjectId(value.asObjectId().getValue());
+            default:
+                return null;
+        }
+    }
+}
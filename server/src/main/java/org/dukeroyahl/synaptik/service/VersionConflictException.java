@@ -0,0 +1,19 @@
+package org.dukeroyahl.synaptik.service;
+
+/**
+ * A conditional update did not apply because the entity has changed since the version
+ * the client read.
+ */
+public class VersionConflictException extends RuntimeException {
+
+    private final Long currentVersion;
+
+    public VersionConflictException(Long expectedVersion, Long currentVersion) {
+        super("Version conflict: expected version " + expectedVersion + " but the current version is " + currentVersion);
+        this.currentVersion = currentVersion;
+    }
+
+    public Long getCurrentVersion() {
+        return currentVersion;
+    }
+}
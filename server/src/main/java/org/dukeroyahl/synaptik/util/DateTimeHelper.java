@@ -1,10 +1,15 @@
 package org.dukeroyahl.synaptik.util;
 
+import java.time.Instant;
 import java.time.ZonedDateTime;
 import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.Year;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
 
 /**
  * Utility class for consistent ISO 8601 date/time handling with timezone support.
@@ -19,12 +24,15 @@ public class DateTimeHelper {
     
     public static final String DEFAULT_TIMEZONE = "UTC";
     
+    // Zone applied to inputs that carry no offset
+    private static final ZoneId UTC_ZONE = ZoneId.of("UTC");
+    
     /**
      * Get current time as ISO 8601 string in UTC.
      * @return ISO 8601 string like "2025-08-11T14:30:00Z"
      */
     public static String nowUtc() {
-        return ZonedDateTime.now(ZoneId.of("UTC")).format(DateTimeFormatter.ISO_INSTANT);
+        return ZonedDateTime.now(UTC_ZONE).format(DateTimeFormatter.ISO_INSTANT);
     }
     
     /**
@@ -40,17 +48,33 @@ public class DateTimeHelper {
     /**
      * Parse an ISO 8601 date string to ZonedDateTime.
      * Handles various ISO 8601 formats with and without timezone.
+     * The canonical shapes the server writes are decoded by an exception-free fast path;
+     * anything else (region IDs, unusual layouts) goes through the general parsers.
      * 
      * @param dateString ISO 8601 date string
      * @return ZonedDateTime or null if parsing fails
      */
     public static ZonedDateTime parseIso8601(String dateString) {
-        if (dateString == null || dateString.trim().isEmpty()) {
+        if (dateString == null) {
             return null;
         }
         
-        String normalized = dateString.trim();
+        ZonedDateTime fast = parseCanonical(dateString);
+        if (fast != null) {
+            return fast;
+        }
         
+        if (dateString.trim().isEmpty()) {
+            return null;
+        }
+        return parseGeneral(dateString.trim());
+    }
+    
+    /**
+     * General parser: tries ZonedDateTime, then LocalDateTime (assumed UTC), then date-only
+     * (assumed end of day UTC). Only used when the fast path does not recognise the input.
+     */
+    private static ZonedDateTime parseGeneral(String normalized) {
         try {
             // Try parsing as ZonedDateTime first (with timezone info)
             return ZonedDateTime.parse(normalized);
@@ -58,16 +82,122 @@ public class DateTimeHelper {
             try {
                 // Try parsing as LocalDateTime and assume UTC
                 LocalDateTime localDateTime = LocalDateTime.parse(normalized);
-                return localDateTime.atZone(ZoneId.of("UTC"));
+                return localDateTime.atZone(UTC_ZONE);
             } catch (DateTimeParseException e2) {
-                // Try parsing date-only format and assume end of day UTC
-                if (normalized.matches("\\d{4}-\\d{2}-\\d{2}")) {
-                    LocalDateTime localDateTime = LocalDateTime.parse(normalized + "T23:59:59");
-                    return localDateTime.atZone(ZoneId.of("UTC"));
+                // Date-only input is handled by the fast path; anything left is unparseable
+                return null;
+            }
+        }
+    }
+    
+    /**
+     * Exception-free decoder for the canonical layouts written by this server:
+     * {@code yyyy-MM-dd}, {@code yyyy-MM-ddTHH:mm[:ss[.fffffffff]]} optionally followed by
+     * {@code Z} or {@code ±HH:MM}. Inputs without an offset are interpreted as UTC and
+     * date-only inputs as end of day UTC, the same results the general path produces.
+     * 
+     * @param s Input string (surrounding whitespace is ignored)
+     * @return ZonedDateTime, or null if the input is not in a canonical layout
+     */
+    static ZonedDateTime parseCanonical(String s) {
+        int start = 0;
+        int end = s.length();
+        while (start < end && s.charAt(start) <= ' ') start++;
+        while (end > start && s.charAt(end - 1) <= ' ') end--;
+        
+        if (end - start < 10 || s.charAt(start + 4) != '-' || s.charAt(start + 7) != '-') {
+            return null;
+        }
+        int year = digits(s, start, 4);
+        int month = digits(s, start + 5, 2);
+        int day = digits(s, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1
+                || day > Month.of(month).length(Year.isLeap(year))) {
+            return null;
+        }
+        
+        if (end - start == 10) {
+            return ZonedDateTime.of(year, month, day, 23, 59, 59, 0, UTC_ZONE);
+        }
+        
+        int pos = start + 10;
+        if (end - pos < 6 || s.charAt(pos) != 'T' || s.charAt(pos + 3) != ':') {
+            return null;
+        }
+        int hour = digits(s, pos + 1, 2);
+        int minute = digits(s, pos + 4, 2);
+        if (hour < 0 || hour > 23 || minute < 0 || minute > 59) {
+            return null;
+        }
+        pos += 6;
+        
+        int second = 0;
+        int nano = 0;
+        if (pos < end && s.charAt(pos) == ':') {
+            second = pos + 3 <= end ? digits(s, pos + 1, 2) : -1;
+            if (second < 0 || second > 59) {
+                return null;
+            }
+            pos += 3;
+            if (pos < end && s.charAt(pos) == '.') {
+                pos++;
+                int fractionStart = pos;
+                while (pos < end && pos - fractionStart < 9 && isDigit(s.charAt(pos))) {
+                    nano = nano * 10 + (s.charAt(pos) - '0');
+                    pos++;
+                }
+                int fractionDigits = pos - fractionStart;
+                if (fractionDigits == 0) {
+                    return null;
                 }
+                for (int i = fractionDigits; i < 9; i++) {
+                    nano *= 10;
+                }
+            }
+        }
+        
+        if (pos == end) {
+            return ZonedDateTime.of(year, month, day, hour, minute, second, nano, UTC_ZONE);
+        }
+        
+        ZoneOffset offset;
+        char sign = s.charAt(pos);
+        if (sign == 'Z' && pos + 1 == end) {
+            offset = ZoneOffset.UTC;
+        } else if ((sign == '+' || sign == '-') && end - pos == 6 && s.charAt(pos + 3) == ':') {
+            int offsetHours = digits(s, pos + 1, 2);
+            int offsetMinutes = digits(s, pos + 4, 2);
+            if (offsetHours < 0 || offsetHours > 18 || offsetMinutes < 0 || offsetMinutes > 59
+                    || (offsetHours == 18 && offsetMinutes != 0)) {
                 return null;
             }
+            int totalSeconds = offsetHours * 3600 + offsetMinutes * 60;
+            offset = ZoneOffset.ofTotalSeconds(sign == '-' ? -totalSeconds : totalSeconds);
+        } else {
+            return null;
+        }
+        
+        return ZonedDateTime.of(year, month, day, hour, minute, second, nano, offset);
+    }
+    
+    /**
+     * Read {@code count} decimal digits starting at {@code offset}.
+     * @return The parsed value, or -1 if any character is not a digit
+     */
+    private static int digits(String s, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            char c = s.charAt(i);
+            if (!isDigit(c)) {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
         }
+        return value;
+    }
+    
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
     }
     
     /**
@@ -124,6 +254,51 @@ public class DateTimeHelper {
         return date1.isBefore(date2);
     }
     
+    /**
+     * Check if a date is before an already parsed reference instant.
+     * Prefer this over {@link #isBefore(String, String)} when comparing many rows against
+     * the same reference, so the reference is parsed once instead of per row.
+     * 
+     * @param dateString Date as ISO 8601 string
+     * @param reference Reference date/time
+     * @return true if dateString is before reference
+     */
+    public static boolean isBefore(String dateString, ZonedDateTime reference) {
+        ZonedDateTime date = parseIso8601(dateString);
+        if (date == null || reference == null) {
+            return false;
+        }
+        
+        return date.isBefore(reference);
+    }
+    
+    /**
+     * Convert a date to the UTC key stored next to it for sorting and scheduling (dueAt,
+     * waitAt): second precision, e.g. "2025-12-31T23:59:59Z", which sorts as a string.
+     * 
+     * @param dateString Date as ISO 8601 string
+     * @return The key, or null if the date is missing or unparseable
+     */
+    public static String toUtcKey(String dateString) {
+        ZonedDateTime date = parseIso8601(dateString);
+        return date != null ? date.toInstant().truncatedTo(ChronoUnit.SECONDS).toString() : null;
+    }
+    
+    /**
+     * @param key UTC key as written by {@link #toUtcKey(String)}
+     * @return Its epoch milliseconds, or null if the key is missing or malformed
+     */
+    public static Long utcKeyMillis(String key) {
+        if (key == null) {
+            return null;
+        }
+        try {
+            return Instant.parse(key).toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+    
     /**
      * Check if a date falls within a date range in a specific timezone.
      * 
@@ -151,9 +326,7 @@ public class DateTimeHelper {
      * @return ZonedDateTime representing start of today in the timezone
      */
     public static ZonedDateTime startOfDayInTimezone(String timezone) {
-        ZoneId zone = parseTimezone(timezone);
-        return ZonedDateTime.now(zone)
-                .withHour(0).withMinute(0).withSecond(0).withNano(0);
+        return TimezoneResolver.today(parseTimezone(timezone)).start();
     }
     
     /**
@@ -163,26 +336,17 @@ public class DateTimeHelper {
      * @return ZonedDateTime representing end of today in the timezone
      */
     public static ZonedDateTime endOfDayInTimezone(String timezone) {
-        ZoneId zone = parseTimezone(timezone);
-        return ZonedDateTime.now(zone)
-                .withHour(23).withMinute(59).withSecond(59).withNano(999_000_000);
+        return TimezoneResolver.today(parseTimezone(timezone)).end();
     }
     
     /**
      * Parse timezone string to ZoneId with fallback to UTC.
+     * Resolution is cached by {@link TimezoneResolver}.
      * 
      * @param timezone Timezone string
      * @return ZoneId (never null)
      */
     public static ZoneId parseTimezone(String timezone) {
-        if (timezone == null || timezone.trim().isEmpty()) {
-            return ZoneId.of(DEFAULT_TIMEZONE);
-        }
-        
-        try {
-            return ZoneId.of(timezone.trim());
-        } catch (Exception e) {
-            return ZoneId.of(DEFAULT_TIMEZONE);
-        }
+        return TimezoneResolver.resolveOrDefault(timezone, UTC_ZONE);
     }
 }
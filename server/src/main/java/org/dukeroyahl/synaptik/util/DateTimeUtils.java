@@ -1,5 +1,7 @@
 package org.dukeroyahl.synaptik.util;
 
+import org.jboss.logging.Logger;
+
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 
@@ -10,8 +12,12 @@ import java.time.ZonedDateTime;
  */
 public class DateTimeUtils {
     
+    private static final Logger logger = Logger.getLogger(DateTimeUtils.class);
+    
     public static final String DEFAULT_TIMEZONE = "America/New_York"; // Fallback timezone
     
+    private static final ZoneId DEFAULT_ZONE = ZoneId.of(DEFAULT_TIMEZONE);
+    
     /**
      * Get current time in user's timezone
      */
@@ -95,20 +101,11 @@ public class DateTimeUtils {
     }
     
     /**
-     * Parse timezone string safely with fallback
+     * Parse timezone string safely with fallback.
+     * Resolution (including invalid input) is cached by {@link TimezoneResolver}.
      */
     private static ZoneId parseTimezone(String userTimezone) {
-        if (userTimezone == null || userTimezone.trim().isEmpty()) {
-            return ZoneId.of(DEFAULT_TIMEZONE);
-        }
-        
-        try {
-            return ZoneId.of(userTimezone);
-        } catch (Exception e) {
-            // Log warning and use default
-            System.err.println("Invalid timezone: " + userTimezone + ", using default: " + DEFAULT_TIMEZONE);
-            return ZoneId.of(DEFAULT_TIMEZONE);
-        }
+        return TimezoneResolver.resolveOrDefault(userTimezone, DEFAULT_ZONE);
     }
     
     /**
@@ -145,7 +142,7 @@ public class DateTimeUtils {
             ZoneId userZone = parseTimezone(userTimezone);
             return ZonedDateTime.parse(dateTimeStr + "[" + userZone.getId() + "]");
         } catch (Exception e) {
-            System.err.println("Failed to parse date: " + dateTimeStr + " with timezone: " + userTimezone);
+            logger.warnf("Failed to parse date: %s with timezone: %s", dateTimeStr, userTimezone);
             return null;
         }
     }
@@ -0,0 +1,157 @@
+package org.dukeroyahl.synaptik.util;
+
+import org.jboss.logging.Logger;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared, bounded cache for timezone query parameters.
+ *
+ * Resolves timezone IDs once and remembers both valid zones and invalid inputs, so the
+ * {@code tz} parameter costs a map lookup on hot endpoints. Also caches the start and
+ * end of a calendar day per zone, which the "today" and date range filters recompute on
+ * every request otherwise. Both caches are cleared when they reach their size bound.
+ */
+public final class TimezoneResolver {
+
+    private static final Logger logger = Logger.getLogger(TimezoneResolver.class);
+
+    public static final int MAX_CACHED_ZONES = 512;
+    public static final int MAX_CACHED_DAYS = 2048;
+
+    // Optional.empty() marks an input that is known to be invalid
+    private static final ConcurrentHashMap<String, Optional<ZoneId>> ZONES = new ConcurrentHashMap<>();
+    private static final ConcurrentHashMap<DayKey, DayBounds> DAY_BOUNDS = new ConcurrentHashMap<>();
+
+    private static final LongAdder ZONE_HITS = new LongAdder();
+    private static final LongAdder ZONE_MISSES = new LongAdder();
+    private static final LongAdder INVALID_ZONES = new LongAdder();
+    private static final LongAdder DAY_HITS = new LongAdder();
+    private static final LongAdder DAY_MISSES = new LongAdder();
+
+    /**
+     * Start (00:00:00) and end (23:59:59.999) of a calendar day in a zone.
+     */
+    public record DayBounds(ZonedDateTime start, ZonedDateTime end) {}
+
+    /**
+     * Snapshot of the resolver counters.
+     */
+    public record Stats(long zoneHits, long zoneMisses, long invalidZones, int cachedZones,
+                        long dayHits, long dayMisses, int cachedDays) {}
+
+    private record DayKey(ZoneId zone, LocalDate day) {}
+
+    private TimezoneResolver() {
+    }
+
+    /**
+     * Resolve a timezone ID.
+     *
+     * @param timezone Timezone ID (e.g., "America/New_York", "UTC", "+02:00")
+     * @return The zone, or empty if the input is blank or not a valid zone ID
+     */
+    public static Optional<ZoneId> resolve(String timezone) {
+        if (timezone == null) {
+            return Optional.empty();
+        }
+
+        Optional<ZoneId> cached = ZONES.get(timezone);
+        if (cached != null) {
+            ZONE_HITS.increment();
+            return cached;
+        }
+
+        ZONE_MISSES.increment();
+        Optional<ZoneId> resolved = parse(timezone);
+        if (ZONES.size() >= MAX_CACHED_ZONES) {
+            ZONES.clear();
+        }
+        ZONES.put(timezone, resolved);
+        return resolved;
+    }
+
+    /**
+     * Resolve a timezone ID, falling back to the given zone for blank or invalid input.
+     *
+     * @param timezone Timezone ID
+     * @param fallback Zone to use when the input cannot be resolved
+     * @return ZoneId (never null)
+     */
+    public static ZoneId resolveOrDefault(String timezone, ZoneId fallback) {
+        return resolve(timezone).orElse(fallback);
+    }
+
+    /**
+     * Get the boundaries of a calendar day in a zone.
+     *
+     * @param zone Target timezone
+     * @param day Calendar day
+     * @return Start and end of the day
+     */
+    public static DayBounds dayBounds(ZoneId zone, LocalDate day) {
+        DayKey key = new DayKey(zone, day);
+        DayBounds cached = DAY_BOUNDS.get(key);
+        if (cached != null) {
+            DAY_HITS.increment();
+            return cached;
+        }
+
+        DAY_MISSES.increment();
+        DayBounds bounds = new DayBounds(
+            day.atStartOfDay(zone),
+            day.atTime(23, 59, 59, 999_000_000).atZone(zone));
+        if (DAY_BOUNDS.size() >= MAX_CACHED_DAYS) {
+            DAY_BOUNDS.clear();
+        }
+        DAY_BOUNDS.put(key, bounds);
+        return bounds;
+    }
+
+    /**
+     * Get the boundaries of the current day in a zone.
+     *
+     * @param zone Target timezone
+     * @return Start and end of today
+     */
+    public static DayBounds today(ZoneId zone) {
+        return dayBounds(zone, LocalDate.now(zone));
+    }
+
+    /**
+     * @return Current counter values and cache sizes
+     */
+    public static Stats stats() {
+        return new Stats(ZONE_HITS.sum(), ZONE_MISSES.sum(), INVALID_ZONES.sum(), ZONES.size(),
+            DAY_HITS.sum(), DAY_MISSES.sum(), DAY_BOUNDS.size());
+    }
+
+    /**
+     * Clear both caches. Counters are left untouched.
+     */
+    public static void clear() {
+        ZONES.clear();
+        DAY_BOUNDS.clear();
+    }
+
+    private static Optional<ZoneId> parse(String timezone) {
+        String trimmed = timezone.trim();
+        if (trimmed.isEmpty()) {
+            return Optional.empty();
+        }
+
+        try {
+            return Optional.of(ZoneId.of(trimmed));
+        } catch (Exception e) {
+            // Only logged on the first occurrence; later lookups hit the negative cache
+            INVALID_ZONES.increment();
+            logger.warnf("Invalid timezone: %s", timezone);
+            return Optional.empty();
+        }
+    }
+}
@@ -1,45 +1,104 @@
 package org.dukeroyahl.synaptik.util;
 
+import org.bson.BsonBinary;
+import org.bson.BsonBinarySubType;
 import org.bson.BsonReader;
 import org.bson.BsonType;
+import org.bson.BsonValue;
 import org.bson.BsonWriter;
+import org.bson.UuidRepresentation;
 import org.bson.codecs.Codec;
 import org.bson.codecs.DecoderContext;
 import org.bson.codecs.EncoderContext;
 import org.bson.types.ObjectId;
 
+import java.nio.ByteBuffer;
 import java.util.UUID;
 
+/**
+ * Codec for UUID fields (_id, projectId, depends).
+ * Writes the representation selected by {@link UUIDStorage}; reads string, binary
+ * (subtype 4, or legacy Java subtype 3) and legacy ObjectId values alike.
+ * Stateless, so a single instance is shared by {@link UUIDCodecProvider}.
+ */
 public class UUIDCodec implements Codec<UUID> {
 
+    // Scratch space for the 12 ObjectId bytes; avoids ObjectId.toByteArray() per decode
+    private static final ThreadLocal<ByteBuffer> OBJECT_ID_BUFFER =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocate(12));
+
     @Override
     public UUID decode(BsonReader reader, DecoderContext decoderContext) {
         BsonType bsonType = reader.getCurrentBsonType();
-        
+
         switch (bsonType) {
             case STRING:
-                // New UUID format - read as string
+                // String format - read as string
                 return UUID.fromString(reader.readString());
+            case BINARY:
+                // Binary format - standard subtype 4, or Java legacy subtype 3
+                BsonBinary binary = reader.readBinaryData();
+                if (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+                    return binary.asUuid();
+                }
+                if (binary.getType() == BsonBinarySubType.UUID_LEGACY.getValue()) {
+                    return binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+                }
+                throw new IllegalArgumentException("Cannot decode UUID from binary subtype: " + binary.getType());
             case OBJECT_ID:
                 // Legacy ObjectId format - convert to UUID
-                ObjectId objectId = reader.readObjectId();
-                // Convert ObjectId to UUID deterministically
-                String hex = objectId.toHexString();
-                // ObjectId is 24 chars, pad to 32 chars for UUID format
-                String paddedHex = String.format("%32s", hex).replace(' ', '0');
-                String formatted = paddedHex.replaceAll(
-                    "(\\w{8})(\\w{4})(\\w{4})(\\w{4})(\\w{12})", 
-                    "$1-$2-$3-$4-$5"
-                );
-                return UUID.fromString(formatted);
+                return fromObjectId(reader.readObjectId());
             default:
                 throw new IllegalArgumentException("Cannot decode UUID from BSON type: " + bsonType);
         }
     }
 
+    /**
+     * Convert a legacy ObjectId to a UUID deterministically.
+     * The 12 ObjectId bytes are left-padded with zeros to 16, i.e. the 24 hex digits
+     * become the last 24 digits of the UUID.
+     */
+    public static UUID fromObjectId(ObjectId objectId) {
+        ByteBuffer buffer = OBJECT_ID_BUFFER.get();
+        buffer.clear();
+        objectId.putToByteBuffer(buffer);
+        // Big-endian: bytes 0-3 (timestamp) form the low half of msb, bytes 4-11 the lsb
+        long mostSigBits = buffer.getInt(0) & 0xFFFFFFFFL;
+        long leastSigBits = buffer.getLong(4);
+        return new UUID(mostSigBits, leastSigBits);
+    }
+
+    /**
+     * Read a UUID from an already decoded value, e.g. the documentKey of a change event.
+     * Accepts the same representations as {@link #decode}.
+     */
+    public static UUID fromBson(BsonValue value) {
+        if (value.isString()) {
+            return UUID.fromString(value.asString().getValue());
+        }
+        if (value.isBinary()) {
+            BsonBinary binary = value.asBinary();
+            if (binary.getType() == BsonBinarySubType.UUID_STANDARD.getValue()) {
+                return binary.asUuid();
+            }
+            if (binary.getType() == BsonBinarySubType.UUID_LEGACY.getValue()) {
+                return binary.asUuid(UuidRepresentation.JAVA_LEGACY);
+            }
+            throw new IllegalArgumentException("Cannot decode UUID from binary subtype: " + binary.getType());
+        }
+        if (value.isObjectId()) {
+            return fromObjectId(value.asObjectId().getValue());
+        }
+        throw new IllegalArgumentException("Cannot decode UUID from BSON type: " + value.getBsonType());
+    }
+
     @Override
     public void encode(BsonWriter writer, UUID value, EncoderContext encoderContext) {
-        writer.writeString(value.toString());
+        if (UUIDStorage.mode() == UUIDStorage.Mode.BINARY) {
+            writer.writeBinaryData(new BsonBinary(value, UuidRepresentation.STANDARD));
+        } else {
+            writer.writeString(value.toString());
+        }
     }
 
     @Override
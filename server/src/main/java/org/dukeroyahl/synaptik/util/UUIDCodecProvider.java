@@ -14,6 +14,9 @@ public class UUIDCodecProvider implements CodecProvider {
     
     private static final Logger logger = Logger.getLogger(UUIDCodecProvider.class);
     
+    // Called for every UUID field lookup in the registry; hand out one shared codec
+    private static final UUIDCodec CODEC = new UUIDCodec();
+    
     @PostConstruct
     public void init() {
         logger.info("UUIDCodecProvider initialized as CDI bean");
@@ -23,8 +26,7 @@ public class UUIDCodecProvider implements CodecProvider {
     @SuppressWarnings("unchecked")
     public <T> Codec<T> get(Class<T> clazz, CodecRegistry registry) {
         if (clazz == UUID.class) {
-            logger.debugf("Providing UUIDCodec for class: %s", clazz.getName());
-            return (Codec<T>) new UUIDCodec();
+            return (Codec<T>) CODEC;
         }
         return null;
     }
@@ -0,0 +1,141 @@
+package org.dukeroyahl.synaptik.util;
+
+import org.bson.BsonBinary;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Decides how UUIDs are stored in MongoDB and builds lookups that stay correct while a
+ * collection holds a mix of representations.
+ *
+ * The write representation comes from {@code synaptik.mongodb.uuid-representation}
+ * ({@code string}, the legacy default, or {@code binary} for BSON subtype 4).
+ * {@link UUIDCodec} reads every representation regardless of the setting. Until the
+ * collections are known to contain only the configured representation (checked at
+ * startup and after {@code UUIDMigrationService} finishes), equality lookups built
+ * here match both the string and binary forms of a UUID.
+ */
+public final class UUIDStorage {
+
+    public static final String REPRESENTATION_PROPERTY = "synaptik.mongodb.uuid-representation";
+
+    public enum Mode {
+        STRING,
+        BINARY
+    }
+
+    private static volatile Mode mode;
+    private static volatile Boolean mixed;
+
+    private UUIDStorage() {
+    }
+
+    /**
+     * @return The representation used when writing UUIDs
+     */
+    public static Mode mode() {
+        Mode current = mode;
+        if (current == null) {
+            String configured = ConfigProvider.getConfig()
+                .getOptionalValue(REPRESENTATION_PROPERTY, String.class)
+                .orElse("string");
+            current = "binary".equalsIgnoreCase(configured.trim()) ? Mode.BINARY : Mode.STRING;
+            mode = current;
+        }
+        return current;
+    }
+
+    /**
+     * @return true while documents may still store UUIDs in the non-configured representation
+     */
+    public static boolean isMixed() {
+        Boolean current = mixed;
+        if (current == null) {
+            // Deployments that never configured binary storage only hold strings
+            current = mode() == Mode.BINARY;
+            mixed = current;
+        }
+        return current;
+    }
+
+    /**
+     * Record whether the collections may hold UUIDs in the non-configured representation.
+     */
+    public static void setMixed(boolean value) {
+        mixed = value;
+    }
+
+    /**
+     * Convert a UUID to its BSON value in the configured representation.
+     */
+    public static BsonValue toBson(UUID value) {
+        return toBson(value, mode());
+    }
+
+    /**
+     * Convert a UUID to its BSON value in the given representation.
+     */
+    public static BsonValue toBson(UUID value, Mode representation) {
+        return representation == Mode.BINARY
+            ? new BsonBinary(value, UuidRepresentation.STANDARD)
+            : new BsonString(value.toString());
+    }
+
+    /**
+     * Value matching a stored UUID: the UUID itself (encoded by {@link UUIDCodec}) when
+     * storage is consistent, or an {@code $in} over both representations while mixed.
+     */
+    public static Object matchValue(UUID value) {
+        if (!isMixed()) {
+            return value;
+        }
+        return new Document("$in", List.of(toBson(value, Mode.BINARY), toBson(value, Mode.STRING)));
+    }
+
+    /**
+     * Equality filter on a UUID field, e.g. {@code eq("_id", id)}.
+     */
+    public static Document eq(String field, UUID value) {
+        return new Document(field, matchValue(value));
+    }
+
+    /**
+     * Membership filter on a UUID field, e.g. {@code in("_id", ids)}.
+     */
+    public static Document in(String field, Collection<UUID> values) {
+        return new Document(field, new Document("$in", inValues(values)));
+    }
+
+    /**
+     * Values for an {@code $in} over UUIDs, expanded to both representations while mixed.
+     */
+    public static List<Object> inValues(Collection<UUID> values) {
+        List<Object> result = new ArrayList<>(isMixed() ? values.size() * 2 : values.size());
+        for (UUID value : values) {
+            if (isMixed()) {
+                result.add(toBson(value, Mode.BINARY));
+                result.add(toBson(value, Mode.STRING));
+            } else {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Filter matching only the non-configured representation of a UUID. Used to drop the
+     * stale copy of a document after it has been rewritten in the configured form.
+     */
+    public static Document legacyEq(String field, UUID value) {
+        Mode legacy = mode() == Mode.BINARY ? Mode.STRING : Mode.BINARY;
+        return new Document(field, toBson(value, legacy));
+    }
+}
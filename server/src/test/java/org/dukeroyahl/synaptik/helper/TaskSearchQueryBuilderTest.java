@@ -2,6 +2,7 @@ package org.dukeroyahl.synaptik.helper;
 
 import io.quarkus.test.junit.QuarkusTest;
 import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
 import org.bson.Document;
 import org.junit.jupiter.api.Test;
 import jakarta.inject.Inject;
@@ -58,6 +59,103 @@ public class TaskSearchQueryBuilderTest {
         assertEquals("i", titleQuery.getString("$options"));
     }
 
+    @Test
+    public void testTextFilter() {
+        Document query = queryBuilder.buildSearchQuery(
+            Arrays.asList(TaskStatus.PENDING), null, null, null, null, null, "UTC", "  deploy release ");
+        
+        Document textQuery = (Document) query.get("$text");
+        assertNotNull(textQuery);
+        assertEquals("deploy release", textQuery.getString("$search"));
+        assertEquals("PENDING", query.getString("status"));
+        
+        Document blank = queryBuilder.buildSearchQuery(null, null, null, null, null, null, "UTC", " ");
+        assertFalse(blank.containsKey("$text"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testFacetPipeline() {
+        Document query = queryBuilder.buildSearchQuery(null, null, null, null, null, null, "UTC", "release");
+        List<Document> pipeline = queryBuilder.buildFacetPipeline(query, 40, 20);
+        
+        assertEquals(2, pipeline.size());
+        assertSame(query, pipeline.get(0).get("$match"));
+        
+        Document facets = (Document) pipeline.get(1).get("$facet");
+        List<Document> page = (List<Document>) facets.get("tasks");
+        assertTrue(page.get(0).containsKey("$sort"), "Text queries are ordered by relevance");
+        assertEquals(40, page.get(1).getInteger("$skip"));
+        assertEquals(20, page.get(2).getInteger("$limit"));
+        assertTrue(facets.containsKey("total"));
+        for (String field : TaskSearchQueryBuilder.FACET_FIELDS) {
+            assertTrue(facets.containsKey(field), "Missing facet " + field);
+        }
+        List<Document> tags = (List<Document>) facets.get("tags");
+        assertEquals("$tags", tags.get(0).getString("$unwind"));
+    }
+
+    @Test
+    public void testTagFilter() {
+        TaskSearchCriteria criteria = new TaskSearchCriteria();
+        criteria.tags = List.of("urgent");
+        assertEquals("urgent", queryBuilder.buildSearchQuery(criteria).getString("tags"));
+        
+        criteria.tags = List.of("urgent, backend", "urgent", " ");
+        Document allQuery = (Document) queryBuilder.buildSearchQuery(criteria).get("tags");
+        assertEquals(List.of("urgent", "backend"), allQuery.get("$all"));
+        
+        criteria.tagMode = TaskSearchCriteria.TagMode.fromString("any");
+        Document anyQuery = (Document) queryBuilder.buildSearchQuery(criteria).get("tags");
+        assertEquals(List.of("urgent", "backend"), anyQuery.get("$in"));
+    }
+
+    @Test
+    public void testSort() {
+        TaskSearchCriteria criteria = new TaskSearchCriteria();
+        assertNull(queryBuilder.buildSort(criteria));
+        
+        criteria.q = "deploy";
+        assertNotNull(((Document) queryBuilder.buildSort(criteria).get("score")).get("$meta"));
+        
+        criteria.sort = TaskSearchCriteria.SortField.fromString("dueDate");
+        assertEquals(new Document("hasDue", -1).append("dueAt", 1), queryBuilder.buildSort(criteria));
+        criteria.order = TaskSearchCriteria.SortOrder.DESC;
+        assertEquals(new Document("dueAt", -1), queryBuilder.buildSort(criteria));
+        criteria.order = null;
+        
+        criteria.sort = TaskSearchCriteria.SortField.fromString("PRIORITY");
+        assertEquals(new Document("priorityRank", -1).append("urgency", -1), queryBuilder.buildSort(criteria));
+        
+        criteria.order = TaskSearchCriteria.SortOrder.fromString("asc");
+        assertEquals(new Document("priorityRank", 1).append("urgency", 1), queryBuilder.buildSort(criteria));
+        
+        assertThrows(IllegalArgumentException.class, () -> TaskSearchCriteria.SortField.fromString("title"));
+    }
+
+    @Test
+    public void testUuidCheck() {
+        assertTrue(TaskSearchQueryBuilder.isValidUUID(UUID.randomUUID().toString()));
+        assertTrue(TaskSearchQueryBuilder.isValidUUID("3F2B8C1E-4D5A-4B6C-9E7F-0A1B2C3D4E5F"));
+        assertFalse(TaskSearchQueryBuilder.isValidUUID("3f2b8c1e-4d5a-4b6c-9e7f-0a1b2c3d4e5g"));
+        assertFalse(TaskSearchQueryBuilder.isValidUUID("3f2b8c1e-4d5a-4b6c-9e7f0-a1b2c3d4e5f"));
+        assertFalse(TaskSearchQueryBuilder.isValidUUID("3f2b8c1e-4d5a-4b6c-9e7f-0a1b2c3d4e5"));
+    }
+
+    @Test
+    public void testRepeatedShapesBindNewValues() {
+        Document first = queryBuilder.buildSearchQuery(List.of(TaskStatus.ACTIVE, TaskStatus.PENDING), "alpha", null, null, null, "2025-08-20T10:00:00", "UTC");
+        Document second = queryBuilder.buildSearchQuery(List.of(TaskStatus.PENDING, TaskStatus.ACTIVE), "beta", null, null, null, "2025-08-21T10:00:00-04:00", "UTC");
+        
+        assertEquals(((Document) first.get("status")).get("$in"), ((Document) second.get("status")).get("$in"));
+        assertEquals("\\Qbeta\\E", ((Document) second.get("title")).getString("$regex"));
+        assertTrue(((Document) first.get("dueDate")).getString("$lte").startsWith("2025-08-20T23:59:59"));
+        assertTrue(((Document) second.get("dueDate")).getString("$lte").startsWith("2025-08-22T03:59:59"));
+        
+        first.append("assignee", "someone");
+        assertFalse(queryBuilder.buildSearchQuery(List.of(TaskStatus.ACTIVE), "alpha", null, null, null, null, "UTC").containsKey("assignee"));
+    }
+
     @Test
     public void testAssigneeFilter() {
         Document query = queryBuilder.buildSearchQuery(null, null, "john doe", null, null, null, "UTC");
@@ -121,6 +219,19 @@ public class TaskSearchQueryBuilderTest {
         assertEquals(5, query.size());
     }
 
+    @Test
+    public void testWaitingFilter() {
+        TaskSearchCriteria criteria = new TaskSearchCriteria();
+        criteria.waiting = false;
+        assertEquals(new Document("waitAt", new Document("$exists", false)), queryBuilder.buildSearchQuery(criteria));
+
+        criteria.waiting = true;
+        criteria.statuses = List.of(TaskStatus.PENDING);
+        Document query = queryBuilder.buildSearchQuery(criteria);
+        assertEquals(new Document("$exists", true), query.get("waitAt"));
+        assertEquals(2, query.size());
+    }
+
     @Test
     public void testTimezoneHandling() {
         Document queryUTC = queryBuilder.buildSearchQuery(null, null, null, null, "2025-08-15", null, "UTC");
@@ -0,0 +1,116 @@
+package org.dukeroyahl.synaptik.limit;
+
+import io.smallrye.mutiny.helpers.test.UniAssertSubscriber;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AimdLimiterTest {
+
+    private static final Duration THRESHOLD = Duration.ofSeconds(10);
+
+    @Test
+    public void testLimitIsEnforced() {
+        AimdLimiter limiter = new AimdLimiter(2, 1, 4, THRESHOLD, 0.5, 0);
+
+        AimdLimiter.Permit first = limiter.tryAcquire();
+        assertNotNull(first);
+        assertNotNull(limiter.tryAcquire());
+        assertNull(limiter.tryAcquire());
+        assertEquals(2, limiter.inFlight());
+
+        first.release(true);
+        // Released once only
+        first.release(true);
+        assertEquals(1, limiter.inFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testFailuresShrinkTheLimitAndSuccessesUnderLoadGrowIt() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 8, THRESHOLD, 0.5, 0);
+
+        limiter.tryAcquire().release(false);
+        assertEquals(2, limiter.limit());
+        limiter.tryAcquire().release(false);
+        limiter.tryAcquire().release(false);
+        assertEquals(1, limiter.limit());
+
+        // A mostly idle limiter does not grow
+        AimdLimiter idle = new AimdLimiter(4, 1, 8, THRESHOLD, 0.5, 0);
+        for (int i = 0; i < 10; i++) {
+            idle.tryAcquire().release(true);
+        }
+        assertEquals(4, idle.limit());
+
+        AimdLimiter busy = new AimdLimiter(2, 1, 3, THRESHOLD, 0.5, 0);
+        for (int i = 0; i < 10; i++) {
+            AimdLimiter.Permit held = busy.tryAcquire();
+            busy.tryAcquire().release(true);
+            held.release(true);
+        }
+        assertEquals(3, busy.limit());
+    }
+
+    @Test
+    public void testSlowRequestsCountAsOverload() {
+        AimdLimiter limiter = new AimdLimiter(4, 1, 8, Duration.ZERO, 0.5, 0);
+
+        limiter.tryAcquire().release(true);
+        assertEquals(2, limiter.limit());
+    }
+
+    @Test
+    public void testWaitersGetReleasedSlotsInOrder() {
+        AimdLimiter limiter = new AimdLimiter(1, 1, 1, THRESHOLD, 0.5, 2);
+        AimdLimiter.Permit held = limiter.tryAcquire();
+
+        UniAssertSubscriber<AimdLimiter.Permit> first = limiter.acquire(Duration.ofSeconds(10))
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        UniAssertSubscriber<AimdLimiter.Permit> second = limiter.acquire(Duration.ofSeconds(10))
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        assertEquals(2, limiter.queued());
+
+        // Queue full: turned away right away
+        UniAssertSubscriber<AimdLimiter.Permit> third = limiter.acquire(Duration.ofSeconds(10))
+            .subscribe().withSubscriber(UniAssertSubscriber.create());
+        third.assertCompleted().assertItem(null);
+        assertEquals(1, limiter.rejected());
+
+        held.release(true);
+        AimdLimiter.Permit granted = first.assertCompleted().getItem();
+        assertNotNull(granted);
+        second.assertNotTerminated();
+
+        granted.release(true);
+        assertNotNull(second.assertCompleted().getItem());
+        assertEquals(0, limiter.queued());
+        assertEquals(3, limiter.accepted());
+    }
+
+    @Test
+    public void testWaitTimesOut() {
+        AimdLimiter limiter = new AimdLimiter(1, 1, 1, THRESHOLD, 0.5, 1);
+        AimdLimiter.Permit held = limiter.tryAcquire();
+
+        assertNull(limiter.acquire(Duration.ofMillis(50)).await().atMost(Duration.ofSeconds(5)));
+        assertEquals(0, limiter.queued());
+        assertEquals(1, limiter.timedOut());
+
+        // The slot released later is not lost to the timed-out waiter
+        held.release(true);
+        assertEquals(0, limiter.inFlight());
+        assertNotNull(limiter.tryAcquire());
+    }
+
+    @Test
+    public void testEndpointClasses() throws NoSuchMethodException {
+        assertEquals(EndpointClass.ANALYTICS, ConcurrencyLimitFilter.endpointClass(
+            org.dukeroyahl.synaptik.resource.TaskResource.class.getMethod("getTaskGraph", String.class)));
+        assertEquals(EndpointClass.CRUD, ConcurrencyLimitFilter.endpointClass(
+            org.dukeroyahl.synaptik.resource.TaskResource.class.getMethod("getAllTasks")));
+        assertEquals(EndpointClass.CRUD, ConcurrencyLimitFilter.endpointClass(null));
+    }
+}
@@ -7,10 +7,12 @@ import org.junit.jupiter.api.*;
 import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.List;
 import java.util.UUID;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.hasSize;
 
 @QuarkusTest
@@ -341,6 +343,226 @@ class TaskResourceTest {
             .body("error", containsString("not found"));
     }
 
+    @Test
+    @Order(13)
+    void testTopUrgentTasks() {
+        createTestTask("Low Task", "Description", "LOW", "Top User");
+        String highId = createTestTask("High Task", "Description", "HIGH", "Top User");
+        createTestTask("Medium Task", "Description", "MEDIUM", "Top User");
+        String completedId = createTestTask("Completed High Task", "Description", "HIGH", "Top User");
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("\"COMPLETED\"")
+            .when().put("/api/tasks/{id}/status", completedId)
+            .then()
+            .statusCode(200);
+
+        // Open tasks only, highest urgency first, limited server-side
+        given()
+            .queryParam("limit", 2)
+            .when().get("/api/tasks/top")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(2))
+            .body("[0].id", equalTo(highId))
+            .body("[1].title", equalTo("Medium Task"));
+
+        given()
+            .queryParam("assignee", "Nobody")
+            .when().get("/api/tasks/top")
+            .then()
+            .statusCode(200)
+            .body("$", hasSize(0));
+
+        given()
+            .queryParam("projectId", "not-a-uuid")
+            .when().get("/api/tasks/top")
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(14)
+    void testCountAndExists() {
+        createTestTask("Count Task 1", "Description", "HIGH", "Count User");
+        createTestTask("Count Task 2", "Description", "LOW", "Count User");
+        createTestTask("Other Task", "Description", "LOW", "Someone Else");
+
+        given()
+            .queryParam("assignee", "Count User")
+            .when().get("/api/tasks/count")
+            .then()
+            .statusCode(200)
+            .body(equalTo("2"));
+
+        given()
+            .when().get("/api/tasks/count")
+            .then()
+            .statusCode(200)
+            .body(equalTo("3"));
+
+        given()
+            .queryParam("assignee", "Count User")
+            .when().head("/api/tasks/search")
+            .then()
+            .statusCode(200);
+
+        given()
+            .queryParam("assignee", "Nobody")
+            .when().head("/api/tasks/search")
+            .then()
+            .statusCode(404);
+    }
+
+    @Test
+    @Order(15)
+    void testBatch() {
+        String first = createTestTask("Batch Task 1", "Description", "HIGH", "Batch User");
+        String second = createTestTask("Batch Task 2", "Description", "LOW", "Batch User");
+
+        given()
+            .contentType(ContentType.JSON)
+            .body(String.format("""
+                [
+                    {"op": "CREATE", "task": {"title": "Batch Task 3", "priority": "MEDIUM"}},
+                    {"op": "STATUS", "id": "%1$s", "status": "ACTIVE"},
+                    {"op": "LINK", "id": "%1$s", "dependencyId": "%2$s"},
+                    {"op": "LINK", "id": "%2$s", "dependencyId": "%1$s"},
+                    {"op": "DELETE", "id": "00000000-0000-0000-0000-000000000000"}
+                ]
+                """, first, second))
+            .when().post("/api/tasks/batch")
+            .then()
+            .statusCode(200)
+            .body("errors", is(true))
+            .body("results.status", contains(201, 200, 200, 409, 404));
+
+        given()
+            .when().get("/api/tasks/" + first)
+            .then()
+            .statusCode(200)
+            .body("status", is("ACTIVE"))
+            .body("depends", contains(second));
+
+        given()
+            .contentType(ContentType.JSON)
+            .body("[]")
+            .when().post("/api/tasks/batch")
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(16)
+    void testBulkLinks() {
+        String first = createTestTask("Links Task 1", "Description", "HIGH", "Link User");
+        String second = createTestTask("Links Task 2", "Description", "LOW", "Link User");
+        String third = createTestTask("Links Task 3", "Description", "LOW", "Link User");
+
+        given()
+            .contentType(ContentType.JSON)
+            .body(String.format("""
+                {
+                    "link": [
+                        {"taskId": "%1$s", "dependencyId": "%2$s"},
+                        {"taskId": "%1$s", "dependencyId": "%3$s"},
+                        {"taskId": "%3$s", "dependencyId": "%1$s"}
+                    ]
+                }
+                """, first, second, third))
+            .when().post("/api/tasks/links")
+            .then()
+            .statusCode(200)
+            .body("errors", is(true))
+            .body("results.status", contains(200, 200, 409));
+
+        given()
+            .contentType(ContentType.JSON)
+            .body(String.format("""
+                {"unlink": [{"taskId": "%1$s", "dependencyId": "%2$s"}]}
+                """, first, second))
+            .when().post("/api/tasks/links")
+            .then()
+            .statusCode(200)
+            .body("errors", is(false));
+
+        given()
+            .when().get("/api/tasks/" + first)
+            .then()
+            .statusCode(200)
+            .body("depends", contains(third));
+    }
+
+    @Test
+    @Order(17)
+    void testConditionalUpdate() {
+        String taskId = createTestTask("Versioned Task", "Description", "MEDIUM", "Version User");
+        String etag = given()
+            .when().get("/api/tasks/" + taskId)
+            .then()
+            .statusCode(200)
+            .header("ETag", "\"1\"")
+            .extract().header("ETag");
+
+        String update = """
+            {"title": "Versioned Task (edited)", "priority": "HIGH"}
+            """;
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", etag)
+            .body(update)
+            .when().put("/api/tasks/" + taskId)
+            .then()
+            .statusCode(200)
+            .header("ETag", "\"2\"")
+            .body("version", is(2));
+
+        // A second writer still holding version 1 must not overwrite the edit
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", etag)
+            .body(update)
+            .when().put("/api/tasks/" + taskId)
+            .then()
+            .statusCode(409)
+            .body("currentVersion", is(2));
+
+        given()
+            .contentType(ContentType.JSON)
+            .header("If-Match", "not-a-version")
+            .body(update)
+            .when().put("/api/tasks/" + taskId)
+            .then()
+            .statusCode(400);
+    }
+
+    @Test
+    @Order(18)
+    void testAnnotationHistory() {
+        String id = createTestTask("Annotated Task", "Description", "LOW", "History User");
+        for (String status : List.of("ACTIVE", "PENDING", "COMPLETED")) {
+            given()
+                .contentType(ContentType.JSON)
+                .body("\"" + status + "\"")
+                .when().put("/api/tasks/{id}/status", id)
+                .then()
+                .statusCode(200);
+        }
+
+        given()
+            .when().get("/api/tasks/{id}/annotations?limit=2", id)
+            .then()
+            .statusCode(200)
+            .body("size()", is(2))
+            .body("[0].description", equalTo("Status changed from PENDING to COMPLETED"));
+
+        given()
+            .when().get("/api/tasks/{id}/annotations?before=not-a-time", id)
+            .then()
+            .statusCode(400);
+    }
+
     // Helper methods
 
     private String createTestTask(String title, String description, String priority, String assignee) {
@@ -0,0 +1,63 @@
+package org.dukeroyahl.synaptik.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PostingsTest {
+
+    private static List<Integer> toList(Postings postings) {
+        List<Integer> ordinals = new ArrayList<>();
+        postings.forEach(ordinals::add);
+        return ordinals;
+    }
+
+    @Test
+    public void testAddRemoveAndOrder() {
+        Postings postings = new Postings();
+        assertTrue(postings.add(7));
+        assertTrue(postings.add(3));
+        assertTrue(postings.add(70_000));
+        assertFalse(postings.add(3));
+
+        assertEquals(List.of(3, 7, 70_000), toList(postings));
+        assertTrue(postings.contains(70_000));
+        assertFalse(postings.contains(4));
+
+        assertTrue(postings.remove(7));
+        assertFalse(postings.remove(7));
+        assertFalse(postings.remove(1_000_000));
+        assertEquals(List.of(3, 70_000), toList(postings));
+        assertEquals(2, postings.size());
+    }
+
+    @Test
+    public void testContainersSwitchBetweenArrayAndBitmap() {
+        Postings postings = new Postings();
+        TreeSet<Integer> expected = new TreeSet<>();
+        // Every other ordinal, so the first container goes past the array limit
+        for (int ordinal = 0; ordinal < 4 * Postings.ARRAY_MAX; ordinal += 2) {
+            postings.add(ordinal);
+            expected.add(ordinal);
+        }
+        assertEquals(List.copyOf(expected), toList(postings));
+
+        // Back below half the limit, and empty again
+        for (int ordinal = 0; ordinal < 4 * Postings.ARRAY_MAX; ordinal += 4) {
+            postings.remove(ordinal);
+            expected.remove(ordinal);
+        }
+        assertEquals(List.copyOf(expected), toList(postings));
+        assertTrue(postings.contains(2));
+        assertFalse(postings.contains(4));
+        for (int ordinal : List.copyOf(expected)) {
+            postings.remove(ordinal);
+        }
+        assertEquals(0, postings.size());
+        assertTrue(toList(postings).isEmpty());
+    }
+}
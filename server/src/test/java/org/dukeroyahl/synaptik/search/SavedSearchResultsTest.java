@@ -0,0 +1,111 @@
+package org.dukeroyahl.synaptik.search;
+
+import org.dukeroyahl.synaptik.domain.SavedSearch;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.dto.TaskSearchCriteria;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SavedSearchResultsTest {
+
+    private static TaskDTO task(String title, String assignee, TaskStatus status, TaskPriority priority) {
+        TaskDTO task = new TaskDTO();
+        task.id = UUID.randomUUID();
+        task.title = title;
+        task.assignee = assignee;
+        task.status = status;
+        task.priority = priority;
+        task.tags = List.of();
+        return task;
+    }
+
+    @Test
+    public void testChangesMaintainMembership() {
+        SavedSearch search = new SavedSearch();
+        search.statuses = List.of(TaskStatus.ACTIVE);
+        search.assignee = " Alice ";
+        SavedSearchResults results = new SavedSearchResults(search);
+        results.loadCompleted();
+
+        TaskDTO task = task("Deploy", "alice smith", TaskStatus.ACTIVE, TaskPriority.HIGH);
+        results.apply(task.id, task);
+        assertEquals(List.of(task.id), results.taskIds(Instant.now()));
+
+        task.status = TaskStatus.COMPLETED;
+        results.apply(task.id, task);
+        assertTrue(results.taskIds(Instant.now()).isEmpty());
+
+        task.status = TaskStatus.ACTIVE;
+        results.apply(task.id, task);
+        results.apply(task.id, null);
+        assertEquals(0, results.size());
+    }
+
+    @Test
+    public void testChangesDuringLoadWin() {
+        SavedSearch search = new SavedSearch();
+        search.priorities = List.of(TaskPriority.HIGH);
+        search.unassigned = true;
+        SavedSearchResults results = new SavedSearchResults(search);
+
+        TaskDTO assigned = task("Fix", "bob", TaskStatus.PENDING, TaskPriority.HIGH);
+        results.apply(assigned.id, assigned);
+        // The load read the task before it was assigned; the change is newer
+        results.addLoaded(assigned.id, null);
+        UUID loaded = UUID.randomUUID();
+        results.addLoaded(loaded, null);
+        results.loadCompleted();
+
+        assertEquals(List.of(loaded), results.taskIds(Instant.now()));
+        assertTrue(results.matches(task("Fix", "", TaskStatus.PENDING, TaskPriority.HIGH)));
+        assertFalse(results.matches(task("Fix", null, TaskStatus.PENDING, TaskPriority.LOW)));
+    }
+
+    @Test
+    public void testTagsAndProject() {
+        SavedSearch search = new SavedSearch();
+        search.projectId = UUID.randomUUID();
+        search.tags = List.of("backend", "urgent");
+        SavedSearchResults all = new SavedSearchResults(search);
+
+        TaskDTO task = task("API", null, TaskStatus.PENDING, TaskPriority.NONE);
+        task.projectId = search.projectId;
+        task.tags = List.of("urgent");
+        assertFalse(all.matches(task));
+
+        search.tagMode = TaskSearchCriteria.TagMode.ANY;
+        assertTrue(new SavedSearchResults(search).matches(task));
+
+        task.projectId = UUID.randomUUID();
+        assertFalse(new SavedSearchResults(search).matches(task));
+    }
+
+    @Test
+    public void testOverdueCutoffAppliedOnRead() {
+        SavedSearch search = new SavedSearch();
+        search.overdue = true;
+        SavedSearchResults results = new SavedSearchResults(search);
+        results.loadCompleted();
+
+        TaskDTO due = task("Report", null, TaskStatus.PENDING, TaskPriority.NONE);
+        due.dueDate = "2025-08-11T10:00:00-04:00";
+        results.apply(due.id, due);
+
+        TaskDTO undated = task("Someday", null, TaskStatus.PENDING, TaskPriority.NONE);
+        results.apply(undated.id, undated);
+
+        assertTrue(results.taskIds(Instant.parse("2025-08-11T13:59:59Z")).isEmpty());
+        assertEquals(List.of(due.id), results.taskIds(Instant.parse("2025-08-11T14:00:01Z")));
+
+        due.status = TaskStatus.COMPLETED;
+        results.apply(due.id, due);
+        assertTrue(results.taskIds(Instant.parse("2025-08-12T00:00:00Z")).isEmpty());
+    }
+}
@@ -0,0 +1,106 @@
+package org.dukeroyahl.synaptik.search;
+
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskSuggestion;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskSuggestIndexTest {
+
+    private static final Set<TaskStatus> ALL = EnumSet.allOf(TaskStatus.class);
+
+    private TaskSuggestIndex index;
+    private UUID deploy;
+    private UUID review;
+    private UUID report;
+
+    @BeforeEach
+    public void setUp() {
+        index = new TaskSuggestIndex();
+        deploy = UUID.randomUUID();
+        review = UUID.randomUUID();
+        report = UUID.randomUUID();
+        index.put(deploy, "Deploy release to production", "alice", TaskStatus.PENDING);
+        index.put(review, "Review deployment checklist", "bob", TaskStatus.ACTIVE);
+        index.put(report, "Write quarterly report", "Deployer Team", TaskStatus.COMPLETED);
+    }
+
+    private List<UUID> ids(List<TaskSuggestion> suggestions) {
+        return suggestions.stream().map(TaskSuggestion::id).toList();
+    }
+
+    @Test
+    public void testPrefixMatchRanksTitleStartFirst() {
+        List<UUID> result = ids(index.suggest("depl", ALL, 10));
+        assertEquals(List.of(deploy, review, report), result);
+    }
+
+    @Test
+    public void testAllWordsMustMatch() {
+        assertEquals(List.of(review), ids(index.suggest("deploy check", ALL, 10)));
+        assertEquals(List.of(deploy), ids(index.suggest("ALICE prod", ALL, 10)));
+        assertTrue(index.suggest("deploy missing", ALL, 10).isEmpty());
+    }
+
+    @Test
+    public void testLongWordsAreVerified() {
+        // Only the first MAX_PREFIX_LENGTH characters are indexed; the rest is checked on the text
+        assertEquals(List.of(review), ids(index.suggest("deployment", ALL, 10)));
+        assertTrue(index.suggest("deployments", ALL, 10).isEmpty());
+        assertTrue(index.suggest("productionx", ALL, 10).isEmpty());
+    }
+
+    @Test
+    public void testStatusFilterAndLimit() {
+        assertEquals(List.of(deploy, review), ids(index.suggest("depl", EnumSet.of(TaskStatus.PENDING, TaskStatus.ACTIVE), 10)));
+        assertEquals(1, index.suggest("depl", ALL, 1).size());
+    }
+
+    @Test
+    public void testUpdatesAndRemovals() {
+        index.put(deploy, "Rollback release", "alice", TaskStatus.PENDING);
+        assertFalse(ids(index.suggest("depl", ALL, 10)).contains(deploy));
+        assertEquals(List.of(deploy), ids(index.suggest("roll", ALL, 10)));
+
+        index.remove(review);
+        assertEquals(List.of(report), ids(index.suggest("depl", ALL, 10)));
+
+        // Freed ordinals are reused without breaking posting order
+        UUID reused = UUID.randomUUID();
+        index.put(reused, "Deploy hotfix", "carol", TaskStatus.PENDING);
+        assertEquals(List.of(reused, report), ids(index.suggest("depl", ALL, 10)));
+        assertEquals(3, index.size());
+
+        index.clear();
+        assertEquals(0, index.size());
+        assertTrue(index.suggest("depl", ALL, 10).isEmpty());
+    }
+
+    @Test
+    public void testStatusOnlyChangeKeepsTheTaskFindable() {
+        index.put(deploy, "Deploy release to production", "alice", TaskStatus.COMPLETED);
+
+        assertEquals(List.of(deploy, report), ids(index.suggest("depl", EnumSet.of(TaskStatus.COMPLETED), 10)));
+        assertTrue(index.suggest("depl", EnumSet.of(TaskStatus.PENDING), 10).isEmpty());
+    }
+
+    @Test
+    public void testBestMatchIsFoundAmongManyCandidates() {
+        TaskSuggestIndex large = new TaskSuggestIndex();
+        for (int i = 0; i < 5000; i++) {
+            large.put(UUID.randomUUID(), "Review deploy step " + i, "bob", TaskStatus.PENDING);
+        }
+        // Indexed last, but the only title that starts with the query
+        UUID best = UUID.randomUUID();
+        large.put(best, "Deploy", "bob", TaskStatus.PENDING);
+
+        assertEquals(best, large.suggest("deploy", ALL, 3).get(0).id());
+    }
+}
@@ -0,0 +1,55 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BlockingExecutorTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private BlockingExecutor executor;
+
+    @BeforeEach
+    public void setUp() {
+        executor = new BlockingExecutor();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        executor.onStop(null);
+    }
+
+    @Test
+    public void testVirtualThreadMode() {
+        executor.mode = BlockingExecutor.Mode.VIRTUAL_THREAD;
+
+        Thread thread = executor.run(Thread::currentThread).await().atMost(TIMEOUT);
+        assertTrue(thread.isVirtual());
+        assertTrue(thread.getName().startsWith("synaptik-blocking-"));
+    }
+
+    @Test
+    public void testInlineModeRunsOnCaller() {
+        executor.mode = BlockingExecutor.Mode.INLINE;
+
+        assertSame(Thread.currentThread(), executor.run(Thread::currentThread).await().atMost(TIMEOUT));
+    }
+
+    @Test
+    public void testFailuresPropagate() {
+        executor.mode = BlockingExecutor.Mode.VIRTUAL_THREAD;
+
+        IllegalArgumentException invalid = assertThrows(IllegalArgumentException.class, () -> executor
+            .run(() -> { throw new IllegalArgumentException("bad input"); }).await().atMost(TIMEOUT));
+        assertEquals("bad input", invalid.getMessage());
+        IllegalStateException io = assertThrows(IllegalStateException.class, () -> executor
+            .run(() -> { throw new IOException("unreadable"); }).await().atMost(TIMEOUT));
+        assertInstanceOf(IOException.class, io.getCause());
+    }
+}
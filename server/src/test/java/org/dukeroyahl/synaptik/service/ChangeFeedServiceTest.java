@@ -0,0 +1,121 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.ChangeEvent;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.event.TaskDueEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.smallrye.mutiny.helpers.test.AssertSubscriber;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeFeedServiceTest {
+
+    private ChangeFeedService changeFeed;
+
+    @BeforeEach
+    public void setUp() {
+        changeFeed = new ChangeFeedService();
+        changeFeed.objectMapper = new ObjectMapper().findAndRegisterModules();
+        changeFeed.bufferSize = 16;
+        // Deliver on the publishing thread, so the assertions need no waiting
+        changeFeed.executor = Runnable::run;
+    }
+
+    private static TaskDTO task(UUID id, TaskStatus status) {
+        TaskDTO task = new TaskDTO();
+        task.id = id;
+        task.title = "Deploy";
+        task.status = status;
+        task.priority = TaskPriority.HIGH;
+        task.tags = List.of("ops");
+        return task;
+    }
+
+    @Test
+    public void testUpdatesCarryOnlyChangedFields() {
+        AssertSubscriber<ChangeEvent> subscriber = changeFeed.stream()
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+        assertEquals(1, changeFeed.subscriberCount());
+
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        TaskDTO after = task(id, TaskStatus.ACTIVE);
+        after.version = 2L;
+        changeFeed.onTaskChanged(TaskChangedEvent.updated(before, after));
+        changeFeed.onTaskChanged(TaskChangedEvent.deleted(after));
+
+        List<ChangeEvent> events = subscriber.getItems();
+        assertEquals(2, events.size());
+        assertEquals(new ChangeEvent("task", "updated", id, Map.of("status", "ACTIVE", "version", 2L)), events.get(0));
+        assertEquals(new ChangeEvent("task", "deleted", id, null), events.get(1));
+
+        subscriber.cancel();
+        assertEquals(0, changeFeed.subscriberCount());
+    }
+
+    @Test
+    public void testDeltasAreComputedOffThePublishingThread() {
+        List<Runnable> pending = new ArrayList<>();
+        changeFeed.executor = pending::add;
+        AssertSubscriber<ChangeEvent> subscriber = changeFeed.stream()
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+
+        UUID id = UUID.randomUUID();
+        changeFeed.onTaskChanged(TaskChangedEvent.updated(task(id, TaskStatus.PENDING), task(id, TaskStatus.ACTIVE)));
+        assertTrue(subscriber.getItems().isEmpty());
+
+        while (!pending.isEmpty()) {
+            pending.remove(0).run();
+        }
+        assertEquals(List.of(new ChangeEvent("task", "updated", id, Map.of("status", "ACTIVE"))), subscriber.getItems());
+        subscriber.cancel();
+    }
+
+    @Test
+    public void testDueEventsCarryDueDateAndUrgency() {
+        AssertSubscriber<ChangeEvent> subscriber = changeFeed.stream()
+            .subscribe().withSubscriber(AssertSubscriber.create(10));
+
+        TaskDTO task = task(UUID.randomUUID(), TaskStatus.PENDING);
+        task.dueDate = "2025-11-30T09:00:00Z";
+        task.urgency = 12;
+        changeFeed.onTaskDue(new TaskDueEvent(TaskDueEvent.Type.DUE_SOON, task));
+        changeFeed.onTaskDue(new TaskDueEvent(TaskDueEvent.Type.OVERDUE, task));
+
+        Map<String, Object> data = Map.of("dueDate", task.dueDate, "urgency", 12);
+        assertEquals(List.of(
+            new ChangeEvent("task", "due-soon", task.id, data),
+            new ChangeEvent("task", "overdue", task.id, data)), subscriber.getItems());
+        subscriber.cancel();
+    }
+
+    @Test
+    public void testSlowSubscriberIsDisconnected() {
+        AssertSubscriber<ChangeEvent> subscriber = changeFeed.stream()
+            .subscribe().withSubscriber(AssertSubscriber.create(0));
+
+        for (int i = 0; i <= changeFeed.bufferSize; i++) {
+            changeFeed.onTaskChanged(TaskChangedEvent.created(task(UUID.randomUUID(), TaskStatus.PENDING)));
+        }
+        subscriber.assertFailedWith(io.smallrye.mutiny.subscription.BackPressureFailure.class);
+    }
+
+    @Test
+    public void testEntityFilter() {
+        assertEquals(Set.of(), ChangeFeedService.parseEntities(null));
+        assertEquals(Set.of("task", "project"), ChangeFeedService.parseEntities(List.of("Task, project")));
+        assertThrows(IllegalArgumentException.class, () -> ChangeFeedService.parseEntities(List.of("comment")));
+    }
+}
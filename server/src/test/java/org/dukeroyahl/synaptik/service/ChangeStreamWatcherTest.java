@@ -0,0 +1,248 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+
+import com.mongodb.MongoCommandException;
+import com.mongodb.ServerAddress;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
+import io.smallrye.mutiny.operators.multi.processors.UnicastProcessor;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ChangeStreamWatcherTest {
+
+    /**
+     * Stand-in for a replica set: an oplog of change events with resume tokens, which can
+     * drop connections and truncate old entries like a capped oplog does.
+     */
+    static class LocalReplicaSet implements ChangeStreamWatcher.Source<Task> {
+
+        private final List<ChangeStreamDocument<Task>> oplog = new ArrayList<>();
+        private int truncated;
+        private UnicastProcessor<ChangeStreamDocument<Task>> live;
+        final List<BsonDocument> resumedAfter = new CopyOnWriteArrayList<>();
+
+        synchronized BsonDocument write(String operation, UUID id, Task fullDocument) {
+            BsonDocument token = new BsonDocument("_data", new BsonString(String.format("%08d", oplog.size())));
+            ChangeStreamDocument<Task> change = new ChangeStreamDocument<>(operation, token,
+                new BsonDocument("db", new BsonString("synaptik")).append("coll", new BsonString("tasks")),
+                null, fullDocument, null,
+                id != null ? new BsonDocument("_id", new BsonString(id.toString())) : null,
+                null, null, null, null, null, null, null);
+            oplog.add(change);
+            if (live != null) {
+                live.onNext(change);
+            }
+            return token;
+        }
+
+        synchronized void truncateOplog() {
+            truncated = oplog.size();
+        }
+
+        synchronized void dropConnection() {
+            live.onError(new IllegalStateException("Connection reset"));
+            live = null;
+        }
+
+        @Override
+        public synchronized Multi<ChangeStreamDocument<Task>> watch(BsonDocument resumeAfter) {
+            resumedAfter.add(resumeAfter != null ? resumeAfter : new BsonDocument());
+            int start = oplog.size();
+            if (resumeAfter != null) {
+                start = -1;
+                for (int i = truncated; i < oplog.size(); i++) {
+                    if (oplog.get(i).getResumeToken().equals(resumeAfter)) {
+                        start = i + 1;
+                    }
+                }
+                if (start < 0) {
+                    return Multi.createFrom().failure(new MongoCommandException(
+                        new BsonDocument("ok", new BsonInt32(0)).append("code", new BsonInt32(286))
+                            .append("errmsg", new BsonString("Resume point no longer in the oplog")),
+                        new ServerAddress()));
+                }
+            }
+            // Buffers until the watcher subscribes, so nothing written meanwhile is lost
+            live = UnicastProcessor.create();
+            return Multi.createBy().concatenating()
+                .streams(Multi.createFrom().iterable(new ArrayList<>(oplog.subList(start, oplog.size()))), live);
+        }
+    }
+
+    static class MemoryTokenStore implements ChangeStreamWatcher.TokenStore {
+
+        final Map<String, BsonDocument> tokens = new ConcurrentHashMap<>();
+
+        @Override
+        public Uni<BsonDocument> load(String key) {
+            return Uni.createFrom().item(tokens.get(key));
+        }
+
+        @Override
+        public Uni<Void> save(String key, BsonDocument token) {
+            tokens.put(key, token);
+            return Uni.createFrom().voidItem();
+        }
+    }
+
+    private LocalReplicaSet replicaSet;
+    private MemoryTokenStore tokenStore;
+    private List<CacheInvalidationEvent> events;
+    private List<ChangeStreamWatcher<Task>> watchers;
+
+    @BeforeEach
+    public void setUp() {
+        replicaSet = new LocalReplicaSet();
+        tokenStore = new MemoryTokenStore();
+        events = new CopyOnWriteArrayList<>();
+        watchers = new ArrayList<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        watchers.forEach(ChangeStreamWatcher::stop);
+    }
+
+    private ChangeStreamWatcher<Task> startWatcher(Duration saveInterval) {
+        ChangeStreamWatcher<Task> watcher = new ChangeStreamWatcher<>("test:tasks",
+            CacheInvalidationEvent.Collection.TASKS, replicaSet, tokenStore, task -> task, events::add,
+            saveInterval, Duration.ofMillis(10));
+        watchers.add(watcher);
+        watcher.start();
+        return watcher;
+    }
+
+    private static Task task(UUID id, String title) {
+        Task task = new Task();
+        task.id = id;
+        task.title = title;
+        task.status = TaskStatus.PENDING;
+        return task;
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.currentTimeMillis() < deadline, "Timed out waiting for change stream");
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testTranslatesChanges() throws InterruptedException {
+        startWatcher(Duration.ofMinutes(1));
+        UUID id = UUID.randomUUID();
+        Task task = task(id, "Deploy");
+
+        replicaSet.write("insert", id, task);
+        replicaSet.write("update", id, null);
+        replicaSet.write("delete", id, null);
+        replicaSet.write("createIndexes", null, null);
+        replicaSet.write("drop", null, null);
+        await(() -> events.size() == 4);
+
+        assertEquals(CacheInvalidationEvent.changed(CacheInvalidationEvent.Collection.TASKS, id, task), events.get(0));
+        // Task deleted before the update lookup ran
+        assertEquals(CacheInvalidationEvent.changed(CacheInvalidationEvent.Collection.TASKS, id, null), events.get(1));
+        assertEquals(CacheInvalidationEvent.deleted(CacheInvalidationEvent.Collection.TASKS, id), events.get(2));
+        assertEquals(CacheInvalidationEvent.all(CacheInvalidationEvent.Collection.TASKS), events.get(3));
+    }
+
+    @Test
+    public void testRestartResumesAfterSavedToken() throws InterruptedException {
+        ChangeStreamWatcher<Task> first = startWatcher(Duration.ofMinutes(1));
+        UUID a = UUID.randomUUID();
+        replicaSet.write("insert", a, task(a, "A"));
+        BsonDocument lastSeen = replicaSet.write("update", a, task(a, "A2"));
+        await(() -> events.size() == 2);
+        first.stop();
+        assertEquals(lastSeen, tokenStore.tokens.get("test:tasks"));
+
+        // Written while no instance was watching
+        UUID b = UUID.randomUUID();
+        replicaSet.write("insert", b, task(b, "B"));
+
+        events.clear();
+        startWatcher(Duration.ofMinutes(1));
+        await(() -> events.size() == 1);
+        assertEquals(lastSeen, replicaSet.resumedAfter.get(replicaSet.resumedAfter.size() - 1));
+        assertEquals(b, events.get(0).id());
+    }
+
+    @Test
+    public void testReconnectsFromLastHandledChange() throws InterruptedException {
+        startWatcher(Duration.ZERO);
+        UUID a = UUID.randomUUID();
+        BsonDocument token = replicaSet.write("insert", a, task(a, "A"));
+        await(() -> events.size() == 1);
+        assertEquals(token, tokenStore.tokens.get("test:tasks"));
+
+        replicaSet.dropConnection();
+        UUID b = UUID.randomUUID();
+        replicaSet.write("insert", b, task(b, "B"));
+        await(() -> replicaSet.resumedAfter.size() == 2);
+        UUID c = UUID.randomUUID();
+        replicaSet.write("insert", c, task(c, "C"));
+
+        await(() -> events.size() == 3);
+        assertEquals(token, replicaSet.resumedAfter.get(1));
+        assertEquals(List.of(a, b, c), events.stream().map(CacheInvalidationEvent::id).toList());
+    }
+
+    @Test
+    public void testLostResumePointInvalidatesEverything() throws InterruptedException {
+        UUID a = UUID.randomUUID();
+        tokenStore.tokens.put("test:tasks", replicaSet.write("insert", a, task(a, "A")));
+        replicaSet.write("update", a, task(a, "A2"));
+        replicaSet.truncateOplog();
+
+        startWatcher(Duration.ZERO);
+        await(() -> events.size() == 1);
+        assertEquals(CacheInvalidationEvent.Kind.ALL, events.get(0).kind());
+
+        UUID b = UUID.randomUUID();
+        replicaSet.write("insert", b, task(b, "B"));
+        await(() -> events.size() == 2);
+        assertEquals(b, events.get(1).id());
+    }
+
+    @Test
+    public void testFailingObserverDoesNotStallStream() throws InterruptedException {
+        ChangeStreamWatcher<Task> watcher = new ChangeStreamWatcher<>("test:tasks",
+            CacheInvalidationEvent.Collection.TASKS, replicaSet, tokenStore, task -> task,
+            event -> {
+                events.add(event);
+                throw new IllegalStateException("Observer failed");
+            },
+            Duration.ZERO, Duration.ofMillis(10));
+        watchers.add(watcher);
+        watcher.start();
+
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        replicaSet.write("insert", a, task(a, "A"));
+        replicaSet.write("insert", b, task(b, "B"));
+        await(() -> events.size() == 2);
+        assertEquals(List.of(a, b), events.stream().map(CacheInvalidationEvent::id).toList());
+    }
+}
@@ -0,0 +1,152 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.event.TaskDueEvent;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DueThresholdsTest {
+
+    private static final long HOUR = 3_600_000L;
+    private static final long NOW = 1_000 * HOUR;
+
+    private DueThresholds thresholds;
+
+    @BeforeEach
+    public void setUp() {
+        thresholds = new DueThresholds(24 * HOUR);
+    }
+
+    private static List<TaskDueEvent.Type> types(List<DueThresholds.Threshold> crossed) {
+        return crossed.stream().map(DueThresholds.Threshold::type).toList();
+    }
+
+    @Test
+    public void testSoonThenOverdue() {
+        UUID id = UUID.randomUUID();
+        thresholds.schedule(id, NOW + 48 * HOUR, NOW, NOW);
+
+        assertTrue(thresholds.poll(NOW + 23 * HOUR, 10).isEmpty());
+        assertEquals(List.of(TaskDueEvent.Type.DUE_SOON), types(thresholds.poll(NOW + 24 * HOUR, 10)));
+        assertTrue(thresholds.poll(NOW + 47 * HOUR, 10).isEmpty());
+        assertEquals(List.of(TaskDueEvent.Type.OVERDUE), types(thresholds.poll(NOW + 48 * HOUR, 10)));
+        assertEquals(0, thresholds.queued());
+    }
+
+    @Test
+    public void testResetClearsAndChangesTheLead() {
+        thresholds.schedule(UUID.randomUUID(), NOW + 48 * HOUR, NOW, NOW);
+
+        thresholds.reset(2 * HOUR);
+        assertEquals(0, thresholds.queued());
+        thresholds.schedule(UUID.randomUUID(), NOW + 48 * HOUR, NOW, NOW);
+
+        assertTrue(thresholds.poll(NOW + 45 * HOUR, 10).isEmpty());
+        assertEquals(List.of(TaskDueEvent.Type.DUE_SOON), types(thresholds.poll(NOW + 46 * HOUR, 10)));
+    }
+
+    @Test
+    public void testCatchUpFiresPassedThresholdsOnlyForChanges() {
+        UUID loaded = UUID.randomUUID();
+        UUID changed = UUID.randomUUID();
+        UUID late = UUID.randomUUID();
+        // Already due soon, overdue still ahead
+        thresholds.schedule(loaded, NOW + HOUR, NOW, NOW);
+        thresholds.schedule(changed, NOW + HOUR, NOW, DueThresholds.CATCH_UP_ALL);
+        // Already overdue
+        thresholds.schedule(late, NOW - HOUR, NOW, DueThresholds.CATCH_UP_ALL);
+
+        List<DueThresholds.Threshold> crossed = thresholds.poll(NOW, 10);
+        assertEquals(2, crossed.size());
+        assertEquals(changed, crossed.stream().filter(t -> t.type() == TaskDueEvent.Type.DUE_SOON)
+            .findFirst().orElseThrow().taskId());
+        assertEquals(late, crossed.stream().filter(t -> t.type() == TaskDueEvent.Type.OVERDUE)
+            .findFirst().orElseThrow().taskId());
+
+        // Both still go overdue when the time comes
+        assertEquals(2, thresholds.poll(NOW + HOUR, 10).size());
+    }
+
+    @Test
+    public void testSameDueDateKeepsCrossedThresholds() {
+        UUID id = UUID.randomUUID();
+        thresholds.schedule(id, NOW + HOUR, NOW, DueThresholds.CATCH_UP_ALL);
+        assertEquals(1, thresholds.poll(NOW, 10).size());
+
+        // e.g. an unrelated update of the same task
+        thresholds.schedule(id, NOW + HOUR, NOW + 1, DueThresholds.CATCH_UP_ALL);
+        assertTrue(thresholds.poll(NOW + 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testRescheduledAndCancelledThresholdsAreSkipped() {
+        UUID moved = UUID.randomUUID();
+        UUID closed = UUID.randomUUID();
+        thresholds.schedule(moved, NOW + 25 * HOUR, NOW, NOW);
+        thresholds.schedule(closed, NOW + 25 * HOUR, NOW, NOW);
+        thresholds.schedule(moved, NOW + 50 * HOUR, NOW, NOW);
+        thresholds.cancel(closed);
+        assertEquals(1, thresholds.size());
+
+        assertTrue(thresholds.poll(NOW + 25 * HOUR, 10).isEmpty());
+        List<DueThresholds.Threshold> crossed = thresholds.poll(NOW + 26 * HOUR, 10);
+        assertEquals(1, crossed.size());
+        assertEquals(NOW + 50 * HOUR, crossed.get(0).due());
+
+        thresholds.schedule(closed, NOW + 30 * HOUR, NOW, NOW);
+        thresholds.cancel(closed);
+        thresholds.compact();
+        assertEquals(1, thresholds.queued());
+    }
+
+    @Test
+    public void testReloadCatchesUpWithinTheWindowOnly() {
+        UUID recentlyOverdue = UUID.randomUUID();
+        UUID recentlySoon = UUID.randomUUID();
+        UUID longOverdue = UUID.randomUUID();
+        long catchUpFrom = NOW - HOUR;
+        thresholds.schedule(recentlyOverdue, NOW - HOUR / 2, NOW, catchUpFrom);
+        thresholds.schedule(recentlySoon, NOW + 23 * HOUR + HOUR / 2, NOW, catchUpFrom);
+        thresholds.schedule(longOverdue, NOW - 2 * HOUR, NOW, catchUpFrom);
+        assertEquals(2, thresholds.size());
+
+        List<DueThresholds.Threshold> crossed = thresholds.poll(NOW, 10);
+        assertEquals(List.of(TaskDueEvent.Type.OVERDUE, TaskDueEvent.Type.DUE_SOON), types(crossed));
+        assertEquals(List.of(recentlyOverdue, recentlySoon), crossed.stream().map(DueThresholds.Threshold::taskId).toList());
+
+        // Reloading again fires nothing twice
+        thresholds.schedule(recentlyOverdue, NOW - HOUR / 2, NOW + 1, catchUpFrom);
+        thresholds.schedule(recentlySoon, NOW + 23 * HOUR + HOUR / 2, NOW + 1, catchUpFrom);
+        assertTrue(thresholds.poll(NOW + 1, 10).isEmpty());
+    }
+
+    @Test
+    public void testEvictDropsTasksOverdueBeforeTheWindow() {
+        UUID overdue = UUID.randomUUID();
+        UUID upcoming = UUID.randomUUID();
+        thresholds.schedule(overdue, NOW - HOUR, NOW, DueThresholds.CATCH_UP_ALL);
+        thresholds.schedule(upcoming, NOW + HOUR, NOW, DueThresholds.CATCH_UP_ALL);
+        assertEquals(2, thresholds.poll(NOW, 10).size());
+
+        assertEquals(0, thresholds.evict(NOW - 2 * HOUR));
+        assertEquals(1, thresholds.evict(NOW - HOUR / 2));
+        assertEquals(1, thresholds.size());
+        assertEquals(1, thresholds.poll(NOW + HOUR, 10).size());
+    }
+
+    @Test
+    public void testPollIsBounded() {
+        for (int i = 0; i < 5; i++) {
+            thresholds.schedule(UUID.randomUUID(), NOW - i, NOW, DueThresholds.CATCH_UP_ALL);
+        }
+        assertEquals(2, thresholds.poll(NOW, 2).size());
+        assertEquals(2, thresholds.poll(NOW, 2).size());
+        assertEquals(1, thresholds.poll(NOW, 2).size());
+        assertTrue(thresholds.poll(NOW, 2).isEmpty());
+    }
+}
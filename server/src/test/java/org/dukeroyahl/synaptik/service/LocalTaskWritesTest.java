@@ -0,0 +1,77 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.CacheInvalidationEvent;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LocalTaskWritesTest {
+
+    private static final CacheInvalidationEvent.Collection TASKS = CacheInvalidationEvent.Collection.TASKS;
+
+    private final LocalTaskWrites localWrites = new LocalTaskWrites();
+
+    private static TaskDTO dto(UUID id, long version) {
+        TaskDTO task = new TaskDTO();
+        task.id = id;
+        task.status = TaskStatus.PENDING;
+        task.version = version;
+        return task;
+    }
+
+    private static Task stored(UUID id, long version) {
+        Task task = new Task();
+        task.id = id;
+        task.version = version;
+        return task;
+    }
+
+    @Test
+    public void testOwnWritesAreMarkedLocalOnce() {
+        UUID id = UUID.randomUUID();
+        localWrites.onTaskChanged(TaskChangedEvent.created(dto(id, 1L)));
+
+        assertTrue(localWrites.mark(CacheInvalidationEvent.changed(TASKS, id, stored(id, 1L))).local());
+        // Reported twice, e.g. after a resume: the second one is taken as remote
+        assertFalse(localWrites.mark(CacheInvalidationEvent.changed(TASKS, id, stored(id, 1L))).local());
+    }
+
+    @Test
+    public void testOtherVersionsAndTasksAreRemote() {
+        UUID id = UUID.randomUUID();
+        localWrites.onTaskChanged(TaskChangedEvent.updated(dto(id, 1L), dto(id, 2L)));
+
+        // Another instance wrote on top of ours before the change was looked up
+        assertFalse(localWrites.mark(CacheInvalidationEvent.changed(TASKS, id, stored(id, 3L))).local());
+        UUID other = UUID.randomUUID();
+        assertFalse(localWrites.mark(CacheInvalidationEvent.changed(TASKS, other, stored(other, 2L))).local());
+        assertFalse(localWrites.mark(CacheInvalidationEvent.all(TASKS)).local());
+    }
+
+    @Test
+    public void testOwnDeletesAreMarkedLocal() {
+        UUID id = UUID.randomUUID();
+        localWrites.onTaskChanged(TaskChangedEvent.deleted(dto(id, 4L)));
+
+        assertFalse(localWrites.mark(CacheInvalidationEvent.deleted(TASKS, UUID.randomUUID())).local());
+        assertTrue(localWrites.mark(CacheInvalidationEvent.deleted(TASKS, id)).local());
+    }
+
+    @Test
+    public void testOnlyTheLatestWritesAreRemembered() {
+        UUID first = UUID.randomUUID();
+        localWrites.onTaskChanged(TaskChangedEvent.created(dto(first, 1L)));
+        for (int i = 0; i < LocalTaskWrites.CAPACITY; i++) {
+            localWrites.onTaskChanged(TaskChangedEvent.created(dto(UUID.randomUUID(), 1L)));
+        }
+
+        assertFalse(localWrites.mark(CacheInvalidationEvent.changed(TASKS, first, stored(first, 1L))).local());
+    }
+}
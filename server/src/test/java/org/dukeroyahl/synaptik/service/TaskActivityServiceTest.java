@@ -0,0 +1,213 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.TaskActivity;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskActivityServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 9, 30);
+
+    private TaskActivityService activity;
+
+    @BeforeEach
+    public void setUp() {
+        activity = new TaskActivityService();
+        activity.objectMapper = new ObjectMapper().findAndRegisterModules();
+        activity.enabled = true;
+        activity.queueSize = 3;
+        activity.batchSize = 100;
+        // A flush needs MongoDB; tests that fill a batch check it is handed off, not run
+        activity.executor = command -> fail("Flush started without a full batch");
+    }
+
+    private static TaskDTO task(UUID id, TaskStatus status) {
+        TaskDTO task = new TaskDTO();
+        task.id = id;
+        task.title = "Deploy";
+        task.status = status;
+        task.priority = TaskPriority.HIGH;
+        task.projectId = UUID.randomUUID();
+        task.tags = List.of("ops");
+        task.version = 1L;
+        return task;
+    }
+
+    @Test
+    public void testUpdateRecordsFieldDiffsAndStatusTransition() {
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        TaskDTO after = task(id, TaskStatus.ACTIVE);
+        after.projectId = before.projectId;
+        after.tags = List.of("ops", "urgent");
+        after.version = 2L;
+        after.updatedAt = "2025-03-14T09:30:00Z";
+
+        TaskActivity entry = activity.toActivity(TaskChangedEvent.updated(before, after), NOW);
+
+        assertEquals(TaskActivity.UPDATED, entry.type);
+        assertEquals(id, entry.taskId);
+        assertEquals(before.projectId, entry.projectId);
+        assertEquals(NOW, entry.timestamp);
+        assertEquals(TaskStatus.PENDING, entry.fromStatus);
+        assertEquals(TaskStatus.ACTIVE, entry.toStatus);
+        // version and updatedAt are bookkeeping, not activity
+        assertEquals(List.of("status", "tags"), List.copyOf(entry.changes.keySet()));
+        assertEquals(new Document("from", "PENDING").append("to", "ACTIVE"), entry.changes.get("status"));
+        assertEquals(new Document("from", List.of("ops")).append("to", List.of("ops", "urgent")), entry.changes.get("tags"));
+    }
+
+    @Test
+    public void testClearedAndRemovedFieldsAreRecordedAsNull() {
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        before.assignee = "alice";
+        TaskDTO after = task(id, TaskStatus.PENDING);
+        after.projectId = null;
+
+        TaskActivity entry = activity.toActivity(TaskChangedEvent.updated(before, after), NOW);
+
+        assertNull(entry.fromStatus);
+        assertNull(entry.toStatus);
+        assertNull(entry.projectId);
+        assertEquals(new Document("from", "alice").append("to", null), entry.changes.get("assignee"));
+        assertEquals(new Document("from", before.projectId.toString()).append("to", null), entry.changes.get("projectId"));
+    }
+
+    @Test
+    public void testUpdateWithoutTrackedChangesIsSkipped() {
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        TaskDTO after = task(id, TaskStatus.PENDING);
+        after.projectId = before.projectId;
+        after.version = 2L;
+        after.urgency = 7;
+
+        assertNull(activity.toActivity(TaskChangedEvent.updated(before, after), NOW));
+    }
+
+    @Test
+    public void testCreateDeleteAndClear() {
+        UUID id = UUID.randomUUID();
+        TaskDTO task = task(id, TaskStatus.PENDING);
+
+        TaskActivity created = activity.toActivity(TaskChangedEvent.created(task), NOW);
+        assertEquals(TaskActivity.CREATED, created.type);
+        assertEquals(TaskStatus.PENDING, created.toStatus);
+        assertNull(created.changes);
+
+        TaskActivity deleted = activity.toActivity(TaskChangedEvent.deleted(task), NOW);
+        assertEquals(TaskActivity.DELETED, deleted.type);
+        assertEquals(task.projectId, deleted.projectId);
+        assertEquals(TaskStatus.PENDING, deleted.fromStatus);
+
+        TaskActivity cleared = activity.toActivity(TaskChangedEvent.cleared(), NOW);
+        assertEquals(TaskActivity.CLEARED, cleared.type);
+        assertNull(cleared.taskId);
+    }
+
+    @Test
+    public void testQueueIsBoundedAndDrainsInOrder() {
+        for (int i = 0; i < 5; i++) {
+            TaskDTO task = task(UUID.randomUUID(), TaskStatus.PENDING);
+            task.title = "Task " + i;
+            activity.onTaskChanged(TaskChangedEvent.created(task));
+        }
+        assertEquals(3, activity.queued());
+
+        List<TaskActivityService.Pending> first = activity.drain(2);
+        assertEquals(List.of("Task 0", "Task 1"), first.stream().map(pending -> pending.event().after().title).toList());
+        assertEquals(1, activity.queued());
+        assertEquals(1, activity.drain(10).size());
+        assertTrue(activity.drain(10).isEmpty());
+        assertEquals(0, activity.queued());
+
+        // Room again after draining
+        assertTrue(activity.enqueue(TaskChangedEvent.cleared(), NOW));
+    }
+
+    @Test
+    public void testFullBatchIsFlushedOffTheWritingThread() {
+        List<Runnable> handedOff = new ArrayList<>();
+        activity.executor = handedOff::add;
+        activity.batchSize = 2;
+
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        TaskDTO after = task(id, TaskStatus.ACTIVE);
+        activity.onTaskChanged(TaskChangedEvent.updated(before, after));
+        assertTrue(handedOff.isEmpty());
+        activity.onTaskChanged(TaskChangedEvent.updated(before, after));
+
+        // The flush is handed off; nothing was drained or diffed on this thread
+        assertEquals(1, handedOff.size());
+        assertEquals(2, activity.queued());
+    }
+
+    @Test
+    public void testEventsAreQueuedRawAndDiffedWhenWritten() {
+        UUID id = UUID.randomUUID();
+        TaskDTO before = task(id, TaskStatus.PENDING);
+        TaskDTO unchanged = task(id, TaskStatus.PENDING);
+        unchanged.projectId = before.projectId;
+        unchanged.version = 2L;
+        TaskDTO started = task(id, TaskStatus.ACTIVE);
+        started.projectId = before.projectId;
+
+        activity.enqueue(TaskChangedEvent.updated(before, unchanged), NOW);
+        activity.enqueue(TaskChangedEvent.updated(before, started), NOW.plusMinutes(1));
+        // An update that changed nothing tracked is only dropped when the batch is converted
+        assertEquals(2, activity.queued());
+
+        List<TaskActivity> entries = activity.toActivities(activity.drain(10));
+        assertEquals(1, entries.size());
+        assertEquals(NOW.plusMinutes(1), entries.get(0).timestamp);
+        assertEquals(List.of("status"), List.copyOf(entries.get(0).changes.keySet()));
+    }
+
+    @Test
+    public void testParseTime() {
+        assertEquals(LocalDateTime.of(2025, 3, 14, 7, 30), TaskActivityService.parseTime("2025-03-14T09:30:00+02:00"));
+        assertEquals(LocalDateTime.of(2025, 3, 14, 9, 30), TaskActivityService.parseTime("2025-03-14T09:30:00Z"));
+        assertEquals(LocalDateTime.of(2025, 3, 14, 9, 30), TaskActivityService.parseTime("2025-03-14T09:30"));
+        assertEquals(LocalDateTime.of(2025, 3, 14, 0, 0), TaskActivityService.parseTime("2025-03-14"));
+        assertNull(TaskActivityService.parseTime(" "));
+        assertThrows(IllegalArgumentException.class, () -> TaskActivityService.parseTime("yesterday"));
+    }
+
+    @Test
+    public void testFilter() {
+        LocalDateTime from = LocalDateTime.of(2025, 3, 1, 0, 0);
+        LocalDateTime to = LocalDateTime.of(2025, 4, 1, 0, 0);
+
+        Document query = TaskActivityService.filter("timestamp", null, null, from, to);
+        assertEquals(new Document("timestamp", new Document("$gte", from).append("$lt", to)), query);
+        assertTrue(TaskActivityService.filter("timestamp", null, null, null, null).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> TaskActivityService.filter("timestamp", null, null, to, from));
+    }
+
+    @Test
+    public void testCompactionMergesIntoDailySummaries() {
+        List<Document> pipeline = TaskActivityService.compaction(new Document());
+
+        assertEquals(List.of("$match", "$sort", "$group", "$project", "$merge"),
+            pipeline.stream().map(stage -> stage.keySet().iterator().next()).toList());
+        Document merge = pipeline.get(4).get("$merge", Document.class);
+        assertEquals("task_activity_daily", merge.getString("into"));
+        assertEquals(List.of("taskId", "day"), merge.getList("on", String.class));
+    }
+}
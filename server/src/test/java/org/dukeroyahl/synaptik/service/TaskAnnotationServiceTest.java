@@ -0,0 +1,55 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskAnnotation;
+import org.dukeroyahl.synaptik.domain.TaskAnnotationEntry;
+
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskAnnotationServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 14, 9, 30);
+
+    private static Task task(String... descriptions) {
+        Task task = new Task();
+        task.id = UUID.randomUUID();
+        task.annotations = new ArrayList<>();
+        for (int i = 0; i < descriptions.length; i++) {
+            task.annotations.add(new TaskAnnotation(NOW.plusMinutes(i), descriptions[i]));
+        }
+        return task;
+    }
+
+    @Test
+    public void testMovedEntriesGetTheSameIdsOnEveryRun() {
+        Task a = task("First", "Second");
+        Task b = task("Only");
+
+        List<TaskAnnotationEntry> first = TaskAnnotationService.movedEntries(List.of(a, b));
+        List<TaskAnnotationEntry> again = TaskAnnotationService.movedEntries(List.of(a, b));
+
+        assertEquals(List.of("First", "Second", "Only"), first.stream().map(entry -> entry.description).toList());
+        assertEquals(List.of(a.id, a.id, b.id), first.stream().map(entry -> entry.taskId).toList());
+        assertEquals(first.stream().map(entry -> entry.id).toList(), again.stream().map(entry -> entry.id).toList());
+        assertEquals(3, first.stream().map(entry -> entry.id).distinct().count());
+    }
+
+    @Test
+    public void testMovedIdCarriesTheAnnotationTime() {
+        UUID taskId = UUID.randomUUID();
+        ObjectId id = TaskAnnotationService.movedId(taskId, 0, NOW);
+
+        assertEquals(NOW.toEpochSecond(ZoneOffset.UTC), id.getTimestamp());
+        assertNotEquals(id, TaskAnnotationService.movedId(taskId, 1, NOW));
+        assertNotEquals(id, TaskAnnotationService.movedId(UUID.randomUUID(), 0, NOW));
+    }
+}
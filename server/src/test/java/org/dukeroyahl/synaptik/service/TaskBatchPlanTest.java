@@ -0,0 +1,270 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+import org.dukeroyahl.synaptik.dto.TaskBatchOperation;
+import org.dukeroyahl.synaptik.dto.TaskBatchResult;
+import org.dukeroyahl.synaptik.dto.TaskRequest;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapperImpl;
+
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskBatchPlanTest {
+
+    private static Task task(String title, UUID projectId, UUID... depends) {
+        Task task = new Task();
+        task.title = title;
+        task.projectId = projectId;
+        task.depends = new ArrayList<>(List.of(depends));
+        return task;
+    }
+
+    private static TaskBatchOperation operation(TaskBatchOperation.Type op, UUID id) {
+        TaskBatchOperation operation = new TaskBatchOperation();
+        operation.op = op;
+        operation.id = id;
+        return operation;
+    }
+
+    private static TaskBatchOperation status(UUID id, TaskStatus status) {
+        TaskBatchOperation operation = operation(TaskBatchOperation.Type.STATUS, id);
+        operation.status = status;
+        return operation;
+    }
+
+    private static TaskBatchOperation link(TaskBatchOperation.Type op, UUID id, UUID dependencyId) {
+        TaskBatchOperation operation = operation(op, id);
+        operation.dependencyId = dependencyId;
+        return operation;
+    }
+
+    private static TaskBatchOperation create(String title) {
+        TaskBatchOperation operation = operation(TaskBatchOperation.Type.CREATE, null);
+        operation.task = new TaskRequest();
+        operation.task.title = title;
+        return operation;
+    }
+
+    private static Map<UUID, Task> byId(Task... tasks) {
+        Map<UUID, Task> map = new HashMap<>();
+        for (Task task : tasks) {
+            map.put(task.id, task);
+        }
+        return map;
+    }
+
+    private static List<Integer> statuses(TaskBatchPlan plan) {
+        return plan.response().results().stream().map(TaskBatchResult::status).toList();
+    }
+
+    @Test
+    public void testOneWritePerTask() {
+        UUID project = UUID.randomUUID();
+        Task a = task("A", project);
+        Task b = task("B", null);
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            status(a.id, TaskStatus.ACTIVE),
+            link(TaskBatchOperation.Type.LINK, a.id, b.id),
+            status(a.id, TaskStatus.COMPLETED),
+            operation(TaskBatchOperation.Type.DELETE, b.id)), new TaskMapperImpl());
+        assertEquals(Set.of(a.id, b.id), plan.referencedIds());
+
+        plan.apply(byId(a, b), Map.of());
+
+        assertEquals(List.of(200, 200, 200, 204), statuses(plan));
+        assertFalse(plan.response().errors());
+        List<WriteModel<Task>> models = plan.writeModels();
+        assertEquals(2, models.size());
+        assertInstanceOf(UpdateOneModel.class, models.get(0));
+        UpdateOneModel<Task> update = (UpdateOneModel<Task>) models.get(0);
+        assertEquals(1L, ((Document) update.getFilter()).get("version"));
+        assertFalse(update.getOptions().isUpsert());
+        assertInstanceOf(DeleteOneModel.class, models.get(1));
+        DeleteOneModel<Task> delete = (DeleteOneModel<Task>) models.get(1);
+        assertEquals(1L, ((Document) delete.getFilter()).get("version"));
+        assertEquals(2, plan.versionedWrites());
+        assertEquals(2L, a.version);
+
+        assertEquals(TaskStatus.COMPLETED, a.status);
+        assertEquals(List.of(b.id), a.depends);
+        assertEquals(2, a.annotations.size());
+        assertEquals(List.of(a.id, a.id), plan.annotationEntries().stream().map(entry -> entry.taskId).toList());
+
+        List<TaskChangedEvent> events = plan.events();
+        assertEquals(2, events.size());
+        assertEquals(TaskStatus.PENDING, events.get(0).before().status);
+        assertEquals(TaskStatus.COMPLETED, events.get(0).after().status);
+        assertEquals(TaskChangedEvent.Type.DELETED, events.get(1).type());
+        assertEquals(Set.of(project), plan.affectedProjects());
+        assertEquals(Set.of(b.id), plan.deletedIds());
+    }
+
+    @Test
+    public void testMissingTasksAndInvalidOperations() {
+        Task a = task("A", null);
+        UUID missing = UUID.randomUUID();
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            status(missing, TaskStatus.ACTIVE),
+            status(a.id, null),
+            link(TaskBatchOperation.Type.LINK, a.id, a.id),
+            link(TaskBatchOperation.Type.LINK, a.id, missing),
+            link(TaskBatchOperation.Type.UNLINK, a.id, missing),
+            operation(TaskBatchOperation.Type.DELETE, a.id),
+            status(a.id, TaskStatus.ACTIVE)), new TaskMapperImpl());
+
+        plan.apply(byId(a), Map.of());
+
+        assertEquals(List.of(404, 400, 400, 404, 404, 204, 404), statuses(plan));
+        assertTrue(plan.response().errors());
+        assertEquals(1, plan.writeModels().size());
+    }
+
+    @Test
+    public void testCreatedTasksCanBeUsedLater() {
+        Task a = task("A", null);
+        UUID newId = UUID.randomUUID();
+        TaskBatchOperation createNew = create("New");
+        createNew.id = newId;
+        TaskBatchOperation duplicate = create("Duplicate ID");
+        duplicate.id = a.id;
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            create("Generated ID"),
+            createNew,
+            link(TaskBatchOperation.Type.LINK, a.id, newId),
+            status(newId, TaskStatus.ACTIVE),
+            duplicate), new TaskMapperImpl());
+        assertTrue(plan.referencedIds().containsAll(Set.of(a.id, newId)));
+
+        plan.apply(byId(a), Map.of());
+
+        List<TaskBatchResult> results = plan.response().results();
+        assertEquals(List.of(201, 201, 200, 200, 409), statuses(plan));
+        assertNotNull(results.get(0).id());
+        assertEquals(newId, results.get(1).id());
+
+        List<WriteModel<Task>> models = plan.writeModels();
+        assertEquals(3, models.size());
+        Task created = ((InsertOneModel<Task>) models.get(1)).getDocument();
+        assertEquals(newId, created.id);
+        assertEquals(TaskStatus.ACTIVE, created.status);
+        assertEquals(List.of(newId), a.depends);
+        assertEquals(List.of(TaskChangedEvent.Type.CREATED, TaskChangedEvent.Type.CREATED, TaskChangedEvent.Type.UPDATED),
+            plan.events().stream().map(TaskChangedEvent::type).toList());
+    }
+
+    @Test
+    public void testCreateThenDeleteWritesNothing() {
+        UUID id = UUID.randomUUID();
+        TaskBatchOperation createOp = create("Temp");
+        createOp.id = id;
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            createOp,
+            status(id, TaskStatus.ACTIVE),
+            operation(TaskBatchOperation.Type.DELETE, id),
+            operation(TaskBatchOperation.Type.DELETE, null)), new TaskMapperImpl());
+        plan.apply(Map.of(), Map.of());
+
+        assertEquals(List.of(201, 200, 204, 400), statuses(plan));
+        assertTrue(plan.writeModels().isEmpty());
+        assertTrue(plan.events().isEmpty());
+    }
+
+    @Test
+    public void testCycleCheckSeesEarlierLinksAndStoredGraph() {
+        Task a = task("A", null);
+        Task b = task("B", null);
+        UUID stored = UUID.randomUUID();
+        // b -> stored -> a is only known from the stored graph
+        b.depends.add(stored);
+        Map<UUID, List<UUID>> graph = Map.of(stored, List.of(a.id));
+
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            link(TaskBatchOperation.Type.LINK, a.id, b.id)), new TaskMapperImpl());
+        assertTrue(plan.hasLinks());
+        assertTrue(plan.dependencyRoots(byId(a, b)).contains(stored));
+        plan.apply(byId(a, b), graph);
+        assertEquals(List.of(409), statuses(plan));
+
+        Task c = task("C", null);
+        Task d = task("D", null);
+        plan = new TaskBatchPlan(List.of(
+            link(TaskBatchOperation.Type.LINK, c.id, d.id),
+            link(TaskBatchOperation.Type.LINK, d.id, c.id),
+            link(TaskBatchOperation.Type.UNLINK, c.id, d.id),
+            link(TaskBatchOperation.Type.LINK, d.id, c.id)), new TaskMapperImpl());
+        plan.apply(byId(c, d), Map.of());
+        assertEquals(List.of(200, 409, 200, 200), statuses(plan));
+        assertTrue(c.depends.isEmpty());
+        assertEquals(List.of(c.id), d.depends);
+    }
+
+    @Test
+    public void testWriteFailureFailsEveryOperationOnTheTask() {
+        UUID project = UUID.randomUUID();
+        Task a = task("A", project);
+        Task b = task("B", null);
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            status(a.id, TaskStatus.ACTIVE),
+            status(b.id, TaskStatus.ACTIVE),
+            link(TaskBatchOperation.Type.LINK, a.id, b.id)), new TaskMapperImpl());
+        plan.apply(byId(a, b), Map.of());
+        plan.writeModels();
+
+        plan.writeFailed(plan.modelTask(0), "duplicate key");
+
+        List<TaskBatchResult> results = plan.response().results();
+        assertEquals(List.of(500, 200, 500), statuses(plan));
+        assertEquals("duplicate key", results.get(0).error());
+        assertEquals(1, plan.events().size());
+        assertTrue(plan.affectedProjects().isEmpty());
+    }
+
+    @Test
+    public void testConcurrentChangesAreConflicts() {
+        Task updated = task("Updated", null);
+        Task changedElsewhere = task("Changed elsewhere", null);
+        Task deletedElsewhere = task("Deleted elsewhere", null);
+        Task notDeleted = task("Not deleted", null);
+        TaskBatchPlan plan = new TaskBatchPlan(List.of(
+            status(updated.id, TaskStatus.ACTIVE),
+            status(changedElsewhere.id, TaskStatus.ACTIVE),
+            status(deletedElsewhere.id, TaskStatus.ACTIVE),
+            operation(TaskBatchOperation.Type.DELETE, notDeleted.id)), new TaskMapperImpl());
+        plan.apply(byId(updated, changedElsewhere, deletedElsewhere, notDeleted), Map.of());
+        plan.writeModels();
+
+        // As read back: the batch's own write, one by another request, and a delete that matched nothing
+        Task written = task("Updated", null);
+        written.id = updated.id;
+        written.version = updated.version;
+        written.updatedAt = updated.updatedAt;
+        Task other = task("Changed elsewhere", null);
+        other.id = changedElsewhere.id;
+        other.version = changedElsewhere.version;
+        other.updatedAt = "2020-01-01T00:00:00Z";
+        Task stillThere = task("Not deleted", null);
+        stillThere.id = notDeleted.id;
+        stillThere.version = 2L;
+        plan.checkConflicts(List.of(written, other, stillThere));
+
+        assertEquals(List.of(200, 409, 404, 409), statuses(plan));
+        assertEquals(List.of(updated.id), plan.events().stream().map(TaskChangedEvent::taskId).toList());
+        // The delete lost, so the history stays
+        assertTrue(plan.deletedIds().isEmpty());
+    }
+}
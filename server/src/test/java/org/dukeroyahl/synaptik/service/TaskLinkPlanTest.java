@@ -0,0 +1,188 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.TaskLink;
+import org.dukeroyahl.synaptik.dto.TaskLinkResult;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.mapper.TaskMapperImpl;
+
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskLinkPlanTest {
+
+    private static Task task(UUID... depends) {
+        Task task = new Task();
+        task.title = "Task";
+        task.depends = new ArrayList<>(List.of(depends));
+        return task;
+    }
+
+    private static Map<UUID, Task> byId(Task... tasks) {
+        Map<UUID, Task> map = new HashMap<>();
+        for (Task task : tasks) {
+            map.put(task.id, task);
+        }
+        return map;
+    }
+
+    private static List<Integer> statuses(TaskLinkPlan plan) {
+        return plan.response().results().stream().map(TaskLinkResult::status).toList();
+    }
+
+    @Test
+    public void testOneUpdatePerTask() {
+        Task a = task();
+        Task b = task();
+        Task c = task();
+        Task d = task(a.id);
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(a.id, b.id), new TaskLink(a.id, c.id), new TaskLink(b.id, c.id), new TaskLink(a.id, b.id)),
+            List.of(new TaskLink(d.id, a.id)),
+            new TaskMapperImpl());
+        assertEquals(5, plan.size());
+
+        plan.apply(byId(a, b, c, d), Map.of());
+
+        assertEquals(List.of(200, 200, 200, 200, 200), statuses(plan));
+        assertEquals(List.of(b.id, c.id), a.depends);
+        assertTrue(d.depends.isEmpty());
+
+        List<WriteModel<Task>> models = plan.writeModels();
+        assertEquals(3, models.size());
+        Document pull = (Document) ((UpdateOneModel<Task>) models.get(0)).getUpdate();
+        assertTrue(pull.containsKey("$pull"));
+        assertTrue(pull.containsKey("$inc"));
+        Document addToSet = (Document) ((UpdateOneModel<Task>) models.get(1)).getUpdate();
+        assertEquals(2, ((Document) addToSet.get("$addToSet", Document.class).get("depends"))
+            .get("$each", List.class).size());
+        assertEquals(List.of(d.id, a.id, b.id), List.of(plan.modelTask(0), plan.modelTask(1), plan.modelTask(2)));
+
+        List<TaskChangedEvent> events = plan.events();
+        assertEquals(3, events.size());
+        assertEquals(List.of(a.id), events.get(0).before().depends);
+        assertTrue(events.get(0).after().depends.isEmpty());
+        assertEquals(2L, events.get(1).after().version);
+    }
+
+    @Test
+    public void testInvalidAndMissingEdges() {
+        Task a = task();
+        UUID missing = UUID.randomUUID();
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(a.id, a.id), new TaskLink(a.id, missing), new TaskLink(null, a.id)),
+            List.of(new TaskLink(a.id, missing), new TaskLink(missing, a.id)),
+            new TaskMapperImpl());
+
+        plan.apply(byId(a), Map.of());
+
+        assertEquals(List.of(404, 404, 400, 404, 400), statuses(plan));
+        assertTrue(plan.response().errors());
+        assertTrue(plan.writeModels().isEmpty());
+    }
+
+    @Test
+    public void testCombinedCycleCheckRejectsOnlyClosingEdges() {
+        Task a = task();
+        Task b = task();
+        Task c = task();
+        UUID stored = UUID.randomUUID();
+        // c -> stored -> a, known only from the stored graph
+        c.depends.add(stored);
+
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(a.id, b.id), new TaskLink(b.id, c.id), new TaskLink(b.id, a.id)),
+            List.of(),
+            new TaskMapperImpl());
+        plan.apply(byId(a, b, c), Map.of(stored, List.of(a.id)));
+
+        // a -> b -> c -> stored -> a closes at the second edge; b -> a closes a -> b -> a
+        assertEquals(List.of(200, 409, 409), statuses(plan));
+        assertEquals(List.of(b.id), a.depends);
+        assertTrue(b.depends.isEmpty());
+        assertEquals(1, plan.writeModels().size());
+    }
+
+    @Test
+    public void testUnlinkBeforeLinkAllowsReversal() {
+        Task a = task();
+        Task b = task(a.id);
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(a.id, b.id), new TaskLink(b.id, a.id)),
+            List.of(new TaskLink(b.id, a.id)),
+            new TaskMapperImpl());
+
+        plan.apply(byId(a, b), Map.of());
+
+        // The reversed edge is accepted; re-adding the removed edge would close a cycle
+        assertEquals(List.of(200, 200, 409), statuses(plan));
+        assertEquals(List.of(b.id), a.depends);
+        assertTrue(b.depends.isEmpty());
+    }
+
+    @Test
+    public void testRelinkingRemovedEdgeWritesNothing() {
+        Task a = task();
+        Task b = task(a.id);
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(b.id, a.id)),
+            List.of(new TaskLink(b.id, a.id)),
+            new TaskMapperImpl());
+
+        plan.apply(byId(a, b), Map.of());
+
+        assertEquals(List.of(200, 200), statuses(plan));
+        assertEquals(List.of(a.id), b.depends);
+        assertTrue(plan.writeModels().isEmpty());
+        assertTrue(plan.events().isEmpty());
+    }
+
+    @Test
+    public void testWriteFailureFailsTheTasksEdges() {
+        Task a = task();
+        Task b = task();
+        Task c = task();
+        TaskLinkPlan plan = new TaskLinkPlan(
+            List.of(new TaskLink(a.id, c.id), new TaskLink(b.id, c.id)),
+            List.of(),
+            new TaskMapperImpl());
+        plan.apply(byId(a, b, c), Map.of());
+        plan.writeModels();
+
+        plan.writeFailed(plan.modelTask(1), "write conflict");
+
+        assertEquals(List.of(200, 500), statuses(plan));
+        assertEquals(1, plan.events().size());
+    }
+
+    @Test
+    public void testDependencyGraphCycles() {
+        UUID a = UUID.randomUUID();
+        UUID b = UUID.randomUUID();
+        UUID c = UUID.randomUUID();
+        Map<UUID, List<UUID>> edges = new HashMap<>(Map.of(a, List.of(b), b, List.of(c)));
+        DependencyGraph graph = new DependencyGraph(edges::get);
+
+        assertTrue(graph.reaches(a, c));
+        assertFalse(graph.reaches(c, a));
+        assertFalse(graph.hasCycleFrom(List.of(a, b, c)));
+
+        edges.put(c, List.of(a));
+        assertTrue(graph.hasCycleFrom(List.of(c)));
+
+        // Diamond without a cycle: a -> b, a -> c, b -> c
+        edges.put(a, List.of(b, c));
+        edges.put(c, List.of());
+        assertFalse(graph.hasCycleFrom(List.of(a)));
+    }
+}
@@ -232,4 +232,53 @@ class TaskServiceTest {
 
         assertEquals(3L, statusUpdated.version);
     }
+
+    @Test
+    @Order(6)
+    void testConcurrentUpdatesAreNotLost() {
+        TaskRequest request = new TaskRequest();
+        request.title = "Concurrent Task";
+        request.priority = TaskPriority.LOW;
+
+        TaskDTO task = taskService.createTask(request)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+        TaskDTO dependency = taskService.createTask(request)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+
+        // Each is one atomic update, so neither overwrites the other
+        io.smallrye.mutiny.Uni.combine().all()
+            .unis(taskService.updateTaskStatus(task.id, TaskStatus.ACTIVE),
+                taskService.linkTasks(task.id, dependency.id))
+            .asTuple()
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5));
+
+        TaskDTO updated = taskService.getTaskById(task.id)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+        assertEquals(TaskStatus.ACTIVE, updated.status);
+        assertEquals(List.of(dependency.id), updated.depends);
+        assertEquals(3L, updated.version);
+        Task stored = taskService.getRawTaskById(task.id)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+        assertEquals("Status changed from PENDING to ACTIVE", stored.annotations.get(0).description);
+
+        Boolean unlinked = taskService.unlinkTasks(task.id, dependency.id)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+        Boolean unlinkedAgain = taskService.unlinkTasks(task.id, dependency.id)
+            .subscribe().withSubscriber(UniAssertSubscriber.create())
+            .awaitItem(Duration.ofSeconds(5))
+            .getItem();
+        assertTrue(unlinked);
+        assertFalse(unlinkedAgain);
+    }
 }
@@ -0,0 +1,126 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.domain.TaskPriority;
+import org.dukeroyahl.synaptik.domain.TaskStatus;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskUpdatesTest {
+
+    @Test
+    public void testStatusRecomputesUrgency() {
+        Task task = new Task();
+        task.priority = TaskPriority.HIGH;
+        task.status = TaskStatus.ACTIVE;
+        task.dueDate = "2020-01-01T00:00:00Z";
+        // Stale since the due date passed
+        task.urgency = 10.0;
+
+        TaskUpdates update = new TaskUpdates();
+        update.applyStatus(task, TaskStatus.COMPLETED);
+
+        assertEquals(task.calculateUrgency(), task.urgency, 1e-9);
+        assertTrue(task.urgency > 18.0);
+        assertEquals(2L, task.version);
+        assertEquals("Status changed from ACTIVE to COMPLETED", task.annotations.get(0).description);
+
+        Document set = (Document) ((Document) update.status(TaskStatus.COMPLETED).get(0)).get("$set");
+        assertEquals(Set.of("annotations", "annotationCount", "urgency", "status", "updatedAt", "version"), set.keySet());
+        assertEquals(new Document("$literal", "COMPLETED"), set.get("status"));
+        assertEquals(task.updatedAt, ((Document) set.get("updatedAt")).get("$literal"));
+        // Computed from the stored fields rather than the stored urgency
+        String urgency = ((Document) set.get("urgency")).toJson();
+        for (String field : List.of("$priority", "$dueAt", "$tags", "$createdAt")) {
+            assertTrue(urgency.contains("\"" + field + "\""), field);
+        }
+        assertFalse(urgency.contains("\"$urgency\""));
+    }
+
+    @Test
+    public void testReplaceWritesRequestFieldsAsLiterals() {
+        Task patch = new Task();
+        patch.title = "$notAFieldPath";
+        patch.priority = TaskPriority.MEDIUM;
+        patch.tags = List.of("urgent");
+        patch.depends = null;
+
+        Document set = (Document) ((Document) new TaskUpdates().replace(patch).get(0)).get("$set");
+
+        assertEquals(new Document("$literal", "$notAFieldPath"), set.get("title"));
+        assertEquals(new Document("$literal", 2), set.get("priorityRank"));
+        assertEquals("$$REMOVE", set.get("depends"));
+        assertEquals("$$REMOVE", set.get("assignee"));
+        // Base urgency (MEDIUM + urgent tag) plus the age computed in the database
+        Document urgency = (Document) set.get("urgency");
+        assertTrue(urgency.toJson().contains("\"$add\": [8.9"));
+        assertTrue(urgency.toJson().contains("$dateDiff"));
+    }
+
+    @Test
+    public void testDependencyUpdatesMatchOnlyWhenTheyChangeSomething() {
+        UUID id = UUID.randomUUID();
+        UUID dependencyId = UUID.randomUUID();
+        TaskUpdates update = new TaskUpdates();
+
+        Document add = (Document) update.addDependency(dependencyId);
+        assertTrue(add.containsKey("$addToSet"));
+        assertEquals(new Document("version", 1L), add.get("$inc"));
+        assertTrue(((Document) TaskUpdates.withoutDependency(id, dependencyId)).get("depends", Document.class)
+            .containsKey("$nin"));
+
+        Bson remove = update.removeDependency(dependencyId);
+        assertTrue(((Document) remove).containsKey("$pull"));
+        assertTrue(((Document) TaskUpdates.withDependency(id, dependencyId)).get("depends", Document.class)
+            .containsKey("$in"));
+
+        Task task = new Task();
+        update.applyAddDependency(task, dependencyId);
+        update.applyRemoveDependency(task, dependencyId);
+        assertTrue(task.depends.isEmpty());
+        assertEquals(3L, task.version);
+    }
+
+    @Test
+    public void testEndWaitRemovesWaitFields() {
+        Task task = new Task();
+        task.waitUntil = "2025-11-30T10:00:00+01:00";
+        task.updateSortKeys();
+        assertEquals("2025-11-30T09:00:00Z", task.waitAt);
+
+        TaskUpdates update = new TaskUpdates();
+        Document end = (Document) update.endWait();
+        assertEquals(new Document("waitUntil", "").append("waitAt", ""), end.get("$unset"));
+        assertEquals(new Document("version", 1L), end.get("$inc"));
+
+        update.applyEndWait(task);
+        assertNull(task.waitUntil);
+        assertNull(task.waitAt);
+        assertEquals(2L, task.version);
+    }
+
+    @Test
+    public void testOnlyLatestAnnotationsAreEmbedded() {
+        Task task = new Task();
+        task.addAnnotation("Imported");
+        // Tasks stored before the counter existed count their embedded annotations
+        task.annotationCount = null;
+
+        TaskUpdates update = new TaskUpdates();
+        for (int i = 0; i < Task.MAX_EMBEDDED_ANNOTATIONS + 5; i++) {
+            update.applyStatus(task, i % 2 == 0 ? TaskStatus.ACTIVE : TaskStatus.PENDING);
+        }
+
+        assertEquals(Task.MAX_EMBEDDED_ANNOTATIONS + 6, task.annotationCount);
+        assertEquals(Task.MAX_EMBEDDED_ANNOTATIONS, task.annotations.size());
+        assertEquals("Status changed from PENDING to ACTIVE", task.lastAnnotation().description);
+    }
+}
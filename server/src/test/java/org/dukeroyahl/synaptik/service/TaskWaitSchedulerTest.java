@@ -0,0 +1,64 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.dukeroyahl.synaptik.domain.Task;
+import org.dukeroyahl.synaptik.dto.TaskDTO;
+import org.dukeroyahl.synaptik.event.TaskChangedEvent;
+import org.dukeroyahl.synaptik.util.DateTimeHelper;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskWaitSchedulerTest {
+
+    private TaskWaitScheduler scheduler;
+
+    @BeforeEach
+    public void setUp() {
+        scheduler = new TaskWaitScheduler();
+        scheduler.enabled = true;
+        scheduler.tick = Duration.ofSeconds(1);
+        scheduler.init(System.currentTimeMillis());
+    }
+
+    private static TaskDTO task(UUID id, String waitUntil) {
+        TaskDTO task = new TaskDTO();
+        task.id = id;
+        task.title = "Renew certificate";
+        task.waitUntil = waitUntil;
+        return task;
+    }
+
+    @Test
+    public void testChangeEventsMaintainTheSchedule() {
+        UUID id = UUID.randomUUID();
+        TaskDTO waiting = task(id, "2099-01-01T00:00:00Z");
+        scheduler.onTaskChanged(TaskChangedEvent.created(waiting));
+        scheduler.onTaskChanged(TaskChangedEvent.created(task(UUID.randomUUID(), null)));
+        assertEquals(1, scheduler.waitingCount());
+
+        TaskDTO visible = task(id, null);
+        scheduler.onTaskChanged(TaskChangedEvent.updated(waiting, visible));
+        assertEquals(0, scheduler.waitingCount());
+
+        scheduler.onTaskChanged(TaskChangedEvent.updated(visible, waiting));
+        scheduler.onTaskChanged(TaskChangedEvent.deleted(waiting));
+        assertEquals(0, scheduler.waitingCount());
+    }
+
+    @Test
+    public void testScheduledDeadlineMatchesStoredWaitAt() {
+        Task task = new Task();
+        task.waitUntil = "2025-11-30T10:00:00.750+01:00";
+        task.updateSortKeys();
+
+        Long deadline = TaskWaitScheduler.deadline(task(UUID.randomUUID(), task.waitUntil));
+        assertEquals(task.waitAt, TaskWaitScheduler.waitAt(deadline));
+        assertEquals(deadline, DateTimeHelper.utcKeyMillis(task.waitAt));
+        assertNull(TaskWaitScheduler.deadline(task(UUID.randomUUID(), "not a date")));
+    }
+}
@@ -0,0 +1,109 @@
+package org.dukeroyahl.synaptik.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimingWheelTest {
+
+    private static final long TICK = 1000;
+
+    @Test
+    public void testExpiresAtTheFirstTickAtOrAfterTheDeadline() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 10_000);
+        wheel.schedule("exact", 12_000);
+        wheel.schedule("between", 12_500);
+
+        assertTrue(wheel.advance(11_999).isEmpty());
+        assertEquals(Map.of("exact", 12_000L), wheel.advance(12_000));
+        // Never early: 12.5s is only reached at the 13s boundary
+        assertTrue(wheel.advance(12_999).isEmpty());
+        assertEquals(Map.of("between", 12_500L), wheel.advance(13_000));
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void testPastDeadlinesExpireOnTheNextAdvance() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 10_000);
+        wheel.schedule("late", 3_000);
+
+        assertEquals(Map.of("late", 3_000L), wheel.advance(10_000));
+    }
+
+    @Test
+    public void testResetClearsAndRestartsTheClock() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 0);
+        wheel.schedule("dropped", 5_000);
+
+        wheel.reset(500, 100_000);
+        assertEquals(0, wheel.size());
+        wheel.schedule("kept", 100_700);
+
+        assertTrue(wheel.advance(100_500).isEmpty());
+        assertEquals(Map.of("kept", 100_700L), wheel.advance(101_000));
+    }
+
+    @Test
+    public void testFarDeadlinesCascadeThroughLevels() {
+        // 4 slots: level 0 covers 4s, level 1 16s, level 2 64s
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 0);
+        wheel.schedule("level2", 50_000);
+        wheel.schedule("level3", 200_000);
+
+        assertTrue(wheel.advance(49_000).isEmpty());
+        assertEquals(Map.of("level2", 50_000L), wheel.advance(50_000));
+        assertTrue(wheel.advance(199_000).isEmpty());
+        assertEquals(Map.of("level3", 200_000L), wheel.advance(200_000));
+    }
+
+    @Test
+    public void testRescheduleAndCancel() {
+        TimingWheel<String> wheel = new TimingWheel<>(TICK, 4, 0);
+        wheel.schedule("moved", 5_000);
+        wheel.schedule("moved", 30_000);
+        wheel.schedule("cancelled", 5_000);
+        wheel.cancel("cancelled");
+
+        assertTrue(wheel.advance(29_000).isEmpty());
+        assertEquals(30_000L, wheel.deadline("moved"));
+        assertEquals(Map.of("moved", 30_000L), wheel.advance(30_000));
+        assertNull(wheel.deadline("moved"));
+    }
+
+    @Test
+    public void testMatchesSortedDeadlines() {
+        Random random = new Random(42);
+        TimingWheel<Integer> wheel = new TimingWheel<>(TICK, 8, 0);
+        TreeMap<Long, List<Integer>> expected = new TreeMap<>();
+        for (int key = 0; key < 500; key++) {
+            long deadline = random.nextLong(1, 5_000_000);
+            wheel.schedule(key, deadline);
+            expected.computeIfAbsent(deadline, ignored -> new ArrayList<>()).add(key);
+        }
+
+        // Advance in uneven steps; each key must expire in the step that passes its deadline
+        long now = 0;
+        while (now < 5_000_000) {
+            long next = now + random.nextLong(1, 90_000);
+            Map<Integer, Long> expired = wheel.advance(next);
+            long stepEnd = Math.floorDiv(next, TICK) * TICK;
+            long stepStart = Math.floorDiv(now, TICK) * TICK;
+            int count = 0;
+            for (List<Integer> keys : expected.subMap(stepStart, false, stepEnd, true).values()) {
+                for (Integer key : keys) {
+                    assertTrue(expired.containsKey(key), "key " + key + " should expire by " + next);
+                    count++;
+                }
+            }
+            assertEquals(count, expired.size());
+            now = next;
+        }
+        assertEquals(0, wheel.size());
+    }
+}
@@ -0,0 +1,127 @@
+package org.dukeroyahl.synaptik.service;
+
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonArray;
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonNull;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.UuidRepresentation;
+import org.bson.types.ObjectId;
+import org.dukeroyahl.synaptik.util.UUIDCodec;
+import org.dukeroyahl.synaptik.util.UUIDStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UUIDMigrationServiceTest {
+
+    private static BsonDocument task(BsonValue id, BsonValue projectId, BsonValue... depends) {
+        return new BsonDocument("_id", id)
+            .append("projectId", projectId)
+            .append("depends", new BsonArray(List.of(depends)))
+            .append("title", new BsonString("Task"));
+    }
+
+    @Test
+    public void testConvertsEveryLegacyRepresentation() {
+        UUID id = UUID.randomUUID();
+        UUID projectId = UUID.randomUUID();
+        ObjectId dependency = new ObjectId();
+        BsonDocument legacy = task(new BsonBinary(id, UuidRepresentation.JAVA_LEGACY),
+            new BsonBinary(projectId, UuidRepresentation.STANDARD), new BsonObjectId(dependency));
+
+        BsonDocument converted = UUIDMigrationService.convert(legacy, UUIDStorage.Mode.STRING);
+
+        assertEquals(new BsonString(id.toString()), converted.get("_id"));
+        assertEquals(new BsonString(projectId.toString()), converted.get("projectId"));
+        assertEquals(new BsonArray(List.of(new BsonString(UUIDCodec.fromObjectId(dependency).toString()))),
+            converted.get("depends"));
+        assertEquals(new BsonString("Task"), converted.get("title"));
+    }
+
+    @Test
+    public void testConvertRejectsValuesThatAreNotUuids() {
+        UUID id = UUID.randomUUID();
+        assertNull(UUIDMigrationService.convert(
+            task(new BsonString(id.toString()), new BsonString("not-a-uuid")), UUIDStorage.Mode.BINARY));
+        assertNull(UUIDMigrationService.convert(
+            task(new BsonString(id.toString()), new BsonString(UUID.randomUUID().toString()), new BsonString("x")),
+            UUIDStorage.Mode.BINARY));
+    }
+
+    @Test
+    public void testPlansMixedLegacyAndFailingDocuments() {
+        UUID mixedId = UUID.randomUUID();
+        UUID legacyId = UUID.randomUUID();
+        BsonString failingId = new BsonString("not-a-uuid");
+        BsonDocument mixed = task(new BsonString(mixedId.toString()),
+            new BsonBinary(UUID.randomUUID(), UuidRepresentation.STANDARD))
+            .append("version", new BsonInt64(3))
+            .append("updatedAt", new BsonString("2025-08-11T14:30:00Z"));
+        // Written before version and updatedAt existed
+        BsonDocument legacy = task(new BsonBinary(legacyId, UuidRepresentation.STANDARD), new BsonString(UUID.randomUUID().toString()));
+        BsonDocument failing = task(failingId, new BsonString(UUID.randomUUID().toString()));
+
+        UUIDMigrationService.Batch batch = UUIDMigrationService.plan(List.of(mixed, failing, legacy), UUIDStorage.Mode.STRING);
+
+        // The mixed document keeps its _id; the legacy one moves to a new _id
+        assertEquals(2, batch.writes().size());
+        assertEquals(1, batch.replaces());
+        WriteModel<BsonDocument> first = batch.writes().get(0);
+        assertInstanceOf(ReplaceOneModel.class, first);
+        ReplaceOneModel<BsonDocument> replace = (ReplaceOneModel<BsonDocument>) first;
+        assertEquals(new BsonDocument("_id", new BsonString(mixedId.toString()))
+            .append("version", new BsonInt64(3))
+            .append("updatedAt", new BsonString("2025-08-11T14:30:00Z")), replace.getFilter());
+        assertTrue(replace.getReplacement().get("projectId").isString());
+        WriteModel<BsonDocument> second = batch.writes().get(1);
+        assertInstanceOf(InsertOneModel.class, second);
+        assertEquals(new BsonString(legacyId.toString()), ((InsertOneModel<BsonDocument>) second).getDocument().get("_id"));
+
+        UUIDMigrationService.Move move = batch.moves().get(1);
+        assertEquals(new BsonDocument("_id", legacy.get("_id"))
+            .append("version", BsonNull.VALUE)
+            .append("updatedAt", BsonNull.VALUE), move.from());
+        assertEquals(new BsonString(legacyId.toString()), move.to().get("_id"));
+        assertEquals(BsonNull.VALUE, move.to().get("version"));
+        assertEquals(List.of(failingId), batch.unconvertible());
+    }
+
+    @Test
+    public void testPlanOfOnlyFailingDocumentsHasNoWrites() {
+        List<BsonDocument> failing = List.of(
+            task(new BsonString("a"), new BsonString(UUID.randomUUID().toString())),
+            task(new BsonString("b"), new BsonString(UUID.randomUUID().toString())));
+
+        UUIDMigrationService.Batch batch = UUIDMigrationService.plan(failing, UUIDStorage.Mode.BINARY);
+
+        assertTrue(batch.writes().isEmpty());
+        assertEquals(List.of(new BsonString("a"), new BsonString("b")), batch.unconvertible());
+    }
+
+    @Test
+    public void testLegacyObjectIdsAreMigratedButDoNotMakeLookupsMixed() {
+        assertEquals(List.of("binData", "objectId"), typesOf(UUIDMigrationService.legacyFilter(UUIDStorage.Mode.STRING)));
+        assertEquals(List.of("string", "objectId"), typesOf(UUIDMigrationService.legacyFilter(UUIDStorage.Mode.BINARY)));
+        assertEquals(List.of("binData"), typesOf(UUIDMigrationService.mixedFilter(UUIDStorage.Mode.STRING)));
+        assertEquals(List.of("string"), typesOf(UUIDMigrationService.mixedFilter(UUIDStorage.Mode.BINARY)));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> typesOf(Document filter) {
+        List<Document> fields = (List<Document>) filter.get("$or");
+        assertEquals(3, fields.size());
+        Document id = (Document) fields.get(0).get("_id");
+        return (List<String>) id.get("$type");
+    }
+}
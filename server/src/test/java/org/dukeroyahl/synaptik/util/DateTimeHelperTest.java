@@ -0,0 +1,67 @@
+package org.dukeroyahl.synaptik.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DateTimeHelperTest {
+
+    @Test
+    public void testCanonicalFormatsMatchGeneralParsers() {
+        String[] inputs = {
+            "2025-08-11T14:30:00Z",
+            "2025-08-11T10:30:00-04:00",
+            "2025-08-11T14:30:00+02:00",
+            "2025-08-11T14:30:00.5Z",
+            "2025-08-11T14:30:00.123456789+05:30",
+            "2025-08-11T14:30Z",
+            "  2025-08-11T14:30:00Z  "
+        };
+        for (String input : inputs) {
+            assertEquals(ZonedDateTime.parse(input.trim()), DateTimeHelper.parseCanonical(input), input);
+            assertEquals(ZonedDateTime.parse(input.trim()), DateTimeHelper.parseIso8601(input), input);
+        }
+    }
+
+    @Test
+    public void testInputsWithoutOffsetAreUtc() {
+        ZonedDateTime parsed = DateTimeHelper.parseIso8601("2025-08-11T14:30:00");
+        assertEquals(LocalDateTime.parse("2025-08-11T14:30:00").atZone(ZoneId.of("UTC")), parsed);
+
+        ZonedDateTime dateOnly = DateTimeHelper.parseIso8601("2025-08-11");
+        assertEquals(LocalDateTime.parse("2025-08-11T23:59:59").atZone(ZoneId.of("UTC")), dateOnly);
+    }
+
+    @Test
+    public void testNonCanonicalFormatsFallBack() {
+        // Region IDs are not handled by the fast path but still parse
+        assertNull(DateTimeHelper.parseCanonical("2025-08-11T14:30:00+01:00[Europe/Paris]"));
+        assertEquals(ZonedDateTime.parse("2025-08-11T14:30:00+01:00[Europe/Paris]"),
+            DateTimeHelper.parseIso8601("2025-08-11T14:30:00+01:00[Europe/Paris]"));
+    }
+
+    @Test
+    public void testInvalidInputs() {
+        assertNull(DateTimeHelper.parseIso8601(null));
+        assertNull(DateTimeHelper.parseIso8601("   "));
+        assertNull(DateTimeHelper.parseIso8601("not a date"));
+        assertNull(DateTimeHelper.parseIso8601("2025-02-30T10:00:00Z"));
+        assertNull(DateTimeHelper.parseIso8601("2025-13-01"));
+        assertNull(DateTimeHelper.parseIso8601("2025-08-11T25:00:00Z"));
+        assertNull(DateTimeHelper.parseIso8601("2025-08-11T10:00:00+19:00"));
+        assertNull(DateTimeHelper.parseCanonical("2025-08-11T10:00:00."));
+    }
+
+    @Test
+    public void testIsBeforeWithParsedReference() {
+        ZonedDateTime reference = ZonedDateTime.of(2025, 8, 11, 12, 0, 0, 0, ZoneOffset.UTC);
+        assertTrue(DateTimeHelper.isBefore("2025-08-11T07:59:00-04:00", reference));
+        assertFalse(DateTimeHelper.isBefore("2025-08-11T08:00:00-04:00", reference));
+        assertFalse(DateTimeHelper.isBefore("garbage", reference));
+    }
+}
@@ -0,0 +1,59 @@
+package org.dukeroyahl.synaptik.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimezoneResolverTest {
+
+    @Test
+    public void testResolvesAndCachesValidZones() {
+        String timezone = "Asia/Kolkata";
+        TimezoneResolver.resolve(timezone);
+        TimezoneResolver.Stats before = TimezoneResolver.stats();
+
+        assertEquals(ZoneId.of(timezone), TimezoneResolver.resolve(timezone).orElseThrow());
+
+        TimezoneResolver.Stats after = TimezoneResolver.stats();
+        assertEquals(before.zoneHits() + 1, after.zoneHits());
+        assertEquals(before.zoneMisses(), after.zoneMisses());
+    }
+
+    @Test
+    public void testCachesInvalidZones() {
+        String timezone = "Not/AZone-" + System.nanoTime();
+        TimezoneResolver.Stats before = TimezoneResolver.stats();
+
+        assertTrue(TimezoneResolver.resolve(timezone).isEmpty());
+        assertTrue(TimezoneResolver.resolve(timezone).isEmpty());
+
+        TimezoneResolver.Stats after = TimezoneResolver.stats();
+        assertEquals(before.invalidZones() + 1, after.invalidZones());
+        assertEquals(before.zoneMisses() + 1, after.zoneMisses());
+    }
+
+    @Test
+    public void testFallbackForBlankAndInvalid() {
+        ZoneId utc = ZoneId.of("UTC");
+        assertEquals(utc, TimezoneResolver.resolveOrDefault(null, utc));
+        assertEquals(utc, TimezoneResolver.resolveOrDefault("  ", utc));
+        assertEquals(utc, TimezoneResolver.resolveOrDefault("Invalid/Zone", utc));
+        assertEquals(ZoneId.of("Europe/Paris"), TimezoneResolver.resolveOrDefault(" Europe/Paris ", utc));
+    }
+
+    @Test
+    public void testDayBounds() {
+        ZoneId zone = ZoneId.of("America/New_York");
+        LocalDate day = LocalDate.of(2025, 8, 15);
+
+        TimezoneResolver.DayBounds bounds = TimezoneResolver.dayBounds(zone, day);
+        assertEquals(day.atStartOfDay(zone), bounds.start());
+        assertEquals(ZonedDateTime.of(2025, 8, 15, 23, 59, 59, 999_000_000, zone), bounds.end());
+
+        assertSame(bounds, TimezoneResolver.dayBounds(zone, day));
+    }
+}
@@ -0,0 +1,71 @@
+package org.dukeroyahl.synaptik.util;
+
+import org.bson.BsonBinary;
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.BsonObjectId;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.UuidRepresentation;
+import org.bson.codecs.DecoderContext;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UUIDCodecTest {
+
+    private final UUIDCodec codec = new UUIDCodec();
+
+    private UUID decode(BsonValue value) {
+        BsonDocumentReader reader = new BsonDocumentReader(new BsonDocument("v", value));
+        reader.readStartDocument();
+        reader.readName();
+        return codec.decode(reader, DecoderContext.builder().build());
+    }
+
+    @Test
+    public void testDecodesStringAndBinary() {
+        UUID id = UUID.randomUUID();
+        assertEquals(id, decode(new BsonString(id.toString())));
+        assertEquals(id, decode(new BsonBinary(id, UuidRepresentation.STANDARD)));
+        assertEquals(id, decode(new BsonBinary(id, UuidRepresentation.JAVA_LEGACY)));
+    }
+
+    @Test
+    public void testDecodesLegacyObjectId() {
+        ObjectId objectId = new ObjectId("66b8f0c2a1b2c3d4e5f60718");
+        assertEquals(UUID.fromString("00000000-66b8-f0c2-a1b2-c3d4e5f60718"), decode(new BsonObjectId(objectId)));
+    }
+
+    @Test
+    public void testFromBsonMatchesDecode() {
+        UUID id = UUID.randomUUID();
+        for (BsonValue value : new BsonValue[] {new BsonString(id.toString()), new BsonBinary(id, UuidRepresentation.STANDARD),
+                new BsonBinary(id, UuidRepresentation.JAVA_LEGACY), new BsonObjectId(new ObjectId())}) {
+            assertEquals(decode(value), UUIDCodec.fromBson(value));
+        }
+    }
+
+    @Test
+    public void testObjectIdConversionMatchesHexPadding() {
+        for (String hex : new String[] {"000000000000000000000000", "ffffffffffffffffffffffff", "80000000ffffffff00000001"}) {
+            String padded = "00000000" + hex;
+            UUID expected = UUID.fromString(padded.substring(0, 8) + "-" + padded.substring(8, 12) + "-"
+                + padded.substring(12, 16) + "-" + padded.substring(16, 20) + "-" + padded.substring(20));
+            assertEquals(expected, UUIDCodec.fromObjectId(new ObjectId(hex)));
+        }
+    }
+
+    @Test
+    public void testToBsonRepresentations() {
+        UUID id = UUID.randomUUID();
+        assertEquals(new BsonString(id.toString()), UUIDStorage.toBson(id, UUIDStorage.Mode.STRING));
+        BsonValue binary = UUIDStorage.toBson(id, UUIDStorage.Mode.BINARY);
+        assertTrue(binary.isBinary());
+        assertEquals(4, binary.asBinary().getType());
+        assertEquals(id, binary.asBinary().asUuid());
+    }
+}